@@ -0,0 +1,130 @@
+package org.lattilad.bestboard;
+
+import android.graphics.Color;
+import android.support.test.runner.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.lattilad.bestboard.utils.ExternalDataException;
+
+import static org.junit.Assert.*;
+
+/**
+ * Touch codes calculated from the hexagon geometry are compared with the layout map bitmap
+ * on every pixel of generated layouts.
+ * Bitmap drawing can round differently on the sides of the hexagons, so a different pixel
+ * is accepted only if its calculated color can be found in the map right next to it.
+ */
+@RunWith(AndroidJUnit4.class)
+public class LayoutHitTestTest
+    {
+    /** Half columns and rows of the generated layouts */
+    private static final int[][] DIMENSIONS =
+            { { 1, 1 }, { 8, 4 }, { 13, 6 }, { 20, 5 }, { 21, 8 } };
+
+    /** Portrait screen sizes, odd sizes are needed for rounding */
+    private static final int[][] SCREENS =
+            { { 480, 800 }, { 720, 1280 }, { 1080, 1920 }, { 1081, 2001 }, { 1440, 2560 } };
+
+
+    /**
+     * Generates a layout and compares its hit-test with the layout map
+     * @return number of different pixels
+     */
+    private int compareWithMap( int halfColumns, int rows, boolean oddRowsAligned, boolean wide,
+                                int screenWidth, int screenHeight, int hideTop, int hideBottom )
+            throws ExternalDataException
+        {
+        SoftBoardData data = new SoftBoardData();
+        data.heightRatioPermil = 1000;
+        data.hideTop = hideTop;
+        data.hideBottom = hideBottom;
+
+        Layout layout = new Layout( data, halfColumns, rows, oddRowsAligned, wide,
+                Color.WHITE, Color.BLACK, 0, null );
+        layout.calculateScreenData( screenWidth, screenHeight );
+
+        String name = halfColumns + "x" + rows + (oddRowsAligned ? " odd" : " even") +
+                (wide ? " wide" : "") + " on " + screenWidth + "x" + screenHeight +
+                " hide " + hideTop + "/" + hideBottom;
+
+        int width = layout.layoutWidthInPixels;
+        int height = layout.layoutHeightInPixels;
+        int[] map = new int[ width * height ];
+        layout.getLayoutMap().getPixels( map, 0, width, 0, 0, width, height );
+
+        int differences = 0;
+        for ( int y = 0; y < height; y++ )
+            {
+            for ( int x = 0; x < width; x++ )
+                {
+                int color = layout.colorFromMap( x + layout.layoutXOffset, y + layout.layoutYOffset );
+                if ( color == map[ y * width + x ] )
+                    continue;
+
+                differences++;
+                if ( !isNextTo( map, width, height, x, y, color ) )
+                    fail( name + ": calculated " + Integer.toHexString( color ) + " differs from map " +
+                            Integer.toHexString( map[ y * width + x ] ) + " at " + x + ", " + y );
+                }
+            }
+
+        // debug check of the layout should find the same pixels
+        assertEquals( name, differences, layout.checkHitTest() );
+
+        layout.releasePictures();
+        return differences;
+        }
+
+    /**
+     * True, if color can be found in the map on the neighbours of the pixel
+     */
+    private boolean isNextTo( int[] map, int width, int height, int x, int y, int color )
+        {
+        for ( int dy = -1; dy <= 1; dy++ )
+            {
+            for ( int dx = -1; dx <= 1; dx++ )
+                {
+                int nx = x + dx;
+                int ny = y + dy;
+                if ( nx >= 0 && nx < width && ny >= 0 && ny < height && map[ ny * width + nx ] == color )
+                    return true;
+                }
+            }
+        return false;
+        }
+
+    @Test
+    public void portraitLayouts_matchLayoutMap() throws ExternalDataException
+        {
+        for ( int[] dimension : DIMENSIONS )
+            {
+            for ( int[] screen : SCREENS )
+                {
+                compareWithMap( dimension[0], dimension[1], false, false, screen[0], screen[1], 0, 0 );
+                compareWithMap( dimension[0], dimension[1], true, false, screen[0], screen[1], 0, 0 );
+                }
+            }
+        }
+
+    @Test
+    public void hiddenRows_matchLayoutMap() throws ExternalDataException
+        {
+        for ( int[] dimension : DIMENSIONS )
+            {
+            compareWithMap( dimension[0], dimension[1], false, false, 1080, 1920, 1, 0 );
+            compareWithMap( dimension[0], dimension[1], true, false, 1080, 1920, 0, 1 );
+            compareWithMap( dimension[0], dimension[1], true, false, 1081, 2001, 1, 1 );
+            }
+        }
+
+    @Test
+    public void wideLayouts_matchLayoutMap() throws ExternalDataException
+        {
+        for ( int[] dimension : DIMENSIONS )
+            {
+            compareWithMap( dimension[0], dimension[1], false, true, 1920, 1080, 0, 0 );
+            compareWithMap( dimension[0], dimension[1], true, true, 2001, 1081, 0, 0 );
+            }
+        }
+    }
@@ -0,0 +1,234 @@
+package org.lattilad.bestboard;
+
+import android.content.Context;
+import android.graphics.Color;
+import android.os.Build;
+import android.os.Bundle;
+import android.os.Debug;
+import android.os.SystemClock;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.view.MotionEvent;
+import android.view.View;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.lattilad.bestboard.buttons.ButtonSingle;
+import org.lattilad.bestboard.buttons.Packet;
+import org.lattilad.bestboard.buttons.TitleDescriptor;
+import org.lattilad.bestboard.scribe.Scribe;
+import org.lattilad.bestboard.utils.ExternalDataException;
+import org.lattilad.bestboard.utils.SinglyLinkedList;
+import org.lattilad.bestboard.utils.Trilean;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Touch path of LayoutView should not allocate, if debug texts would not appear.
+ * Layout is filled with single buttons (as coat files do), and touch moves between
+ * two neighbouring buttons, so the main bow changes - and buttons are pressed and released -
+ * on every event.
+ * <p>
+ * Allocated bytes are counted by the runtime for the whole process, so a small, fixed
+ * margin is allowed for other threads. Even one small object for each event would need
+ * much more than this margin.
+ */
+@RunWith(AndroidJUnit4.class)
+public class LayoutViewAllocationTest
+    {
+    private static final int SCREEN_WIDTH = 1080;
+    private static final int SCREEN_HEIGHT = 1920;
+
+    private static final int WARM_UP_EVENTS = 1000;
+    private static final int MEASURED_EVENTS = 20000;
+
+    /** Allowed allocation of the whole measurement (not of one event!) - other threads of the process */
+    private static final long ALLOCATION_MARGIN = 64L * 1024L;
+
+    private Bundle scribeConfig;
+
+    @Before
+    public void setUp()
+        {
+        // "art.gc.bytes-allocated" is available from API 23
+        assumeTrue( Build.VERSION.SDK_INT >= 23 );
+
+        scribeConfig = Scribe.getConfig();
+        Scribe.disableDebug();
+        }
+
+    @After
+    public void tearDown()
+        {
+        if ( scribeConfig != null )
+            Scribe.setConfig( scribeConfig );
+        }
+
+    /** Listener of the softboard, methods needed by the touch path do nothing */
+    private static SoftBoardListener createListener()
+        {
+        return (SoftBoardListener) Proxy.newProxyInstance( SoftBoardListener.class.getClassLoader(),
+                new Class<?>[] { SoftBoardListener.class }, new InvocationHandler()
+                    {
+                    @Override
+                    public Object invoke( Object proxy, Method method, Object[] args )
+                        {
+                        Class<?> type = method.getReturnType();
+                        if ( type == boolean.class )
+                            return Boolean.FALSE;
+                        if ( type == int.class )
+                            return 0;
+                        if ( type == long.class )
+                            return 0L;
+                        return null;
+                        }
+                    } );
+        }
+
+    /**
+     * Fills all positions of the layout with single buttons.
+     * Their packets send nothing, because the editor is not part of the touch path.
+     */
+    private static void addButtons( SoftBoardData data, Layout layout ) throws ExternalDataException
+        {
+        Packet packet = new Packet( data, "a" )
+            {
+            @Override
+            public void send()
+                {
+                }
+            };
+
+        for ( int row = 0; row < layout.layoutHeightInHexagons; row++ )
+            {
+            for ( int column = 0; column < layout.layoutWidthInHexagons; column++ )
+                {
+                if ( layout.checkPosition( column, row ) <= Layout.POSITION_LINE_ENDED )
+                    continue;
+
+                SinglyLinkedList<TitleDescriptor> titles = new SinglyLinkedList<>();
+                titles.add( new TitleDescriptor( "a", 0, 0, 1000, false, false, Color.BLACK ) );
+
+                ButtonSingle button = new ButtonSingle( packet, ButtonSingle.CAPITAL );
+                button.setColor( Color.LTGRAY );
+                button.setTitles( titles );
+                layout.addButton( column, row, button );
+                }
+            }
+        }
+
+    private static long bytesAllocated()
+        {
+        return Long.parseLong( Debug.getRuntimeStat( "art.gc.bytes-allocated" ) );
+        }
+
+    private static MotionEvent obtainEvent( int action, int[] point )
+        {
+        long now = SystemClock.uptimeMillis();
+        return MotionEvent.obtain( now, now, action, point[0], point[1], 0 );
+        }
+
+    /**
+     * Finds the centers of two neighbouring hexagons (inside their rims)
+     * @return x and y coordinates of the two points
+     */
+    private static int[][] findTwoHexagons( Layout layout )
+        {
+        for ( int y = layout.layoutYOffset; y < layout.layoutYOffset + layout.layoutHeightInPixels; y++ )
+            {
+            int[] first = null;
+            int firstTouchCode = 0;
+
+            for ( int x = 0; x < SCREEN_WIDTH; x++ )
+                {
+                int color = layout.colorFromMap( x, y );
+                int touchCode = Layout.touchCodeFromColor( color );
+                if ( touchCode == Layout.EMPTY_TOUCH_CODE || touchCode == 0 || Layout.outerRimFromColor( color ) )
+                    continue;
+
+                if ( first == null )
+                    {
+                    first = new int[] { x, y };
+                    firstTouchCode = touchCode;
+                    }
+                else if ( touchCode != firstTouchCode )
+                    {
+                    return new int[][] { first, { x, y } };
+                    }
+                }
+            }
+        fail( "Two hexagons cannot be found" );
+        return null;
+        }
+
+    @Test
+    public void movesBetweenHexagons_doNotAllocate()
+        {
+        final Context context = InstrumentationRegistry.getTargetContext();
+        final long[] allocated = new long[1];
+
+        // View and its handlers need the main looper
+        InstrumentationRegistry.getInstrumentation().runOnMainSync( new Runnable()
+            {
+            @Override
+            public void run()
+                {
+                SoftBoardData data = new SoftBoardData();
+                data.softBoardListener = createListener();
+                data.heightRatioPermil = 1000;
+                // vibrator is not set
+                data.vibrationAllowed = false;
+
+                Layout layout;
+                try
+                    {
+                    layout = new Layout( data, 13, 6, false, false,
+                            Color.WHITE, Color.BLACK, 0, new Trilean[0] );
+                    addButtons( data, layout );
+                    }
+                catch ( Exception e )
+                    {
+                    throw new AssertionError( e );
+                    }
+
+                LayoutView view = new LayoutView( context );
+                view.setLayout( layout );
+                view.measure( View.MeasureSpec.makeMeasureSpec( SCREEN_WIDTH, View.MeasureSpec.EXACTLY ),
+                        View.MeasureSpec.makeMeasureSpec( SCREEN_HEIGHT, View.MeasureSpec.AT_MOST ) );
+
+                int[][] points = findTwoHexagons( layout );
+                MotionEvent down = obtainEvent( MotionEvent.ACTION_DOWN, points[0] );
+                MotionEvent[] moves = new MotionEvent[] {
+                        obtainEvent( MotionEvent.ACTION_MOVE, points[1] ),
+                        obtainEvent( MotionEvent.ACTION_MOVE, points[0] ) };
+                MotionEvent up = obtainEvent( MotionEvent.ACTION_UP, points[0] );
+
+                view.onTouchEvent( down );
+                for ( int n = 0; n < WARM_UP_EVENTS; n++ )
+                    view.onTouchEvent( moves[ n % 2 ] );
+
+                long start = bytesAllocated();
+                for ( int n = 0; n < MEASURED_EVENTS; n++ )
+                    view.onTouchEvent( moves[ n % 2 ] );
+                allocated[0] = bytesAllocated() - start;
+
+                view.onTouchEvent( up );
+
+                down.recycle();
+                moves[0].recycle();
+                moves[1].recycle();
+                up.recycle();
+                }
+            } );
+
+        assertTrue( "Touch path allocated " + allocated[0] + " bytes for " + MEASURED_EVENTS + " events",
+                allocated[0] <= ALLOCATION_MARGIN );
+        }
+    }
@@ -0,0 +1,176 @@
+package org.lattilad.bestboard.parser;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Environment;
+import android.preference.PreferenceManager;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.lattilad.bestboard.R;
+import org.lattilad.bestboard.SoftBoardData;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Colors parsed from a snapshot should be the same as colors of a live parse.
+ * Main coat file sets ALPHA, and the INCLUDE-d coat file uses colors with default alfa.
+ * First parse tokenizes the files and saves the snapshot, second parse replays the snapshot.
+ */
+@RunWith(AndroidJUnit4.class)
+public class CoatSnapshotTest
+    {
+    private static final String MAIN_COAT = "alfamain.txt";
+    private static final String INCLUDED_COAT = "alfacolors.txt";
+
+    private static final String MAIN_TEXT =
+            "coat (1000)\n" +
+            "alpha 0x80\n" +
+            "autocolor 0c0f0\n" +
+            "include \"" + INCLUDED_COAT + "\"\n" +
+            "addlayout (id mainlayout start columns 2 rows 1 asboard)\n";
+
+    private static final String INCLUDED_TEXT =
+            "coat (1000)\n" +
+            "activecolor 0c123456\n" +
+            "lockcolor 0c345\n" +
+            "touchcolor 0c40abcdef\n";
+
+    private Context context;
+    private File coatDirectory;
+    private File snapshotFile;
+    private String directoryKey;
+    private String savedDirectory;
+
+    @Before
+    public void setUp() throws IOException
+        {
+        context = InstrumentationRegistry.getTargetContext();
+
+        // INCLUDE-d files are searched in the coat directory, set relative to external storage
+        coatDirectory = context.getExternalFilesDir( null );
+        assertNotNull( coatDirectory );
+        directoryKey = context.getString( R.string.descriptor_directory_key );
+        SharedPreferences sharedPrefs = PreferenceManager.getDefaultSharedPreferences( context );
+        savedDirectory = sharedPrefs.getString( directoryKey, null );
+        sharedPrefs.edit().putString( directoryKey, Environment.getExternalStorageDirectory().toURI()
+                .relativize( coatDirectory.toURI() ).getPath() ).commit();
+
+        writeFile( MAIN_COAT, MAIN_TEXT );
+        writeFile( INCLUDED_COAT, INCLUDED_TEXT );
+
+        snapshotFile = CoatSnapshot.getSnapshotFile(
+                context.getCacheDir(), new File( coatDirectory, MAIN_COAT ) );
+        snapshotFile.delete();
+        }
+
+    @After
+    public void tearDown()
+        {
+        SharedPreferences.Editor editor = PreferenceManager.getDefaultSharedPreferences( context ).edit();
+        if ( savedDirectory == null )
+            editor.remove( directoryKey );
+        else
+            editor.putString( directoryKey, savedDirectory );
+        editor.commit();
+
+        new File( coatDirectory, MAIN_COAT ).delete();
+        new File( coatDirectory, INCLUDED_COAT ).delete();
+        snapshotFile.delete();
+        }
+
+    private void writeFile( String name, String text ) throws IOException
+        {
+        Writer writer = new OutputStreamWriter(
+                new FileOutputStream( new File( coatDirectory, name ) ), "UTF-8" );
+        try
+            {
+            writer.write( text );
+            }
+        finally
+            {
+            writer.close();
+            }
+        }
+
+    /**
+     * Parses the main coat file on the background thread, as the service does
+     * @return data of the finished parsing
+     */
+    private SoftBoardData parse() throws InterruptedException
+        {
+        final CountDownLatch finished = new CountDownLatch( 1 );
+        final SoftBoardData[] result = new SoftBoardData[1];
+
+        final SoftBoardParser.SoftBoardParserListener listener = new SoftBoardParser.SoftBoardParserListener()
+            {
+            @Override
+            public Context getApplicationContext()
+                {
+                return context;
+                }
+
+            @Override
+            public void softBoardParserFinished( SoftBoardData softBoardData, int errorCount )
+                {
+                result[0] = softBoardData;
+                finished.countDown();
+                }
+
+            @Override
+            public void softBoardParserCriticalError( int errorInfo )
+                {
+                finished.countDown();
+                }
+            };
+
+        InstrumentationRegistry.getInstrumentation().runOnMainSync( new Runnable()
+            {
+            @Override
+            public void run()
+                {
+                new SoftBoardParser( listener, coatDirectory, MAIN_COAT ).execute();
+                }
+            } );
+
+        assertTrue( "Parsing timed out", finished.await( 30, TimeUnit.SECONDS ) );
+        assertNotNull( "Critical parsing error", result[0] );
+        return result[0];
+        }
+
+    @Test
+    public void snapshotParse_keepsDefaultAlfaOfIncludedColors() throws InterruptedException
+        {
+        SoftBoardData live = parse();
+        assertTrue( "Snapshot is not saved", snapshotFile.exists() );
+        assertTrue( snapshotFile.setLastModified( 0L ) );
+
+        SoftBoardData replayed = parse();
+        // snapshot is not saved again, if it was fully used
+        assertEquals( "Snapshot is not used", 0L, snapshotFile.lastModified() );
+
+        assertEquals( 0x80, live.defaultAlfa );
+        assertEquals( 0x8000FF00, live.autoColor );
+        assertEquals( 0x80123456, live.metaColor );
+        assertEquals( 0x80334455, live.lockColor );
+        assertEquals( 0x40ABCDEF, live.touchColor );
+
+        assertEquals( live.defaultAlfa, replayed.defaultAlfa );
+        assertEquals( live.autoColor, replayed.autoColor );
+        assertEquals( live.metaColor, replayed.metaColor );
+        assertEquals( live.lockColor, replayed.lockColor );
+        assertEquals( live.touchColor, replayed.touchColor );
+        }
+    }
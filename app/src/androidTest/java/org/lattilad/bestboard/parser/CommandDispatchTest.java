@@ -0,0 +1,374 @@
+package org.lattilad.bestboard.parser;
+
+import android.content.Context;
+import android.os.SystemClock;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.lattilad.bestboard.SoftBoardData;
+import org.lattilad.bestboard.debug.Debug;
+import org.lattilad.bestboard.scribe.Scribe;
+import org.lattilad.bestboard.utils.LongObjectMap;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.StringReader;
+import java.io.Writer;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Typed handlers of CommandHandlers are compared with the previous, reflection based dispatch.
+ * Previous version looked up the methods by name with getDeclaredMethod, and called them
+ * with Method.invoke. Both ways should set the same data.
+ * Times are only logged (TIMER), they depend too much on the device to be checked.
+ */
+@RunWith(AndroidJUnit4.class)
+public class CommandDispatchTest
+    {
+    /** ONE-type color commands, their methods need only the tokenizer */
+    private static final long[] COLOR_COMMANDS = {
+            Commands.TOKEN_ACTIVECOLOR,
+            Commands.TOKEN_LOCKCOLOR,
+            Commands.TOKEN_AUTOCOLOR,
+            Commands.TOKEN_TOUCHCOLOR,
+            Commands.TOKEN_STROKECOLOR };
+
+    private static final int WARM_UP_ROUNDS = 2000;
+    private static final int MEASURED_ROUNDS = 50000;
+
+    /** Generated coat files: main file INCLUDE-s the next one etc. Each file adds a layout with buttons. */
+    private static final int GENERATED_FILES = 20;
+    private static final int GENERATED_BUTTONS = 100;
+    private static final int GENERATED_COLUMNS = 10;
+
+    /** Both dispatch modes parse the generated files this many times */
+    private static final int PARSE_ROUNDS = 5;
+
+    /** Messages of the methods are dropped, so logging is not measured */
+    private static final Diagnostics SILENT_DIAGNOSTICS = new Diagnostics()
+        {
+        @Override
+        public String getMessageText( ParserMessage messageKey )
+            {
+            return "";
+            }
+
+        @Override
+        public void error( String message )
+            {
+            }
+
+        @Override
+        public void note( String message )
+            {
+            }
+
+        @Override
+        public void debug( String message )
+            {
+            }
+
+        @Override
+        public void programError( String message )
+            {
+            }
+        };
+
+    /**
+     * Previous dispatch: methods are looked up by name once (as Commands did),
+     * and they are called by Method.invoke
+     */
+    private static class ReflectionMethods implements CoatParser.CommandMethods
+        {
+        private MethodsForCommands methods;
+        private LongObjectMap<Method> reflected = new LongObjectMap<>();
+
+        ReflectionMethods( MethodsForCommands methods ) throws NoSuchMethodException
+            {
+            this.methods = methods;
+            for ( long commandCode : Commands.getCommandCodes() )
+                {
+                CommandHandlers.Handler handler = CommandHandlers.getHandler( commandCode );
+                if ( handler != null )
+                    reflected.put( commandCode, findMethod( handler ) );
+                }
+            }
+
+        private Object invoke( long commandCode, Object... parameters )
+            {
+            try
+                {
+                return reflected.get( commandCode ).invoke( methods, parameters );
+                }
+            catch (IllegalAccessException e)
+                {
+                throw new IllegalStateException( e );
+                }
+            catch (InvocationTargetException e)
+                {
+                // exceptions of the methods are reported by the parser
+                if ( e.getCause() instanceof RuntimeException )
+                    throw (RuntimeException) e.getCause();
+                throw new IllegalStateException( e.getCause() );
+                }
+            }
+
+        @Override
+        public Object callComplex( long commandCode, LongObjectMap<Object> parameters )
+            {
+            return invoke( commandCode, parameters );
+            }
+
+        @Override
+        public Object callOne( long commandCode, Object parameter )
+            {
+            return invoke( commandCode, parameter );
+            }
+
+        @Override
+        public Object callList( long commandCode, List<Object> parameter )
+            {
+            return invoke( commandCode, parameter );
+            }
+
+        @Override
+        public Object callNo( long commandCode )
+            {
+            return invoke( commandCode );
+            }
+        }
+
+    /**
+     * Method of MethodsForCommands called by the handler - as the previous version found it
+     */
+    private static Method findMethod( CommandHandlers.Handler handler ) throws NoSuchMethodException
+        {
+        if ( handler instanceof CommandHandlers.ComplexHandler )
+            return MethodsForCommands.class.getDeclaredMethod( handler.getName(), LongObjectMap.class );
+        else if ( handler instanceof CommandHandlers.OneHandler )
+            return MethodsForCommands.class.getDeclaredMethod( handler.getName(), Object.class );
+        else if ( handler instanceof CommandHandlers.ListHandler )
+            return MethodsForCommands.class.getDeclaredMethod( handler.getName(), List.class );
+        else
+            return MethodsForCommands.class.getDeclaredMethod( handler.getName() );
+        }
+
+    /** Data and messages of one parsing */
+    private static class ParseResult
+        {
+        MethodsForCommands methods;
+        int errorCount;
+        int methodCalls;
+        }
+
+    private Context context;
+    private CoatParser coatParser;
+    private File coatDirectory;
+
+    @Before
+    public void setUp() throws Exception
+        {
+        context = InstrumentationRegistry.getTargetContext();
+        coatParser = new CoatParser( SILENT_DIAGNOSTICS, context.getCacheDir(), null, 0L );
+
+        // parser is not executed, methods reach this tokenizer
+        Field field = CoatParser.class.getDeclaredField( "tokenizer" );
+        field.setAccessible( true );
+        field.set( coatParser, new Tokenizer( SILENT_DIAGNOSTICS, new StringReader( "" ) ) );
+
+        coatDirectory = new File( context.getCacheDir(), "dispatch" );
+        assertTrue( coatDirectory.isDirectory() || coatDirectory.mkdirs() );
+        }
+
+    @After
+    public void tearDown()
+        {
+        File[] files = coatDirectory.listFiles();
+        if ( files != null )
+            {
+            for ( File file : files )
+                file.delete();
+            }
+        coatDirectory.delete();
+        }
+
+    @Test
+    public void handlers_setSameDataAsReflection() throws Exception
+        {
+        // binding: previous version looked up each method by its name
+        long start = SystemClock.elapsedRealtimeNanos();
+        Method[] reflected = new Method[ COLOR_COMMANDS.length ];
+        for ( int n = 0; n < COLOR_COMMANDS.length; n++ )
+            {
+            reflected[n] = findMethod( CommandHandlers.getHandler( COLOR_COMMANDS[n] ) );
+            }
+        long reflectionBinding = SystemClock.elapsedRealtimeNanos() - start;
+
+        start = SystemClock.elapsedRealtimeNanos();
+        CommandHandlers.OneHandler[] handlers = new CommandHandlers.OneHandler[ COLOR_COMMANDS.length ];
+        for ( int n = 0; n < COLOR_COMMANDS.length; n++ )
+            {
+            handlers[n] = CommandHandlers.getOneHandler( COLOR_COMMANDS[n] );
+            assertNotNull( handlers[n] );
+            }
+        long handlerBinding = SystemClock.elapsedRealtimeNanos() - start;
+
+        SoftBoardData reflectionData = new SoftBoardData();
+        MethodsForCommands reflectionMethods = new MethodsForCommands( reflectionData, coatParser );
+        SoftBoardData handlerData = new SoftBoardData();
+        MethodsForCommands handlerMethods = new MethodsForCommands( handlerData, coatParser );
+
+        // calls: parameters are boxed the same way for both versions
+        Object[] colors = new Object[ COLOR_COMMANDS.length * 2 ];
+        for ( int n = 0; n < colors.length; n++ )
+            colors[n] = 0x80000000 | ( n * 0x111111 );
+
+        callByReflection( reflected, reflectionMethods, colors, WARM_UP_ROUNDS );
+        callByHandlers( handlers, handlerMethods, colors, WARM_UP_ROUNDS );
+
+        start = SystemClock.elapsedRealtimeNanos();
+        callByReflection( reflected, reflectionMethods, colors, MEASURED_ROUNDS );
+        long reflectionCalls = SystemClock.elapsedRealtimeNanos() - start;
+
+        start = SystemClock.elapsedRealtimeNanos();
+        callByHandlers( handlers, handlerMethods, colors, MEASURED_ROUNDS );
+        long handlerCalls = SystemClock.elapsedRealtimeNanos() - start;
+
+        Scribe.note( Debug.TIMER, "Command dispatch - binding: reflection " + reflectionBinding +
+                " ns, handlers " + handlerBinding + " ns; " + MEASURED_ROUNDS * COLOR_COMMANDS.length +
+                " calls: reflection " + reflectionCalls / 1000L + " us, handlers " + handlerCalls / 1000L + " us" );
+
+        assertEquals( reflectionData.metaColor, handlerData.metaColor );
+        assertEquals( reflectionData.lockColor, handlerData.lockColor );
+        assertEquals( reflectionData.autoColor, handlerData.autoColor );
+        assertEquals( reflectionData.touchColor, handlerData.touchColor );
+        assertEquals( reflectionData.strokeColor, handlerData.strokeColor );
+        }
+
+    private static void callByReflection( Method[] reflected, MethodsForCommands methods,
+                                          Object[] colors, int rounds ) throws Exception
+        {
+        for ( int round = 0; round < rounds; round++ )
+            {
+            for ( int n = 0; n < reflected.length; n++ )
+                reflected[n].invoke( methods, colors[ (round + n) % colors.length ] );
+            }
+        }
+
+    private static void callByHandlers( CommandHandlers.OneHandler[] handlers, MethodsForCommands methods,
+                                        Object[] colors, int rounds )
+        {
+        for ( int round = 0; round < rounds; round++ )
+            {
+            for ( int n = 0; n < handlers.length; n++ )
+                handlers[n].call( methods, colors[ (round + n) % colors.length ] );
+            }
+        }
+
+    @Test
+    public void generatedCoat_parsesSameInBothModes() throws Exception
+        {
+        File mainFile = generateCoat();
+
+        // first parsing of both modes is not measured
+        parse( mainFile, false );
+        parse( mainFile, true );
+
+        long handlerTime = 0L;
+        long reflectionTime = 0L;
+        ParseResult handlerResult = null;
+        ParseResult reflectionResult = null;
+        for ( int round = 0; round < PARSE_ROUNDS; round++ )
+            {
+            long start = SystemClock.elapsedRealtimeNanos();
+            handlerResult = parse( mainFile, false );
+            handlerTime += SystemClock.elapsedRealtimeNanos() - start;
+
+            start = SystemClock.elapsedRealtimeNanos();
+            reflectionResult = parse( mainFile, true );
+            reflectionTime += SystemClock.elapsedRealtimeNanos() - start;
+            }
+
+        Scribe.note( Debug.TIMER, "Parsing " + GENERATED_FILES + " coat files (" +
+                GENERATED_FILES * GENERATED_BUTTONS + " buttons) x " + PARSE_ROUNDS +
+                ": reflection " + reflectionTime / 1000000L + " ms, handlers " + handlerTime / 1000000L + " ms" );
+
+        assertEquals( GENERATED_FILES, handlerResult.methods.layouts.size() );
+        assertEquals( handlerResult.methods.layouts.size(), reflectionResult.methods.layouts.size() );
+        assertEquals( handlerResult.methodCalls, reflectionResult.methodCalls );
+        assertEquals( handlerResult.errorCount, reflectionResult.errorCount );
+        }
+
+    /**
+     * Parses the main coat file as SoftBoardParser does (without snapshot)
+     * @param reflection true: methods are called by reflection, false: methods are called by handlers
+     * @return methods of the parsing (with the collected data), and counters of the parser
+     */
+    private ParseResult parse( File mainFile, boolean reflection ) throws Exception
+        {
+        CoatParser parser = new CoatParser( SILENT_DIAGNOSTICS, coatDirectory, null, 0L );
+        MethodsForCommands methods = new MethodsForCommands( new SoftBoardData(), parser );
+        methods.createDefaults();
+
+        parser.parse( mainFile, reflection ? new ReflectionMethods( methods ) : methods );
+
+        ParseResult result = new ParseResult();
+        result.methods = methods;
+        result.errorCount = parser.getErrorCount();
+        result.methodCalls = parser.getMethodCalls();
+        return result;
+        }
+
+    /**
+     * Writes the generated coat files into coatDirectory
+     * @return main coat file
+     */
+    private File generateCoat() throws IOException
+        {
+        for ( int n = 0; n < GENERATED_FILES; n++ )
+            {
+            StringBuilder builder = new StringBuilder();
+            builder.append( "coat (1000)\n" );
+            if ( n + 1 < GENERATED_FILES )
+                builder.append( "include \"gen" ).append( n + 1 ).append( ".txt\"\n" );
+
+            builder.append( "addlayout (id genlayout" ).append( n )
+                    .append( " columns " ).append( GENERATED_COLUMNS )
+                    .append( " rows " ).append( GENERATED_BUTTONS / GENERATED_COLUMNS )
+                    .append( " asboard color 0c808080)\n" );
+
+            builder.append( "block (layout genlayout" ).append( n ).append( " row 1 column 1\n" );
+            for ( int b = 0; b < GENERATED_BUTTONS; b++ )
+                {
+                if ( b > 0 && b % GENERATED_COLUMNS == 0 )
+                    builder.append( "\tcrr\n" );
+                builder.append( "\tbutton (text '" ).append( (char)('a' + b % 26) )
+                        .append( "' color 0c123456 addtitle (size 750))\n" );
+                }
+            builder.append( ")\n" );
+
+            Writer writer = new OutputStreamWriter(
+                    new FileOutputStream( new File( coatDirectory, "gen" + n + ".txt" ) ), "UTF-8" );
+            try
+                {
+                writer.write( builder.toString() );
+                }
+            finally
+                {
+                writer.close();
+                }
+            }
+        return new File( coatDirectory, "gen0.txt" );
+        }
+    }
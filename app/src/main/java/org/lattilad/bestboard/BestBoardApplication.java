@@ -0,0 +1,27 @@
+package org.lattilad.bestboard;
+
+import android.app.Application;
+
+/**
+ * Process of the program starts here.
+ * Parsing of the main coat file is started immediately (see PreWarm),
+ * so the keyboard could be ready, when SoftBoardService needs it.
+ * (Result is dropped, if SoftBoardService does not need it soon.)
+ */
+public class BestBoardApplication extends Application
+    {
+    @Override
+    public void onCreate()
+        {
+        PreWarm.processStarted();
+
+        super.onCreate();
+
+        // This should be called at every starting point
+        long assetCheckStart = System.nanoTime();
+        Ignition.start(this);
+        PreWarm.noteStage( "asset check", assetCheckStart );
+
+        PreWarm.start(this);
+        }
+    }
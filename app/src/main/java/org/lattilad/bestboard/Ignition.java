@@ -10,7 +10,7 @@ import org.lattilad.bestboard.debug.Debug;
 import org.lattilad.bestboard.prefs.PrefsFragment;
 import org.lattilad.bestboard.scribe.Scribe;
 
-import java.io.BufferedInputStream;
+import java.io.BufferedReader;
 import java.io.Closeable;
 import java.io.File;
 import java.io.FileInputStream;
@@ -18,16 +18,31 @@ import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Map;
 
 /**
- * Ignition.start() should be called at every entry points of the program.
+ * Ignition.start() is called once, by BestBoardApplication, before any component
+ * (service or activity) of the process starts.
  */
 public class Ignition
     {
+    /** Digests of the asset files, generated during build. This file is not copied. */
+    private static final String ASSET_MANIFEST = "assets.sha1";
+
+    /** Stamps of the copied asset files are stored with this prefix + asset name */
+    private static final String PREFS_ASSET_STAMP = "assetstamp_";
+
+    /** Files are read and copied in blocks of this size */
+    private static final int COPY_BUFFER_SIZE = 65536;
+
     /**
      * Initialization of the whole system.
-     * This should be called at every staring point!
+     * BestBoardApplication calls this, components need not call it again.
      */
     public static void start( Context context )
         {
@@ -44,6 +59,23 @@ public class Ignition
             }
         }
 
+    /**
+     * Working directory of the coat files, as set in preferences.
+     * Pre-warm parsing, the service and the asset copy should use the same directory.
+     * @param context context
+     * @return working directory (it is not checked)
+     */
+    public static File getCoatDirectory( Context context )
+        {
+        SharedPreferences sharedPrefs = PreferenceManager.getDefaultSharedPreferences( context );
+
+        String directoryName =
+                sharedPrefs.getString( context.getString( R.string.descriptor_directory_key ),
+                        context.getString( R.string.descriptor_directory_default ));
+        return new File( Environment.getExternalStorageDirectory(), directoryName );
+        }
+
+
     /**
      * http://stackoverflow.com/a/11212942 - copy asset folder
      * http://stackoverflow.com/a/6187097 - compressed files in assets
@@ -57,15 +89,11 @@ public class Ignition
 
         // Check working directory
         SharedPreferences sharedPrefs = PreferenceManager.getDefaultSharedPreferences( context );
-
-        String directoryName =
-                sharedPrefs.getString( context.getString( R.string.descriptor_directory_key ),
-                        context.getString( R.string.descriptor_directory_default ));
-        File directoryFile = new File( Environment.getExternalStorageDirectory(), directoryName );
+        File directoryFile = getCoatDirectory( context );
 
         if ( !directoryFile.exists() )
             {
-            Scribe.debug( Debug.IGNITION, "Could not find directory. Working directory is created:" + directoryName);
+            Scribe.debug( Debug.IGNITION, "Could not find directory. Working directory is created:" + directoryFile.getAbsolutePath());
             // Create even whole directory structure
             directoryFile.mkdirs();
             }
@@ -89,11 +117,18 @@ public class Ignition
             {
             AssetManager assetManager = context.getAssets();
             String[] assetNames = assetManager.list("");
+            Map<String, String> assetDigests = readAssetManifest( assetManager );
+            SharedPreferences.Editor editor = sharedPrefs.edit();
 
             for ( String assetName : assetNames )
                 {
-                copyAssetFile( assetManager, assetName, directoryFile );
+                if ( ASSET_MANIFEST.equals( assetName ) )
+                    continue;
+                copyAssetFile( assetManager, assetName, directoryFile,
+                        assetDigests.get( assetName ), sharedPrefs, editor );
                 }
+
+            editor.apply();
             }
         catch ( IOException e )
             {
@@ -105,23 +140,62 @@ public class Ignition
         }
 
 
+    /**
+     * Reads digests of the asset files. Manifest is generated during build
+     * (generateAssetManifest task), each line contains: hex SHA-1 digest, space, file name.
+     * @param assetManager asset manager to reach assets
+     * @return digests by asset names (empty if manifest is missing)
+     */
+    private static Map<String, String> readAssetManifest( AssetManager assetManager )
+        {
+        Map<String, String> digests = new HashMap<>();
+        BufferedReader reader = null;
+        try
+            {
+            reader = new BufferedReader( new InputStreamReader( assetManager.open( ASSET_MANIFEST ), "UTF-8" ));
+            String line;
+            while ( (line = reader.readLine()) != null )
+                {
+                int space = line.indexOf( ' ' );
+                if ( space > 0 )
+                    digests.put( line.substring( space + 1 ), line.substring( 0, space ) );
+                }
+            }
+        catch ( IOException ioe )
+            {
+            // digests will be calculated from the assets
+            Scribe.debug( Debug.IGNITION, "Asset manifest cannot be read: " + ioe.toString() );
+            }
+        finally
+            {
+            closeSilently( reader );
+            }
+        return digests;
+        }
+
+
     /**
      * Copy one asset file to target directory.
      * If a file with the same name could be found in target directory,
      * it will be checked first.
+     * If the target file was copied previously, and its size and modification time
+     * are not changed since then, then only the stored digest is compared with the asset's digest.
+     * Otherwise the digest of the target file is calculated.
      * If the two files are identical, then no copy is needed.
      * If the two files are not the same, then first a backup will be created from target file.
      * @param assetManager asset manager to reach assets
      * @param assetName name of the file (it will be skipped, if this is not a valid file)
      * @param targetDirectory target directory
+     * @param assetDigest digest of the asset from the manifest, or null if it should be calculated
+     * @param sharedPrefs stamps of the previously copied files are stored here
+     * @param editor new stamps are stored by this editor
      * @throws IOException if reading error occurs
      */
-    private static void copyAssetFile( AssetManager assetManager, String assetName, File targetDirectory )
+    private static void copyAssetFile( AssetManager assetManager, String assetName, File targetDirectory,
+                                       String assetDigest, SharedPreferences sharedPrefs, SharedPreferences.Editor editor )
             throws IOException
         {
         InputStream assetStream = null;
-        BufferedInputStream assetBufferedStream = null;
-        BufferedInputStream targetBufferedStream = null;
         OutputStream outputStream = null;
 
         try
@@ -131,7 +205,15 @@ public class Ignition
 
             Scribe.debug( Debug.IGNITION, "Copying asset: " + assetName);
 
+            if ( assetDigest == null )
+                {
+                assetDigest = digestOf( assetStream );
+                closeSilently( assetStream );
+                assetStream = assetManager.open( assetName );
+                }
+
             File targetFile = new File( targetDirectory, assetName );
+            String stampKey = PREFS_ASSET_STAMP + assetName;
 
             File backupFile = null;
             String backupString;
@@ -139,13 +221,17 @@ public class Ignition
             // if target file already exists...
             if ( targetFile.exists() )
                 {
-                // compare these files
-                targetBufferedStream = new BufferedInputStream( new FileInputStream( targetFile ) );
-                assetBufferedStream = new BufferedInputStream( assetStream );
+                // ... and it is not changed since it was copied - only the stored digest is checked
+                if ( stampOf( assetDigest, targetFile ).equals( sharedPrefs.getString( stampKey, null )))
+                    {
+                    Scribe.debug( Debug.IGNITION, "Asset and target files are identical (by stamp), no copy is needed:" + assetName);
+                    return;
+                    }
 
                 // ... and it is identical with asset - copy should stop
-                if ( compareStreams( assetBufferedStream, targetBufferedStream ) )
+                if ( assetDigest.equals( digestOf( targetFile ) ) )
                     {
+                    editor.putString( stampKey, stampOf( assetDigest, targetFile ) );
                     Scribe.debug( Debug.IGNITION, "Asset and target files are identical, no copy is needed:" + assetName);
                     return;
                     }
@@ -167,10 +253,13 @@ public class Ignition
                     }
                 }
 
-            assetStream.reset();
             outputStream = new FileOutputStream( targetFile );
 
             copyStreams( assetStream, outputStream );
+            outputStream.close();
+            outputStream = null;
+
+            editor.putString( stampKey, stampOf( assetDigest, targetFile ) );
             Scribe.debug( Debug.IGNITION,  "Asset file is copied: " + assetName );
             }
         catch ( FileNotFoundException fnfe)
@@ -181,9 +270,6 @@ public class Ignition
             {
             // Scribe.debug( Debug.IGNITION,  "Closing streams silently" );
             closeSilently( outputStream );
-            closeSilently( targetBufferedStream );
-            closeSilently( assetBufferedStream );
-            // if assetBufferedStream is not null, then assetStream will be already closed
             closeSilently( assetStream );
             }
         }
@@ -211,24 +297,71 @@ public class Ignition
 
 
     /**
-     * Compares two streams. The two streams should be buffered.
-     * @param streamA One stream
-     * @param streamB Other stream
-     * @return true, if streams are identical, false otherwise
+     * Stamp of a copied file: digest of its content, size and modification time.
+     * If size and modification time are not changed, then content is not checked again.
+     * @param digest digest of the file's content
+     * @param file target file
+     * @return stamp to store in preferences
+     */
+    private static String stampOf( String digest, File file )
+        {
+        return digest + ' ' + file.length() + ' ' + file.lastModified();
+        }
+
+
+    /**
+     * Digest of a file
+     * @param file file to check
+     * @return hex SHA-1 digest
      * @throws IOException if reading error occurs
      */
-    private static boolean compareStreams( InputStream streamA, InputStream streamB )
-            throws IOException
+    private static String digestOf( File file ) throws IOException
         {
-        int data;
+        InputStream inputStream = new FileInputStream( file );
+        try
+            {
+            return digestOf( inputStream );
+            }
+        finally
+            {
+            closeSilently( inputStream );
+            }
+        }
+
+
+    /**
+     * Digest of a stream. Stream should not be buffered, it is read till its end.
+     * @param inputStream input stream
+     * @return hex SHA-1 digest
+     * @throws IOException if reading error occurs
+     */
+    private static String digestOf( InputStream inputStream ) throws IOException
+        {
+        MessageDigest digest;
+        try
+            {
+            digest = MessageDigest.getInstance( "SHA-1" );
+            }
+        catch ( NoSuchAlgorithmException nsae )
+            {
+            // SHA-1 is available on all platforms
+            throw new IllegalStateException( nsae );
+            }
 
-        do
+        byte[] buffer = new byte[COPY_BUFFER_SIZE];
+        int read;
+        while((read = inputStream.read(buffer)) != -1)
             {
-            if ( ( data = streamA.read() ) != streamB.read() )
-                return false;
-            } while ( data != -1 );
+            digest.update(buffer, 0, read);
+            }
 
-        return true;
+        StringBuilder hex = new StringBuilder();
+        for ( byte b : digest.digest() )
+            {
+            hex.append( Character.forDigit( (b >> 4) & 0xF, 16 ) );
+            hex.append( Character.forDigit( b & 0xF, 16 ) );
+            }
+        return hex.toString();
         }
 
 
@@ -240,7 +373,7 @@ public class Ignition
     private static void copyStreams( InputStream inputStream, OutputStream outputStream )
             throws IOException
         {
-        byte[] buffer = new byte[1024];
+        byte[] buffer = new byte[COPY_BUFFER_SIZE];
         int read;
         while((read = inputStream.read(buffer)) != -1)
             {
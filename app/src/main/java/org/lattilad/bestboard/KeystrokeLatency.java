@@ -0,0 +1,396 @@
+package org.lattilad.bestboard;
+
+import org.lattilad.bestboard.debug.Debug;
+import org.lattilad.bestboard.scribe.Scribe;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Process-wide measurement of the keystroke latency, from the touch event
+ * to the redraw after the text (or key) was given to the editor.
+ * <p>
+ * Each keystroke is split into stages:
+ * <ul>
+ * <li>dispatch: from the time of the MotionEvent till onTouchEvent is called</li>
+ * <li>evaluation: bow evaluation in LayoutView till the processor starts sending</li>
+ * <li>send: processing of the packet in SoftBoardProcessor (without the ipc calls)</li>
+ * <li>ipc: duration of the InputConnection calls (commitText, sendKeyEvent),
+ * 0 if text was put into the commit queue of SoftBoardProcessor</li>
+ * <li>redraw: from the last ipc call till the end of the next onDraw</li>
+ * </ul>
+ * Only sends started during a touch event are measured (repeats and hard keys are not).
+ * <p>
+ * Samples are stored in a ring of primitive arrays, oldest samples are overwritten.
+ * Recording needs no allocation and no locks. Percentiles and histograms are
+ * calculated only when summary or report is asked for.
+ * <p>
+ * All methods should be called on the main thread.
+ */
+public class KeystrokeLatency
+    {
+    /** Stages of the keystroke (columns of the samples) */
+    public static final int STAGE_DISPATCH = 0;
+    public static final int STAGE_EVALUATION = 1;
+    public static final int STAGE_SEND = 2;
+    public static final int STAGE_IPC = 3;
+    public static final int STAGE_REDRAW = 4;
+    /** Sum of the measured stages */
+    public static final int STAGE_TOTAL = 5;
+    public static final int STAGES = 6;
+
+    private static final String[] STAGE_NAMES =
+            { "dispatch", "evaluation", "send", "ipc", "redraw", "total" };
+
+    /** Number of stored samples */
+    private static final int CAPACITY = 512;
+
+    /** Upper limits of the histogram buckets (microsec), the last bucket is open */
+    private static final int[] HISTOGRAM_LIMITS = { 1000, 2000, 4000, 8000, 16000, 32000, 64000 };
+
+    /** Name of the exported file (in the working directory) */
+    public static final String CSV_FILE_NAME = "latency.csv";
+
+    /** Stages of the samples in microsecs (CAPACITY rows of STAGES columns), -1: not measured */
+    private static int[] samples = new int[ CAPACITY * STAGES ];
+
+    /** Time of the samples (System.currentTimeMillis()) */
+    private static long[] sampleTimes = new long[ CAPACITY ];
+
+    /** Row of the next sample */
+    private static int nextSample = 0;
+
+    /** Number of stored samples */
+    private static int sampleCount = 0;
+
+    /** Values of one stage are sorted here to get percentiles */
+    private static int[] sortedValues = new int[ CAPACITY ];
+
+    /** Summary for the monitor row, null if it should be calculated again */
+    private static String summary = null;
+
+    /** Actual keystroke */
+    private static boolean touchInProgress = false;
+    private static long touchStart;
+    private static int dispatchMicros;
+    private static long sendStart = -1L;
+    private static long ipcStart;
+    private static long ipcEnd;
+    private static long ipcNanos;
+    /** Keystroke was sent, it waits for the redraw */
+    private static boolean keystrokePending = false;
+
+
+    /**
+     * Touch event arrived (called first in onTouchEvent)
+     * @param dispatchMillis delay between event time and now (SystemClock.uptimeMillis())
+     */
+    public static void touchStarted( long dispatchMillis )
+        {
+        // previous keystroke was not drawn before this touch
+        if ( keystrokePending )
+            record( -1 );
+
+        touchInProgress = true;
+        touchStart = System.nanoTime();
+        dispatchMicros = (int) Math.min( Integer.MAX_VALUE, Math.max( 0L, dispatchMillis * 1000L ));
+        sendStart = -1L;
+        ipcNanos = 0L;
+        }
+
+    /**
+     * Touch event is evaluated (called last in onTouchEvent)
+     */
+    public static void touchFinished()
+        {
+        touchInProgress = false;
+        }
+
+    /**
+     * Processor starts to send text or key. Only the first send of a touch is noted.
+     */
+    public static void sendStarted()
+        {
+        if ( touchInProgress && sendStart < 0L )
+            sendStart = System.nanoTime();
+        }
+
+    /**
+     * InputConnection is called
+     */
+    public static void ipcStarted()
+        {
+        if ( touchInProgress && sendStart >= 0L )
+            ipcStart = System.nanoTime();
+        }
+
+    /**
+     * InputConnection call has returned
+     */
+    public static void ipcFinished()
+        {
+        if ( touchInProgress && sendStart >= 0L )
+            {
+            ipcEnd = System.nanoTime();
+            ipcNanos += ipcEnd - ipcStart;
+            keystrokePending = true;
+            }
+        }
+
+    /**
+     * Text was put into the commit queue instead of calling InputConnection.
+     * Queue is sent later (outside of the touch event), so ipc stage remains 0.
+     */
+    public static void sendQueued()
+        {
+        if ( touchInProgress && sendStart >= 0L )
+            {
+            ipcEnd = System.nanoTime();
+            keystrokePending = true;
+            }
+        }
+
+    /**
+     * View was drawn (called at the end of onDraw)
+     */
+    public static void drawn()
+        {
+        if ( keystrokePending && !touchInProgress )
+            record( (int) ((System.nanoTime() - ipcEnd) / 1000L) );
+        }
+
+    /**
+     * Stages of the actual keystroke are stored as a new sample
+     * @param redrawMicros redraw stage, -1 if view was not drawn
+     */
+    private static void record( int redrawMicros )
+        {
+        int row = nextSample * STAGES;
+        samples[ row + STAGE_DISPATCH ] = dispatchMicros;
+        samples[ row + STAGE_EVALUATION ] = (int) ((sendStart - touchStart) / 1000L);
+        samples[ row + STAGE_IPC ] = (int) (ipcNanos / 1000L);
+        samples[ row + STAGE_SEND ] = (int) ((ipcEnd - sendStart - ipcNanos) / 1000L);
+        samples[ row + STAGE_REDRAW ] = redrawMicros;
+
+        int total = 0;
+        for ( int stage = 0; stage < STAGE_TOTAL; stage++ )
+            {
+            if ( samples[ row + stage ] > 0 )
+                total += samples[ row + stage ];
+            }
+        samples[ row + STAGE_TOTAL ] = total;
+        sampleTimes[ nextSample ] = System.currentTimeMillis();
+
+        nextSample = (nextSample + 1) % CAPACITY;
+        if ( sampleCount < CAPACITY )
+            sampleCount++;
+
+        keystrokePending = false;
+        summary = null;
+        }
+
+    /**
+     * All samples are cleared
+     */
+    public static void clear()
+        {
+        nextSample = 0;
+        sampleCount = 0;
+        keystrokePending = false;
+        summary = null;
+        }
+
+    /**
+     * Number of stored samples
+     */
+    public static int getSampleCount()
+        {
+        return sampleCount;
+        }
+
+
+    /**
+     * Measured values of a stage are sorted into sortedValues
+     * @param stage stage of the samples
+     * @return number of measured values
+     */
+    private static int sortStage( int stage )
+        {
+        int count = 0;
+        for ( int n = 0; n < sampleCount; n++ )
+            {
+            int value = samples[ n * STAGES + stage ];
+            if ( value >= 0 )
+                sortedValues[ count++ ] = value;
+            }
+        Arrays.sort( sortedValues, 0, count );
+        return count;
+        }
+
+    /**
+     * Percentile of a sorted stage (see sortStage())
+     * @param count number of sorted values (cannot be 0)
+     * @param percent 0-100
+     * @return value in microsecs
+     */
+    private static int percentile( int count, int percent )
+        {
+        int index = (count * percent + 99) / 100 - 1;
+        return sortedValues[ Math.max( 0, Math.min( count - 1, index )) ];
+        }
+
+    /**
+     * Percentile of a stage
+     * @param stage STAGE_DISPATCH ... STAGE_TOTAL
+     * @param percent 0-100
+     * @return value in microsecs, or -1 if stage was not measured
+     */
+    public static int getPercentile( int stage, int percent )
+        {
+        int count = sortStage( stage );
+        return count > 0 ? percentile( count, percent ) : -1;
+        }
+
+    /**
+     * Histogram of a stage
+     * @param stage STAGE_DISPATCH ... STAGE_TOTAL
+     * @return number of values in each bucket (see HISTOGRAM_LIMITS, last bucket is above the limits)
+     */
+    public static int[] getHistogram( int stage )
+        {
+        int[] histogram = new int[ HISTOGRAM_LIMITS.length + 1 ];
+        for ( int n = 0; n < sampleCount; n++ )
+            {
+            int value = samples[ n * STAGES + stage ];
+            if ( value < 0 )
+                continue;
+
+            int bucket = 0;
+            while ( bucket < HISTOGRAM_LIMITS.length && value >= HISTOGRAM_LIMITS[bucket] )
+                bucket++;
+            histogram[bucket]++;
+            }
+        return histogram;
+        }
+
+    /**
+     * Short summary of the total latency for the monitor row (calculated only after new samples)
+     * @return median and 90th percentile in msec, or empty string if there are no samples
+     */
+    public static String getSummary()
+        {
+        if ( summary == null )
+            {
+            int count = sortStage( STAGE_TOTAL );
+            summary = count == 0 ? "" :
+                    " key " + toMillis( percentile( count, 50 ) ) + "/" + toMillis( percentile( count, 90 ) ) + " ms";
+            }
+        return summary;
+        }
+
+    /**
+     * Percentiles of all stages and histogram of the total latency
+     * @return report in several lines
+     */
+    public static String getReport()
+        {
+        if ( sampleCount == 0 )
+            return "No keystrokes measured yet.";
+
+        StringBuilder builder = new StringBuilder();
+        builder.append( "Keystrokes: " ).append( sampleCount ).append( " (p50 / p90 / p99 / max ms)" );
+        for ( int stage = 0; stage < STAGES; stage++ )
+            {
+            builder.append( '\n' ).append( STAGE_NAMES[stage] ).append( ": " );
+            int count = sortStage( stage );
+            if ( count == 0 )
+                {
+                builder.append( '-' );
+                continue;
+                }
+            builder.append( toMillis( percentile( count, 50 ) ) ).append( " / " )
+                    .append( toMillis( percentile( count, 90 ) ) ).append( " / " )
+                    .append( toMillis( percentile( count, 99 ) ) ).append( " / " )
+                    .append( toMillis( sortedValues[ count - 1 ] ) );
+            }
+
+        builder.append( "\ntotal histogram:" );
+        int[] histogram = getHistogram( STAGE_TOTAL );
+        for ( int bucket = 0; bucket < histogram.length; bucket++ )
+            {
+            builder.append( bucket < HISTOGRAM_LIMITS.length ? " <" : " >=" )
+                    .append( HISTOGRAM_LIMITS[ Math.min( bucket, HISTOGRAM_LIMITS.length - 1 ) ] / 1000 )
+                    .append( ':' ).append( histogram[bucket] );
+            }
+        return builder.toString();
+        }
+
+    /**
+     * Microsecs as millisecs with one decimal
+     */
+    private static String toMillis( int micros )
+        {
+        return (micros / 1000) + "." + ((micros % 1000) / 100);
+        }
+
+
+    /**
+     * Samples are written into a CSV file (oldest first)
+     * @param directoryFile working directory
+     * @return the written file, or null if it cannot be written
+     */
+    public static File writeCsv( File directoryFile )
+        {
+        File csvFile = new File( directoryFile, CSV_FILE_NAME );
+        BufferedWriter out = null;
+        try
+            {
+            out = new BufferedWriter( new FileWriter( csvFile ) );
+            out.write( "time" );
+            for ( int stage = 0; stage < STAGES; stage++ )
+                out.write( "," + STAGE_NAMES[stage] + "_us" );
+            out.newLine();
+
+            int first = sampleCount < CAPACITY ? 0 : nextSample;
+            for ( int n = 0; n < sampleCount; n++ )
+                {
+                int index = (first + n) % CAPACITY;
+                out.write( Long.toString( sampleTimes[index] ) );
+                for ( int stage = 0; stage < STAGES; stage++ )
+                    {
+                    out.write( ',' );
+                    out.write( Integer.toString( samples[ index * STAGES + stage ] ) );
+                    }
+                out.newLine();
+                }
+
+            out.close();
+            out = null;
+
+            Scribe.note( Debug.TIMER, "Keystroke latency is exported: " + csvFile.getAbsolutePath() );
+            return csvFile;
+            }
+        catch ( IOException ioe )
+            {
+            Scribe.error( "Keystroke latency cannot be exported: " + ioe.toString() );
+            return null;
+            }
+        finally
+            {
+            if ( out != null )
+                {
+                try
+                    {
+                    out.close();
+                    }
+                catch ( IOException ioe )
+                    {
+                    // nothing to do
+                    }
+                }
+            }
+        }
+    }
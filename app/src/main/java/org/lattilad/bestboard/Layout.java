@@ -6,6 +6,10 @@ import android.graphics.BitmapFactory;
 import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.Paint;
+import android.graphics.Path;
+import android.graphics.Picture;
+import android.graphics.PorterDuff;
+import android.graphics.Rect;
 import android.graphics.Typeface;
 
 import org.lattilad.bestboard.buttons.Button;
@@ -19,12 +23,14 @@ import org.lattilad.bestboard.states.BoardTable;
 import org.lattilad.bestboard.states.LayoutStates;
 import org.lattilad.bestboard.states.MetaState;
 import org.lattilad.bestboard.utils.ExternalDataException;
+import org.lattilad.bestboard.utils.LongObjectMap;
 import org.lattilad.bestboard.utils.Trilean;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.Arrays;
 
-public class Layout
+public class Layout implements LayoutPictureCache.PictureHolder
     {
     /**
      ** CLASS VARIABLES - LOADED FROM COAT DESCRIPTOR FILE
@@ -119,9 +125,17 @@ public class Layout
 
     /**
      * Buttons of the layout - will be initialized in constructor, and filled up by addButton
+     * (and by materializeButtons() from the templates)
      */
     public Button[] buttons;
 
+    /**
+     * Buttons placed by addButtonTemplate() - these are the shared instances of the coat file.
+     * They are cloned into buttons only by materializeButtons(), when layout is measured first,
+     * so buttons of never used boards are not created. Null, if there is nothing to materialize.
+     */
+    private Button[] buttonTemplates = null;
+
     /**
      * Changeable buttons of the layout - filled up by addButton
      */
@@ -201,14 +215,101 @@ public class Layout
 
     /**
      * Map contains the touchCodes for all levels
+     * Touch codes are calculated by colorFromGeometry(), map is used only for debugging
      */
     private Bitmap layoutMap;
 
+    /**
+     * Touch codes of the map are checked by the bitmap, too (slow, only for debugging)
+     */
+    private static final boolean CHECK_HIT_TEST = false;
+
+    /**
+     * Layout map was compared pixel by pixel with the calculated touch codes
+     */
+    private boolean hitTestChecked = false;
+
+    /**
+     * Grid lines of the layout in pixels (the same values as Button.getPixelX() and getPixelY())
+     * Calculated in calculateScreenData
+     */
+    private int[] gridXInPixels;
+    private int[] gridYInPixels;
+
+    /**
+     * Grid column and grid row of each pixel of the layout
+     * Calculated in calculateScreenData
+     */
+    private int[] gridXOfPixel;
+    private int[] gridYOfPixel;
+
+    /**
+     * Size of the inner hexagon (inside the outer rim)
+     * Calculated in calculateScreenData (the same way as ButtonForMaps does)
+     */
+    private int rimHalfWidthInPixels;
+    private int rimQuarterHeightInPixels;
+
+    /**
+     * Hexagon outlines relative to the center of the button, shared by all buttons of the layout.
+     * Grid lines are rounded, so each side of a hexagon can be one pixel longer than the others.
+     * Index is made from these differences (see getHexagonPath()), paths are created on first use.
+     * Cleared in calculateScreenData
+     */
+    private Path[] hexagonPaths = new Path[64];
+
+    /**
+     * Prepared paints of the titles by TitleDescriptor.getPaintKey() (size, bold, italics, color)
+     * Paints are created on first use, because they depend on the text size of the layout.
+     * Cleared in calculateScreenData
+     */
+    private LongObjectMap<Paint> titlePaints = new LongObjectMap<>();
+
+    /**
+     * Inner hexagon (inside the outer rim) relative to the center of the button
+     * Created on first use, cleared in calculateScreenData
+     */
+    private Path rimHexagonPath = null;
+
     /**
      * Layout skin for the current layout.
      */
     private Bitmap layoutPicture = null;
 
+    /**
+     * Layout skin recorded as display list - used instead of layoutPicture,
+     * if softBoardData.displayListRendering is set (see useDisplayList())
+     */
+    private Picture layoutDisplayList = null;
+
+    /**
+     * Changing parts of the changing buttons are drawn into this transparent layer
+     * (with the size of the skin), and the layer is drawn over the skin in one step.
+     * Created when the layout is displayed first, released together with the skin.
+     */
+    private Bitmap changingLayer = null;
+
+    /**
+     * Canvas of changingLayer
+     */
+    private Canvas changingLayerCanvas = null;
+
+    /**
+     * Stamps of the changing buttons (in the order of changingButtons) when they were drawn into the layer
+     * Button is redrawn only, if its stamp changes (see Button.getChangingStamp())
+     */
+    private long[] changingStamps = null;
+
+    /**
+     * Area of the layer to redraw
+     */
+    private Rect changingLayerDirty = new Rect();
+
+    /**
+     * Background picture is scaled into the skin with filtering
+     */
+    private static Paint pictureScalePaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+
 
     /**
      * Paint for monitor row background
@@ -240,11 +341,12 @@ public class Layout
      ** Parsing phase:
      **   1. Constructor - adds non screen-specific data
      **      setForcedMeta() - if meta-states should be forced
-     **   2. addButton - populates the buttons array and
+     **   2. addButton - populates the buttons array (addButtonTemplate - only its templates) and
      **      setShift - sets the shift levels by descriptor file
      ** Displaying phase:
      **   3. onMeasure - receives screen diameters
      **   4. calculateScreenData - screen specific information set by onMeasure
+     **      (materializeButtons - templates are cloned at the first call)
      **/
 
     /**
@@ -390,33 +492,135 @@ public class Layout
             throw new ExternalDataException("This button position is not valid! Button cannot be added!");
             }
 
-        boolean ret = false;
-
         button.setPosition(this, arrayColumn, arrayRow);
 
         // put in its position
         int index = touchCodeFromPosition(arrayColumn, arrayRow);
 
-        // check whether this is empty position !! changingButtons SHOULD BE checked as well!!
+        // check whether this is empty position
+        boolean ret = removeButton( index );
+
+        // put button to its place
+        buttons[index] = button;
+
+        // if button is a changedButton, then store it in changedButtons list as well
+        if (button.isChangingButton())
+            changingButtons.add(button);
+
+        return ret;
+        }
+
+
+    /**
+     * Predefined button is placed at the defined position, but it is not cloned yet.
+     * Template can be shared by more positions and layouts, it is cloned by materializeButtons().
+     *
+     * @param arrayColumn arrayColumn (in hexagons) of the button
+     * @param arrayRow    arrayRow (in hexagons) of the button
+     * @param template predefined button instance - it will not be changed
+     * @return true if button overwrites an other button
+     * @throws ExternalDataException If button position is not valid
+     */
+    public boolean addButtonTemplate(int arrayColumn, int arrayRow, Button template) throws ExternalDataException
+        {
+        if ( checkPosition(arrayColumn, arrayRow) <= POSITION_LINE_ENDED )
+            {
+            throw new ExternalDataException("This button position is not valid! Button cannot be added!");
+            }
+
+        int index = touchCodeFromPosition(arrayColumn, arrayRow);
+        boolean ret = removeButton( index );
+
+        if ( buttonTemplates == null )
+            buttonTemplates = new Button[ buttons.length ];
+        buttonTemplates[index] = template;
+
+        return ret;
+        }
+
+
+    /**
+     * Button (or template) is removed from its position
+     * @param index touch code of the position
+     * @return true if position was not empty
+     */
+    private boolean removeButton( int index )
+        {
+        boolean ret = false;
+
         if (buttons[index] != null)
             {
             ret = true;
             changingButtons.remove( buttons[index]);
+            buttons[index] = null;
             }
 
-        // put button to its place
+        if ( buttonTemplates != null && buttonTemplates[index] != null )
+            {
+            ret = true;
+            buttonTemplates[index] = null;
+            }
+
+        return ret;
+        }
+
+
+    /**
+     * Template at this position is cloned, and the clone is put to its place
+     * @param index touch code of the position, template should exist here
+     */
+    private void materializeButton( int index )
+        {
+        Button button = buttonTemplates[index].clone();
+        buttonTemplates[index] = null;
+
+        button.setPosition(this, (index - 1) % layoutWidthInHexagons, (index - 1) / layoutWidthInHexagons);
         buttons[index] = button;
 
-        // if button is a changedButton, then store it in changedButtons list as well
         if (button.isChangingButton())
             changingButtons.add(button);
+        }
 
-        return ret;
+
+    /**
+     * All templates of the layout are cloned into buttons.
+     * It is called by calculateScreenData(), so buttons are created only for boards,
+     * which are selected (BoardTable - LayoutView.setLayout - onMeasure) or pre-rendered.
+     */
+    public void materializeButtons()
+        {
+        if ( buttonTemplates == null )
+            return;
+
+        for ( int index = 0; index < buttonTemplates.length; index++ )
+            {
+            if ( buttonTemplates[index] != null )
+                materializeButton( index );
+            }
+        buttonTemplates = null;
+
+        Scribe.debug( Debug.LAYOUT, "Buttons are materialized: " + toString() );
+        }
+
+
+    /**
+     * Button at the position of the touch code, without materializing it.
+     * If it is not materialized yet, its template is returned:
+     * only data of the coat file can be read from it, and it should not be changed.
+     * @param touchCode touch code of the position
+     * @return button, its template, or null, if position is empty
+     */
+    public Button peekButton( int touchCode )
+        {
+        if ( buttons[touchCode] == null && buttonTemplates != null )
+            return buttonTemplates[touchCode];
+        return buttons[touchCode];
         }
 
 
     /**
      * Gets an existing button.
+     * Template of this position is materialized, so the returned button can be changed (EXTEND).
      * @param arrayColumn arrayColumn (in hexagons) of the button
      * @param arrayRow    arrayRow (in hexagons) of the button
      * @return button instance (which is already on the layout!)
@@ -431,6 +635,9 @@ public class Layout
 
         int index = touchCodeFromPosition(arrayColumn, arrayRow);
 
+        if ( buttonTemplates != null && buttonTemplates[index] != null )
+            materializeButton( index );
+
         return buttons[index];
         }
 
@@ -450,6 +657,9 @@ public class Layout
     public void calculateScreenData( int screenWidthInPixels, int screenHeightInPixels )
         {
         Scribe.locus( Debug.LAYOUT);
+
+        // buttons are needed from now, by drawing and by touch
+        materializeButtons();
         
         // calculateScreenData is needed only, if orientation was changed
         // invalidateCalculations invalidates it to force calculations
@@ -460,6 +670,8 @@ public class Layout
                 screenHeightInPixels == this.screenHeightInPixels )
             return;
 
+        long calculationStart = System.nanoTime();
+
         this.screenWidthInPixels = screenWidthInPixels;
         this.screenHeightInPixels = screenHeightInPixels;
 
@@ -527,8 +739,7 @@ public class Layout
                 newLayoutHeightInPixels != layoutHeightInPixels)
             {
             // release layout picture
-            layoutMap = null;
-            layoutPicture = null;
+            releasePictures();
             }
 
         // if dimensions are changed, all variables should be recalculated
@@ -558,6 +769,16 @@ public class Layout
 
         // Monitor text size can be calculated only after general text size
         monitorText.setTextSize(fontData.textSize * monitorSizePermil / 1000);
+
+        calculateHitTest();
+
+        // hexagon outlines of the previous dimensions cannot be used
+        Arrays.fill( hexagonPaths, null );
+        rimHexagonPath = null;
+        // paints of the previous text size cannot be used
+        titlePaints.clear();
+
+        PreWarm.noteScreenCalculation( calculationStart );
         }
 
 
@@ -574,11 +795,56 @@ public class Layout
 
         if ( erasePictures )
             {
+            releasePictures();
+            }
+        }
+
+
+    /**
+     * Pictures (map and skin) are released to save memory.
+     * Screen data remains, pictures will be created again, when layout is displayed.
+     * LayoutPictureCache calls this for layouts not used recently.
+     * Bitmaps are given back to the pool of LayoutPictureCache.
+     */
+    @Override
+    public void releasePictures()
+        {
+        if ( layoutMap != null || layoutPicture != null || layoutDisplayList != null || changingLayer != null )
+            {
+            Scribe.debug( Debug.LAYOUT, "Pictures are released for " + toString() );
+            LayoutPictureCache.recycleBitmap( layoutMap );
             layoutMap = null;
+            hitTestChecked = false;
+            LayoutPictureCache.recycleBitmap( layoutPicture );
             layoutPicture = null;
+            layoutDisplayList = null;
+            LayoutPictureCache.recycleBitmap( changingLayer );
+            changingLayer = null;
+            changingLayerCanvas = null;
+            changingStamps = null;
+            LayoutPictureCache.removed( this );
             }
         }
 
+    /**
+     * Size of the stored pictures (map, skin and changing layer) in bytes
+     * (Size of the display list is only estimated)
+     */
+    @Override
+    public int getPictureBytes()
+        {
+        int bytes = 0;
+        if ( layoutMap != null )
+            bytes += layoutMap.getByteCount();
+        if ( layoutPicture != null )
+            bytes += layoutPicture.getByteCount();
+        if ( layoutDisplayList != null )
+            bytes += buttons.length * LayoutPictureCache.DISPLAY_LIST_BYTES_PER_BUTTON;
+        if ( changingLayer != null )
+            bytes += changingLayer.getByteCount();
+        return bytes;
+        }
+
 
     /**
      ** VALIDATIONS
@@ -645,7 +911,7 @@ public class Layout
         int result = checkPosition( arrayColumn, arrayRow );
 
         if ( result > POSITION_LINE_ENDED &&
-                buttons[touchCodeFromPosition(arrayColumn, arrayRow)] != null )
+                peekButton( touchCodeFromPosition(arrayColumn, arrayRow) ) != null )
             {
             result |= POSITION_OCCUPIED;
             }
@@ -719,21 +985,379 @@ public class Layout
 		}
 */
 
+    /**
+     * Touch code and outer rim of the touched point - coded as a color of the layout map.
+     * Color is calculated from the geometry of the hexagons, layout map bitmap is not needed.
+     * @param canvasX x coordinate on canvas
+     * @param canvasY y coordinate on canvas
+     * @return color code (see touchCodeFromColor() and outerRimFromColor())
+     */
     public int colorFromMap(int canvasX, int canvasY)
         {
         int mapX = canvasX - layoutXOffset;
         int mapY = canvasY - layoutYOffset;
 
-        if (mapX < 0 || mapX >= getLayoutMap().getWidth())
+        if (mapX < 0 || mapX >= layoutWidthInPixels)
             return 0xFFFD00FD; // Empty color code generates Layout.EMPTY_TOUCH_CODE;
 
         if (mapY < 0)
             return 0xFFFD00FD; // Empty color code generates Layout.EMPTY_TOUCH_CODE;
 
-        if (mapY >= getLayoutMap().getHeight())
+        if (mapY >= layoutHeightInPixels)
             return colorFromTouchCode(0, false);
 
-        return getLayoutMap().getPixel( mapX, mapY );
+        int color = colorFromGeometry( mapX, mapY );
+
+        if ( CHECK_HIT_TEST )
+            {
+            if ( !hitTestChecked )
+                checkHitTest();
+
+            int mapColor = getLayoutMap().getPixel( mapX, mapY );
+            if ( mapColor != color )
+                Scribe.error( "Hit-test differs from layout map at " + mapX + ", " + mapY +
+                        " - calculated: " + Integer.toHexString( color ) + " map: " + Integer.toHexString( mapColor ));
+            }
+
+        return color;
+        }
+
+    /**
+     * Touch code and outer rim of the touched point, as colorFromMap(),
+     * but bounds of the cell around the point are also given back.
+     * All points inside these bounds have the same color, so the caller can skip
+     * further lookups while touch remains inside the cell.
+     * Only the central rectangle of the inner hexagons is given as cell,
+     * bounds are empty for the outer rims and the empty areas.
+     * Cell is valid until screen data is calculated again.
+     * @param canvasX x coordinate on canvas
+     * @param canvasY y coordinate on canvas
+     * @param cellBounds bounds of the cell on canvas (set by this method)
+     * @return color code (see touchCodeFromColor() and outerRimFromColor())
+     */
+    public int colorFromMap(int canvasX, int canvasY, Rect cellBounds)
+        {
+        int color = colorFromMap( canvasX, canvasY );
+        int touchCode = touchCodeFromColor( color );
+
+        // every pixel should be checked in debug mode
+        if ( CHECK_HIT_TEST || touchCode == EMPTY_TOUCH_CODE || touchCode == 0 || outerRimFromColor( color ) )
+            {
+            cellBounds.setEmpty();
+            return color;
+            }
+
+        int row = (touchCode - 1) / layoutWidthInHexagons;
+        int col = (touchCode - 1) % layoutWidthInHexagons;
+        int shift = ( row + rowsAlignOffset ) % 2;
+
+        // Central rectangle of the inner hexagon (see colorFromGeometry())
+        int xCenter = gridXInPixels[2 * col + shift + 1];
+        int yCenter = gridYInPixels[3 * row + 2];
+        cellBounds.set( layoutXOffset + xCenter - rimHalfWidthInPixels,
+                layoutYOffset + yCenter - rimQuarterHeightInPixels,
+                layoutXOffset + xCenter + rimHalfWidthInPixels,
+                layoutYOffset + yCenter + rimQuarterHeightInPixels );
+
+        if ( !cellBounds.intersect( layoutXOffset, layoutYOffset,
+                layoutXOffset + layoutWidthInPixels, layoutYOffset + layoutHeightInPixels ) )
+            cellBounds.setEmpty();
+
+        return color;
+        }
+
+
+    /**
+     * * SHARED HEXAGON PATHS AND TITLE PAINTS
+     */
+
+    /**
+     * Returns the outline of a button's hexagon relative to its center.
+     * Parameters are the distances between the grid lines of the hexagon. These can be
+     * halfHexagonWidthInPixels (or quarter of halfHexagonHeightInPixels) or one pixel more,
+     * so only 64 different hexagons can appear on a layout. These paths are shared by the buttons,
+     * and drawn after translating the canvas to the center of the button.
+     * @param left xCenter - xMinus
+     * @param right xPlus - xCenter
+     * @param top yMinus1 - yMinus2
+     * @param upper yCenter - yMinus1
+     * @param lower yPlus1 - yCenter
+     * @param bottom yPlus2 - yPlus1
+     * @return shared path, which can be used both for outline and fill
+     */
+    public Path getHexagonPath( int left, int right, int top, int upper, int lower, int bottom )
+        {
+        int width = halfHexagonWidthInPixels;
+        int height = halfHexagonHeightInPixels / 2;
+
+        if ( !isGridRounding( left - width ) || !isGridRounding( right - width ) ||
+                !isGridRounding( top - height ) || !isGridRounding( upper - height ) ||
+                !isGridRounding( lower - height ) || !isGridRounding( bottom - height ) )
+            {
+            // Cannot happen: grid lines are rounded down, but path can be created anyway
+            Scribe.error( "Hexagon of " + toString() + " is not on the grid!" );
+            return createHexagonPath( left, right, top + upper, upper, lower, lower + bottom );
+            }
+
+        int index = ((left - width) << 5) | ((right - width) << 4) |
+                ((top - height) << 3) | ((upper - height) << 2) |
+                ((lower - height) << 1) | (bottom - height);
+
+        if ( hexagonPaths[index] == null )
+            {
+            hexagonPaths[index] = createHexagonPath( left, right, top + upper, upper, lower, lower + bottom );
+            }
+        return hexagonPaths[index];
+        }
+
+    /**
+     * Distance of two grid lines can differ from the calculated one only by the rounding
+     */
+    private static boolean isGridRounding( int difference )
+        {
+        return difference == 0 || difference == 1;
+        }
+
+    /**
+     * Returns the inner hexagon (inside the outer rim) relative to the center of the button.
+     * @return shared path
+     */
+    public Path getRimHexagonPath()
+        {
+        if ( rimHexagonPath == null )
+            {
+            rimHexagonPath = createHexagonPath( rimHalfWidthInPixels, rimHalfWidthInPixels,
+                    2 * rimQuarterHeightInPixels, rimQuarterHeightInPixels,
+                    rimQuarterHeightInPixels, 2 * rimQuarterHeightInPixels );
+            }
+        return rimHexagonPath;
+        }
+
+    /**
+     * Creates a hexagon standing on its tip, relative to its center
+     * @param left distance of the left side
+     * @param right distance of the right side
+     * @param upperTip distance of the upper tip
+     * @param upper distance of the upper corners
+     * @param lower distance of the lower corners
+     * @param lowerTip distance of the lower tip
+     * @return created path
+     */
+    private static Path createHexagonPath( int left, int right, int upperTip, int upper, int lower, int lowerTip )
+        {
+        Path path = new Path();
+
+        path.moveTo( 0, -upperTip );
+        path.lineTo( right, -upper );
+        path.lineTo( right, lower );
+        path.lineTo( 0, lowerTip );
+        path.lineTo( -left, lower );
+        path.lineTo( -left, -upper );
+        path.close();
+
+        return path;
+        }
+
+
+    /**
+     * Returns the prepared paint of the title.
+     * Titles with the same size, style and color share the same paint,
+     * so the common textPaint is not changed before each title.
+     * @param title title to draw
+     * @return paint of the title (cannot be changed!)
+     */
+    public Paint getTitlePaint( TitleDescriptor title )
+        {
+        long key = title.getPaintKey();
+        Paint paint = titlePaints.get( key );
+        if ( paint == null )
+            {
+            paint = title.createPaint( this );
+            titlePaints.put( key, paint );
+            }
+        return paint;
+        }
+
+
+    /**
+     * * CALCULATE HIT-TEST
+     */
+
+    /**
+     * Grid positions and inner hexagon size are calculated for hit-test.
+     * Grid lines are the same as the corners of the hexagons in Button.onLayoutReady(),
+     * so calculated touch codes follow the drawn hexagons.
+     */
+    private void calculateHitTest()
+        {
+        // layout can be wider than area with two half hexagons
+        int gridColumns = 2 * layoutWidthInHexagons + 2;
+        gridXInPixels = new int[gridColumns + 1];
+        for ( int gridX = 0; gridX <= gridColumns; gridX++ )
+            gridXInPixels[gridX] = gridX * areaWidthInPixels / areaWidthInGrids;
+
+        gridYInPixels = new int[layoutHeightInGrids + 1];
+        for ( int gridY = 0; gridY <= layoutHeightInGrids; gridY++ )
+            gridYInPixels[gridY] = gridY * layoutHeightInPixels / layoutHeightInGrids;
+
+        gridXOfPixel = new int[layoutWidthInPixels];
+        int gridX = 0;
+        for ( int x = 0; x < layoutWidthInPixels; x++ )
+            {
+            while ( gridX < gridColumns - 1 && gridXInPixels[gridX + 1] <= x )
+                gridX++;
+            gridXOfPixel[x] = gridX;
+            }
+
+        gridYOfPixel = new int[layoutHeightInPixels];
+        int gridY = 0;
+        for ( int y = 0; y < layoutHeightInPixels; y++ )
+            {
+            while ( gridY < layoutHeightInGrids - 1 && gridYInPixels[gridY + 1] <= y )
+                gridY++;
+            gridYOfPixel[y] = gridY;
+            }
+
+        rimQuarterHeightInPixels = (layoutHeightInPixels * (1000 - softBoardData.outerRimPermil)) /
+                (layoutHeightInGrids * 1000);
+        rimHalfWidthInPixels = (areaWidthInPixels * (1000 - softBoardData.outerRimPermil))
+                / (areaWidthInGrids * 1000);
+        }
+
+    /**
+     * Touch code and outer rim of a pixel of the layout map.
+     * Each pixel belongs to the hexagon containing the center of the pixel.
+     * Point can be only in two hexagons: in one of the actual row, or (between the tips)
+     * in one of the previous row. Later drawn hexagon (the one in the actual row) is checked first.
+     * @param mapX x coordinate on the map (0 - layoutWidthInPixels-1)
+     * @param mapY y coordinate on the map (0 - layoutHeightInPixels-1)
+     * @return color code (see touchCodeFromColor() and outerRimFromColor())
+     */
+    private int colorFromGeometry( int mapX, int mapY )
+        {
+        // Center of the pixel is doubled, so integer coordinates can be used
+        int pointX = 2 * mapX + 1;
+        int pointY = 2 * mapY + 1;
+
+        int gridX = gridXOfPixel[mapX];
+        int gridY = gridYOfPixel[mapY];
+
+        // Row (r) covers grids from 3r to 3r+4; actual row is checked first
+        for ( int row = gridY / 3; row >= gridY / 3 - 1 && row >= 0; row-- )
+            {
+            if ( row >= layoutHeightInHexagons )
+                continue;
+
+            // Columns of this row start at grid: 2c + shift, and end at 2c + shift + 2
+            int shift = ( row + rowsAlignOffset ) % 2;
+            if ( gridX < shift )
+                continue;
+            int col = ( gridX - shift ) / 2;
+            if ( col >= layoutWidthInHexagons )
+                continue;
+
+            int gridLeft = 2 * col + shift;
+            int gridTop = 3 * row;
+
+            int xCenter = gridXInPixels[gridLeft + 1];
+            int yCenter = gridYInPixels[gridTop + 2];
+
+            if ( isInsideHexagon( pointX, pointY,
+                    gridXInPixels[gridLeft], xCenter, gridXInPixels[gridLeft + 2],
+                    gridYInPixels[gridTop], gridYInPixels[gridTop + 1],
+                    gridYInPixels[gridTop + 3], gridYInPixels[gridTop + 4] ) )
+                {
+                // inner hexagon is drawn over the hexagon, it is not the outer rim
+                boolean inner = isInsideHexagon( pointX, pointY,
+                        xCenter - rimHalfWidthInPixels, xCenter, xCenter + rimHalfWidthInPixels,
+                        yCenter - 2 * rimQuarterHeightInPixels, yCenter - rimQuarterHeightInPixels,
+                        yCenter + rimQuarterHeightInPixels, yCenter + 2 * rimQuarterHeightInPixels );
+                return colorFromTouchCode( touchCodeFromPosition( col, row ), inner );
+                }
+            }
+
+        return colorFromTouchCode( EMPTY_TOUCH_CODE, false );
+        }
+
+    /**
+     * Checks whether a (doubled) point is inside a hexagon standing on its tip.
+     * Left and upper sides belong to the hexagon, right and lower sides do not.
+     * @param pointX doubled x coordinate of the point
+     * @param pointY doubled y coordinate of the point
+     * @param xMinus left side
+     * @param xCenter x of the upper and lower tip
+     * @param xPlus right side
+     * @param yMinus2 upper tip
+     * @param yMinus1 upper corners
+     * @param yPlus1 lower corners
+     * @param yPlus2 lower tip
+     * @return true if point is inside
+     */
+    private static boolean isInsideHexagon( int pointX, int pointY,
+                                            int xMinus, int xCenter, int xPlus,
+                                            int yMinus2, int yMinus1, int yPlus1, int yPlus2 )
+        {
+        if ( pointX < 2 * xMinus || pointX >= 2 * xPlus || pointY < 2 * yMinus2 || pointY >= 2 * yPlus2 )
+            return false;
+
+        // distance from the tip (doubled) and height of the triangle
+        long fromTip;
+        long height;
+
+        if ( pointY < 2 * yMinus1 )
+            {
+            fromTip = pointY - 2 * yMinus2;
+            height = yMinus1 - yMinus2;
+            }
+        else if ( pointY >= 2 * yPlus1 )
+            {
+            fromTip = 2 * yPlus2 - pointY;
+            height = yPlus2 - yPlus1;
+            }
+        else
+            {
+            return true;
+            }
+
+        // side of the triangle at this height: xCenter - (xCenter-xMinus)*fromTip/height ... xCenter + (xPlus-xCenter)*fromTip/height
+        long fromCenter = (long)( pointX - 2 * xCenter ) * height;
+        return fromCenter >= -(long)( xCenter - xMinus ) * fromTip &&
+                fromCenter < (long)( xPlus - xCenter ) * fromTip;
+        }
+
+    /**
+     * Compares the calculated touch codes with the layout map on every pixel (only for debugging)
+     * Differences can appear only on the sides of the hexagons, where bitmap drawing rounds differently.
+     * @return number of different pixels
+     */
+    public int checkHitTest()
+        {
+        hitTestChecked = true;
+
+        Bitmap map = getLayoutMap();
+        int[] line = new int[layoutWidthInPixels];
+        int differences = 0;
+        int touchCodeDifferences = 0;
+
+        for ( int y = 0; y < layoutHeightInPixels; y++ )
+            {
+            map.getPixels( line, 0, layoutWidthInPixels, 0, y, layoutWidthInPixels, 1 );
+            for ( int x = 0; x < layoutWidthInPixels; x++ )
+                {
+                int color = colorFromGeometry( x, y );
+                if ( color != line[x] )
+                    {
+                    differences++;
+                    if ( touchCodeFromColor( color ) != touchCodeFromColor( line[x] ) )
+                        touchCodeDifferences++;
+                    }
+                }
+            }
+
+        Scribe.debug( Debug.LAYOUT, "Hit-test check for " + toString() + ": " + differences + " pixels of " +
+                (layoutWidthInPixels * layoutHeightInPixels) + " differ, touch code differs in " +
+                touchCodeDifferences + " pixels." );
+        return differences;
         }
 
 
@@ -746,7 +1370,7 @@ public class Layout
         Scribe.debug( Debug.LAYOUT, "Layout Map is created - W: " + layoutWidthInPixels + " H: " + layoutHeightInPixels);
 
         layoutMap =
-                Bitmap.createBitmap(layoutWidthInPixels, layoutHeightInPixels,
+                LayoutPictureCache.obtainBitmap(layoutWidthInPixels, layoutHeightInPixels,
                         Bitmap.Config.ARGB_8888);
                         //Bitmap.Config.RGB_565);
         // !!!! Oreoban az 565 nem működik !!!!
@@ -766,6 +1390,8 @@ public class Layout
                 buttonForMaps.drawButtonForMap(canvas, col, row);
                 }
             }
+
+        LayoutPictureCache.added( this );
         }
 
     public Bitmap getLayoutMap()
@@ -788,43 +1414,262 @@ public class Layout
 
     public void drawLayoutPicture(Canvas canvas)
         {
-        canvas.drawBitmap( getLayoutPicture(), (float) layoutXOffset, (float) layoutYOffset, null);
+        if ( useDisplayList() )
+            {
+            canvas.save();
+            canvas.translate( layoutXOffset, layoutYOffset );
+            canvas.drawPicture( getLayoutDisplayList() );
+            canvas.restore();
+            }
+        else
+            {
+            canvas.drawBitmap( getLayoutPicture(), (float) layoutXOffset, (float) layoutYOffset, null);
+            }
+        }
+
+    /**
+     * Layout skin is recorded as display list instead of bitmap.
+     * Layouts with background picture always use bitmaps,
+     * because the decoded picture would need the same memory as the skin.
+     */
+    public boolean useDisplayList()
+        {
+        return softBoardData.displayListRendering && picture == null;
         }
 
+    /**
+     * Changing buttons are drawn over the layout picture.
+     * Changing parts are kept in a layer, only buttons with changed stamps are redrawn into it.
+     * Then the layer is drawn in one step (canvas is clipped, LayoutView redraws only the changed areas)
+     * @param canvas canvas of the view
+     */
     public void drawChangedButtons(Canvas canvas)
         {
-        // ChangedButtons - draw over the bitmap, too
-        for (Button changingButton : changingButtons)
+        if ( changingButtons.isEmpty() )
+            return;
+
+        if ( useDisplayList() )
             {
-            changingButton.drawButtonChangingPart(canvas);
+            drawChangingButtonsDirectly( canvas );
+            return;
             }
+
+        updateChangingLayer();
+        canvas.drawBitmap( changingLayer, (float) layoutXOffset, (float) layoutYOffset, null);
+        }
+
+    /**
+     * Collects the area of the changing buttons, which changed since they were drawn.
+     * (LayoutView invalidates only this area after touch events)
+     * @param dirty rect to extend with the bounds of the changed buttons
+     */
+    public void unionChangedButtons( Rect dirty )
+        {
+        for ( int n = 0; n < changingButtons.size(); n++ )
+            {
+            Button changingButton = changingButtons.get(n);
+            if ( changingStamps == null || changingStamps.length != changingButtons.size() ||
+                    changingButton.getChangingStamp() != changingStamps[n] )
+                {
+                getButtonBounds( changingButton, buttonBounds );
+                dirty.union( buttonBounds );
+                }
+            }
+        }
+
+    /**
+     * Display list mode has no changing layer (it would need more memory than the skin),
+     * changing buttons are drawn directly onto the canvas.
+     * Stamps are refreshed, so unionChangedButtons() can find the changed buttons.
+     * @param canvas canvas of the view (clipped to the invalidated area)
+     */
+    private void drawChangingButtonsDirectly( Canvas canvas )
+        {
+        if ( changingStamps == null || changingStamps.length != changingButtons.size() )
+            changingStamps = new long[ changingButtons.size() ];
+
+        for ( int n = 0; n < changingButtons.size(); n++ )
+            {
+            Button changingButton = changingButtons.get(n);
+            changingStamps[n] = changingButton.getChangingStamp();
+            getButtonBounds( changingButton, buttonBounds );
+            if ( !canvas.quickReject( buttonBounds.left, buttonBounds.top,
+                    buttonBounds.right, buttonBounds.bottom, Canvas.EdgeType.BW ) )
+                changingButton.drawButtonChangingPart( canvas );
+            }
+        }
+
+    /**
+     * Changing buttons with changed stamps are redrawn into the changing layer.
+     * Changed area is cleared first, and all changing buttons touching this area are redrawn,
+     * because margins of the neighbouring buttons can overlap.
+     */
+    private void updateChangingLayer()
+        {
+        boolean redrawAll = false;
+
+        if ( changingLayer == null )
+            {
+            changingLayer = LayoutPictureCache.obtainBitmap(
+                    layoutWidthInPixels, layoutHeightInPixels, Bitmap.Config.ARGB_8888 );
+            changingLayer.eraseColor( Color.TRANSPARENT );
+            changingLayerCanvas = new Canvas( changingLayer );
+            redrawAll = true;
+            }
+
+        if ( changingStamps == null || changingStamps.length != changingButtons.size() )
+            {
+            changingStamps = new long[ changingButtons.size() ];
+            redrawAll = true;
+            }
+
+        changingLayerDirty.setEmpty();
+        for ( int n = 0; n < changingButtons.size(); n++ )
+            {
+            Button changingButton = changingButtons.get(n);
+            long stamp = changingButton.getChangingStamp();
+            if ( redrawAll || stamp != changingStamps[n] )
+                {
+                changingStamps[n] = stamp;
+                getButtonBounds( changingButton, buttonBounds );
+                changingLayerDirty.union( buttonBounds );
+                }
+            }
+
+        if ( changingLayerDirty.isEmpty() )
+            return;
+
+        // buttons are drawn with layout offsets (as on the screen)
+        changingLayerCanvas.save();
+        changingLayerCanvas.translate( -layoutXOffset, -layoutYOffset );
+        changingLayerCanvas.clipRect( changingLayerDirty );
+        changingLayerCanvas.drawColor( Color.TRANSPARENT, PorterDuff.Mode.CLEAR );
+        for ( int n = 0; n < changingButtons.size(); n++ )
+            {
+            Button changingButton = changingButtons.get(n);
+            getButtonBounds( changingButton, buttonBounds );
+            if ( Rect.intersects( buttonBounds, changingLayerDirty ) )
+                changingButton.drawButtonChangingPart( changingLayerCanvas );
+            }
+        changingLayerCanvas.restore();
+
+        if ( redrawAll )
+            LayoutPictureCache.resized( this );
+        }
+
+    /**
+     * Temporary bounds of the buttons for drawChangedButtons() and unionChangedButtons()
+     */
+    private Rect buttonBounds = new Rect();
+
+    /**
+     * Screen area of the button, which should be redrawn if button changes.
+     * Hexagon is enlarged, because lines and titles could exceed it.
+     * @param button button of this layout
+     * @param bounds rect to set
+     */
+    public void getButtonBounds( Button button, Rect bounds )
+        {
+        button.getHexagonBounds( bounds );
+        int margin = halfHexagonWidthInPixels / 4 + lineSize;
+        bounds.inset( -margin, -margin );
         }
         
     /*
      * Not all layout can be stored as bitmap because of memory problems.
-     * Now only one layout is cached in layoutPicture.
-     * The process could be quicker, if bitmaps (same size!) could be reused.
-     * Now a new bitmap will be generated for every bitmap.
+     * Only the recently used layouts keep their layoutPicture, till their size fits
+     * in the budget of LayoutPictureCache. Bitmaps of the same size are reused.
      */
     public Bitmap getLayoutPicture()
         {
         if ( layoutPicture != null)
             {
+            LayoutPictureCache.hit( this );
             return layoutPicture;
             }
 
         Scribe.debug( Debug.LAYOUT, "Layout skin is created for " + toString());
 
+        long pictureStart = System.nanoTime();
         layoutPicture = createLayoutPicture();
+        PreWarm.noteFirstBitmap( pictureStart );
 
+        LayoutPictureCache.added( this );
         return layoutPicture;
         }
 
+    /**
+     * Display list of the layout skin. Recorded at first use, and kept together with
+     * the bitmaps, till LayoutPictureCache releases it.
+     */
+    public Picture getLayoutDisplayList()
+        {
+        if ( layoutDisplayList != null)
+            {
+            LayoutPictureCache.hit( this );
+            return layoutDisplayList;
+            }
+
+        Scribe.debug( Debug.LAYOUT, "Layout display list is recorded for " + toString());
+
+        long pictureStart = System.nanoTime();
+        layoutDisplayList = recordLayoutDisplayList();
+        PreWarm.noteFirstBitmap( pictureStart );
+
+        LayoutPictureCache.added( this );
+        return layoutDisplayList;
+        }
+
+    /**
+     * True, if layout skin (of the current rendering mode) is ready
+     */
+    public boolean hasPicture()
+        {
+        return useDisplayList() ? layoutDisplayList != null : layoutPicture != null;
+        }
+
+    /**
+     * Size of the layout skin - screen data should be calculated
+     */
+    public int estimatePictureBytes()
+        {
+        if ( useDisplayList() )
+            return buttons.length * LayoutPictureCache.DISPLAY_LIST_BYTES_PER_BUTTON;
+
+        // RGB_565 skin
+        return layoutWidthInPixels * layoutHeightInPixels * 2;
+        }
+
+    /**
+     * Layout skin is rendered before the layout is displayed
+     * (BoardTable pre-renders the boards reachable from the active board)
+     * Screen data should be calculated.
+     */
+    public void preRenderPicture()
+        {
+        if ( hasPicture() )
+            return;
+
+        long pictureStart = System.nanoTime();
+
+        // static line paint is set by the layout, it will be set back at the next draw
+        Button.setLineFromLayout(this);
+        if ( useDisplayList() )
+            layoutDisplayList = recordLayoutDisplayList();
+        else
+            layoutPicture = createLayoutPicture();
+
+        Scribe.debug( Debug.LAYOUT, "Layout skin is pre-rendered for " + toString() + " in " +
+                ((System.nanoTime() - pictureStart) / 1000000) + " msec" );
+        LayoutPictureCache.preRendered( this );
+        }
+
     private Bitmap createLayoutPicture()
         {
         Scribe.debug( Debug.LAYOUT, "Layout Layout is created - W: " + layoutWidthInPixels + " H: " + layoutHeightInPixels);
 
-        Bitmap skin = null;
+        Bitmap skin = LayoutPictureCache.obtainBitmap(layoutWidthInPixels, layoutHeightInPixels, Bitmap.Config.RGB_565);
+        boolean skinIsReady = false;
         if ( picture != null )
             {
             /*
@@ -838,8 +1683,11 @@ public class Layout
             Bitmap bitmap = BitmapFactory.decodeFile( picture.getAbsolutePath(), bitmapOptions );
             if ( bitmap != null )
                 {
-                skin = Bitmap.createScaledBitmap(bitmap, layoutWidthInPixels, layoutHeightInPixels, true);
-                //bitmap.recycle(); skin and bitmap can be the same. recycle is not needed per documentation
+                // picture is scaled into the (reused) skin bitmap
+                new Canvas(skin).drawBitmap(bitmap, null,
+                        new Rect(0, 0, layoutWidthInPixels, layoutHeightInPixels), pictureScalePaint);
+                bitmap.recycle();
+                skinIsReady = true;
                 }
             else
                 {
@@ -847,14 +1695,40 @@ public class Layout
                 }
             }
 
-        if ( skin == null )
+        if ( !skinIsReady )
             {
-            skin = Bitmap.createBitmap(layoutWidthInPixels, layoutHeightInPixels, Bitmap.Config.RGB_565);
             skin.eraseColor(layoutColor);
             }
 
-        Canvas canvas = new Canvas(skin);
+        drawLayoutSkin( new Canvas(skin) );
+
+        return skin;
+        }
+
+    /**
+     * Layout skin is recorded as display list.
+     * Background picture is not used here (see useDisplayList()), only background color.
+     */
+    private Picture recordLayoutDisplayList()
+        {
+        Scribe.debug( Debug.LAYOUT, "Layout display list is recorded - W: " + layoutWidthInPixels + " H: " + layoutHeightInPixels);
+
+        Picture displayList = new Picture();
+        Canvas canvas = displayList.beginRecording( layoutWidthInPixels, layoutHeightInPixels );
+        // skin bitmap is opaque (RGB_565), display list should be opaque, too
+        canvas.drawColor( layoutColor | Color.BLACK );
+        drawLayoutSkin( canvas );
+        displayList.endRecording();
 
+        return displayList;
+        }
+
+    /**
+     * Constant parts of the buttons (and debug grid) are drawn over the background
+     * @param canvas canvas of the skin bitmap or the display list
+     */
+    private void drawLayoutSkin( Canvas canvas )
+        {
         for (Button button : buttons)
             {
             if (button != null)
@@ -879,8 +1753,6 @@ public class Layout
                     }
                 }
             }
-
-        return skin;
         }
 
 
@@ -905,6 +1777,20 @@ public class Layout
         }
 
 
+    /**
+     * Screen area of the monitor row (empty if monitor row is not displayed)
+     * @param bounds rect to set
+     */
+    public void getMonitorRowBounds( Rect bounds )
+        {
+        if ( softBoardData.monitorRow )
+            bounds.set( layoutXOffset, areaHeightInPixels - monitorSize,
+                    layoutXOffset + layoutWidthInPixels, areaHeightInPixels );
+        else
+            bounds.setEmpty();
+        }
+
+
     public void drawMonitorRow( Canvas canvas )
         {
         if ( softBoardData.monitorRow )
@@ -0,0 +1,345 @@
+package org.lattilad.bestboard;
+
+import android.app.ActivityManager;
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.os.Build;
+
+import org.lattilad.bestboard.debug.Debug;
+import org.lattilad.bestboard.scribe.Scribe;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Process-wide cache of the layout pictures (skins and touch maps).
+ * <p>
+ * Pictures are stored by their layouts, cache only decides which layouts can keep them.
+ * Layouts are ordered by their last use: if size of all pictures exceeds the budget,
+ * pictures of the least recently used layouts are released. The layout in use
+ * is never released.
+ * <p>
+ * Released bitmaps are not dropped, but kept in a small pool. New pictures of
+ * the same size and config are drawn into these bitmaps instead of allocating new ones.
+ * (All boards of the same orientation have the same size.) Pooled bitmaps use memory
+ * as well, so they are counted in the budget, and they are dropped before any pictures
+ * of the layouts are released.
+ * <p>
+ * Layout skins can be recorded as display lists (Picture) instead of bitmaps. Display lists need
+ * only a fraction of the memory, but they are replayed at each draw. Cache decides
+ * which mode is used, if preference is set to automatic.
+ * <p>
+ * All methods should be called on the main thread.
+ */
+public class LayoutPictureCache
+    {
+    /**
+     * Owner of the cached pictures (Layout).
+     * Cache needs only the size of the pictures, and a way to release them.
+     */
+    public interface PictureHolder
+        {
+        /** Size of the stored pictures in bytes */
+        int getPictureBytes();
+
+        /** Pictures are released - holder should call removed() */
+        void releasePictures();
+        }
+
+    /** Default budget of the pictures (can be set by preferences) */
+    public static final int DEFAULT_BUDGET_MB = 24;
+
+    /** Maximal number of free bitmaps kept in the pool */
+    private static final int POOL_SIZE = 3;
+
+    /** Display lists are used automatically at or below this heap limit (ActivityManager.getMemoryClass()) */
+    private static final int LOW_MEMORY_CLASS_MB = 64;
+
+    /** Estimated size of the recorded display list of one button */
+    public static final int DISPLAY_LIST_BYTES_PER_BUTTON = 1024;
+
+    /** Budget of all pictures in bytes */
+    private static long budget = DEFAULT_BUDGET_MB * 1024L * 1024L;
+
+    /** Layouts with pictures and the size of their pictures - in access order, the last one is the newest */
+    private static LinkedHashMap<PictureHolder, Integer> layouts = new LinkedHashMap<>( 16, 0.75f, true );
+
+    /** Size of all pictures stored by the layouts */
+    private static long residentBytes = 0L;
+
+    /** Released bitmaps, ready to reuse */
+    private static List<Bitmap> pool = new ArrayList<>();
+
+    /** Size of the bitmaps in the pool */
+    private static long poolBytes = 0L;
+
+    /** Statistics */
+    private static int hits = 0;
+    private static int misses = 0;
+    private static int evictions = 0;
+    private static int reuses = 0;
+    private static int preRenders = 0;
+
+
+    /**
+     * Sets the budget of the pictures. Pictures above the new budget are released.
+     * @param budgetInMb size of all pictures in megabytes
+     */
+    public static void setBudget( int budgetInMb )
+        {
+        budget = budgetInMb * 1024L * 1024L;
+        Scribe.debug( Debug.LAYOUT, "Picture cache budget: " + budgetInMb + " MB" );
+        trim( null );
+        }
+
+    /**
+     * Decides whether layout skins should be recorded as display lists.
+     * Hardware accelerated canvas can replay pictures only from API 23,
+     * below that bitmaps are always used.
+     * @param context context to reach ActivityManager
+     * @param mode value of the preference: A - automatic, B - bitmaps, L - display lists
+     * @return true if display lists should be used
+     */
+    public static boolean decideDisplayListRendering( Context context, String mode )
+        {
+        if ( Build.VERSION.SDK_INT < Build.VERSION_CODES.M )
+            return false;
+
+        if ( mode.startsWith("B") )
+            return false;
+
+        if ( mode.startsWith("L") )
+            return true;
+
+        ActivityManager activityManager = (ActivityManager) context.getSystemService( Context.ACTIVITY_SERVICE );
+        boolean lowMemory = activityManager.getMemoryClass() <= LOW_MEMORY_CLASS_MB ||
+                activityManager.isLowRamDevice();
+
+        Scribe.debug( Debug.LAYOUT, "Memory class: " + activityManager.getMemoryClass() +
+                " MB, low ram device: " + activityManager.isLowRamDevice() +
+                (lowMemory ? " - display lists are used." : " - bitmaps are used.") );
+        return lowMemory;
+        }
+
+    /**
+     * Picture of the layout was used (drawn)
+     * @param layout layout with pictures
+     */
+    public static void hit( PictureHolder layout )
+        {
+        // access order is changed by get()
+        if ( layouts.get( layout ) != null )
+            hits++;
+        }
+
+    /**
+     * Picture of the layout was created.
+     * Pictures of the least recently used layouts are released, if budget is exceeded.
+     * @param layout layout with new pictures
+     */
+    public static void added( PictureHolder layout )
+        {
+        misses++;
+        update( layout );
+        trim( layout );
+
+        Scribe.debug( Debug.LAYOUT, "Picture cache miss: " + layout.toString() + ". " + getStatistics() );
+        }
+
+    /**
+     * Picture of the layout was rendered before it was needed (not a miss).
+     * @param layout layout with new pictures
+     */
+    public static void preRendered( PictureHolder layout )
+        {
+        preRenders++;
+        update( layout );
+        trim( layout );
+        }
+
+    /**
+     * A new picture was added to the pictures of the layout (eg. changing layer).
+     * @param layout layout with more pictures
+     */
+    public static void resized( PictureHolder layout )
+        {
+        update( layout );
+        trim( layout );
+        }
+
+    /**
+     * True, if new pictures with this size fit in the budget without releasing other pictures
+     * (Pre-rendering should not release pictures.)
+     * @param bytes size of the new pictures
+     */
+    public static boolean hasRoomFor( int bytes )
+        {
+        return residentBytes + poolBytes + bytes <= budget;
+        }
+
+    /**
+     * Pictures of the layout were released
+     * @param layout layout without pictures
+     */
+    public static void removed( PictureHolder layout )
+        {
+        Integer bytes = layouts.remove( layout );
+        if ( bytes != null )
+            residentBytes -= bytes;
+        }
+
+    /**
+     * Size of the layout's pictures is stored again
+     */
+    private static void update( PictureHolder layout )
+        {
+        removed( layout );
+        int bytes = layout.getPictureBytes();
+        if ( bytes > 0 )
+            {
+            layouts.put( layout, bytes );
+            residentBytes += bytes;
+            }
+        }
+
+    /**
+     * Pooled bitmaps are dropped first, then pictures of the least recently used layouts
+     * are released until pictures fit in the budget
+     * @param keep this layout should keep its pictures (can be null)
+     */
+    private static void trim( PictureHolder keep )
+        {
+        trimPool();
+
+        // get() cannot be used during iteration: it changes the access order
+        Iterator<Map.Entry<PictureHolder, Integer>> iterator = layouts.entrySet().iterator();
+        while ( residentBytes + poolBytes > budget && iterator.hasNext() )
+            {
+            Map.Entry<PictureHolder, Integer> entry = iterator.next();
+            PictureHolder layout = entry.getKey();
+            if ( layout == keep )
+                continue;
+
+            residentBytes -= entry.getValue();
+            iterator.remove();
+            evictions++;
+
+            // layout calls removed(), but it is already removed
+            // its bitmaps are moved into the pool, and dropped there, if they do not fit
+            layout.releasePictures();
+            }
+        }
+
+    /**
+     * Oldest bitmaps of the pool are dropped, while pool is too long, or pictures
+     * (together with the pool) exceed the budget
+     */
+    private static void trimPool()
+        {
+        while ( !pool.isEmpty() && ( pool.size() > POOL_SIZE || residentBytes + poolBytes > budget ) )
+            {
+            poolBytes -= bytesOf( pool.remove( 0 ) );
+            }
+        }
+
+    /**
+     * Memory is low: pictures are released for all layouts (except the displayed one),
+     * and the pool is emptied.
+     * @param keep this layout should keep its pictures (can be null)
+     */
+    public static void releaseAll( PictureHolder keep )
+        {
+        List<PictureHolder> released = new ArrayList<>( layouts.keySet() );
+        for ( PictureHolder layout : released )
+            {
+            if ( layout != keep )
+                layout.releasePictures();
+            }
+        pool.clear();
+        poolBytes = 0L;
+
+        Scribe.debug( Debug.LAYOUT, "Picture cache is released. " + getStatistics() );
+        }
+
+    /**
+     * Number of layouts with pictures
+     */
+    public static int getLayoutCount()
+        {
+        return layouts.size();
+        }
+
+    /**
+     * All pictures are forgotten (eg. layouts of a new coat file are used).
+     * Statistics remain.
+     */
+    public static void clear()
+        {
+        layouts.clear();
+        residentBytes = 0L;
+        pool.clear();
+        poolBytes = 0L;
+        }
+
+
+    /**
+     * Gives back a bitmap from the pool, or creates a new one.
+     * Content of the bitmap is not defined.
+     * @param width width of the bitmap
+     * @param height height of the bitmap
+     * @param config config of the bitmap
+     * @return bitmap (mutable)
+     */
+    public static Bitmap obtainBitmap( int width, int height, Bitmap.Config config )
+        {
+        for ( int n = pool.size() - 1; n >= 0; n-- )
+            {
+            Bitmap bitmap = pool.get( n );
+            if ( bitmap.getWidth() == width && bitmap.getHeight() == height && bitmap.getConfig() == config )
+                {
+                reuses++;
+                poolBytes -= bytesOf( bitmap );
+                return pool.remove( n );
+                }
+            }
+        return Bitmap.createBitmap( width, height, config );
+        }
+
+    /**
+     * Bitmap is not used any more, it is stored in the pool
+     * @param bitmap released bitmap (can be null)
+     */
+    public static void recycleBitmap( Bitmap bitmap )
+        {
+        if ( bitmap == null || !bitmap.isMutable() || bitmap.isRecycled() )
+            return;
+
+        pool.add( bitmap );
+        poolBytes += bytesOf( bitmap );
+        trimPool();
+        }
+
+    /**
+     * Size of the bitmap (getAllocationByteCount() is available only from API 19)
+     */
+    private static long bytesOf( Bitmap bitmap )
+        {
+        return (long) bitmap.getRowBytes() * bitmap.getHeight();
+        }
+
+
+    /**
+     * Hit and miss counts and resident bytes
+     */
+    public static String getStatistics()
+        {
+        return "Hits: " + hits + ", misses: " + misses + ", pre-rendered: " + preRenders +
+                ", evictions: " + evictions +
+                ", reused bitmaps: " + reuses + ". Layouts with pictures: " + layouts.size() +
+                ", resident: " + (residentBytes / 1024) + " KB of " + (budget / 1024) +
+                " KB, pool: " + pool.size() + " bitmaps, " + (poolBytes / 1024) + " KB";
+        }
+    }
@@ -3,9 +3,11 @@ package org.lattilad.bestboard;
 
 import android.content.Context;
 import android.graphics.Canvas;
+import android.graphics.Color;
 import android.graphics.Paint;
-import android.graphics.Path;
+import android.graphics.Rect;
 import android.os.Handler;
+import android.os.SystemClock;
 import android.view.InflateException;
 import android.view.MotionEvent;
 import android.view.View;
@@ -17,11 +19,7 @@ import org.lattilad.bestboard.debug.Debug;
 import org.lattilad.bestboard.scribe.Scribe;
 import org.lattilad.bestboard.states.MetaState;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.Iterator;
-import java.util.List;
-import java.util.Map;
+import java.util.Arrays;
 
 import static org.lattilad.bestboard.scribe.Scribe.debug;
 
@@ -103,15 +101,13 @@ public class LayoutView extends View
 
             this.layout = layout;
 
-            // mainTouchBow cannot be null, but it cannot get value before setLayout
-            // !! THIS SHOULD BE ORGANISED ON AN OTHER WAY !!
-            if ( mainTouchBow == null )
-                {
-                mainTouchBow = new MainTouchBow();
-                }
-
             layout.forceMetaStates();
 
+            // the whole view should be redrawn
+            this.invalidate();
+            dirtyRect.setEmpty();
+            touchedButtonOnScreen = null;
+
             /**
              * Multi touches connect to their layout.
              * If layout is changed, then these touches cannot start a new MAIN touch,
@@ -121,15 +117,20 @@ public class LayoutView extends View
              * !! CHANGED !!
              */
 
-            for (MultiTouchBow multiTouchBow : multiTouchPointers.values())
+            for (int pointerId = 0; pointerId < multiTouchPointers.length; pointerId++)
                 {
-                multiTouchBow.touchCode = Layout.EMPTY_TOUCH_CODE;
+                MultiTouchBow multiTouchBow = getMultiTouchBow( pointerId );
+                if ( multiTouchBow != null )
+                    multiTouchBow.touchCode = Layout.EMPTY_TOUCH_CODE;
                 }
 
             // main touch
             // _touchEventUp();
             // evaluateMain(TOUCH_UP, null);
-            mainTouchBow = new MainTouchBow(); //mainTouchBow() becomes invalid
+            mainTouchBow.start( Layout.EMPTY_TOUCH_CODE, null ); //previous mainTouchBow becomes invalid
+
+            // cell belongs to the previous layout
+            hitCellBounds.setEmpty();
                 
             // if change happens during evaluation, evaluation should be stopped
             pointerChangeFlag = BOARD_CHANGE;
@@ -137,8 +138,11 @@ public class LayoutView extends View
             strokePaint.setColor( layout.softBoardData.strokeColor );
             pathPaint.setColor( layout.softBoardData.strokeColor );
 
-            // clears strokePaths
-            strokePaths.clear();
+            // clears paths (trail length could be changed by preferences)
+            strokeTrail.setCapacity( layout.softBoardData.strokeTrailLength );
+            pathTrail.setCapacity( layout.softBoardData.strokeTrailLength );
+            pathTrail.clear();
+            pathBounds.setEmpty();
 
             }
         // !!!!!!! SIZE CONTROL IS STILL MISSING !!!!!!!!!
@@ -252,6 +256,7 @@ public class LayoutView extends View
             // layout dimensions are calculated (and stored) here
             layout.calculateScreenData(screenWidthInPixels, screenHeightInPixels);
             calculatedHeightInPixels = layout.areaHeightInPixels;
+            hitCellBounds.setEmpty();
             }
 
         debug( Debug.VIEW, "onMeasure values: " +
@@ -280,33 +285,55 @@ public class LayoutView extends View
     // STROKE - MAIN touch curve between touch-down and touch-up
 
     /**
-     * Inner class to store point coordinates for stroke
+     * PointerId for the stroke and mainTouchBow
+     * -1: no active bow/stroke, new stroke can start
      */
-    private class StrokePoint
-        {
-        protected StrokePoint(int canvasX, int canvasY)
-            {
-            this.canvasX = canvasX;
-            this.canvasY = canvasY;
-            }
+    private int strokePointerId = -1;
 
-        int canvasX;
-        int canvasY;
-        }
+    /**
+     * Default number of stored points (before layout is set)
+     */
+    private static final int DEFAULT_TRAIL_LENGTH = 150;
 
     /**
-     * PointerId for the stroke and mainTouchBow
-     * -1: no active bow/stroke, new stroke can start
+     * Stroke points fade out during this time (msec)
      */
-    private int strokePointerId = -1;
+    private static final int STROKE_FADE_TIME = 800;
+
+    /**
+     * Touched coordinates of the actual stroke are stored during touch events,
+     * and will be displayed later. Only the last points are kept.
+     */
+    private StrokeTrail strokeTrail = new StrokeTrail( DEFAULT_TRAIL_LENGTH );
+
+    /**
+     * Touched coordinates of the previous strokes are stored for the paths
+     */
+    private StrokeTrail pathTrail = new StrokeTrail( DEFAULT_TRAIL_LENGTH );
 
     /**
-     * Touched coordinates are stored during touch events, and will be displayed later
+     * Stroke points are cleared.
+     * Their area is redrawn in the next frame.
      */
-    List<StrokePoint> strokePoints = new ArrayList<StrokePoint>();
+    private void clearStrokePoints()
+        {
+        strokeTrail.clear();
+        dirtyRect.union( strokeBounds );
+        strokeBounds.setEmpty();
+        }
 
-    List<Path> strokePaths = new ArrayList<Path>();
-    Path lastStrokePath = null;
+    /**
+     * Paths of the previous strokes are cleared (new input field)
+     */
+    public void clearStrokePaths()
+        {
+        pathTrail.clear();
+        if ( !pathBounds.isEmpty() )
+            {
+            invalidate();
+            pathBounds.setEmpty();
+            }
+        }
 
     /**
      * Paint for stroke
@@ -321,23 +348,29 @@ public class LayoutView extends View
 
     private class MainTouchBow
         {
-        // Elevated (empty) main touch
+        // Elevated (empty) main touch - before the first layout
         MainTouchBow()
             {
-            this( Layout.EMPTY_TOUCH_CODE, null );
+            this.touchCode = Layout.EMPTY_TOUCH_CODE;
+            this.buttonMainTouch = null;
             }
 
-        MainTouchBow(int touchCode, ButtonMainTouch buttonMainTouch)
+        /**
+         * A new bow is started in place of the previous one
+         * (Only one main bow exists, so no objects are created during touch events.)
+         */
+        void start(int touchCode, ButtonMainTouch buttonMainTouch)
             {
             this.touchCode = touchCode;
             this.buttonMainTouch = buttonMainTouch;
+            resetMoveAndPressureCounter();
 
             // clear previous repeats
             repeatHandler.removeCallbacks( repeatRunnable );
 
             if ( buttonMainTouch != null )
                 {
-                debug( Debug.TOUCH, "MainTouchBow created.");
+                debug( Debug.TOUCH, "MainTouchBow started.");
                 // in light-check cursor position should be checked before a new bow
                 layout.softBoardData.softBoardListener.checkAtBowStart();
 
@@ -346,16 +379,16 @@ public class LayoutView extends View
                 }
             else
                 {
-                debug( Debug.TOUCH, "MainTouchBow with no button created.");
+                debug( Debug.TOUCH, "MainTouchBow with no button started.");
                 layout.softBoardData.softBoardListener.checkAtStrokeEnd();
                 }
             }
 
         // touchCode of the current bow
-        final int touchCode;
+        int touchCode;
 
         // button of the current current bow
-        final ButtonMainTouch buttonMainTouch;
+        ButtonMainTouch buttonMainTouch;
 
         // length of the bow
         int moveCounter = 0;
@@ -394,8 +427,9 @@ public class LayoutView extends View
      * It cannot be null, if touch (stroke) is elevated, it have to be empty, but not null!!
      * strokePointerId == -1 means an elevated touch
      * (because empty buttons have got the same MainTouchBow; elevated is a special empty button)
+     * The same object is restarted for each bow (see MainTouchBow.start())
      */
-    private MainTouchBow mainTouchBow;
+    private final MainTouchBow mainTouchBow = new MainTouchBow();
 
 
     private Handler repeatHandler = new Handler();
@@ -419,19 +453,73 @@ public class LayoutView extends View
     private class MultiTouchBow
         {
         int touchCode;
-        ButtonMultiTouch buttonMultiTouch;
+        // null: bow is not active
+        ButtonMultiTouch buttonMultiTouch = null;
+        }
+
+    // MULTI TOUCH POINTERS - secondary (multitouch pointers)
+    // Index : pointerId (pointer ids are small numbers, and they are reused by the system)
+    // Value MultiTouchBow : (int touchCode, ButtonMultiTouch buttonMultiTouch)
+    // Bows are kept after release, and reused by the same pointerId,
+    // so no objects (and no boxed keys) are created during touch events
+    private MultiTouchBow[] multiTouchPointers = new MultiTouchBow[ MULTI_TOUCH_POINTERS ];
+
+    // Number of active multi touch bows
+    private int multiTouchCount = 0;
+
+    // Pointer ids are below this number (enlarged if needed)
+    private static final int MULTI_TOUCH_POINTERS = 32;
 
-        MultiTouchBow(int touchCode, ButtonMultiTouch buttonMultiTouch)
+    /**
+     * Active multi touch bow of the pointer
+     * @param pointerId id of the pointer
+     * @return multi touch bow, or null if pointer has no active bow
+     */
+    private MultiTouchBow getMultiTouchBow( int pointerId )
+        {
+        if ( pointerId < 0 || pointerId >= multiTouchPointers.length )
+            return null;
+        MultiTouchBow multiTouchBow = multiTouchPointers[pointerId];
+        return ( multiTouchBow != null && multiTouchBow.buttonMultiTouch != null ) ? multiTouchBow : null;
+        }
+
+    /**
+     * Multi touch bow is started for the pointer
+     * @param pointerId id of the pointer (cannot be negative)
+     * @param touchCode touchCode of the button
+     * @param buttonMultiTouch button of the bow (cannot be null)
+     */
+    private void putMultiTouchBow( int pointerId, int touchCode, ButtonMultiTouch buttonMultiTouch )
+        {
+        if ( pointerId >= multiTouchPointers.length )
+            multiTouchPointers = Arrays.copyOf( multiTouchPointers, pointerId + 1 );
+
+        MultiTouchBow multiTouchBow = multiTouchPointers[pointerId];
+        if ( multiTouchBow == null )
             {
-            this.touchCode = touchCode;
-            this.buttonMultiTouch = buttonMultiTouch;
+            multiTouchBow = new MultiTouchBow();
+            multiTouchPointers[pointerId] = multiTouchBow;
             }
+        if ( multiTouchBow.buttonMultiTouch == null )
+            multiTouchCount++;
+
+        multiTouchBow.touchCode = touchCode;
+        multiTouchBow.buttonMultiTouch = buttonMultiTouch;
         }
 
-    // MULTI TOUCH POINTERS - secondary (multitouch pointers)
-    // Key (Integer) : pointerId
-    // Value MetaBow : (int touchCode, ButtonMeta buttonMeta)
-    private Map<Integer, MultiTouchBow> multiTouchPointers = new HashMap<>();
+    /**
+     * Multi touch bow of the pointer is finished (bow is kept for reuse)
+     * @param pointerId id of the pointer
+     */
+    private void removeMultiTouchBow( int pointerId )
+        {
+        MultiTouchBow multiTouchBow = getMultiTouchBow( pointerId );
+        if ( multiTouchBow != null )
+            {
+            multiTouchBow.buttonMultiTouch = null;
+            multiTouchCount--;
+            }
+        }
 
     // During a stroke MAIN TOUCH BOW can convert to MULTI TOUCH BOW (and vice versa)
     // In these cases further touch evaluation should be stopped;
@@ -446,6 +534,154 @@ public class LayoutView extends View
     // MAIN_TO_META_CHANGE and BOARD_CHANGE are evaluated together, these are on the positive side
 
 
+    /**
+     ** DIRTY AREA
+     ** Touch events collect the changed parts of the view (touched button, changing buttons,
+     ** stroke, monitor row). View is invalidated at the end of onTouchEvent only if this area
+     ** is not empty. invalidate(Rect) is deprecated (API 23), hardware accelerated views
+     ** ignore its rect, so the whole view is invalidated.
+     ** Layout change invalidates the whole view.
+     **/
+
+    /** Changed area since the last invalidation (view coordinates) */
+    private Rect dirtyRect = new Rect();
+
+    /** Area of the stroke points of the actual stroke (they are cleared together) */
+    private Rect strokeBounds = new Rect();
+
+    /** Area of the stored paths */
+    private Rect pathBounds = new Rect();
+
+    /** Temporary rect for bounds */
+    private Rect tempBounds = new Rect();
+
+    /** Clip of the actual onDraw */
+    private Rect clipBounds = new Rect();
+
+    /**
+     ** HIT CELL
+     ** Main pointer remembers the cell (central part of the hexagon) of its last lookup.
+     ** While pointer remains inside this cell, color (touch code) is known without lookup.
+     ** Cell is cleared when layout or screen data changes.
+     **/
+
+    /** Bounds of the last looked up cell (view coordinates), empty if no cell is known */
+    private Rect hitCellBounds = new Rect();
+
+    /** Color code of the last looked up cell (see Layout.colorFromMap()) */
+    private int hitCellColor;
+
+    /**
+     * Color code of the main pointer's position. Lookup is skipped inside the last cell.
+     * @param canvasX x coordinate on canvas
+     * @param canvasY y coordinate on canvas
+     * @return color code (see Layout.touchCodeFromColor() and Layout.outerRimFromColor())
+     */
+    private int colorAt( int canvasX, int canvasY )
+        {
+        if ( hitCellBounds.contains( canvasX, canvasY ) )
+            return hitCellColor;
+
+        return hitCellColor = layout.colorFromMap( canvasX, canvasY, hitCellBounds );
+        }
+
+    /** Radius of the stroke points, and half width of the paths (with some rounding margin) */
+    private static final int STROKE_POINT_MARGIN = 4;
+    private static final int STROKE_PATH_MARGIN = 4;
+
+    /**
+     * Touched button drawn (or will be drawn) in the next frame
+     * If mainTouchBow changes, both the previous and the new touched button are redrawn
+     */
+    private Button touchedButtonOnScreen = null;
+
+    /** Changing buttons could change during this touch event (see invalidateChangingButtons()) */
+    private boolean changingButtonsToCheck = false;
+
+    /**
+     * Area of the button is redrawn
+     * @param button button to redraw (can be null)
+     */
+    private void invalidateButton( Button button )
+        {
+        if ( button != null )
+            {
+            layout.getButtonBounds( button, tempBounds );
+            dirtyRect.union( tempBounds );
+            }
+        }
+
+    /**
+     * Changing buttons should be checked (meta- and link-states could change them)
+     * States can change later during the same touch event, so stamps of the buttons are checked
+     * only in invalidateDirtyArea(), and only the changed buttons are redrawn.
+     */
+    private void invalidateChangingButtons()
+        {
+        changingButtonsToCheck = true;
+        }
+
+    /**
+     * Monitor row is redrawn
+     */
+    private void invalidateMonitorRow()
+        {
+        layout.getMonitorRowBounds( tempBounds );
+        dirtyRect.union( tempBounds );
+        }
+
+    /**
+     * Stroke point is added
+     */
+    private void invalidateStrokePoint( int canvasX, int canvasY )
+        {
+        tempBounds.set( canvasX - STROKE_POINT_MARGIN, canvasY - STROKE_POINT_MARGIN,
+                canvasX + STROKE_POINT_MARGIN, canvasY + STROKE_POINT_MARGIN );
+        strokeBounds.union( tempBounds );
+        dirtyRect.union( tempBounds );
+        }
+
+    /**
+     * Path segment is added between the two points
+     */
+    private void invalidatePathSegment( int fromX, int fromY, int toX, int toY )
+        {
+        tempBounds.set( Math.min( fromX, toX ) - STROKE_PATH_MARGIN,
+                Math.min( fromY, toY ) - STROKE_PATH_MARGIN,
+                Math.max( fromX, toX ) + STROKE_PATH_MARGIN,
+                Math.max( fromY, toY ) + STROKE_PATH_MARGIN );
+        pathBounds.union( tempBounds );
+        dirtyRect.union( tempBounds );
+        }
+
+    /**
+     * View is invalidated, if the collected area is not empty.
+     * If touched button was changed, its previous and new area is added first.
+     */
+    private void invalidateDirtyArea()
+        {
+        Button touchedButton = layout.softBoardData.displayTouch ? mainTouchBow.buttonMainTouch : null;
+        if ( touchedButton != touchedButtonOnScreen )
+            {
+            invalidateButton( touchedButtonOnScreen );
+            invalidateButton( touchedButton );
+            touchedButtonOnScreen = touchedButton;
+            }
+
+        if ( changingButtonsToCheck )
+            {
+            layout.unionChangedButtons( dirtyRect );
+            changingButtonsToCheck = false;
+            }
+
+        if ( !dirtyRect.isEmpty() )
+            {
+            invalidate();
+            dirtyRect.setEmpty();
+            }
+        }
+
+
     /**
      ** TOUCH EVENTS
      **/
@@ -453,10 +689,11 @@ public class LayoutView extends View
     /**
      * Creates the stroke from touch (down) to release (up).
      * Only one stroke is allowed, new stroke can be created only, if strokePointerId is -1.
-     * strokePoints are stored.
+     * Points of the stroke are stored in strokeTrail.
      * bowMoveCounter and bowPressureCounter will be increased if needed,
      * and evaluateMain() will be called after each touch.
      * View will be invalidated after down/move/up, but not after hold
+     * View is invalidated only if something changed, see invalidateDirtyArea()
      */
     @Override
     public boolean onTouchEvent(MotionEvent event)
@@ -467,6 +704,9 @@ public class LayoutView extends View
         Scribe.locus( Debug.TOUCH_VERBOSE );
         // Scribe.debug( Debug.VIEW, this.toString() + " touchEvent " + event.getActionMasked());
 
+        // Keystroke latency is measured from the time of the event
+        KeystrokeLatency.touchStarted( SystemClock.uptimeMillis() - event.getEventTime() );
+
         pointerChangeFlag = NO_CHANGE;
 
         switch (event.getActionMasked())
@@ -489,20 +729,24 @@ public class LayoutView extends View
                     }
 
                 // META stroke - RELEASE - ?? CLEARing state should be better ??
-                if (!multiTouchPointers.isEmpty())
+                if (multiTouchCount > 0)
                     {
-                    for (MultiTouchBow multiTouchBow : multiTouchPointers.values())
+                    for (int pointerId = 0; pointerId < multiTouchPointers.length; pointerId++)
                         {
-                        Scribe.error("Abandoned META pointer! TouchCode is released:" + multiTouchBow.touchCode);
-                        multiTouchBow.buttonMultiTouch.multiTouchEvent(ButtonMultiTouch.META_RELEASE);
+                        MultiTouchBow multiTouchBow = getMultiTouchBow( pointerId );
+                        if ( multiTouchBow != null )
+                            {
+                            Scribe.error("Abandoned META pointer! TouchCode is released:" + multiTouchBow.touchCode);
+                            multiTouchBow.buttonMultiTouch.multiTouchEvent(ButtonMultiTouch.META_RELEASE);
+                            removeMultiTouchBow( pointerId );
+                            }
                         }
-                    multiTouchPointers.clear();
 
                     // META (indicator) keys change without the change of the MAIN
-                    this.invalidate();
+                    invalidateChangingButtons();
 
                     // MAIN clears it, but after MAIN->META change, META should clear it, too
-                    strokePoints.clear();
+                    clearStrokePoints();
                     }
                 else
                     {
@@ -528,13 +772,11 @@ public class LayoutView extends View
                     index = event.getActionIndex(); // index of the newest touch
                     strokePointerId = event.getPointerId( index );
 
-                    debug( Debug.TOUCH, "MAIN pointer was empty, new stroke is started. Id: " + strokePointerId );
-
-                    // Touched StrokePoints
-                    StrokePoint strokePoint = new StrokePoint((int) event.getX(index), (int) event.getY(index));
+                    if ( Scribe.isDebugLogged( Debug.TOUCH ) )
+                        debug( Debug.TOUCH, "MAIN pointer was empty, new stroke is started. Id: " + strokePointerId );
 
                     // Evaluation
-                    evaluateMain(TOUCH_DOWN, strokePoint);
+                    evaluateMain(TOUCH_DOWN, (int) event.getX(index), (int) event.getY(index));
                     }
                 else
                     {
@@ -557,50 +799,57 @@ public class LayoutView extends View
                 if ( screenWidthInPixels < 0 )
                     {
                     debug( Debug.TOUCH, "Layout is not ready yet, touch moves are dropped: " + event.getHistorySize()+1 );
+                    KeystrokeLatency.touchFinished();
                     return true;
                     }
 
+                // Debug texts are not built on this hot path, if they would not appear
+                boolean verbose = Scribe.isDebugLogged( Debug.TOUCH_VERBOSE );
+
                 debug( Debug.TOUCH_VERBOSE, "Pointer is in HOLD/MOVE." );
 
-                debug( Debug.TOUCH_VERBOSE, "META pointers to evaluate: " + multiTouchPointers.size());
+                if ( verbose )
+                    debug( Debug.TOUCH_VERBOSE, "META pointers to evaluate: " + multiTouchCount);
 
                 // Check all META pointers for movement - NO Historical values are checked
-                Iterator<Map.Entry<Integer, MultiTouchBow>> iterator =
-                        multiTouchPointers.entrySet().iterator();
-
-                while (iterator.hasNext())
+                for (int pointerId = 0; multiTouchCount > 0 && pointerId < multiTouchPointers.length; pointerId++)
                     {
-                    Map.Entry<Integer, MultiTouchBow> multiTouchPointer = iterator.next();
+                    MultiTouchBow multiTouchBow = getMultiTouchBow( pointerId );
+                    if ( multiTouchBow == null )
+                        continue;
 
-                    index = event.findPointerIndex( multiTouchPointer.getKey() );
+                    index = event.findPointerIndex( pointerId );
                     if (index != -1)
                         {
-                        debug(Debug.TOUCH_VERBOSE, "META pointer check: " + index);
+                        if ( verbose )
+                            debug(Debug.TOUCH_VERBOSE, "META pointer check: " + index);
 
                         int color = layout.colorFromMap((int) event.getX(index), (int) event.getY(index));
                         int newTouchCode = Layout.touchCodeFromColor(color);
 
-                        if (newTouchCode != multiTouchPointer.getValue().touchCode)
+                        if (newTouchCode != multiTouchBow.touchCode)
                             {
                             // if layout was changed for this pointer,
                             // new button (touchCode) will behave, as the previous one on the previous layout
-                            if (multiTouchPointer.getValue().touchCode == Layout.EMPTY_TOUCH_CODE)
+                            if (multiTouchBow.touchCode == Layout.EMPTY_TOUCH_CODE)
                                 {
-                                debug(Debug.TOUCH, "META button will refer to new touchCode on new layout: " + newTouchCode);
-                                multiTouchPointer.getValue().touchCode = newTouchCode;
+                                if ( Scribe.isDebugLogged( Debug.TOUCH ) )
+                                    debug(Debug.TOUCH, "META button will refer to new touchCode on new layout: " + newTouchCode);
+                                multiTouchBow.touchCode = newTouchCode;
                                 }
                             // if button-center was reached
                             else if (!Layout.outerRimFromColor(color))
                                 {
                                 debug(Debug.TOUCH, "META pointer left its button.");
-                                multiTouchPointer.getValue().buttonMultiTouch.multiTouchEvent(ButtonMultiTouch.META_RELEASE);
+                                multiTouchBow.buttonMultiTouch.multiTouchEvent(ButtonMultiTouch.META_RELEASE);
                                 // META (indicator) keys change without the change of the MAIN
-                                this.invalidate();
+                                invalidateChangingButtons();
 
                                 if (strokePointerId == -1)
                                     {
-                                    strokePointerId = multiTouchPointer.getKey();
-                                    debug(Debug.TOUCH, "META pointer changed to MAIN. Id: " + strokePointerId);
+                                    strokePointerId = pointerId;
+                                    if ( Scribe.isDebugLogged( Debug.TOUCH ) )
+                                        debug(Debug.TOUCH, "META pointer changed to MAIN. Id: " + strokePointerId);
                                     // BowTouchCode == EMPTY_TOUCH_CODE; like ACTION_DOWN
                                     // BowButton == null; like ACTION_DOWN
 
@@ -609,23 +858,24 @@ public class LayoutView extends View
                                     pointerChangeFlag = META_TO_MAIN_CHANGE;
                                     } else
                                     {
-                                    debug(Debug.TOUCH, "META pointer removed. MAIN is already occupied by Id: " + strokePointerId);
+                                    if ( Scribe.isDebugLogged( Debug.TOUCH ) )
+                                        debug(Debug.TOUCH, "META pointer removed. MAIN is already occupied by Id: " + strokePointerId);
                                     }
 
-                                iterator.remove();
+                                removeMultiTouchBow( pointerId );
                                 }
                             }
                         }
                     else
                         {
                         // pointer disappeared without UP
-                        Scribe.error("META pointer disappeared without up: "
-                                + multiTouchPointer.getKey());
+                        Scribe.error("META pointer disappeared without up: " + pointerId);
                         }
                     }
 
                 // Check MAIN pointer
-                debug( Debug.TOUCH_VERBOSE, "MAIN Pointer to evaluate: " + strokePointerId);
+                if ( verbose )
+                    debug( Debug.TOUCH_VERBOSE, "MAIN Pointer to evaluate: " + strokePointerId);
 
                 // strokePointerId can be -1, this is not checked!!
                 index = event.findPointerIndex(strokePointerId);
@@ -633,12 +883,15 @@ public class LayoutView extends View
                     {
                     // if touch arrives to a meta-key, pointerChangeFlag changes
                     // Evaluation of the historical values could be continued still MAIN does not change
-                    for (int h = 0; h < event.getHistorySize() && pointerChangeFlag == NO_CHANGE; h++)
+                    // Historical samples are coalesced: only cell changes reach the bow logic
+                    int historySize = event.getHistorySize();
+                    for (int h = 0; h < historySize && pointerChangeFlag == NO_CHANGE; h++)
                         {
                         _touchEventsHoldAndMove(
                                 (int) event.getHistoricalX(index, h),
                                 (int) event.getHistoricalY(index, h),
-                                event.getHistoricalPressure(index, h));
+                                event.getHistoricalPressure(index, h),
+                                false);
                         }
 
                     if ( pointerChangeFlag == NO_CHANGE || pointerChangeFlag == META_TO_MAIN_CHANGE )
@@ -646,7 +899,8 @@ public class LayoutView extends View
                         _touchEventsHoldAndMove(
                                 (int) event.getX(index),
                                 (int) event.getY(index),
-                                event.getPressure(index));
+                                event.getPressure(index),
+                                true);
                         }
                     }
                 // !! if index is -1 and strokePointerId is not -1 then pointer disapperaed without UP
@@ -665,29 +919,31 @@ public class LayoutView extends View
                 // MAIN stroke UP
                 if (id == strokePointerId) // Cannot be -1
                     {
-                    debug( Debug.TOUCH, "MAIN Pointer is UP: " + id );
+                    if ( Scribe.isDebugLogged( Debug.TOUCH ) )
+                        debug( Debug.TOUCH, "MAIN Pointer is UP: " + id );
                     _touchEventUp();
                     }
 
                 // META stroke RELEASE
                 else
                     {
-                    MultiTouchBow multiTouchBow = multiTouchPointers.get(id);
+                    MultiTouchBow multiTouchBow = getMultiTouchBow(id);
 
                     if (multiTouchBow != null)
                         {
-                        debug( Debug.VIEW, "META Pointer UP. Id: " + id + " TouchCode: " + multiTouchBow.touchCode);
+                        if ( Scribe.isDebugLogged( Debug.VIEW ) )
+                            debug( Debug.VIEW, "META Pointer UP. Id: " + id + " TouchCode: " + multiTouchBow.touchCode);
 
                         multiTouchBow.buttonMultiTouch.multiTouchEvent(ButtonMultiTouch.META_RELEASE);
                         // META (indicator) keys change without the change of the MAIN
-                        this.invalidate();
+                        invalidateChangingButtons();
 
-                        multiTouchPointers.remove(id);
+                        removeMultiTouchBow(id);
 
                         // MAIN clears it, but after MAIN->META change, last META should clear it, too
-                        if (strokePointerId == -1 && multiTouchPointers.isEmpty())
+                        if (strokePointerId == -1 && multiTouchCount == 0)
                             {
-                            strokePoints.clear();
+                            clearStrokePoints();
                             }
                         }
                     }
@@ -707,50 +963,74 @@ public class LayoutView extends View
                     }
 
                 // META stroke - CANCEL == states change to LOCK setting
-                if (!multiTouchPointers.isEmpty())
+                if (multiTouchCount > 0)
                     {
-                    for (MultiTouchBow multiTouchBow : multiTouchPointers.values())
+                    for (int pointerId = 0; pointerId < multiTouchPointers.length; pointerId++)
                         {
-                        multiTouchBow.buttonMultiTouch.multiTouchEvent(ButtonMultiTouch.META_CANCEL);
+                        MultiTouchBow multiTouchBow = getMultiTouchBow( pointerId );
+                        if ( multiTouchBow != null )
+                            {
+                            multiTouchBow.buttonMultiTouch.multiTouchEvent(ButtonMultiTouch.META_CANCEL);
+                            removeMultiTouchBow( pointerId );
+                            }
                         // META (indicator) keys change without the change of the MAIN
                         }
-                    multiTouchPointers.clear();
                     // META (indicator) keys change without the change of the MAIN
-                    this.invalidate();
+                    invalidateChangingButtons();
                     // MAIN clears it, but after MAIN->META change, META should clear it, too
-                    strokePoints.clear();
+                    clearStrokePoints();
                     }
                 break;
 
             }
 
+        // only the changed parts are redrawn
+        invalidateDirtyArea();
+
+        KeystrokeLatency.touchFinished();
         return true;
         }
 
-    // Helper for onTouchEvents() - both MOVE and HOLD touches come here
-    private void _touchEventsHoldAndMove(int canvasX, int canvasY, float canvasPressure)
+    /**
+     * Helper for onTouchEvents() - both MOVE and HOLD touches come here
+     * Samples are coalesced: if a (historical) sample remains on the button of the bow,
+     * only the stroke and the move/pressure counters are updated, and the bow logic
+     * is called only if long or press is reached. Counters are increased for each sample,
+     * as without coalescing, so longBowCount and pressBowCount behave the same way.
+     * @param lastSample last (not historical) sample of the event - it always reaches the bow logic
+     */
+    private void _touchEventsHoldAndMove(int canvasX, int canvasY, float canvasPressure, boolean lastSample)
         {
         if (canvasPressure > layout.softBoardData.pressBowThreshold && canvasPressure != 1.0f)
             {
-            debug( Debug.TOUCH, " prefsPressureThreshold: " + layout.softBoardData.pressBowThreshold + ", canvasPressure: " + canvasPressure);
+            if ( Scribe.isDebugLogged( Debug.TOUCH ) )
+                debug( Debug.TOUCH, " prefsPressureThreshold: " + layout.softBoardData.pressBowThreshold + ", canvasPressure: " + canvasPressure);
             mainTouchBow.increasePressureCounter();
             }
 
-        // Scribe.debug( Debug.VIEW, "StrokePoints size: " + strokePoints.size() );
-        StrokePoint strokePoint = new StrokePoint(canvasX, canvasY);
-        if ( strokePoints.size() > 0 && // after setLayout() stroke can start with "move" - it will be HOLD
-        		strokePoints.get(strokePoints.size() - 1).canvasX == strokePoint.canvasX &&
-                strokePoints.get(strokePoints.size() - 1).canvasY == strokePoint.canvasY)
+        // Scribe.debug( Debug.VIEW, "StrokePoints size: " + strokeTrail.size() );
+        if ( !strokeTrail.isEmpty() && // after setLayout() stroke can start with "move" - it will be HOLD
+        		strokeTrail.getLastX() == canvasX &&
+                strokeTrail.getLastY() == canvasY)
             {
             // There were no point movements - TOUCH_HOLD
             // Points are not stored, but evaluation should be called,
-            // Repeat touches are checked by repeat-handler - instead of evaluateMain(TOUCH_HOLD, strokePoint);
+            // Repeat touches are checked by repeat-handler - instead of evaluateMain(TOUCH_HOLD, canvasX, canvasY);
+            }
+        else if ( !lastSample &&
+                Layout.touchCodeFromColor( colorAt( canvasX, canvasY ) ) == mainTouchBow.touchCode )
+            {
+            // point was moved, but remained on the same button - bow cannot change
+            storeStrokePoint(TOUCH_MOVE, canvasX, canvasY);
+            mainTouchBow.increaseMoveCounter();
+            if ( mainTouchBow.isLong() || mainTouchBow.isPressed() )
+                checkSameBow();
             }
         else // point was moved
             {
             // mainTouchBow.increaseMoveCounter(); -> evaluateMain - TOUCH_MOVE part
             // It is increased only if touch touches it's own button. On the surrounding buttons move counter is skipped.
-            evaluateMain(TOUCH_MOVE, strokePoint);
+            evaluateMain(TOUCH_MOVE, canvasX, canvasY);
             }
         }
 
@@ -761,7 +1041,7 @@ public class LayoutView extends View
         // mainPointerId control
         strokePointerId = -1;
         // Evaluation
-        evaluateMain(TOUCH_UP, null);
+        evaluateMain(TOUCH_UP, 0, 0);
         }
 
 
@@ -796,13 +1076,49 @@ public class LayoutView extends View
         }
 
 
+    /**
+     * Point of the main touch is stored for the stroke and for the paths
+     * - bowAction: TOUCH_DOWN starts a new stroke, TOUCH_MOVE continues it
+     */
+    private void storeStrokePoint(int bowAction, int canvasX, int canvasY)
+        {
+        long pointTime = SystemClock.uptimeMillis();
+
+        if ( layout.softBoardData.displayPaths )
+            {
+            if ( bowAction == TOUCH_DOWN )
+                {
+                pathTrail.add( canvasX, canvasY, pointTime, true );
+                // Scribe.debug(Debug.VIEW, "Touch DOWN. New path is moving to " +
+                //         canvasX + ", " + canvasY);
+                invalidatePathSegment( canvasX, canvasY, canvasX, canvasY );
+                }
+            else if ( !pathTrail.isEmpty() )// TOUCH_MOVE TOUCH_UP
+                {
+                // previous point of the path is the previous point of the stroke
+                int previousX = strokeTrail.isEmpty() ? canvasX : strokeTrail.getLastX();
+                int previousY = strokeTrail.isEmpty() ? canvasY : strokeTrail.getLastY();
+                pathTrail.add( canvasX, canvasY, pointTime, false );
+                // Scribe.debug(Debug.VIEW, "Touch MOVE. Path is lining to " +
+                //         canvasX + ", " + canvasY);
+                invalidatePathSegment( previousX, previousY, canvasX, canvasY );
+                }
+            }
+
+        // Only the last points are kept (see strokeTrailLength)
+        strokeTrail.add( canvasX, canvasY, pointTime, bowAction == TOUCH_DOWN );
+
+        if (layout.softBoardData.displayStroke) invalidateStrokePoint( canvasX, canvasY );
+        }
+
+
     /**
      * Each main touch arrives here.
      * Bows should start and finish here, but moving and pressing will increase bow values in onTouchEvents.
      * - bowAction: TOUCH_DOWN, TOUCH_HOLD, TOUCH_MOVE, TOUCH_UP
-     * - strokePoint: coordinates of the touch, if any (missing in TOUCH_UP)
+     * - canvasX, canvasY: coordinates of the touch (not used in TOUCH_UP)
      */
-    private void evaluateMain(int bowAction, StrokePoint strokePoint)
+    private void evaluateMain(int bowAction, int canvasX, int canvasY)
         {
         Scribe.locus( Debug.TOUCH_VERBOSE );
 
@@ -811,40 +1127,14 @@ public class LayoutView extends View
         // ((or it should imply one more 'if'))
 
         // Store the stroke if:
-        // - stroke is not finished (strokePoint is not null)
+        // - stroke is not finished (not TOUCH_UP)
         // - stroke is not hold
-        if (bowAction != TOUCH_UP) // == (strokePoint != null)
+        if (bowAction != TOUCH_UP)
             {
             // if (bowAction != TOUCH_HOLD) - but HOLD never calls evaluate main
-            strokePoints.add(strokePoint);
-
-            if ( layout.softBoardData.displayPaths )
-                {
-                if ( bowAction == TOUCH_DOWN )
-                    {
-                    lastStrokePath = new Path();
-                    strokePaths.add( lastStrokePath );
-
-                    lastStrokePath.moveTo( strokePoint.canvasX, strokePoint.canvasY );
-                    // Scribe.debug(Debug.VIEW, "Touch DOWN. New path is moving to " +
-                    //         strokePoint.canvasX + ", " + strokePoint.canvasY);
-                    }
-                else if ( lastStrokePath != null )// TOUCH_MOVE TOUCH_UP
-                    {
-                    lastStrokePath.lineTo( strokePoint.canvasX, strokePoint.canvasY );
-                    // Scribe.debug(Debug.VIEW, "Touch MOVE. Path is lining to " +
-                    //         strokePoint.canvasX + ", " + strokePoint.canvasY);
-                    }
-                this.invalidate();
-                }
-
-            // !! Shorter stroke can be drawn !!
-            // while ( strokePoints.size() > 150 )
-            //     strokePoints.remove( 0 );
-
-            if (layout.softBoardData.displayStroke) this.invalidate();
+            storeStrokePoint(bowAction, canvasX, canvasY);
             }
-        // if bowAction == TOUCH_UP - strokePoints will be cleared later
+        // if bowAction == TOUCH_UP - strokeTrail will be cleared later
 
         // FIRST: find out the touchCode for this new touch
         int newBowTouchCode = mainTouchBow.touchCode;
@@ -852,13 +1142,13 @@ public class LayoutView extends View
 
         if (bowAction == TOUCH_DOWN)
             {
-            newBowTouchCode = Layout.touchCodeFromColor(layout.colorFromMap(strokePoint.canvasX, strokePoint.canvasY));
+            newBowTouchCode = Layout.touchCodeFromColor(colorAt(canvasX, canvasY));
             // Scribe.debug( Debug.TOUCH, "MAIN pointer DOWN.");
             }
         else if (bowAction == TOUCH_MOVE)
             {
             // touchCode changes only if move arrives inside the rim
-            int color = layout.colorFromMap(strokePoint.canvasX, strokePoint.canvasY);
+            int color = colorAt(canvasX, canvasY);
             newBowTouchCode = Layout.touchCodeFromColor(color);
 
             // touch is on the same button - independently from center/outer rim
@@ -880,26 +1170,29 @@ public class LayoutView extends View
             // Scribe.debug( Debug.TOUCH, "MAIN pointer UP.");
 
             // Main stroke was freed because of TOUCH_UP action
-            strokePoints.clear(); // if we want the stroke to disappear
-            // Because this.invalidate will be called in the next section, this is not needed:
-            // if (layout.softBoardData.displayStroke) this.invalidate();
+            clearStrokePoints(); // if we want the stroke to disappear - its area is invalidated
             }
         // else TOUCH_HOLD - but HOLD never calls evaluateMain - will not change the touchCode
 
         if (mainTouchBow.touchCode != newBowTouchCode)
             {
             // THE TOUCHED BUTTON IS CHANGED!
-            debug( Debug.TOUCH, "MAIN pointer arrived to a new touchCode: " + mainTouchBow.touchCode + " -> " + newBowTouchCode);
+            // Debug texts are not built on this hot path, if they would not appear
+            boolean debugged = Scribe.isDebugLogged( Debug.TOUCH );
+            if ( debugged )
+                debug( Debug.TOUCH, "MAIN pointer arrived to a new touchCode: " + mainTouchBow.touchCode + " -> " + newBowTouchCode);
 
             // view should be invalidated
-            // not only because the touch (controlled by displayTouch),
+            // not only because the touch (controlled by displayTouch - see invalidateDirtyArea()),
             // but meta-state could also change!
-            this.invalidate();
+            invalidateChangingButtons();
+            invalidateMonitorRow();
 
             //  check bow's finish - finish previous button
             if (mainTouchBow.buttonMainTouch != null)
                 {
-                debug( Debug.TOUCH, "Previous button is released: " + mainTouchBow.buttonMainTouch.getFirstString() );
+                if ( debugged )
+                    debug( Debug.TOUCH, "Previous button is released: " + mainTouchBow.buttonMainTouch.getFirstString() );
 
                 // meta check could be here, after finishing the next main-stream button
                 // but in this case we should finish here
@@ -932,9 +1225,10 @@ public class LayoutView extends View
                 // Button is on MAIN TOUCH
                 if (newBowButton instanceof ButtonMainTouch)
                     {
-                    debug( Debug.TOUCH, "A new MAIN bow is started, MAIN button touched: " + newBowButton.getFirstString() );
+                    if ( debugged )
+                        debug( Debug.TOUCH, "A new MAIN bow is started, MAIN button touched: " + newBowButton.getFirstString() );
                     // start a new MAIN bow
-                    mainTouchBow = new MainTouchBow( newBowTouchCode, (ButtonMainTouch)newBowButton );
+                    mainTouchBow.start( newBowTouchCode, (ButtonMainTouch)newBowButton );
 
                     if (bowAction == TOUCH_DOWN)
                         mainTouchBow.buttonMainTouch.mainTouchStart(true);
@@ -956,9 +1250,10 @@ public class LayoutView extends View
                     {
                     // if MULTI -> put in MULTI
                     // MULTI TOUCH can start here only!!
-                    debug( Debug.TOUCH, "MAIN pointer changed to MULTI. MULTI button touched: " + newBowButton.getFirstString() );
+                    if ( debugged )
+                        debug( Debug.TOUCH, "MAIN pointer changed to MULTI. MULTI button touched: " + newBowButton.getFirstString() );
 
-                    multiTouchPointers.put(strokePointerId, new MultiTouchBow(newBowTouchCode, (ButtonMultiTouch) newBowButton));
+                    putMultiTouchBow(strokePointerId, newBowTouchCode, (ButtonMultiTouch) newBowButton);
 
                     pointerChangeFlag = MAIN_TO_META_CHANGE;
                     // ButtonUse should also call boardChange()!!
@@ -979,37 +1274,47 @@ public class LayoutView extends View
 
             // "outside" areas ends here
             debug( Debug.TOUCH, "MAIN pointer has no attached button.");
-            mainTouchBow = new MainTouchBow(newBowTouchCode, null);
+            mainTouchBow.start(newBowTouchCode, null);
             }
         else // same bow
             {
-            // check bow's long
-            if ( mainTouchBow.isLong() && mainTouchBow.buttonMainTouch != null)
-                {
-                debug(Debug.TOUCH, "LONG touch is detected.");
-                mainTouchBow.buttonMainTouch.mainTouchSecondary(ButtonMainTouch.ON_CIRCLE);
-                mainTouchBow.resetMoveAndPressureCounter();
+            checkSameBow();
+            }
+        }
 
-                // TIMING EVENT - could be in mainTouchSecondary
-                layout.softBoardData.buttonCounter.measure(1);
-                layout.softBoardData.showTiming();
-                }
 
-            // check bow's press
-            if ( mainTouchBow.isPressed() && mainTouchBow.buttonMainTouch != null)
-                {
-                debug( Debug.TOUCH, "PRESS touch is detected." );
-                mainTouchBow.buttonMainTouch.mainTouchSecondary(ButtonMainTouch.ON_HARD_PRESS);
-                mainTouchBow.resetMoveAndPressureCounter();
+    /**
+     * Touch remained on the button of the bow: long and press are checked
+     * (Repeat is checked by the repeat-handler.)
+     */
+    private void checkSameBow()
+        {
+        // check bow's long
+        if ( mainTouchBow.isLong() && mainTouchBow.buttonMainTouch != null)
+            {
+            debug(Debug.TOUCH, "LONG touch is detected.");
+            mainTouchBow.buttonMainTouch.mainTouchSecondary(ButtonMainTouch.ON_CIRCLE);
+            mainTouchBow.resetMoveAndPressureCounter();
 
-                // TIMING EVENT - could be in mainTouchSecondary
-                layout.softBoardData.buttonCounter.measure(1);
-                layout.softBoardData.showTiming();
-                }
+            // TIMING EVENT - could be in mainTouchSecondary
+            layout.softBoardData.buttonCounter.measure(1);
+            layout.softBoardData.showTiming();
+            }
 
-            // bow's repeat - is checked by the repeat-handler
-            // no timing for repeated buttons
+        // check bow's press
+        if ( mainTouchBow.isPressed() && mainTouchBow.buttonMainTouch != null)
+            {
+            debug( Debug.TOUCH, "PRESS touch is detected." );
+            mainTouchBow.buttonMainTouch.mainTouchSecondary(ButtonMainTouch.ON_HARD_PRESS);
+            mainTouchBow.resetMoveAndPressureCounter();
+
+            // TIMING EVENT - could be in mainTouchSecondary
+            layout.softBoardData.buttonCounter.measure(1);
+            layout.softBoardData.showTiming();
             }
+
+        // bow's repeat - is checked by the repeat-handler
+        // no timing for repeated buttons
         }
 
 
@@ -1017,6 +1322,46 @@ public class LayoutView extends View
      ** DRAWING PHASE
      **/
 
+    /**
+     * Stroke points are drawn inside the clip. Points fade out by their age,
+     * and the stroke is redrawn till the last point disappears.
+     * At most strokeTrailLength points are drawn.
+     * @param canvas canvas of the view
+     */
+    private void drawStrokePoints(Canvas canvas)
+        {
+        long now = SystemClock.uptimeMillis();
+        int alpha = Color.alpha( layout.softBoardData.strokeColor );
+        boolean fading = false;
+
+        for ( int n = 0; n < strokeTrail.size(); n++ )
+            {
+            long age = now - strokeTrail.getTime( n );
+            if ( age >= STROKE_FADE_TIME )
+                continue;
+            fading = true;
+
+            int canvasX = strokeTrail.getX( n );
+            int canvasY = strokeTrail.getY( n );
+            if ( canvasX + STROKE_POINT_MARGIN >= clipBounds.left &&
+                    canvasX - STROKE_POINT_MARGIN <= clipBounds.right &&
+                    canvasY + STROKE_POINT_MARGIN >= clipBounds.top &&
+                    canvasY - STROKE_POINT_MARGIN <= clipBounds.bottom )
+                {
+                strokePaint.setAlpha( (int)( alpha * ( STROKE_FADE_TIME - age ) / STROKE_FADE_TIME ) );
+                canvas.drawCircle(canvasX, canvasY, 3f, strokePaint);
+                }
+            }
+        strokePaint.setAlpha( alpha );
+
+        if ( fading )
+            {
+            postInvalidateOnAnimation( strokeBounds.left, strokeBounds.top,
+                    strokeBounds.right, strokeBounds.bottom );
+            }
+        }
+
+
     @Override
     protected void onDraw(Canvas canvas)
         {
@@ -1048,7 +1393,11 @@ public class LayoutView extends View
 
         // !! This cuold be part of draw… methods
         Button.setLineFromLayout(layout);
-        
+
+        // Parts outside the clip are skipped (clip is the whole view, if it is drawn by the system)
+        if ( !canvas.getClipBounds( clipBounds ) )
+            return;
+
         layout.drawLayoutPicture(canvas);
 
         // ChangedButtons - draw over the bitmap, too
@@ -1057,27 +1406,31 @@ public class LayoutView extends View
 
         // TouchedButton - draw over the bitmap!
         if (mainTouchBow.buttonMainTouch != null && layout.softBoardData.displayTouch)
-            mainTouchBow.buttonMainTouch.drawButtonTouched(canvas);
+            {
+            layout.getButtonBounds( mainTouchBow.buttonMainTouch, tempBounds );
+            if ( Rect.intersects( tempBounds, clipBounds ) )
+                mainTouchBow.buttonMainTouch.drawButtonTouched(canvas);
+            }
+        touchedButtonOnScreen = layout.softBoardData.displayTouch ? mainTouchBow.buttonMainTouch : null;
 
         // TouchedPoints - if needed
-        if (layout.softBoardData.displayPaths)
+        if (layout.softBoardData.displayPaths && !pathTrail.isEmpty() && Rect.intersects( pathBounds, clipBounds ))
             {
-            for ( Path path : strokePaths )
-                {
-                canvas.drawPath(path, pathPaint);
-                }
+            canvas.drawPath(pathTrail.getPath(), pathPaint);
             }
 
-        if (layout.softBoardData.displayStroke)
+        if (layout.softBoardData.displayStroke && Rect.intersects( strokeBounds, clipBounds ))
             {
-            for (StrokePoint touchedPoint : strokePoints)
-                {
-                canvas.drawCircle(touchedPoint.canvasX, touchedPoint.canvasY, 3f, strokePaint);
-                }
+            drawStrokePoints(canvas);
             }
 
         // Monitor row to write out speed data
-        layout.drawMonitorRow( canvas );
+        layout.getMonitorRowBounds( tempBounds );
+        if ( Rect.intersects( tempBounds, clipBounds ) )
+            layout.drawMonitorRow( canvas );
+
+        // Redraw closes the measurement of the last keystroke
+        KeystrokeLatency.drawn();
         }
 
     }
@@ -0,0 +1,20 @@
+package org.lattilad.bestboard;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+
+/**
+ * Program was updated. Receiving this broadcast starts the process,
+ * so BestBoardApplication can pre-warm the keyboard (coat snapshot is renewed, too)
+ * before the input method is used again.
+ */
+public class PackageReplacedReceiver extends BroadcastReceiver
+    {
+    @Override
+    public void onReceive( Context context, Intent intent )
+        {
+        // Started by BestBoardApplication, this call is needed only if process was already running
+        PreWarm.start( context.getApplicationContext() );
+        }
+    }
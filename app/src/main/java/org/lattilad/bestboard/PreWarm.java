@@ -0,0 +1,278 @@
+package org.lattilad.bestboard;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Environment;
+import android.os.Handler;
+import android.os.Looper;
+import android.preference.PreferenceManager;
+
+import org.lattilad.bestboard.debug.Debug;
+import org.lattilad.bestboard.monitorrow.TestModeActivity;
+import org.lattilad.bestboard.parser.SoftBoardParser;
+import org.lattilad.bestboard.parser.SoftBoardParser.SoftBoardParserListener;
+import org.lattilad.bestboard.scribe.Scribe;
+
+import java.io.File;
+
+/**
+ * Parsing of the main coat file is started as soon as the process starts
+ * (BestBoardApplication), before SoftBoardService asks for it.
+ * SoftBoardService takes over the running (or the already finished) parsing
+ * by attach(), so the first keyboard can be shown earlier.
+ * <p>
+ * Process can be started by other components, too (eg. PackageReplacedReceiver, settings).
+ * Result is dropped, if no service takes it over in ATTACH_TIMEOUT_MSEC after parsing,
+ * so the whole SoftBoardData is not kept by a process without keyboard.
+ * <p>
+ * Stages of the start (asset check, parse, screen calculation, first bitmap)
+ * are measured from the process start, and noted at TIMER level.
+ * <p>
+ * All methods should be called on the main thread.
+ */
+public class PreWarm implements SoftBoardParserListener
+    {
+    /** Start of the process, stages are measured from here */
+    private static long processStartTime = System.nanoTime();
+
+    /** Screen calculation was already noted */
+    private static boolean screenCalculationNoted = false;
+
+    /** First bitmap was already noted */
+    private static boolean firstBitmapNoted = false;
+
+    /** The only pre-warm parsing - null if not started, cancelled, dropped or already delivered */
+    private static PreWarm preWarm = null;
+
+    /** Finished parsing waits this long for a service, then its result is dropped */
+    private static final long ATTACH_TIMEOUT_MSEC = 10000L;
+
+
+    /**
+     * Process has started. Called first by BestBoardApplication.
+     */
+    public static void processStarted()
+        {
+        processStartTime = System.nanoTime();
+        }
+
+    /**
+     * Notes the length of a stage at TIMER level
+     * @param stage name of the stage
+     * @param stageStartTime start of the stage (System.nanoTime())
+     */
+    public static void noteStage( String stage, long stageStartTime )
+        {
+        long now = System.nanoTime();
+        Scribe.note( Debug.TIMER, "Start stage - " + stage + ": " +
+                ((now - stageStartTime) / 1000000) + " msec, ready " +
+                ((now - processStartTime) / 1000000) + " msec after process start" );
+        }
+
+    /**
+     * Notes the first screen calculation of the process
+     * @param stageStartTime start of the calculation (System.nanoTime())
+     */
+    public static void noteScreenCalculation( long stageStartTime )
+        {
+        if ( !screenCalculationNoted )
+            {
+            screenCalculationNoted = true;
+            noteStage( "screen calculation", stageStartTime );
+            }
+        }
+
+    /**
+     * Notes the first layout bitmap of the process
+     * @param stageStartTime start of the bitmap creation (System.nanoTime())
+     */
+    public static void noteFirstBitmap( long stageStartTime )
+        {
+        if ( !firstBitmapNoted )
+            {
+            firstBitmapNoted = true;
+            noteStage( "first bitmap", stageStartTime );
+            }
+        }
+
+
+    /**
+     * Starts pre-warm parsing of the main coat file.
+     * Test mode is not pre-warmed, and nothing happens if sd-card is not ready.
+     * @param context application context
+     */
+    public static void start( Context context )
+        {
+        if ( preWarm != null )
+            return;
+
+        if ( !Environment.getExternalStorageState().equals( Environment.MEDIA_MOUNTED ) ||
+                TestModeActivity.isTestMode( context ) )
+            {
+            Scribe.debug( Debug.SERVICE, "Pre-warm parsing is not possible." );
+            return;
+            }
+
+        SharedPreferences sharedPrefs = PreferenceManager.getDefaultSharedPreferences( context );
+
+        File directoryFile = Ignition.getCoatDirectory( context );
+        String coatFileName =
+                sharedPrefs.getString( context.getString( R.string.descriptor_file_key ),
+                        context.getString( R.string.descriptor_file_default ));
+
+        Scribe.note( Debug.SERVICE, "Pre-warm parsing of <" + coatFileName + "> has started." );
+        preWarm = new PreWarm( context.getApplicationContext(), directoryFile, coatFileName );
+        }
+
+    /**
+     * Service takes over the pre-warm parsing, if it parses the same coat file.
+     * Result arrives through the callbacks of the service (always posted, never called directly).
+     * Pre-warm parsing can be taken over only once. Service should call cancel() if it starts
+     * a new parsing or if it is destroyed.
+     * @param service caller, it receives the results
+     * @param directoryFile working directory needed by the service
+     * @param coatFileName coat file needed by the service
+     * @return true if pre-warm parsing was taken over
+     */
+    public static boolean attach( SoftBoardParserListener service, File directoryFile, String coatFileName )
+        {
+        if ( preWarm == null || preWarm.service != null )
+            return false;
+
+        if ( !preWarm.directoryFile.equals( directoryFile ) || !preWarm.coatFileName.equals( coatFileName ) )
+            {
+            Scribe.debug( Debug.SERVICE, "Pre-warm parsing is dropped, coat file was changed." );
+            cancel();
+            return false;
+            }
+
+        preWarm.service = service;
+        if ( preWarm.finished )
+            preWarm.forward();
+        return true;
+        }
+
+    /**
+     * Stops pre-warm parsing (even if it was taken over). Result will not be delivered.
+     */
+    public static void cancel()
+        {
+        if ( preWarm != null )
+            {
+            preWarm.parser.cancel( false );
+            preWarm.handler.removeCallbacksAndMessages( null );
+            preWarm = null;
+            }
+        }
+
+
+    /** Application context needed by the parser */
+    private Context context;
+
+    /** Parsed coat file */
+    private File directoryFile;
+    private String coatFileName;
+
+    /** Pre-warm parser */
+    private SoftBoardParser parser;
+
+    /** Forwarding and dropping of the result are posted to the main thread */
+    private Handler handler = new Handler( Looper.getMainLooper() );
+
+    /** Start of the parsing (System.nanoTime()) */
+    private long parseStartTime;
+
+    /** Service, which took over the parsing - null till attach() */
+    private SoftBoardParserListener service = null;
+
+    /** Parser has finished, result is stored till attach() */
+    private boolean finished = false;
+    private SoftBoardData softBoardData = null;
+    private int result;
+
+
+    private PreWarm( Context context, File directoryFile, String coatFileName )
+        {
+        this.context = context;
+        this.directoryFile = directoryFile;
+        this.coatFileName = coatFileName;
+
+        parseStartTime = System.nanoTime();
+        parser = new SoftBoardParser( this, directoryFile, coatFileName );
+        parser.execute();
+        }
+
+    /**
+     * Result is sent to the service. It is posted, because attach() can be called
+     * during the creation of the service.
+     */
+    private void forward()
+        {
+        handler.post( new Runnable()
+            {
+            @Override
+            public void run()
+                {
+                // parsing was cancelled meanwhile
+                if ( preWarm != PreWarm.this )
+                    return;
+                preWarm = null;
+
+                if ( softBoardData != null )
+                    service.softBoardParserFinished( softBoardData, result );
+                else
+                    service.softBoardParserCriticalError( result );
+                }
+            });
+        }
+
+    /**
+     * Result is dropped, if no service takes it over in ATTACH_TIMEOUT_MSEC
+     */
+    private void scheduleDrop()
+        {
+        handler.postDelayed( new Runnable()
+            {
+            @Override
+            public void run()
+                {
+                if ( preWarm == PreWarm.this && service == null )
+                    {
+                    Scribe.debug( Debug.SERVICE, "Pre-warm parsing is dropped, no service has attached." );
+                    preWarm = null;
+                    }
+                }
+            }, ATTACH_TIMEOUT_MSEC );
+        }
+
+    @Override
+    public Context getApplicationContext()
+        {
+        return context;
+        }
+
+    @Override
+    public void softBoardParserFinished( SoftBoardData softBoardData, int errorCount )
+        {
+        noteStage( "parse (pre-warm)", parseStartTime );
+        this.softBoardData = softBoardData;
+        this.result = errorCount;
+        finished = true;
+        if ( service != null )
+            forward();
+        else
+            scheduleDrop();
+        }
+
+    @Override
+    public void softBoardParserCriticalError( int errorInfo )
+        {
+        noteStage( "parse (pre-warm, failed)", parseStartTime );
+        this.result = errorInfo;
+        finished = true;
+        if ( service != null )
+            forward();
+        else
+            scheduleDrop();
+        }
+    }
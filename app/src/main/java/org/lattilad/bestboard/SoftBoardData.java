@@ -9,6 +9,7 @@ import android.preference.PreferenceManager;
 import android.util.LongSparseArray;
 import android.view.inputmethod.EditorInfo;
 
+import org.lattilad.bestboard.buttons.TitleDescriptor;
 import org.lattilad.bestboard.codetext.CodeTextProcessor;
 import org.lattilad.bestboard.debug.Debug;
 import org.lattilad.bestboard.modify.Modify;
@@ -21,8 +22,10 @@ import org.lattilad.bestboard.utils.TimeCounter;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 
 
 public class SoftBoardData
@@ -113,6 +116,29 @@ public class SoftBoardData
      */
     public Typeface typeface = null;
 
+    /**
+     * Text metrics measured with 1000 size for each typeface of the titles
+     * (null key is the default typeface)
+     */
+    private Map<Typeface, TitleDescriptor.TextMetrics> textMetrics = new HashMap<>();
+
+    /**
+     * Text metrics of the actual title typeface (TitleDescriptor.textPaint).
+     * Text is measured only once for each typeface, layouts calculate their text size from these data.
+     * @return text metrics of 1000 size
+     */
+    public TitleDescriptor.TextMetrics getTextMetrics()
+        {
+        Typeface titleTypeface = TitleDescriptor.textPaint.getTypeface();
+        TitleDescriptor.TextMetrics metrics = textMetrics.get( titleTypeface );
+        if ( metrics == null )
+            {
+            metrics = TitleDescriptor.measureTextMetrics();
+            textMetrics.put( titleTypeface, metrics );
+            }
+        return metrics;
+        }
+
 
     /**
      * * PREFERENCES - stored in softBoardData, because these variables affect all boards
@@ -134,6 +160,16 @@ public class SoftBoardData
 
         outerRimPermil = sharedPrefs.getInt(PrefsFragment.DRAWING_OUTER_RIM_INT_KEY, 0);
 
+        // budget is not stored, it is set immediately
+        LayoutPictureCache.setBudget( sharedPrefs.getInt(PrefsFragment.DRAWING_PICTURE_CACHE_INT_KEY,
+                LayoutPictureCache.DEFAULT_BUDGET_MB) );
+
+        displayListRendering = LayoutPictureCache.decideDisplayListRendering(
+                softBoardListener.getApplicationContext(),
+                sharedPrefs.getString(
+                        softBoardListener.getApplicationContext().getString(R.string.drawing_render_mode_key),
+                        softBoardListener.getApplicationContext().getString(R.string.drawing_render_mode_default)));
+
         monitorRow = sharedPrefs.getBoolean(
                 softBoardListener.getApplicationContext().getString(R.string.drawing_monitor_row_key),
                 false);
@@ -165,6 +201,8 @@ public class SoftBoardData
                 softBoardListener.getApplicationContext().getString(R.string.cursor_paths_allow_key),
                 true);
 
+        strokeTrailLength = sharedPrefs.getInt(PrefsFragment.CURSOR_STROKE_TRAIL_INT_KEY, 150);
+
         vibrationAllowed = sharedPrefs.getBoolean(
                 softBoardListener.getApplicationContext().getString(R.string.cursor_vibration_allow_key),
                 true);
@@ -183,6 +221,9 @@ public class SoftBoardData
                 softBoardListener.getApplicationContext().getString(R.string.debug_grid_title_key),
                 false);
 
+        // Text metrics are measured here (if not measured yet), so layouts of both orientations
+        // can calculate their text size without measuring after preference change
+        getTextMetrics();
         }
 
 
@@ -219,6 +260,12 @@ public class SoftBoardData
      */
     public int outerRimPermil;
 
+    /**
+     * Layout skins are recorded as display lists (Picture) instead of bitmaps
+     * Set from preferences, "automatic" value is decided by LayoutPictureCache
+     */
+    public boolean displayListRendering = false;
+
     /**
      * Switches monitor row at the bottom
      */
@@ -264,6 +311,11 @@ public class SoftBoardData
      */
     public boolean displayPaths = true;
 
+    /**
+     * Number of touch points kept for stroke and paths
+     */
+    public int strokeTrailLength = 150;
+
     /**
      * Vibration is allowed or not
      */
@@ -490,10 +542,11 @@ public class SoftBoardData
         // to show timing
         // return monitorString;
 
+        // keystroke latency (median/90th percentile) is added after the mode
         if ( TestModeActivity.isTestMode( softBoardListener.getApplicationContext() ) )
-            return "TEST-MODE";
+            return "TEST-MODE" + KeystrokeLatency.getSummary();
         else
-            return "MAIN-MODE";
+            return "MAIN-MODE" + KeystrokeLatency.getSummary();
         }
 
 
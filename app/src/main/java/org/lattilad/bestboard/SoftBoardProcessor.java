@@ -5,6 +5,7 @@ import android.content.SharedPreferences;
 import android.os.SystemClock;
 import android.preference.PreferenceManager;
 import android.text.InputType;
+import android.view.Choreographer;
 import android.view.InputDevice;
 import android.view.KeyCharacterMap;
 import android.view.KeyEvent;
@@ -194,6 +195,37 @@ public class SoftBoardProcessor implements
     private StringBuilder sendBuilder = new StringBuilder();
 
 
+    /*
+     * Write-behind commit queue (optional, see editing_commit_queue preference)
+     * Plain text and deletions before the cursor are not sent immediately, but collected
+     * till the next display frame (or till any other editor call), and sent as one batch edit.
+     * Queue always means: delete queuedDelete chars before the cursor, then commit queuedText.
+     * Stored text and calculated cursor are updated immediately, as without the queue.
+     */
+    /** Commit queue is used - set by initInput */
+    private boolean commitQueueEnabled = false;
+
+    /** Number of chars to delete before the cursor (before queuedText is committed) */
+    private int queuedDelete = 0;
+
+    /** Text to commit after queuedDelete */
+    private StringBuilder queuedText = new StringBuilder();
+
+    /** Flush is already posted to the next frame */
+    private boolean commitQueueScheduled = false;
+
+    /** Flushes the queue at the next display frame */
+    private Choreographer.FrameCallback commitQueueFlusher = new Choreographer.FrameCallback()
+        {
+        @Override
+        public void doFrame(long frameTimeNanos)
+            {
+            commitQueueScheduled = false;
+            flushCommitQueue();
+            }
+        };
+
+
     /*****************************************
      * CONTROL OF TEXT PROCESSING AND CURSOR MOVEMENTS
      *****************************************/
@@ -269,6 +301,17 @@ public class SoftBoardProcessor implements
         elongationPeriod = sharedPrefs.getInt( PrefsFragment.EDITING_ELONGATION_PERIOD_INT_KEY, 0 );
         Scribe.debug( Debug.CURSOR, "Elongation period: " + elongationPeriod );
 
+        // queue should be flushed by onFinishInput, remaining text belongs to the previous editor
+        if ( !isCommitQueueEmpty() )
+            {
+            Scribe.error( "Commit queue of the previous editor is dropped!" );
+            clearCommitQueue();
+            }
+        commitQueueEnabled = sharedPrefs.getBoolean(
+                softBoardService.getString(R.string.editing_commit_queue_key),
+                softBoardService.getResources().getBoolean(R.bool.editing_commit_queue_default));
+        Scribe.debug( Debug.CURSOR, "Commit queue: " + commitQueueEnabled );
+
         // pressed hard-keys are released
         // NOT NEEDED IN INSTANTSIMULATE
         softBoardData.layoutStates.resetMetaButtons();
@@ -293,7 +336,7 @@ public class SoftBoardProcessor implements
             }
 
         // clears strokePaths
-        getLayoutView().strokePaths.clear();
+        getLayoutView().clearStrokePaths();
         }
 
 
@@ -351,7 +394,8 @@ public class SoftBoardProcessor implements
                         " Calculated End: " + calculatedCursor[1]);
 
         // Calculated cursor positions should be checked only if checkEnabledAfter allows it
-        if ( System.nanoTime() > checkEnabledAfter )
+        // Editor is behind calculated positions, while commit queue is not empty
+        if ( System.nanoTime() > checkEnabledAfter && isCommitQueueEmpty() )
             {
             checkCalculatedToReal();
             }
@@ -374,7 +418,9 @@ public class SoftBoardProcessor implements
         // Check will be disabled after the first text processing,
         // and enabled after stroke-end
         checkEnabledAfter = ALWAYS;
-        checkCalculatedToReal();
+        // real position cannot be compared, while commit queue is not sent
+        if ( isCommitQueueEmpty() )
+            checkCalculatedToReal();
         }
 
     public void checkAtStrokeEnd()
@@ -555,13 +601,126 @@ public class SoftBoardProcessor implements
      */
     public InputConnection getInputConnection()
         {
+        flushCommitQueue();
         return softBoardService.getCurrentInputConnection();
         }
 
 
+    /**
+     * True, if commit queue has nothing to send
+     */
+    private boolean isCommitQueueEmpty()
+        {
+        return queuedDelete == 0 && queuedText.length() == 0;
+        }
+
+    /**
+     * Queue is cleared without sending it
+     */
+    private void clearCommitQueue()
+        {
+        queuedDelete = 0;
+        queuedText.setLength(0);
+        if ( commitQueueScheduled )
+            {
+            Choreographer.getInstance().removeFrameCallback( commitQueueFlusher );
+            commitQueueScheduled = false;
+            }
+        }
+
+    /**
+     * Text is added to the commit queue
+     */
+    private void queueCommit( String string )
+        {
+        queuedText.append( string );
+        scheduleCommitQueue();
+        }
+
+    /**
+     * Deletion before the cursor is added to the commit queue.
+     * Queued text is deleted first, only the rest should be deleted from the editor.
+     */
+    private void queueDelete( int length )
+        {
+        int queuedLength = queuedText.length();
+        int fromQueue = Math.min( length, queuedLength );
+        queuedText.setLength( queuedLength - fromQueue );
+        queuedDelete += length - fromQueue;
+        scheduleCommitQueue();
+        }
+
+    private void scheduleCommitQueue()
+        {
+        if ( !commitQueueScheduled )
+            {
+            Choreographer.getInstance().postFrameCallback( commitQueueFlusher );
+            commitQueueScheduled = true;
+            }
+        }
+
+    /**
+     * Sends the commit queue to the current editor.
+     * Service calls it at the end of the input, too.
+     */
+    public void flushCommitQueue()
+        {
+        if ( isCommitQueueEmpty() )
+            return;
+
+        InputConnection ic = softBoardService.getCurrentInputConnection();
+        if ( ic == null )
+            {
+            Scribe.error( "Commit queue is dropped, input connection is not available!" );
+            clearCommitQueue();
+            }
+        else
+            {
+            flushCommitQueue( ic );
+            }
+        }
+
+    /**
+     * Sends the commit queue as one batch edit.
+     * All editor calls (except queueable ones) should flush the queue first!
+     */
+    private void flushCommitQueue( InputConnection ic )
+        {
+        if ( isCommitQueueEmpty() )
+            return;
+
+        Scribe.debug( Debug.TEXT, "Commit queue is sent. Delete: " + queuedDelete + " Text: " + queuedText );
+
+        ic.beginBatchEdit();
+        if ( queuedDelete > 0 )
+            ic.deleteSurroundingText( queuedDelete, 0 );
+        if ( queuedText.length() > 0 )
+            ic.commitText( queuedText.toString(), 1 );
+        ic.endBatchEdit();
+
+        clearCommitQueue();
+        }
+
+    /**
+     * Batch edit is started only without commit queue - queue is sent as one batch edit
+     */
+    private void beginBatchEdit( InputConnection ic )
+        {
+        if ( !commitQueueEnabled )
+            ic.beginBatchEdit();
+        }
+
+    private void endBatchEdit( InputConnection ic )
+        {
+        if ( !commitQueueEnabled )
+            ic.endBatchEdit();
+        }
+
+
     private void sendString( InputConnection ic, String string )
         {
         Scribe.locus(Debug.TEXT);
+        KeystrokeLatency.sendStarted();
 
         selectCursor(ic, CURSOR_BEGIN);
 
@@ -576,7 +735,17 @@ public class SoftBoardProcessor implements
         modifyCalculatedCursor(calculatedCursor[0] + string.length());
         textBeforeCursor.sendString(string);
         textAfterCursor.invalidate();
-        ic.commitText(string, 1);
+        if ( commitQueueEnabled )
+            {
+            queueCommit(string);
+            KeystrokeLatency.sendQueued();
+            }
+        else
+            {
+            KeystrokeLatency.ipcStarted();
+            ic.commitText(string, 1);
+            KeystrokeLatency.ipcFinished();
+            }
 
         // TIMING EVENT
         softBoardData.characterCounter.measure(string.length());
@@ -631,6 +800,7 @@ public class SoftBoardProcessor implements
         // kijelölésnél mindenképpen a kijelölést törli először
         if ( isSelected() )
             {
+            flushCommitQueue(ic);
             selectCursor(ic, CURSOR_BEGIN);
             // no undoString in selection
             undoCounter ++;
@@ -651,10 +821,14 @@ public class SoftBoardProcessor implements
                 modifyCalculatedCursor(calculatedCursor[0] + length);
                 textBeforeCursor.sendDelete( -length);
                 // ?? textAfterCursor.invalidate();
-                ic.deleteSurroundingText( -length, 0);
+                if ( commitQueueEnabled )
+                    queueDelete( -length );
+                else
+                    ic.deleteSurroundingText( -length, 0);
                 }
             else // AFTER
                 {
+                flushCommitQueue(ic);
                 // calculatedCursorStart does not change
                 modifyCalculatedCursor(calculatedCursor[0]);
                 // textBeforeCursor
@@ -671,6 +845,7 @@ public class SoftBoardProcessor implements
     private void moveRelative(InputConnection ic, int cursor, int length, boolean select)
         {
         Scribe.locus(Debug.CURSOR);
+        flushCommitQueue(ic);
 
         undoString = null;
         undoCounter ++;
@@ -757,6 +932,7 @@ public class SoftBoardProcessor implements
     private void moveAbsolute(InputConnection ic, int cursor, int position, boolean select)
         {
         Scribe.locus(Debug.CURSOR);
+        flushCommitQueue(ic);
 
         if ( position == calculatedCursor[cursor] )   return;
 
@@ -812,6 +988,7 @@ public class SoftBoardProcessor implements
         layoutView = new LayoutView( softBoardService );
         layoutView.setLayout(this.softBoardData.boardTable.getActiveLayout());
         layoutView.measureFakeViewFirst();
+        softBoardData.boardTable.schedulePreRendering();
 
         softBoardService.setInputView(layoutView);
         }
@@ -831,6 +1008,8 @@ public class SoftBoardProcessor implements
 
         layoutView.setLayout(softBoardData.boardTable.getActiveLayout());
         layoutView.measureFakeViewFirst(); // Because of navigation bar error
+        // boards of the new orientation
+        softBoardData.boardTable.schedulePreRendering();
 
         return layoutView;
         }
@@ -868,6 +1047,7 @@ public class SoftBoardProcessor implements
         {
         CharSequence temp;
         int position = calculatedCursor[1];
+        flushCommitQueue(ic);
         // ic.setSelection( position, position ); not needed, selection is ready
         do
             {
@@ -1206,11 +1386,12 @@ public class SoftBoardProcessor implements
     public void sendString( String string, int autoSpace )
         {
         Scribe.locus(Debug.SERVICE);
+        KeystrokeLatency.sendStarted();
 
         InputConnection ic = softBoardService.getCurrentInputConnection();
         if (ic != null)
             {
-            ic.beginBatchEdit();
+            beginBatchEdit(ic);
 
             if ( (autoSpace & PacketTextSimple.ERASE_SPACES_BEFORE) != 0 && softBoardData.autoFuncEnabled)
                 {
@@ -1242,7 +1423,7 @@ public class SoftBoardProcessor implements
 
             sendString(ic, sendBuilder.toString());
 
-            ic.endBatchEdit();
+            endBatchEdit(ic);
             }
         }
 
@@ -1335,10 +1516,10 @@ public class SoftBoardProcessor implements
             InputConnection ic = softBoardService.getCurrentInputConnection();
             if (ic != null)
                 {
-                ic.beginBatchEdit();
+                beginBatchEdit(ic);
                 sendDelete(ic, -length);
                 sendString(ic, string);
-                ic.endBatchEdit();
+                endBatchEdit(ic);
                 }
             }
         }
@@ -1347,6 +1528,7 @@ public class SoftBoardProcessor implements
     @Override
     public boolean sendDefaultEditorAction(boolean fromEnterKey)
         {
+        flushCommitQueue();
         return softBoardService.sendDefaultEditorAction( fromEnterKey );
         }
 
@@ -1374,7 +1556,7 @@ public class SoftBoardProcessor implements
         InputConnection ic = softBoardService.getCurrentInputConnection();
         if (ic != null)
             {
-            ic.beginBatchEdit();
+            beginBatchEdit(ic);
             // text is selected
             if (isSelected())
                 {
@@ -1412,7 +1594,7 @@ public class SoftBoardProcessor implements
                     sendDelete(ic, -l);
                     }
                 }
-            ic.endBatchEdit();
+            endBatchEdit(ic);
             }
         }
 
@@ -1483,17 +1665,20 @@ public class SoftBoardProcessor implements
     private boolean sendKeyEvent( long downTime, long eventTime,
                                   int keyEventAction, int keyEventCode )
         {
+        KeystrokeLatency.sendStarted();
+
         InputConnection ic = softBoardService.getCurrentInputConnection();
         if (ic == null)
             {
             Scribe.error("Cannot get input connection!");
             return false;
             }
+        flushCommitQueue(ic);
 
         // key event should clear multiple-touch undo-s
         undoCounter ++;
 
-        return ic.sendKeyEvent(new KeyEvent(
+        KeyEvent keyEvent = new KeyEvent(
                 downTime,               // this key originally went down
                 eventTime,              // this event happened (downTime in ACTION_DOWN)
                 keyEventAction,         // ACTION_DOWN or ACTION_UP
@@ -1505,7 +1690,12 @@ public class SoftBoardProcessor implements
                 // device id FIX
                 keyEventCode,           // android keyCode as scan-code
                 KeyEvent.FLAG_SOFT_KEYBOARD | KeyEvent.FLAG_KEEP_TOUCH_MODE,
-                InputDevice.SOURCE_TOUCHSCREEN));
+                InputDevice.SOURCE_TOUCHSCREEN);
+
+        KeystrokeLatency.ipcStarted();
+        boolean sent = ic.sendKeyEvent( keyEvent );
+        KeystrokeLatency.ipcFinished();
+        return sent;
         }
 
 
@@ -1546,6 +1736,7 @@ public class SoftBoardProcessor implements
     public void sendKeyDownUp(int keyEventCode)
         {
         Scribe.debug(Debug.SERVICE, keyEventCode + " hard button is down-up!");
+        KeystrokeLatency.sendStarted();
 
         // INSTANTSIMULATE softBoardData.layoutStates.simulateMetaPress();
 
@@ -1572,6 +1763,7 @@ public class SoftBoardProcessor implements
             if ( ic == null )   ic = softBoardService.getCurrentInputConnection();
             if (ic != null)
                 {
+                flushCommitQueue(ic);
                 ic.setSelection( calculatedCursor[cursorLastMoved], calculatedCursor[cursorLastMoved] );
                 text = ic.getTextBeforeCursor(n, 0);
                 ic.setSelection( calculatedCursor[0], calculatedCursor[1] );
@@ -1595,6 +1787,7 @@ public class SoftBoardProcessor implements
             if ( ic == null )   ic = softBoardService.getCurrentInputConnection();
             if (ic != null)
                 {
+                flushCommitQueue(ic);
                 ic.setSelection( calculatedCursor[cursorLastMoved], calculatedCursor[cursorLastMoved] );
                 text = ic.getTextAfterCursor(n, 0);
                 ic.setSelection( calculatedCursor[0], calculatedCursor[1] );
@@ -1615,6 +1808,7 @@ public class SoftBoardProcessor implements
         InputConnection ic = softBoardService.getCurrentInputConnection();
         if (ic != null)
             {
+            flushCommitQueue(ic);
             if ( isSelected() )
                 {
                 lastIsSelected = true;
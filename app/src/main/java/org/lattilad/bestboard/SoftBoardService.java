@@ -1,6 +1,7 @@
 package org.lattilad.bestboard;
 
 import android.content.BroadcastReceiver;
+import android.content.ComponentCallbacks2;
 import android.content.Context;
 import android.content.Intent;
 import android.content.IntentFilter;
@@ -15,6 +16,7 @@ import android.widget.TextView;
 import android.widget.Toast;
 
 import org.lattilad.bestboard.debug.Debug;
+import org.lattilad.bestboard.monitorrow.RenderingBenchmark;
 import org.lattilad.bestboard.monitorrow.TestModeActivity;
 import org.lattilad.bestboard.parser.SoftBoardParser;
 import org.lattilad.bestboard.parser.SoftBoardParser.SoftBoardParserListener;
@@ -164,6 +166,16 @@ public class SoftBoardService extends InputMethodService implements
                         }
                     break;
 
+                case PrefsFragment.PREFS_ACTION_BENCHMARK_RENDERING:
+                    Scribe.note( Debug.SERVICE,  "SERVICE: get notification to benchmark rendering modes." );
+                    if ( softBoardProcessor != null)
+                        {
+                        String result = RenderingBenchmark.run( softBoardProcessor.getSoftBoardData() );
+                        Toast.makeText( this, result, Toast.LENGTH_LONG ).show();
+                        softBoardProcessor.getLayoutView().invalidate();
+                        }
+                    break;
+
                 default:
                     Scribe.error( "SERVICE: preference Action type is invalid!" );
                 }
@@ -232,8 +244,7 @@ public class SoftBoardService extends InputMethodService implements
     @Override
     public void onCreate()
         {
-        // This should be called at every starting point
-        Ignition.start(this);
+        // Ignition.start() was called by BestBoardApplication
 
         Scribe.title( "SOFT-LAYOUT-SERVICE HAS STARTED" );
         Scribe.locus( Debug.SERVICE );
@@ -264,6 +275,10 @@ public class SoftBoardService extends InputMethodService implements
 
         // Stop any ongoing parsing
         if ( softBoardParser != null)   softBoardParser.cancel(false);
+        PreWarm.cancel();
+        if ( softBoardProcessor != null )
+            softBoardProcessor.getSoftBoardData().boardTable.cancelPreRendering();
+        LayoutPictureCache.clear();
 
         // Release receiver
         if ( receiver != null ) unregisterReceiver(receiver);
@@ -272,6 +287,23 @@ public class SoftBoardService extends InputMethodService implements
         }
 
 
+    /**
+     * System needs memory: pictures of the not displayed layouts are released.
+     * They will be created again, when their layouts are selected.
+     */
+    @Override
+    public void onTrimMemory( int level )
+        {
+        super.onTrimMemory( level );
+
+        if ( level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW && softBoardProcessor != null )
+            {
+            Scribe.note( Debug.SERVICE, "SERVICE: memory is low (" + level + "), layout pictures are released." );
+            softBoardProcessor.getSoftBoardData().boardTable.releasePictures();
+            }
+        }
+
+
     /**
      * Stops any previous parsing, and starts a new parse.
      * As a result a completely new soft-layout will be created.
@@ -326,10 +358,8 @@ public class SoftBoardService extends InputMethodService implements
 
         SharedPreferences sharedPrefs = PreferenceManager.getDefaultSharedPreferences(this);
 
-        String directoryName =
-                sharedPrefs.getString( getString( R.string.descriptor_directory_key ),
-                        getString( R.string.descriptor_directory_default ));
-        File directoryFile = new File( Environment.getExternalStorageDirectory(), directoryName );
+        // PreWarm uses the same directory, otherwise it cannot be attached
+        File directoryFile = Ignition.getCoatDirectory( this );
 
         if ( coatFileName == null )
             {
@@ -356,6 +386,14 @@ public class SoftBoardService extends InputMethodService implements
         // Any previous parsing should stop now
         if ( softBoardParser != null )  softBoardParser.cancel(false);
 
+        // Parsing started at process start is used, if it parses the same coat file
+        if ( coatFileName == null && PreWarm.attach( this, directoryFile, this.coatFileName ) )
+            {
+            Scribe.note(Debug.SERVICE, "Pre-warm parsing is used.");
+            return;
+            }
+        PreWarm.cancel();
+
         Toast.makeText( this, "Parsing of <" + this.coatFileName + "> has been started! Be patient!", Toast.LENGTH_LONG ).show();
         softBoardParser = new SoftBoardParser(this, directoryFile, this.coatFileName );
         softBoardParser.execute();
@@ -510,6 +548,11 @@ public class SoftBoardService extends InputMethodService implements
 
         softBoardParser = null;
 
+        // pictures of the previous layouts are not needed any more
+        if ( softBoardProcessor != null )
+            softBoardProcessor.getSoftBoardData().boardTable.cancelPreRendering();
+        LayoutPictureCache.clear();
+
         softBoardProcessor = new SoftBoardProcessor( this, softBoardData );
         softBoardProcessor.initInput();
         }
@@ -529,6 +572,20 @@ public class SoftBoardService extends InputMethodService implements
         }
 
 
+    /**
+     * Queued text should be sent before the editor is left.
+     */
+    @Override
+    public void onFinishInput()
+        {
+        if ( softBoardProcessor != null )
+            softBoardProcessor.flushCommitQueue();
+
+        super.onFinishInput();
+        Scribe.locus(Debug.SERVICE);
+        }
+
+
     @Override
     public void onUpdateSelection(int oldSelStart, int oldSelEnd,
                                   int newSelStart, int newSelEnd, int candidatesStart,
@@ -1,6 +1,6 @@
 package org.lattilad.bestboard;
 
-import org.lattilad.bestboard.parser.SoftBoardParser;
+import org.lattilad.bestboard.parser.CoatParser;
 
 /**
  * Show-titles
@@ -63,7 +63,7 @@ public class SoftBoardShow
             return;
 
         if ( num >=0 && num <= array.length )
-            array[num] = SoftBoardParser.stringFromText( text );
+            array[num] = CoatParser.stringFromText( text );
         }
 
     }
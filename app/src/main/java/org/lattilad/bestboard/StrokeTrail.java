@@ -0,0 +1,222 @@
+package org.lattilad.bestboard;
+
+import android.graphics.Path;
+
+/**
+ * Fixed-capacity ring buffer of touch points for the stroke and path indicators of LayoutView.
+ * <p>
+ * Coordinates and times are stored in primitive arrays, so adding a point needs no allocation.
+ * If the buffer is full, the oldest point is overwritten, so drawing costs the same
+ * regardless of the length of the session.
+ * <p>
+ * Points can start a new stroke (moveTo) or continue the previous one (lineTo).
+ * One Path is kept for all the points: new points are appended to it, but it should be
+ * rebuilt after the oldest points were dropped (Path cannot be shortened at its start).
+ * <p>
+ * This class is not thread-safe!
+ */
+public class StrokeTrail
+    {
+    /** Coordinates of the points */
+    private int[] canvasX;
+    private int[] canvasY;
+
+    /** Time of the points (SystemClock.uptimeMillis()) */
+    private long[] time;
+
+    /** Point starts a new stroke */
+    private boolean[] strokeStart;
+
+    /** Index of the oldest point */
+    private int first = 0;
+
+    /** Number of stored points */
+    private int size = 0;
+
+    /** Path of the stored points */
+    private Path path = new Path();
+
+    /** Path contains all the stored points */
+    private boolean pathReady = true;
+
+
+    /**
+     * Creates an empty trail
+     * @param capacity maximal number of stored points (at least 1)
+     */
+    public StrokeTrail( int capacity )
+        {
+        allocate( capacity );
+        }
+
+    private void allocate( int capacity )
+        {
+        if ( capacity < 1 )
+            capacity = 1;
+
+        canvasX = new int[capacity];
+        canvasY = new int[capacity];
+        time = new long[capacity];
+        strokeStart = new boolean[capacity];
+        clear();
+        }
+
+
+    /**
+     * Maximal number of stored points
+     */
+    public int getCapacity()
+        {
+        return canvasX.length;
+        }
+
+    /**
+     * Changes the capacity. Stored points are cleared, if capacity is changed.
+     * @param capacity maximal number of stored points
+     */
+    public void setCapacity( int capacity )
+        {
+        if ( capacity != getCapacity() )
+            allocate( capacity );
+        }
+
+    /**
+     * Number of stored points
+     */
+    public int size()
+        {
+        return size;
+        }
+
+    /**
+     * True, if no points are stored
+     */
+    public boolean isEmpty()
+        {
+        return size == 0;
+        }
+
+    /**
+     * All points are cleared
+     */
+    public void clear()
+        {
+        first = 0;
+        size = 0;
+        path.rewind();
+        pathReady = true;
+        }
+
+
+    /**
+     * Stores a new point. Oldest point is dropped, if trail is full.
+     * @param x x coordinate
+     * @param y y coordinate
+     * @param pointTime time of the point (SystemClock.uptimeMillis())
+     * @param start point starts a new stroke
+     */
+    public void add( int x, int y, long pointTime, boolean start )
+        {
+        int index;
+        if ( size < canvasX.length )
+            {
+            index = position( size );
+            size++;
+            }
+        else
+            {
+            index = first;
+            first = position( 1 );
+            // beginning of the path is lost
+            pathReady = false;
+            }
+
+        canvasX[index] = x;
+        canvasY[index] = y;
+        time[index] = pointTime;
+        strokeStart[index] = start;
+
+        if ( pathReady )
+            {
+            if ( start || size == 1 )
+                path.moveTo( x, y );
+            else
+                path.lineTo( x, y );
+            }
+        }
+
+
+    /**
+     * Index of the n-th point in the arrays
+     */
+    private int position( int n )
+        {
+        int index = first + n;
+        return index < canvasX.length ? index : index - canvasX.length;
+        }
+
+    /**
+     * X coordinate of the n-th point (0 is the oldest)
+     */
+    public int getX( int n )
+        {
+        return canvasX[ position( n ) ];
+        }
+
+    /**
+     * Y coordinate of the n-th point (0 is the oldest)
+     */
+    public int getY( int n )
+        {
+        return canvasY[ position( n ) ];
+        }
+
+    /**
+     * Time of the n-th point (0 is the oldest)
+     */
+    public long getTime( int n )
+        {
+        return time[ position( n ) ];
+        }
+
+    /**
+     * X coordinate of the newest point - trail cannot be empty
+     */
+    public int getLastX()
+        {
+        return getX( size - 1 );
+        }
+
+    /**
+     * Y coordinate of the newest point - trail cannot be empty
+     */
+    public int getLastY()
+        {
+        return getY( size - 1 );
+        }
+
+
+    /**
+     * Path of the stored points. Path is rebuilt only if oldest points were dropped.
+     * Returned path should not be changed!
+     * @return path of all strokes
+     */
+    public Path getPath()
+        {
+        if ( !pathReady )
+            {
+            path.rewind();
+            for ( int n = 0; n < size; n++ )
+                {
+                int index = position( n );
+                // first point is always the start of the (remaining part of the) stroke
+                if ( n == 0 || strokeStart[index] )
+                    path.moveTo( canvasX[index], canvasY[index] );
+                else
+                    path.lineTo( canvasX[index], canvasY[index] );
+                }
+            pathReady = true;
+            }
+        return path;
+        }
+    }
@@ -4,6 +4,7 @@ import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.Paint;
 import android.graphics.Path;
+import android.graphics.Rect;
 
 import org.lattilad.bestboard.Layout;
 import org.lattilad.bestboard.debug.Debug;
@@ -112,6 +113,28 @@ public class Button implements Cloneable
     private int yPlus1;
     private int yPlus2;
 
+    /** Outline of the button's hexagon relative to its center - shared by the buttons of the layout */
+    private Path hexagonPath;
+
+    /**
+     * Titles in drawing order, and their anchor points (x and y pairs) without offset.
+     * Titles can be shared between buttons, so these positions are stored by the button.
+     * Arrays are used, so drawing needs no iterator.
+     */
+    private TitleDescriptor[] titleArray;
+    private int[] titleAnchors;
+
+    /**
+     * Last source text of each title, and its displayed (maybe uppercase) version.
+     * Changing titles are converted again only if their text or the caps state changes.
+     */
+    private String[] titleSources;
+    private String[] titleTexts;
+    private boolean[] titleCaps;
+
+    /** Incremented whenever a displayed title text changes (part of getChangingStamp()) */
+    private int titleVersion = 0;
+
     /**
      * Button.changingInfo contains binary information about changing parts:
      *  00011110
@@ -244,6 +267,50 @@ public class Button implements Cloneable
         yCenter = getPixelY( rowInGrids );
         yPlus1 = getPixelY( rowInGrids + 1 );
         yPlus2 = getPixelY( rowInGrids + 2 );
+
+        hexagonPath = layout.getHexagonPath( xCenter - xMinus, xPlus - xCenter,
+                yMinus1 - yMinus2, yCenter - yMinus1, yPlus1 - yCenter, yPlus2 - yPlus1 );
+
+        calculateTitleAnchors();
+        }
+
+
+    /**
+     * Titles and their anchor points are stored in arrays (onLayoutReady() and setTitles())
+     * Cloned buttons share the previous arrays, so new ones are always created.
+     */
+    private void calculateTitleAnchors()
+        {
+        if ( titles == null || layout == null || layout.fontData == null )
+            {
+            titleArray = null;
+            titleAnchors = null;
+            titleSources = null;
+            titleTexts = null;
+            titleCaps = null;
+            return;
+            }
+
+        int count = 0;
+        for ( TitleDescriptor title : titles )
+            {
+            count++;
+            }
+
+        titleArray = new TitleDescriptor[ count ];
+        titleAnchors = new int[ 2 * count ];
+        titleSources = new String[ count ];
+        titleTexts = new String[ count ];
+        titleCaps = new boolean[ count ];
+
+        int index = 0;
+        for ( TitleDescriptor title : titles )
+            {
+            titleArray[index] = title;
+            titleAnchors[2 * index] = xCenter + title.getXAnchorOffset( layout );
+            titleAnchors[2 * index + 1] = yCenter + title.getYAnchorOffset( layout );
+            index++;
+            }
         }
 
 
@@ -355,27 +422,27 @@ public class Button implements Cloneable
 
 
     /**
-     * Creates button's hexagon with the use of the grids
-     * The created path can be used both for outline and fill
-     * @param xOffsetInPixel x offset in pixels
-     * (can be 0 (layout bitmap) or layout.xOffset (direct draw on screen)
-     * @param yOffsetInPixel y offset in pixels
-     * (can be 0 (layout bitmap) or -layout.layoutYOffset (direct draw on screen)
-     * @return created path
+     * Returns the bounds of the button's hexagon on the screen (layout offsets are applied)
+     * Titles and hexagon lines can exceed these bounds a bit, caller should enlarge it.
+     * @param bounds rect to set
      */
-    protected Path hexagonPath( int xOffsetInPixel, int yOffsetInPixel)
+    public void getHexagonBounds( Rect bounds )
         {
-        Path path = new Path();
+        bounds.set( xMinus + layout.layoutXOffset, yMinus2 + layout.layoutYOffset,
+                xPlus + layout.layoutXOffset, yPlus2 + layout.layoutYOffset );
+        }
 
-        path.moveTo(xCenter + xOffsetInPixel, yMinus2 + yOffsetInPixel);
-        path.lineTo(xPlus + xOffsetInPixel, yMinus1 + yOffsetInPixel);
-        path.lineTo(xPlus + xOffsetInPixel, yPlus1 + yOffsetInPixel);
-        path.lineTo(xCenter + xOffsetInPixel, yPlus2 + yOffsetInPixel);
-        path.lineTo(xMinus + xOffsetInPixel, yPlus1 + yOffsetInPixel);
-        path.lineTo(xMinus + xOffsetInPixel, yMinus1 + yOffsetInPixel);
-        path.close();
 
-        return path;
+    /**
+     * Returns the outline of the button's hexagon relative to the button's center.
+     * The path is shared by the buttons of the layout, canvas should be translated to
+     * getXCenter(), getYCenter() (plus offset) before drawing.
+     * The path can be used both for outline and fill
+     * @return shared path (set by onLayoutReady())
+     */
+    protected Path getHexagonPath()
+        {
+        return hexagonPath;
         }
 
 
@@ -475,6 +542,8 @@ public class Button implements Cloneable
         {
         this.titles = titles;
         changingInfo = letChangingInfo();
+        // titles can be changed after layout is ready
+        calculateTitleAnchors();
         }
 
 
@@ -538,9 +607,11 @@ public class Button implements Cloneable
             {
             hexagonFillPaint.setColor( color );
 
-            Path hexagonPath = hexagonPath(xOffsetInPixel, yOffsetInPixel);
+            canvas.save();
+            canvas.translate( xCenter + xOffsetInPixel, yCenter + yOffsetInPixel );
             canvas.drawPath(hexagonPath, hexagonFillPaint);
             canvas.drawPath(hexagonPath, hexagonStrokePaint);
+            canvas.restore();
             }
 
         // draw the titles
@@ -548,14 +619,66 @@ public class Button implements Cloneable
         // index (in buttons[][index]) == touchCode (this is always true)
         // Theoretically from index/touchCode the buttons position can be calculated.
         // BUT this is NOT obligatory!! So the buttons will store their position.
-        for ( TitleDescriptor title : titles )
+        boolean caps = layout.isCapsForced();
+        for ( int index = 0; index < titleArray.length; index++ )
             {
+            String text = titleArray[index].getTitleText( drawInfo, this );
             // ONLY TEXT titles are drawn (text != null)
-            title.drawTitle(canvas, drawInfo, this, xOffsetInPixel, yOffsetInPixel);
+            if ( text != null )
+                {
+                updateTitleText( index, text, caps );
+                titleArray[index].drawTitle(canvas, titleTexts[index], layout,
+                        titleAnchors[2 * index] + xOffsetInPixel, titleAnchors[2 * index + 1] + yOffsetInPixel);
+                }
+            }
+        }
+
+
+    /**
+     * Refreshes the displayed text of a title (titleTexts[index]).
+     * Text is converted to uppercase only if source text or caps state was changed since the previous draw.
+     * @param index index of the title
+     * @param source text of the title given by TitleDescriptor.getTitleText()
+     * @param caps true if capslock is forced
+     */
+    private void updateTitleText( int index, String source, boolean caps )
+        {
+        if ( titleCaps[index] != caps || titleSources[index] == null ||
+                ( source != titleSources[index] && !source.equals( titleSources[index] ) ) )
+            {
+            titleSources[index] = source;
+            titleCaps[index] = caps;
+            titleTexts[index] = caps ? source.toUpperCase( layout.softBoardData.locale ) : source;
+            titleVersion++;
             }
         }
 
 
+    /**
+     * State stamp of the changing parts. Changing parts should be redrawn only if stamp differs
+     * from the stamp of the previous draw (Layout.updateChangingLayer()).
+     * Stamp contains the background color (which depends on meta-, board-, memory- and shortcut-states)
+     * and the version of the changing titles (which depends on packets, varias and caps state).
+     * Subclasses changing by other inputs should override this method.
+     * @return stamp of the actual state
+     */
+    public long getChangingStamp()
+        {
+        if ( titleArray != null )
+            {
+            boolean caps = layout.isCapsForced();
+            for ( int index = 0; index < titleArray.length; index++ )
+                {
+                String text = titleArray[index].getTitleText( changingInfo, this );
+                if ( text != null )
+                    updateTitleText( index, text, caps );
+                }
+            }
+
+        return ((long)getColor() << 32) | (titleVersion & 0xFFFFFFFFL);
+        }
+
+
     /**
      * Draw button on layout-bitmap (Layout.createLayoutScreen())
      * Background color is the button's original color
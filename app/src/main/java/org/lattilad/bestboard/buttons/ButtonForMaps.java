@@ -2,7 +2,6 @@ package org.lattilad.bestboard.buttons;
 
 import android.graphics.Canvas;
 import android.graphics.Paint;
-import android.graphics.Path;
 
 import org.lattilad.bestboard.Layout;
 
@@ -21,34 +20,10 @@ public class ButtonForMaps extends Button
         hexagonMapPaint.setDither(false);
         }
 
-    private int pixelRimQuarterHeight;
-    private int pixelRimHalfWidth;
-
     public ButtonForMaps(Layout layout)
         {
         // layout is stored in Button superclass
         this.layout = layout;
-
-        pixelRimQuarterHeight = (layout.layoutHeightInPixels * (1000 - layout.softBoardData.outerRimPermil)) /
-                (layout.layoutHeightInGrids * 1000);
-        pixelRimHalfWidth = (layout.areaWidthInPixels * (1000 - layout.softBoardData.outerRimPermil))
-                / (layout.areaWidthInGrids * 1000);
-        }
-
-
-    private Path RimHexagonPath()
-        {
-        Path path = new Path();
-
-        path.moveTo(getXCenter() , getYCenter() - 2 * pixelRimQuarterHeight );
-        path.lineTo(getXCenter() + pixelRimHalfWidth, getYCenter() - pixelRimQuarterHeight );
-        path.lineTo(getXCenter() + pixelRimHalfWidth, getYCenter() + pixelRimQuarterHeight );
-        path.lineTo(getXCenter() , getYCenter() + 2 * pixelRimQuarterHeight );
-        path.lineTo(getXCenter()  - pixelRimHalfWidth, getYCenter() + pixelRimQuarterHeight );
-        path.lineTo(getXCenter()  - pixelRimHalfWidth, getYCenter() - pixelRimQuarterHeight );
-        path.close();
-
-        return path;
         }
 
 
@@ -61,12 +36,15 @@ public class ButtonForMaps extends Button
         hexagonMapPaint.setColor(
                 layout.colorFromTouchCode(
                         layout.touchCodeFromPosition(columnInHexagons, rowInHexagons), false));
-        canvas.drawPath(hexagonPath(0, 0), hexagonMapPaint);
+        canvas.save();
+        canvas.translate( getXCenter(), getYCenter() );
+        canvas.drawPath(getHexagonPath(), hexagonMapPaint);
 
         hexagonMapPaint.setColor(
                 layout.colorFromTouchCode(
                         layout.touchCodeFromPosition(columnInHexagons, rowInHexagons), true));
-        canvas.drawPath(RimHexagonPath(), hexagonMapPaint);
+        canvas.drawPath(layout.getRimHexagonPath(), hexagonMapPaint);
+        canvas.restore();
 
         // Scribe.debug("touchCode: " + touchCodeFromPosition(row, col) +
         //        " ret: " + touchCodeFromColor(layoutMap.getPixel(getPixelX(gridX, 0), getPixelY(gridY))) +
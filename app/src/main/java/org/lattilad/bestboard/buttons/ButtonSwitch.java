@@ -25,6 +25,14 @@ public class ButtonSwitch extends ButtonMultiTouch implements Cloneable
         this.showAutoCaps = showAutoCaps;
         }
 
+    /**
+     * Id of the board selected by this button (-1L: BACK)
+     */
+    public long getLayoutId()
+        {
+        return layoutId;
+        }
+
     @Override
     public ButtonSwitch clone()
         {
@@ -49,32 +49,60 @@ public class TitleDescriptor
         }
 
     /**
-     * Calculates text size for each layout.
-     * All TitleDescriptor instances use the same paint and the same typeface.
-     * Text size is different for each layout (and is stored in layout's data)
-     * At least 4 "ly"-s (vertically) and 5 "M"-s (horizontally) drawn with this size
-     * can be placed inside one hexagon.
-     * @param layout calculate text size for this layout
-     * @return text size for this layout
+     * Text measured with 1000 size - depends only on the typeface
+     * (SoftBoardData caches it for each typeface)
      */
-    public static FontData calculateTextSize( Layout layout)
+    static public class TextMetrics
         {
-        Rect bounds = new Rect();
-        FontData fontData = new FontData();
+        /** Width and height of "MMM" */
+        public int width;
+        public int height;
+        /** Double descent of "y" */
+        public int descents;
+        }
 
-        // Typeface was set previously by SoftBoardData
+    /**
+     * Measures the text metrics with the typeface of textPaint.
+     * Typeface was set previously by SoftBoardData
+     * @return text metrics of 1000 size
+     */
+    public static TextMetrics measureTextMetrics()
+        {
+        Rect bounds = new Rect();
+        TextMetrics textMetrics = new TextMetrics();
 
         textPaint.setTextSize(1000f);
 
         textPaint.getTextBounds("y", 0, 1, bounds);
-        int textDescents = 2 * bounds.bottom;
+        textMetrics.descents = 2 * bounds.bottom;
 
         textPaint.getTextBounds("MMM", 0, 3, bounds);
+        textMetrics.width = bounds.width();
+        textMetrics.height = bounds.height();
 
         Scribe.debug( "1000 size MMM width: " + bounds.width() +
                  " height: " + bounds.height() +
                  " bounds: " + bounds +
-                 " y 2*descent: " + textDescents + " pixels");
+                 " y 2*descent: " + textMetrics.descents + " pixels");
+
+        return textMetrics;
+        }
+
+    /**
+     * Calculates text size for each layout.
+     * All TitleDescriptor instances use the same paint and the same typeface.
+     * Text size is different for each layout (and is stored in layout's data)
+     * At least 4 "ly"-s (vertically) and 5 "M"-s (horizontally) drawn with this size
+     * can be placed inside one hexagon.
+     * Text is not measured here, metrics of the typeface are cached by SoftBoardData.
+     * @param layout calculate text size for this layout
+     * @return text size for this layout
+     */
+    public static FontData calculateTextSize( Layout layout)
+        {
+        FontData fontData = new FontData();
+
+        TextMetrics textMetrics = layout.softBoardData.getTextMetrics();
 
         // TEXT SIZE for 1000 virtual points
 
@@ -83,13 +111,13 @@ public class TitleDescriptor
         // intendedHeightInPixels is half hexagon == 2 * layoutHeightInPixels / layoutHeightInGrids
         // Ratio => SIZE : intendedHeightInPixels = 1000f : (bounds.height() + textDescents)
         int textSizeFromHeight = 2 * 1000 * layout.layoutHeightInPixels /
-                (layout.layoutHeightInGrids * (bounds.height() + textDescents)) ;
+                (layout.layoutHeightInGrids * (textMetrics.height + textMetrics.descents)) ;
 
         // Calculate font size from the width of "MMM" characters
         // intendedWidthInPixels is one hexagon (2 grids) == 2 * areaWidthInPixels / areaWidthInGrids
         // Ratio => SIZE : intendedWidthInPixels = 1000f : bounds.width()
         int textSizeFromWidth = 2 * 1000 * layout.areaWidthInPixels /
-                (layout.areaWidthInGrids * bounds.width());
+                (layout.areaWidthInGrids * textMetrics.width);
 
         // Scribe.debug( "Size for 1000 points from width: " + textSizeFromWidth +
         //         " from height: " + textSizeFromHeight );
@@ -99,7 +127,7 @@ public class TitleDescriptor
         // AND can fit in one half hexagon height
         fontData.textSize = Math.min(textSizeFromWidth, textSizeFromHeight);
 
-        fontData.yAdjust = bounds.height() * fontData.textSize / 2000;
+        fontData.yAdjust = textMetrics.height * fontData.textSize / 2000;
 
         // Scribe.debug( "Y adjust for 1000 points from height: " + fontData.yAdjust );
 
@@ -208,61 +236,105 @@ public class TitleDescriptor
 
 
     /**
-     * Draws titles on the button. Only TEXT titles are drawn.
-     * Title can be attached to several buttons, so position data is given as parameter.
-     * Because button's background is drawn first, the buttons calculated position can be used.
-     * (Repeated calculation is not needed.)
-     * Title text will be uppercase if capslock is forced by the layout
-     * @param canvas to draw on
-     * param layout provides screen specific information (text and hexagon size)
-     * param centerX coord. in pixels (offset included)
-     * param centerY coord. in pixels
+     * X offset of the title's anchor point from the center of the button.
+     * Button stores anchor points when layout is ready, so drawing needs no calculation.
+     * @param layout provides screen specific information (hexagon size)
+     * @return x offset in pixels
+     */
+    public int getXAnchorOffset( Layout layout )
+        {
+        return xOffset * layout.halfHexagonWidthInPixels / 1500;
+        }
+
+
+    /**
+     * Y offset of the title's anchor point (base line) from the center of the button.
+     * @param layout provides screen specific information (text and hexagon size)
+     * @return y offset in pixels
      */
-    public void drawTitle( Canvas canvas, int drawInfo, Button button, int xOffsetInPixel, int yOffsetInPixel )
+    public int getYAnchorOffset( Layout layout )
+        {
+        int adjust = layout.fontData.yAdjust * size / 1000;
+        // Scribe.debug("Size: " + size + " Adjust: " + adjust);
+
+        return yOffset * layout.halfHexagonHeightInPixels / 1000 + adjust;
+        }
+
+
+    /**
+     * Returns the text of the title on this button, if this part should be drawn.
+     * Title can be attached to several buttons, so button is given as parameter.
+     * Text is not converted to uppercase, button caches converted texts.
+     * @param drawInfo button parts to be drawn
+     * @param button button of the title
+     * @return text of the title, or null, if title should not be drawn
+     */
+    public String getTitleText( int drawInfo, Button button )
         {
         int type = (this.type == BUTTON_DECIDES) ? button.getDefaultTitleType() : this.type;
 
-        if ( type == TEXT && (drawInfo & Button.DRAW_TEXT_TITLE) != 0 )
-            drawTitle(canvas, text, button, xOffsetInPixel, yOffsetInPixel);
+        if ( type == TEXT )
+            return (drawInfo & Button.DRAW_TEXT_TITLE) != 0 ? text : null;
 
-        else if ( type == GET_FIRST_STRING && (drawInfo & Button.DRAW_FIRST_TITLE) != 0 )
-            drawTitle(canvas, button.getFirstString(), button, xOffsetInPixel, yOffsetInPixel);
+        if ( type == GET_FIRST_STRING )
+            return (drawInfo & Button.DRAW_FIRST_TITLE) != 0 ? button.getFirstString() : null;
 
-        else if ( type == GET_SECOND_STRING && (drawInfo & Button.DRAW_SECOND_TITLE) != 0 )
-            drawTitle(canvas, button.getSecondString(), button, xOffsetInPixel, yOffsetInPixel);
+        if ( type == GET_SECOND_STRING )
+            return (drawInfo & Button.DRAW_SECOND_TITLE) != 0 ? button.getSecondString() : null;
 
-        else if ((drawInfo & Button.DRAW_SHOW_TITLE) != 0) // SHOW_TITLE
-            drawTitle(canvas, button.getLayout().softBoardData.softBoardShow.getShowText(type), 
-            button, xOffsetInPixel, yOffsetInPixel);
+        // SHOW_TITLE
+        return (drawInfo & Button.DRAW_SHOW_TITLE) != 0 ?
+                button.getLayout().softBoardData.softBoardShow.getShowText(type) : null;
         }
-              
-        
+
+
     /**
-     * Draws an external title on the button.
-     * @param canvas to draw on
-     * param layout provides screen specific information (text and hexagon size)
-     * @param text external text to show as title
-     * param centerX coord. in pixels (offset included)
-     * aram centerY coord. in pixels
+     * Key of the paint variant of this title (size, bold, italics, color)
+     * Titles with the same key can use the same paint on one layout.
+     */
+    public long getPaintKey()
+        {
+        return ((long)size << 34) | (bold ? (1L << 33) : 0L) | (italics ? (1L << 32) : 0L) |
+                (color & 0xFFFFFFFFL);
+        }
+
+
+    /**
+     * Creates the paint variant of this title for the layout (Layout.getTitlePaint())
+     * Common settings (typeface, alignment) are copied from textPaint.
+     * @param layout provides screen specific information (text size)
+     * @return new paint
      */
-    public void drawTitle( Canvas canvas, String text, Button button, int xOffsetInPixel, int yOffsetInPixel )
+    public Paint createPaint( Layout layout )
         {
-        textPaint.setTextSize(button.getLayout().fontData.textSize * size / 1000);
-        textPaint.setColor(color);
+        Paint paint = new Paint( textPaint );
 
-        textPaint.setFlags(Paint.ANTI_ALIAS_FLAG | Paint.DITHER_FLAG |
+        paint.setTextSize(layout.fontData.textSize * size / 1000);
+        paint.setColor(color);
+
+        paint.setFlags(Paint.ANTI_ALIAS_FLAG | Paint.DITHER_FLAG |
                 Paint.SUBPIXEL_TEXT_FLAG | Paint.LINEAR_TEXT_FLAG |
                 (bold ? Paint.FAKE_BOLD_TEXT_FLAG : 0));
 
-        textPaint.setTextSkewX(italics ? -0.25f : 0);
+        paint.setTextSkewX(italics ? -0.25f : 0);
+
+        return paint;
+        }
 
-        int adjust = button.getLayout().fontData.yAdjust * size / 1000;
-        // Scribe.debug("Size: " + size + " Adjust: " + adjust);
 
-        canvas.drawText(
-                button.getLayout().isCapsForced() ? text.toUpperCase(button.getLayout().softBoardData.locale) : text,
-                button.getXCenter() + xOffsetInPixel + xOffset * button.getLayout().halfHexagonWidthInPixels / 1500,
-                button.getYCenter() + yOffsetInPixel + yOffset * button.getLayout().halfHexagonHeightInPixels / 1000 + adjust,
-                textPaint);
+    /**
+     * Draws a title text on the button.
+     * Anchor point is calculated previously by getXAnchorOffset() and getYAnchorOffset(),
+     * and stored by the button. (Repeated calculation is not needed.)
+     * Paint is prepared by the layout, so nothing is changed before drawing.
+     * @param canvas to draw on
+     * @param text text to show as title (already converted to uppercase, if needed)
+     * @param layout provides the paint of the title
+     * @param anchorX x coord. of the anchor point in pixels (offset included)
+     * @param anchorY y coord. of the anchor point in pixels (offset included)
+     */
+    public void drawTitle( Canvas canvas, String text, Layout layout, int anchorX, int anchorY )
+        {
+        canvas.drawText( text, anchorX, anchorY, layout.getTitlePaint( this ) );
         }
     }
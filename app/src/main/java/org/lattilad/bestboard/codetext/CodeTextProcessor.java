@@ -1,8 +1,8 @@
 package org.lattilad.bestboard.codetext;
 
-import java.util.HashMap;
+import org.lattilad.bestboard.utils.LongObjectMap;
+
 import java.util.List;
-import java.util.Map;
 
 /**
  * CodeText-s are a completely new feature. Code-texts are standard text, which are written by the
@@ -15,7 +15,7 @@ public class CodeTextProcessor
     /* PART OF VARIA */
 
     /** Storage for all varia classes */
-    private Map<Long, Varia> varias = new HashMap<>();
+    private LongObjectMap<Varia> varias = new LongObjectMap<>();
 
     /** Storage for code-text entries - VariaEntries are stored here */
     private EntryList variaEntries = new EntryList();
@@ -27,7 +27,7 @@ public class CodeTextProcessor
      * @param varia collection
      * @return true if collection replaces a previous collection with the same id
      */
-    public boolean addVaria(Long id, Varia varia)
+    public boolean addVaria(long id, Varia varia)
         {
         return varias.put(id, varia) != null;
         }
@@ -52,7 +52,7 @@ public class CodeTextProcessor
         }
 
 
-    public Varia getVaria(Long id)
+    public Varia getVaria(long id)
         {
         return varias.get( id );
         }
@@ -66,19 +66,19 @@ public class CodeTextProcessor
      */
     private long activeShortCutId = -1L;
 
-    private Map<Long, EntryList> shortCuts = new HashMap<>();
+    private LongObjectMap<EntryList> shortCuts = new LongObjectMap<>();
 
-    public EntryList getShortCut( Long id )
+    public EntryList getShortCut( long id )
         {
         return shortCuts.get( id );
         }
 
-    public boolean addShortCut( Long id, EntryList shortCut )
+    public boolean addShortCut( long id, EntryList shortCut )
         {
         return shortCuts.put( id, shortCut) != null;
         }
 
-    public boolean addShortCut( Long id, List<Long> shortCutList )
+    public boolean addShortCut( long id, List<Long> shortCutList )
         {
         return shortCuts.put( id, new EntryListSet(shortCutList) ) != null;
         }
@@ -130,7 +130,7 @@ public class CodeTextProcessor
         return id == activeShortCutId;
         }
 
-    public void startAbbreviation( Long id )
+    public void startAbbreviation( long id )
         {
         stopAbbreviation();
 
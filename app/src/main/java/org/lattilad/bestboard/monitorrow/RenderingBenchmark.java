@@ -0,0 +1,116 @@
+package org.lattilad.bestboard.monitorrow;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+
+import org.lattilad.bestboard.Layout;
+import org.lattilad.bestboard.SoftBoardData;
+import org.lattilad.bestboard.buttons.Button;
+import org.lattilad.bestboard.debug.Debug;
+import org.lattilad.bestboard.scribe.Scribe;
+
+/**
+ * Compares the two rendering modes of the layout skins (bitmap and display list)
+ * on the active layout of the current coat file.
+ * <p>
+ * Both modes are measured on the same offscreen (software) canvas:
+ * creation of the skin, average frame time (skin and changing buttons),
+ * and heap growth (java and native) caused by the skin.
+ * Frame times are NOT the frame times of the (hardware accelerated) LayoutView:
+ * there display lists are replayed by the render thread, and bitmaps are uploaded
+ * as textures. Result is labelled as software canvas measurement, it is useful
+ * to compare the two modes, and to compare the memory needs.
+ * Result is noted at TIMER level, and returned as text.
+ * <p>
+ * Pictures of the active layout are rendered again in the original mode after
+ * the measurement, so the displayed keyboard need not wait for them.
+ * <p>
+ * Started from TestModeActivity through PREFS_ACTION_BENCHMARK_RENDERING,
+ * and runs on the main thread of the service.
+ */
+public class RenderingBenchmark
+    {
+    /** Number of measured frames in each mode */
+    private static final int FRAMES = 60;
+
+    /**
+     * Measures both rendering modes on the active layout.
+     * Pictures of the layout are released before each measurement.
+     * Afterwards original rendering mode is restored, and pictures are rendered again.
+     * @param softBoardData data of the current coat file
+     * @return result of the measurement (or the reason, why it could not be measured)
+     */
+    public static String run( SoftBoardData softBoardData )
+        {
+        Layout layout = softBoardData.boardTable.getActiveLayout();
+        if ( layout == null || layout.screenWidthInPixels <= 0 || layout.areaHeightInPixels <= 0 )
+            {
+            Scribe.note( Debug.TIMER, "Rendering benchmark: layout is not calculated yet." );
+            return "Rendering benchmark: display the keyboard first!";
+            }
+
+        boolean originalMode = softBoardData.displayListRendering;
+
+        Bitmap target = Bitmap.createBitmap( layout.screenWidthInPixels, layout.areaHeightInPixels,
+                Bitmap.Config.ARGB_8888 );
+        Canvas canvas = new Canvas( target );
+
+        String result = "Rendering benchmark on software canvas (" + layout.toString() + ", " +
+                FRAMES + " frames) -\n" +
+                " Bitmap: " + measure( softBoardData, layout, canvas, false ) + "\n" +
+                " Display list: " + measure( softBoardData, layout, canvas, true );
+        if ( layout.useDisplayList() != softBoardData.displayListRendering )
+            result += "\n Layout has background picture, display list cannot be used!";
+
+        target.recycle();
+
+        // layout is displayed: its skin and map are restored in the original mode
+        softBoardData.displayListRendering = originalMode;
+        layout.releasePictures();
+        layout.preRenderPicture();
+        layout.getLayoutMap();
+
+        Scribe.note( Debug.TIMER, result );
+        return result;
+        }
+
+    /**
+     * Measures one rendering mode
+     * @param displayList true: display list, false: bitmap
+     * @return result of this mode
+     */
+    private static String measure( SoftBoardData softBoardData, Layout layout, Canvas canvas, boolean displayList )
+        {
+        softBoardData.displayListRendering = displayList;
+        layout.releasePictures();
+
+        Runtime runtime = Runtime.getRuntime();
+        runtime.gc();
+        long javaHeapBefore = runtime.totalMemory() - runtime.freeMemory();
+        long nativeHeapBefore = android.os.Debug.getNativeHeapAllocatedSize();
+
+        // static line paint is set by the layout (as in LayoutView.onDraw)
+        Button.setLineFromLayout( layout );
+
+        // first frame creates the skin (and the changing layer)
+        long start = System.nanoTime();
+        layout.drawLayoutPicture( canvas );
+        layout.drawChangedButtons( canvas );
+        long creationTime = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for ( int frame = 0; frame < FRAMES; frame++ )
+            {
+            layout.drawLayoutPicture( canvas );
+            layout.drawChangedButtons( canvas );
+            }
+        long frameTime = (System.nanoTime() - start) / FRAMES;
+
+        long javaHeapGrowth = runtime.totalMemory() - runtime.freeMemory() - javaHeapBefore;
+        long nativeHeapGrowth = android.os.Debug.getNativeHeapAllocatedSize() - nativeHeapBefore;
+
+        return "create " + (creationTime / 1000000) + " ms, frame " + (frameTime / 1000) +
+                " us, pictures " + (layout.getPictureBytes() / 1024) +
+                " KB, heap +" + (javaHeapGrowth / 1024) + " KB java, +" + (nativeHeapGrowth / 1024) + " KB native";
+        }
+    }
@@ -5,18 +5,24 @@ import android.content.Context;
 import android.content.Intent;
 import android.content.SharedPreferences;
 import android.os.Bundle;
+import android.os.Environment;
 import android.preference.PreferenceManager;
 import android.support.v7.app.AppCompatActivity;
 import android.view.View;
 import android.widget.Button;
+import android.widget.TextView;
 import android.widget.Toast;
 
+import org.lattilad.bestboard.KeystrokeLatency;
 import org.lattilad.bestboard.R;
 import org.lattilad.bestboard.debug.Debug;
 import org.lattilad.bestboard.fileselector.FileSelectorActivity;
 import org.lattilad.bestboard.prefs.PrefsActivity;
 import org.lattilad.bestboard.scribe.Scribe;
 
+import java.io.File;
+
+import static org.lattilad.bestboard.prefs.PrefsFragment.PREFS_ACTION_BENCHMARK_RENDERING;
 import static org.lattilad.bestboard.prefs.PrefsFragment.PREFS_ACTION_TEST_LOAD;
 import static org.lattilad.bestboard.prefs.PrefsFragment.PREFS_ACTION_TEST_RETURN;
 import static org.lattilad.bestboard.prefs.PrefsFragment.performAction;
@@ -62,12 +68,22 @@ import static org.lattilad.bestboard.prefs.PrefsFragment.performAction;
  * ACTION_TEST_RETURN:
  * if data is stored - restores it, clears store-variable
  * if not - reloads
+ *
+ * BENCH:
+ * ACTION_BENCHMARK_RENDERING - service measures frame time (on software canvas) and heap of the active layout
+ * both in bitmap and in display list mode (see RenderingBenchmark)
+ *
+ * LATENCY:
+ * Percentiles of the keystroke latency stages are shown under the buttons (see KeystrokeLatency),
+ * keystrokes typed into the test area are measured, too.
+ * CSV - exports all stored samples into the working directory
  */
 
 public class TestModeActivity extends AppCompatActivity
     {
     private static final int TEST_SELECTOR_REQUEST = 2;
     private Button mainButton;
+    private TextView latencyText;
 
     @Override
     protected void onResume()
@@ -77,6 +93,8 @@ public class TestModeActivity extends AppCompatActivity
 
         // When returning from Activity, only onResume and onStart are called to check the test bit
         mainButton.setVisibility(isTestMode( this ) ? View.VISIBLE : View.GONE);
+
+        latencyText.setText( KeystrokeLatency.getReport() );
         }
 
     @Override
@@ -144,6 +162,46 @@ public class TestModeActivity extends AppCompatActivity
                 finish();
                 }
             });
+
+        ((Button) findViewById(R.id.bench_button)).setOnClickListener(new View.OnClickListener()
+            {
+            @Override
+            public void onClick(View view)
+                {
+                performAction( getApplicationContext(), PREFS_ACTION_BENCHMARK_RENDERING );
+                finish();
+                }
+            });
+
+        latencyText = ((TextView) findViewById(R.id.latency_text));
+        ((Button) findViewById(R.id.latency_button)).setOnClickListener(new View.OnClickListener()
+            {
+            @Override
+            public void onClick(View view)
+                {
+                latencyText.setText( KeystrokeLatency.getReport() );
+                exportLatency();
+                }
+            });
+        }
+
+
+    /**
+     * Writes keystroke latency samples into the working directory
+     */
+    void exportLatency()
+        {
+        SharedPreferences sharedPrefs =
+                PreferenceManager.getDefaultSharedPreferences(getApplicationContext());
+        String directoryName =
+                sharedPrefs.getString(getString(R.string.descriptor_directory_key),
+                        getString(R.string.descriptor_directory_default));
+        File csvFile = KeystrokeLatency.writeCsv(
+                new File(Environment.getExternalStorageDirectory(), directoryName));
+
+        Toast.makeText(this, csvFile != null ?
+                        "Latency is exported: " + csvFile.getName() : "Latency cannot be exported!",
+                Toast.LENGTH_SHORT).show();
         }
 
 
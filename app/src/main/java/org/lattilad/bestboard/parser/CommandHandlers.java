@@ -0,0 +1,733 @@
+package org.lattilad.bestboard.parser;
+
+import org.lattilad.bestboard.scribe.Scribe;
+import org.lattilad.bestboard.utils.LongObjectMap;
+
+import java.security.InvalidKeyException;
+import java.util.List;
+
+
+/**
+ * Handlers bind parameter-commands directly to the methods of MethodsForCommands.
+ * Commands marks the parameter-commands with methods, handlers are bound to their
+ * token codes here, so no reflection is needed to find or to call the methods.
+ * Each handler type belongs to one parameter type (Check CoatParser.parseComplexParameter, third part!)
+ * Methods without return value (void) return null.
+ */
+public class CommandHandlers
+    {
+    /**
+     ** HANDLERS - methods of MethodsForCommands called by the parameter-commands
+     **/
+
+    /**
+     * Common part of the handlers: name of the method (just for debugging)
+     */
+    public static abstract class Handler
+        {
+        private String name;
+
+        protected Handler( String name )
+            {
+            this.name = name;
+            }
+
+        public String getName()
+            {
+            return name;
+            }
+
+        /**
+         * Handler can be bound only to parameter-commands of its type.
+         * @param data data of the parameter-command
+         * @return true if handler can call the method of this parameter-command
+         */
+        public abstract boolean accepts( Commands.Data data );
+        }
+
+    /** Handler of COMPLEX parameter-commands */
+    public static abstract class ComplexHandler extends Handler
+        {
+        protected ComplexHandler( String name )
+            {
+            super( name );
+            }
+
+        @Override
+        public boolean accepts( Commands.Data data )
+            {
+            // Parameter-command has COMPLEX parameters - forwardParameters
+            return data.isComplexType();
+            }
+
+        public abstract Object call( MethodsForCommands methods, LongObjectMap<Object> parameters );
+        }
+
+    /** Handler of ONE parameter-commands */
+    public static abstract class OneHandler extends Handler
+        {
+        protected OneHandler( String name )
+            {
+            super( name );
+            }
+
+        @Override
+        public boolean accepts( Commands.Data data )
+            {
+            // Parameter-command has ONE parameter - result
+            return data.isOneType();
+            }
+
+        public abstract Object call( MethodsForCommands methods, Object parameter );
+        }
+
+    /** Handler of LIST parameter-commands */
+    public static abstract class ListHandler extends Handler
+        {
+        protected ListHandler( String name )
+            {
+            super( name );
+            }
+
+        @Override
+        public boolean accepts( Commands.Data data )
+            {
+            // Parameter-command has LIST parameter - result
+            return data.isListType();
+            }
+
+        public abstract Object call( MethodsForCommands methods, List<Object> parameter );
+        }
+
+    /** Handler of FLAG and NO parameter-commands */
+    public static abstract class NoHandler extends Handler
+        {
+        protected NoHandler( String name )
+            {
+            super( name );
+            }
+
+        @Override
+        public boolean accepts( Commands.Data data )
+            {
+            // Parameter command is a FLAG etc. or NO parameters
+            return data.isFlagType();
+            }
+
+        public abstract Object call( MethodsForCommands methods );
+        }
+
+
+    // COMPLEX parameters - LongObjectMap
+
+    public static final ComplexHandler SET_LOCALE = new ComplexHandler( "setLocale" )
+        {
+        @Override
+        public Object call( MethodsForCommands methods, LongObjectMap<Object> parameters )
+            {
+            methods.setLocale( parameters );
+            return null;
+            }
+        };
+
+    public static final ComplexHandler SET_SHOW_TITLES = new ComplexHandler( "setShowTitles" )
+        {
+        @Override
+        public Object call( MethodsForCommands methods, LongObjectMap<Object> parameters )
+            {
+            methods.setShowTitles( parameters );
+            return null;
+            }
+        };
+
+    public static final ComplexHandler ADD_BOARD = new ComplexHandler( "addBoard" )
+        {
+        @Override
+        public Object call( MethodsForCommands methods, LongObjectMap<Object> parameters )
+            {
+            methods.addBoard( parameters );
+            return null;
+            }
+        };
+
+    public static final ComplexHandler ADD_LAYOUT = new ComplexHandler( "addLayout" )
+        {
+        @Override
+        public Object call( MethodsForCommands methods, LongObjectMap<Object> parameters )
+            {
+            methods.addLayout( parameters );
+            return null;
+            }
+        };
+
+    public static final ComplexHandler SET_BLOCK = new ComplexHandler( "setBlock" )
+        {
+        @Override
+        public Object call( MethodsForCommands methods, LongObjectMap<Object> parameters )
+            {
+            methods.setBlock( parameters );
+            return null;
+            }
+        };
+
+    public static final ComplexHandler PACKET = new ComplexHandler( "packet" )
+        {
+        @Override
+        public Object call( MethodsForCommands methods, LongObjectMap<Object> parameters )
+            {
+            return methods.packet( parameters );
+            }
+        };
+
+    public static final ComplexHandler PACKET_CHANGE_CASE = new ComplexHandler( "packetChangeCase" )
+        {
+        @Override
+        public Object call( MethodsForCommands methods, LongObjectMap<Object> parameters )
+            {
+            return methods.packetChangeCase( parameters );
+            }
+        };
+
+    public static final ComplexHandler ADD_TITLE = new ComplexHandler( "addTitle" )
+        {
+        @Override
+        public Object call( MethodsForCommands methods, LongObjectMap<Object> parameters )
+            {
+            return methods.addTitle( parameters );
+            }
+        };
+
+    public static final ComplexHandler SET_SWITCH = new ComplexHandler( "setSwitch" )
+        {
+        @Override
+        public Object call( MethodsForCommands methods, LongObjectMap<Object> parameters )
+            {
+            return methods.setSwitch( parameters );
+            }
+        };
+
+    public static final ComplexHandler SET_META = new ComplexHandler( "setMeta" )
+        {
+        @Override
+        public Object call( MethodsForCommands methods, LongObjectMap<Object> parameters )
+            {
+            return methods.setMeta( parameters );
+            }
+        };
+
+    public static final ComplexHandler SET_AUTO_SHORT_CUT = new ComplexHandler( "setAutoShortCut" )
+        {
+        @Override
+        public Object call( MethodsForCommands methods, LongObjectMap<Object> parameters )
+            {
+            return methods.setAutoShortCut( parameters );
+            }
+        };
+
+    public static final ComplexHandler SET_FIND_SHORT_CUT = new ComplexHandler( "setFindShortCut" )
+        {
+        @Override
+        public Object call( MethodsForCommands methods, LongObjectMap<Object> parameters )
+            {
+            return methods.setFindShortCut( parameters );
+            }
+        };
+
+    public static final ComplexHandler SET_PROGRAM = new ComplexHandler( "setProgram" )
+        {
+        @Override
+        public Object call( MethodsForCommands methods, LongObjectMap<Object> parameters )
+            {
+            return methods.setProgram( parameters );
+            }
+        };
+
+    public static final ComplexHandler SET_MEMORY = new ComplexHandler( "setMemory" )
+        {
+        @Override
+        public Object call( MethodsForCommands methods, LongObjectMap<Object> parameters )
+            {
+            return methods.setMemory( parameters );
+            }
+        };
+
+    public static final ComplexHandler SET_SPACE_TRAVEL = new ComplexHandler( "setSpaceTravel" )
+        {
+        @Override
+        public Object call( MethodsForCommands methods, LongObjectMap<Object> parameters )
+            {
+            return methods.setSpaceTravel( parameters );
+            }
+        };
+
+    public static final ComplexHandler SET_ENTER = new ComplexHandler( "setEnter" )
+        {
+        @Override
+        public Object call( MethodsForCommands methods, LongObjectMap<Object> parameters )
+            {
+            return methods.setEnter( parameters );
+            }
+        };
+
+    public static final ComplexHandler SET_MODIFY = new ComplexHandler( "setModify" )
+        {
+        @Override
+        public Object call( MethodsForCommands methods, LongObjectMap<Object> parameters )
+            {
+            return methods.setModify( parameters );
+            }
+        };
+
+    public static final ComplexHandler SET_LIST = new ComplexHandler( "setList" )
+        {
+        @Override
+        public Object call( MethodsForCommands methods, LongObjectMap<Object> parameters )
+            {
+            return methods.setList( parameters );
+            }
+        };
+
+    public static final ComplexHandler SET_MULTI = new ComplexHandler( "setMulti" )
+        {
+        @Override
+        public Object call( MethodsForCommands methods, LongObjectMap<Object> parameters )
+            {
+            return methods.setMulti( parameters );
+            }
+        };
+
+    public static final ComplexHandler SET_ALTERNATE = new ComplexHandler( "setAlternate" )
+        {
+        @Override
+        public Object call( MethodsForCommands methods, LongObjectMap<Object> parameters )
+            {
+            return methods.setAlternate( parameters );
+            }
+        };
+
+    public static final ComplexHandler SET_DOUBLE = new ComplexHandler( "setDouble" )
+        {
+        @Override
+        public Object call( MethodsForCommands methods, LongObjectMap<Object> parameters )
+            {
+            return methods.setDouble( parameters );
+            }
+        };
+
+    public static final ComplexHandler SET_SINGLE = new ComplexHandler( "setSingle" )
+        {
+        @Override
+        public Object call( MethodsForCommands methods, LongObjectMap<Object> parameters )
+            {
+            return methods.setSingle( parameters );
+            }
+        };
+
+    public static final ComplexHandler SET_BUTTON = new ComplexHandler( "setButton" )
+        {
+        @Override
+        public Object call( MethodsForCommands methods, LongObjectMap<Object> parameters )
+            {
+            return methods.setButton( parameters );
+            }
+        };
+
+    public static final ComplexHandler EXTEND_BUTTON = new ComplexHandler( "extendButton" )
+        {
+        @Override
+        public Object call( MethodsForCommands methods, LongObjectMap<Object> parameters )
+            {
+            return methods.extendButton( parameters );
+            }
+        };
+
+    public static final ComplexHandler ADD_MODIFY = new ComplexHandler( "addModify" )
+        {
+        @Override
+        public Object call( MethodsForCommands methods, LongObjectMap<Object> parameters )
+            {
+            methods.addModify( parameters );
+            return null;
+            }
+        };
+
+    public static final ComplexHandler ADD_SHORT_CUT = new ComplexHandler( "addShortCut" )
+        {
+        @Override
+        public Object call( MethodsForCommands methods, LongObjectMap<Object> parameters )
+            {
+            methods.addShortCut( parameters );
+            return null;
+            }
+        };
+
+    public static final ComplexHandler ADD_SHORT_CUT_SET = new ComplexHandler( "addShortCutSet" )
+        {
+        @Override
+        public Object call( MethodsForCommands methods, LongObjectMap<Object> parameters )
+            {
+            methods.addShortCutSet( parameters );
+            return null;
+            }
+        };
+
+    public static final ComplexHandler ADD_VARIA = new ComplexHandler( "addVaria" )
+        {
+        @Override
+        public Object call( MethodsForCommands methods, LongObjectMap<Object> parameters )
+            {
+            methods.addVaria( parameters );
+            return null;
+            }
+        };
+
+    public static final ComplexHandler ADD_VARIA_GROUP = new ComplexHandler( "addVariaGroup" )
+        {
+        @Override
+        public Object call( MethodsForCommands methods, LongObjectMap<Object> parameters )
+            {
+            return methods.addVariaGroup( parameters );
+            }
+        };
+
+    public static final ComplexHandler ADD_VARIA_LEGEND = new ComplexHandler( "addVariaLegend" )
+        {
+        @Override
+        public Object call( MethodsForCommands methods, LongObjectMap<Object> parameters )
+            {
+            return methods.addVariaLegend( parameters );
+            }
+        };
+
+    public static final ComplexHandler SET_MONITOR = new ComplexHandler( "setMonitor" )
+        {
+        @Override
+        public Object call( MethodsForCommands methods, LongObjectMap<Object> parameters )
+            {
+            methods.setMonitor( parameters );
+            return null;
+            }
+        };
+
+    // ONE parameter - Object
+
+    public static final OneHandler SET_NAME = new OneHandler( "setName" )
+        {
+        @Override
+        public Object call( MethodsForCommands methods, Object parameter )
+            {
+            methods.setName( parameter );
+            return null;
+            }
+        };
+
+    public static final OneHandler SET_VERSION = new OneHandler( "setVersion" )
+        {
+        @Override
+        public Object call( MethodsForCommands methods, Object parameter )
+            {
+            methods.setVersion( parameter );
+            return null;
+            }
+        };
+
+    public static final OneHandler SET_AUTHOR = new OneHandler( "setAuthor" )
+        {
+        @Override
+        public Object call( MethodsForCommands methods, Object parameter )
+            {
+            methods.setAuthor( parameter );
+            return null;
+            }
+        };
+
+    public static final OneHandler SET_DESCRIPTION = new OneHandler( "setDescription" )
+        {
+        @Override
+        public Object call( MethodsForCommands methods, Object parameter )
+            {
+            methods.setDescription( parameter );
+            return null;
+            }
+        };
+
+    public static final OneHandler SET_DOC_FILE = new OneHandler( "setDocFile" )
+        {
+        @Override
+        public Object call( MethodsForCommands methods, Object parameter )
+            {
+            methods.setDocFile( parameter );
+            return null;
+            }
+        };
+
+    public static final OneHandler SET_DOC_URI = new OneHandler( "setDocUri" )
+        {
+        @Override
+        public Object call( MethodsForCommands methods, Object parameter )
+            {
+            methods.setDocUri( parameter );
+            return null;
+            }
+        };
+
+    public static final OneHandler SET_DEFAULT_ALFA = new OneHandler( "setDefaultAlfa" )
+        {
+        @Override
+        public Object call( MethodsForCommands methods, Object parameter )
+            {
+            methods.setDefaultAlfa( parameter );
+            return null;
+            }
+        };
+
+    public static final OneHandler SET_META_COLOR = new OneHandler( "setMetaColor" )
+        {
+        @Override
+        public Object call( MethodsForCommands methods, Object parameter )
+            {
+            methods.setMetaColor( parameter );
+            return null;
+            }
+        };
+
+    public static final OneHandler SET_LOCK_COLOR = new OneHandler( "setLockColor" )
+        {
+        @Override
+        public Object call( MethodsForCommands methods, Object parameter )
+            {
+            methods.setLockColor( parameter );
+            return null;
+            }
+        };
+
+    public static final OneHandler SET_AUTO_COLOR = new OneHandler( "setAutoColor" )
+        {
+        @Override
+        public Object call( MethodsForCommands methods, Object parameter )
+            {
+            methods.setAutoColor( parameter );
+            return null;
+            }
+        };
+
+    public static final OneHandler SET_TOUCH_COLOR = new OneHandler( "setTouchColor" )
+        {
+        @Override
+        public Object call( MethodsForCommands methods, Object parameter )
+            {
+            methods.setTouchColor( parameter );
+            return null;
+            }
+        };
+
+    public static final OneHandler SET_STROKE_COLOR = new OneHandler( "setStrokeColor" )
+        {
+        @Override
+        public Object call( MethodsForCommands methods, Object parameter )
+            {
+            methods.setStrokeColor( parameter );
+            return null;
+            }
+        };
+
+    public static final OneHandler SET_TYPEFACE = new OneHandler( "setTypeface" )
+        {
+        @Override
+        public Object call( MethodsForCommands methods, Object parameter )
+            {
+            methods.setTypeface( parameter );
+            return null;
+            }
+        };
+
+    // LIST parameter - List
+
+    public static final ListHandler ADD_TAGS = new ListHandler( "addTags" )
+        {
+        @Override
+        public Object call( MethodsForCommands methods, List<Object> parameter )
+            {
+            methods.addTags( parameter );
+            return null;
+            }
+        };
+
+    public static final ListHandler ADD_ROLL_HELPER = new ListHandler( "addRollHelper" )
+        {
+        @Override
+        public Object call( MethodsForCommands methods, List<Object> parameter )
+            {
+            methods.addRollHelper( parameter );
+            return null;
+            }
+        };
+
+
+    /**
+     ** BINDING - handlers of the parameter-commands
+     ** (declared after the handlers, because static fields are initialized in this order)
+     **/
+
+    /**
+     * Number of handlers, which cannot be bound to their parameter-commands.
+     * Counted during createHandlerMap(), so it should be declared (without initializer) before HANDLERS.
+     */
+    private static int bindingErrors;
+
+    /**
+     * Handlers are stored under the token codes of their parameter-commands.
+     * Map is not modified after createHandlerMap().
+     */
+    private static LongObjectMap<Handler> HANDLERS = createHandlerMap();
+
+    /**
+     * Binds a handler to a parameter-command.
+     * Handler is accepted only if its parameter-command calls a method,
+     * and handler belongs to the type of the parameter-list.
+     */
+    private static void bind( long commandCode, Handler handler )
+        {
+        Commands.Data data;
+        try
+            {
+            data = Commands.get( commandCode );
+            }
+        catch (InvalidKeyException e)
+            {
+            data = null;
+            }
+
+        if ( data == null || !data.hasMethodToCall() || !handler.accepts( data ) )
+            {
+            bindingErrors++;
+            Scribe.error("Please, check COMMANDS! Handler " + handler.getName() + " of [" +
+                    Tokenizer.regenerateKeyword(commandCode) + "] does not match its parameter-command!");
+            }
+        else if ( HANDLERS.put( commandCode, handler ) != null )
+            {
+            bindingErrors++;
+            Scribe.error("Please, check COMMANDS! [" +
+                    Tokenizer.regenerateKeyword(commandCode) + "] has multiple handlers!");
+            }
+        }
+
+    /**
+     * Populates HANDLERS. Each parameter-command with method (Commands.Data.method())
+     * should get its handler here.
+     * @return the initialized map
+     */
+    private static LongObjectMap<Handler> createHandlerMap()
+        {
+        HANDLERS = new LongObjectMap<>( 64 );
+
+        bind( Commands.TOKEN_NAME, SET_NAME );
+        bind( Commands.TOKEN_VERSION, SET_VERSION );
+        bind( Commands.TOKEN_AUTHOR, SET_AUTHOR );
+        bind( Commands.TOKEN_ADDTAGS, ADD_TAGS );
+        bind( Commands.TOKEN_DESCRIPTION, SET_DESCRIPTION );
+        bind( Commands.TOKEN_DOCFILE, SET_DOC_FILE );
+        bind( Commands.TOKEN_DOCURI, SET_DOC_URI );
+        bind( Commands.TOKEN_LOCALE, SET_LOCALE );
+        bind( Commands.TOKEN_ALPHA, SET_DEFAULT_ALFA );
+        bind( Commands.TOKEN_ACTIVECOLOR, SET_META_COLOR );
+        bind( Commands.TOKEN_LOCKCOLOR, SET_LOCK_COLOR );
+        bind( Commands.TOKEN_AUTOCOLOR, SET_AUTO_COLOR );
+        bind( Commands.TOKEN_TOUCHCOLOR, SET_TOUCH_COLOR );
+        bind( Commands.TOKEN_STROKECOLOR, SET_STROKE_COLOR );
+        bind( Commands.TOKEN_FONT, SET_TYPEFACE );
+        bind( Commands.TOKEN_SHOWTITLES, SET_SHOW_TITLES );
+        bind( Commands.TOKEN_ADDBOARD, ADD_BOARD );
+        bind( Commands.TOKEN_ADDLAYOUT, ADD_LAYOUT );
+        bind( Commands.TOKEN_BLOCK, SET_BLOCK );
+        bind( Commands.TOKEN_PACKET, PACKET );
+        bind( Commands.TOKEN_FIRST, PACKET );
+        bind( Commands.TOKEN_SECOND, PACKET );
+        bind( Commands.TOKEN_CHANGECASE, PACKET_CHANGE_CASE );
+        bind( Commands.TOKEN_BUTTON, SET_BUTTON );
+        bind( Commands.TOKEN_SINGLE, SET_SINGLE );
+        bind( Commands.TOKEN_DOUBLE, SET_DOUBLE );
+        bind( Commands.TOKEN_ALTERNATE, SET_ALTERNATE );
+        bind( Commands.TOKEN_MULTI, SET_MULTI );
+        bind( Commands.TOKEN_ADD, PACKET );
+        bind( Commands.TOKEN_LIST, SET_LIST );
+        bind( Commands.TOKEN_MODIFY, SET_MODIFY );
+        bind( Commands.TOKEN_ENTER, SET_ENTER );
+        bind( Commands.TOKEN_SPACETRAVEL, SET_SPACE_TRAVEL );
+        bind( Commands.TOKEN_MEMORY, SET_MEMORY );
+        bind( Commands.TOKEN_PROGRAM, SET_PROGRAM );
+        bind( Commands.TOKEN_AUTOSHORTCUT, SET_AUTO_SHORT_CUT );
+        bind( Commands.TOKEN_FINDSHORTCUT, SET_FIND_SHORT_CUT );
+        bind( Commands.TOKEN_META, SET_META );
+        bind( Commands.TOKEN_SWITCH, SET_SWITCH );
+        bind( Commands.TOKEN_ADDTITLE, ADD_TITLE );
+        bind( Commands.TOKEN_EXTEND, EXTEND_BUTTON );
+        bind( Commands.TOKEN_ADDMODIFY, ADD_MODIFY );
+        bind( Commands.TOKEN_ADDROLL, ADD_ROLL_HELPER );
+        bind( Commands.TOKEN_ADDSHORTCUT, ADD_SHORT_CUT );
+        bind( Commands.TOKEN_SHORTCUTSET, ADD_SHORT_CUT_SET );
+        bind( Commands.TOKEN_ADDVARIA, ADD_VARIA );
+        bind( Commands.TOKEN_ADDGROUP, ADD_VARIA_GROUP );
+        bind( Commands.TOKEN_LEGEND, ADD_VARIA_LEGEND );
+        bind( Commands.TOKEN_MONITOR, SET_MONITOR );
+
+        return HANDLERS;
+        }
+
+    /**
+     * Handler of a parameter-command
+     * @param commandCode token code of the parameter-command
+     * @return handler, or null if parameter-command has no handler
+     */
+    public static Handler getHandler( long commandCode )
+        {
+        return HANDLERS.get( commandCode );
+        }
+
+    /**
+     * Handler of COMPLEX parameter-commands.
+     * Parameters are forwarded as a Map to the method.
+     * @return handler, or null if there is no method to call
+     */
+    public static ComplexHandler getComplexHandler( long commandCode )
+        {
+        return (ComplexHandler)HANDLERS.get( commandCode );
+        }
+
+    /**
+     * Handler of ONE parameter-commands
+     * @return handler, or null if there is no method to call
+     */
+    public static OneHandler getOneHandler( long commandCode )
+        {
+        return (OneHandler)HANDLERS.get( commandCode );
+        }
+
+    /**
+     * Handler of LIST parameter-commands
+     * @return handler, or null if there is no method to call
+     */
+    public static ListHandler getListHandler( long commandCode )
+        {
+        return (ListHandler)HANDLERS.get( commandCode );
+        }
+
+    /**
+     * Handler of FLAG and NO parameter-commands
+     * @return handler, or null if there is no method to call
+     */
+    public static NoHandler getNoHandler( long commandCode )
+        {
+        return (NoHandler)HANDLERS.get( commandCode );
+        }
+
+    /**
+     * Result of createHandlerMap()
+     * @return number of handlers, which cannot be bound
+     */
+    public static int getBindingErrors()
+        {
+        return bindingErrors;
+        }
+
+    }
@@ -5,7 +5,6 @@ import android.os.Bundle;
 import android.view.KeyEvent;
 
 import org.lattilad.bestboard.Layout;
-import org.lattilad.bestboard.R;
 import org.lattilad.bestboard.SoftBoardData;
 import org.lattilad.bestboard.SoftBoardProcessor;
 import org.lattilad.bestboard.SoftBoardShow;
@@ -53,50 +52,78 @@ import org.lattilad.bestboard.scribe.Scribe;
 import org.lattilad.bestboard.states.CapsState;
 import org.lattilad.bestboard.states.LayoutStates;
 import org.lattilad.bestboard.utils.Bit;
-import org.lattilad.bestboard.utils.ExtendedMap;
 import org.lattilad.bestboard.utils.ExternalDataException;
 import org.lattilad.bestboard.utils.KeyValuePair;
+import org.lattilad.bestboard.utils.LongObjectMap;
 import org.lattilad.bestboard.utils.SinglyLinkedList;
 import org.lattilad.bestboard.utils.Trilean;
 import org.lattilad.bestboard.webview.WebViewActivity;
 
 import java.io.File;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
-import java.util.Map;
 
 /**
  * Methods to create SoftBoardData from coat descriptor
+ * CoatParser calls them through the handlers of CommandHandlers.
  */
-public class MethodsForCommands
+public class MethodsForCommands implements CoatParser.CommandMethods
     {
     /**
-     * Defaults (from SoftBoardParser) is needed for messaging during data-load.
+     * Defaults (from CoatParser) is needed for messaging during data-load.
      * It should be cleared, after data-load is ready.
      */
-    private ExtendedMap< Long, ExtendedMap< Long, Object>> defaults;
+    private LongObjectMap<LongObjectMap<Object>> defaults;
 
-    /** SoftBoardParser is needed to reach actual tokenizer() */
-    private SoftBoardParser softBoardParser;
+    /** CoatParser is needed to reach actual tokenizer() */
+    private CoatParser coatParser;
 
     /** SoftBoardData will be populated during the parsing process */
     private SoftBoardData softBoardData;
 
 
-    public MethodsForCommands( SoftBoardData softBoardData, SoftBoardParser softBoardParser )
+    public MethodsForCommands( SoftBoardData softBoardData, CoatParser coatParser )
         {
         this.softBoardData = softBoardData;
-        this.softBoardParser = softBoardParser;
-        this.defaults = softBoardParser.getDefaults();
+        this.coatParser = coatParser;
+        this.defaults = coatParser.getDefaults();
         }
     
     
     private Tokenizer tokenizer()
         {
-        return softBoardParser.getTokenizer();
+        return coatParser.getTokenizer();
+        }
+
+
+    /**
+     ** CALLS OF THE PARSER - handlers are bound to the token codes in CommandHandlers
+     **/
+
+    @Override
+    public Object callComplex( long commandCode, LongObjectMap<Object> parameters )
+        {
+        return CommandHandlers.getComplexHandler( commandCode ).call( this, parameters );
+        }
+
+    @Override
+    public Object callOne( long commandCode, Object parameter )
+        {
+        return CommandHandlers.getOneHandler( commandCode ).call( this, parameter );
+        }
+
+    @Override
+    public Object callList( long commandCode, List<Object> parameter )
+        {
+        return CommandHandlers.getListHandler( commandCode ).call( this, parameter );
+        }
+
+    @Override
+    public Object callNo( long commandCode )
+        {
+        return CommandHandlers.getNoHandler( commandCode ).call( this );
         }
 
 
@@ -124,7 +151,7 @@ public class MethodsForCommands
     public void createDefaults()
         {
         /*
-        ExtendedMap<Long, Object> defaultTitle = new ExtendedMap<>();
+        LongObjectMap<Object> defaultTitle = new LongObjectMap<>();
         defaultTitle.put( Commands.TOKEN_YOFFSET, 250 ); // PARAMETER_INT
         defaultTitle.put( Commands.TOKEN_SIZE, 1200 ); // PARAMETER_INT
         defaultTitle.put( Commands.TOKEN_COLOR, Color.BLACK ); // PARAMETER_COLOR (int)
@@ -153,7 +180,7 @@ public class MethodsForCommands
     public static final int DEFAULT_BUTTON_COLOR = Color.LTGRAY;
 
     /** Map of temporary layouts, identified by code of keywords */
-    public Map<Long, Layout> layouts = new HashMap<>();
+    public LongObjectMap<Layout> layouts = new LongObjectMap<>();
 
     /** Last layout created by addLayout or used by setBlock */
     private long lastLayoutId = -1L;
@@ -170,21 +197,21 @@ public class MethodsForCommands
     public void setName( Object stringParameter )
         {
         softBoardData.name = (String) stringParameter;
-        tokenizer().note(R.string.data_name, softBoardData.name );
+        tokenizer().note(ParserMessage.DATA_NAME, softBoardData.name );
         }
 
     /** Set softboard's version * VERSION (int) */
     public void setVersion( Object intParameter )
         {
         softBoardData.version = (int)intParameter;
-        tokenizer().note(R.string.data_version, String.valueOf(softBoardData.version));
+        tokenizer().note(ParserMessage.DATA_VERSION, String.valueOf(softBoardData.version));
         }
 
     /** Set softboard's author * AUTHOR (string) */
     public void setAuthor( Object stringParameter )
         {
         softBoardData.author = (String)stringParameter;
-        tokenizer().note(R.string.data_author, softBoardData.author );
+        tokenizer().note(ParserMessage.DATA_AUTHOR, softBoardData.author );
         }
 
     /** Add softboard's tags * ADDTAGS (string-list) */
@@ -194,7 +221,7 @@ public class MethodsForCommands
         for (Object item: stringListParameter)
             {
             softBoardData.tags.add( (String) item );
-            tokenizer().note( R.string.data_tags, (String) item );
+            tokenizer().note( ParserMessage.DATA_TAGS, (String) item );
             }
         }
 
@@ -202,7 +229,7 @@ public class MethodsForCommands
     public void setDescription( Object stringParameter )
         {
         softBoardData.description = (String)stringParameter;
-        tokenizer().note(R.string.data_description, softBoardData.description );
+        tokenizer().note(ParserMessage.DATA_DESCRIPTION, softBoardData.description );
         }
 
     /**
@@ -213,7 +240,7 @@ public class MethodsForCommands
     public void setDocFile( Object fileParameter )
         {
         softBoardData.docFile = (File)fileParameter;
-        tokenizer().note(R.string.data_docfile, softBoardData.docFile.toString() );
+        tokenizer().note(ParserMessage.DATA_DOCFILE, softBoardData.docFile.toString() );
         }
 
     /**
@@ -224,7 +251,7 @@ public class MethodsForCommands
     public void setDocUri( Object stringParameter )
         {
         softBoardData.docUri = (String)stringParameter;
-        tokenizer().note(R.string.data_docuri, softBoardData.docUri );
+        tokenizer().note(ParserMessage.DATA_DOCURI, softBoardData.docUri );
         }
 
     /**
@@ -232,56 +259,56 @@ public class MethodsForCommands
      * Locale is not checked, just set !!
      * LOCALE ( LANGUAGE (string) TOKEN_COUNTRY (string) TOKEN_VARIANT (string) )
      */
-    public void setLocale( ExtendedMap<Long, Object> parameters )
+    public void setLocale( LongObjectMap<Object> parameters )
         {
         String language = (String)parameters.remove(Commands.TOKEN_LANGUAGE, "");
         String country = (String)parameters.remove(Commands.TOKEN_COUNTRY, "");
         String variant = (String)parameters.remove(Commands.TOKEN_VARIANT, "");
 
         softBoardData.locale = new Locale( language, country, variant);
-        tokenizer().note(R.string.data_locale, String.valueOf(softBoardData.locale) );
+        tokenizer().note(ParserMessage.DATA_LOCALE, String.valueOf(softBoardData.locale) );
         }
 
     /** Set default alfa for colors * ALFA (int) */
     public void setDefaultAlfa(Object intParameter)
         {
-        softBoardData.defaultAlfa = tokenizer().setDefaultAlfa( (int)intParameter );
-        tokenizer().note(R.string.data_defaultalfa, Integer.toHexString( softBoardData.defaultAlfa ));
+        softBoardData.defaultAlfa = coatParser.setDefaultAlfa( (int)intParameter );
+        tokenizer().note(ParserMessage.DATA_DEFAULTALFA, Integer.toHexString( softBoardData.defaultAlfa ));
         }
 
     /** Set color of touched meta keys * METACOLOR (color) */
     public void setMetaColor(Object colorParameter)
         {
         softBoardData.metaColor = (int)colorParameter;
-        tokenizer().note(R.string.data_metacolor, Integer.toHexString( softBoardData.metaColor));
+        tokenizer().note(ParserMessage.DATA_METACOLOR, Integer.toHexString( softBoardData.metaColor));
         }
 
     /** Set color of locked meta keys * LOCKCOLOR (color) */
     public void setLockColor(Object colorParameter)
         {
         softBoardData.lockColor = (int)colorParameter;
-        tokenizer().note(R.string.data_lockcolor, Integer.toHexString( softBoardData.lockColor));
+        tokenizer().note(ParserMessage.DATA_LOCKCOLOR, Integer.toHexString( softBoardData.lockColor));
         }
 
     /** Set color of locked meta keys * AUTOCOLOR (color) */
     public void setAutoColor(Object colorParameter)
         {
         softBoardData.autoColor = (int)colorParameter;
-        tokenizer().note(R.string.data_autocolor, Integer.toHexString( softBoardData.autoColor));
+        tokenizer().note(ParserMessage.DATA_AUTOCOLOR, Integer.toHexString( softBoardData.autoColor));
         }
 
     /** Set color of touched button * TOUCHCOLOR (color) */
     public void setTouchColor(Object colorParameter)
         {
         softBoardData.touchColor = (int)colorParameter;
-        tokenizer().note(R.string.data_touchcolor, Integer.toHexString( softBoardData.touchColor));
+        tokenizer().note(ParserMessage.DATA_TOUCHCOLOR, Integer.toHexString( softBoardData.touchColor));
         }
 
     /** Set color of stroke * STROKECOLOR (color) */
     public void setStrokeColor(Object colorParameter)
         {
         softBoardData.strokeColor = (int)colorParameter;
-        tokenizer().note(R.string.data_strokecolor, Integer.toHexString( softBoardData.strokeColor));
+        tokenizer().note(ParserMessage.DATA_STROKECOLOR, Integer.toHexString( softBoardData.strokeColor));
         }
 
     /** Set typeface of title font from file * TITLEFONT (file) */
@@ -292,17 +319,17 @@ public class MethodsForCommands
         try
             {
             Typeface typeface = Typeface.createFromFile( (File)fileParameter );
-            tokenizer().note( R.string.data_typeface, typeface.toString() );
+            tokenizer().note( ParserMessage.DATA_TYPEFACE, typeface.toString() );
             TitleDescriptor.setTypeface(typeface);
             }
         catch (Exception e)
             {
-            tokenizer().error(R.string.data_typeface_missing, fileParameter.toString());
+            tokenizer().error(ParserMessage.DATA_TYPEFACE_MISSING, fileParameter.toString());
             }
         */
         }
 
-    public void setShowTitles(ExtendedMap<Long, Object> parameters)
+    public void setShowTitles(LongObjectMap<Object> parameters)
         {
         Object temp;
         // !! This could be organised from a table
@@ -361,12 +388,12 @@ public class MethodsForCommands
      * LOCK - (flag) board always starts as locked
      * ROOT - (flag) set as root board (root board is always locked)
      */
-    public void addBoard( ExtendedMap<Long, Object> parameters )
+    public void addBoard( LongObjectMap<Object> parameters )
         {
         Long id = (Long)parameters.remove( Commands.TOKEN_ID );
         if (id == null)
             {
-            tokenizer().error( "ADDBOARD", R.string.data_board_no_id);
+            tokenizer().error( "ADDBOARD", ParserMessage.DATA_BOARD_NO_ID);
             return;
             }
 
@@ -381,17 +408,17 @@ public class MethodsForCommands
             Layout layout = layouts.get( layoutId );
             if ( layout == null )
                 {
-                tokenizer().error( "LAYOUT", R.string.data_no_layout,
+                tokenizer().error( "LAYOUT", ParserMessage.DATA_NO_LAYOUT,
                         Tokenizer.regenerateKeyword( (long)layoutId));
                 return;
                 }
 
             if ( softBoardData.boardTable.addBoard(id, layout, locked) )
                 {
-                tokenizer().error(Tokenizer.regenerateKeyword(id), R.string.data_board_id_overwritten);
+                tokenizer().error(Tokenizer.regenerateKeyword(id), ParserMessage.DATA_BOARD_ID_OVERWRITTEN);
                 }
 
-            tokenizer().note( Tokenizer.regenerateKeyword(id), R.string.data_board_id_set,
+            tokenizer().note( Tokenizer.regenerateKeyword(id), ParserMessage.DATA_BOARD_ID_SET,
                     Tokenizer.regenerateKeyword( (long)layoutId));
             }
 
@@ -407,13 +434,13 @@ public class MethodsForCommands
                 portrait = layouts.get( portraitId );
                 if ( portrait == null )
                     {
-                    tokenizer().error( "PORTRAIT", R.string.data_no_layout,
+                    tokenizer().error( "PORTRAIT", ParserMessage.DATA_NO_LAYOUT,
                             Tokenizer.regenerateKeyword( (long)portraitId));
                     }
                 }
             else
                 {
-                tokenizer().error( Tokenizer.regenerateKeyword(id), R.string.data_board_portrait_missing);
+                tokenizer().error( Tokenizer.regenerateKeyword(id), ParserMessage.DATA_BOARD_PORTRAIT_MISSING);
                 }
 
             Long landscapeId = (Long)parameters.remove( Commands.TOKEN_LANDSCAPE );
@@ -424,13 +451,13 @@ public class MethodsForCommands
                 landscape = layouts.get( landscapeId );
                 if ( landscape == null )
                     {
-                    tokenizer().error( "LANDSCAPE", R.string.data_no_layout,
+                    tokenizer().error( "LANDSCAPE", ParserMessage.DATA_NO_LAYOUT,
                             Tokenizer.regenerateKeyword( (long)landscapeId));
                     }
                 }
             else
                 {
-                tokenizer().error( Tokenizer.regenerateKeyword(id), R.string.data_board_landscape_missing);
+                tokenizer().error( Tokenizer.regenerateKeyword(id), ParserMessage.DATA_BOARD_LANDSCAPE_MISSING);
                 }
 
             // only if both parameters are ok
@@ -439,7 +466,7 @@ public class MethodsForCommands
 
             if ( softBoardData.boardTable.addBoard(id, portrait, landscape, locked) )
                 {
-                tokenizer().error(Tokenizer.regenerateKeyword(id), R.string.data_board_id_overwritten);
+                tokenizer().error(Tokenizer.regenerateKeyword(id), ParserMessage.DATA_BOARD_ID_OVERWRITTEN);
                 }
             }
 
@@ -464,7 +491,7 @@ public class MethodsForCommands
      * Trilean values, default: not-given-value. Otherwise META state is forced on or off, depending on the value.
      * ASBOARD - new board is generated with this layout under the same id
      */
-    public void addLayout( ExtendedMap<Long, Object> parameters )
+    public void addLayout( LongObjectMap<Object> parameters )
         {
         Object temp;
 
@@ -482,7 +509,7 @@ public class MethodsForCommands
         id = (Long)parameters.remove( Commands.TOKEN_ID );
         if (id == null)
             {
-            tokenizer().error( "ADDLAYOUT", R.string.data_layout_no_id);
+            tokenizer().error( "ADDLAYOUT", ParserMessage.DATA_LAYOUT_NO_ID);
             return;
             }
 
@@ -504,7 +531,7 @@ public class MethodsForCommands
             else
                 {
                 tokenizer().error(Tokenizer.regenerateKeyword((long) id),
-                        R.string.data_columns_missing);
+                        ParserMessage.DATA_COLUMNS_MISSING);
                 return;
                 }
             }
@@ -513,7 +540,7 @@ public class MethodsForCommands
         if (temp == null)
             {
             tokenizer().error( Tokenizer.regenerateKeyword( (long)id),
-                    R.string.data_rows_missing );
+                    ParserMessage.DATA_ROWS_MISSING );
             return;
             }
         rows = (int)temp;
@@ -531,7 +558,7 @@ public class MethodsForCommands
             oddRowsAligned = false;
         else if ( alignFlag != -1L )
             tokenizer().error( Tokenizer.regenerateKeyword( (long)id),
-                    R.string.data_align_bad_parameter );
+                    ParserMessage.DATA_ALIGN_BAD_PARAMETER );
 
         color = (int)parameters.remove(Commands.TOKEN_COLOR, DEFAULT_LAYOUT_COLOR);
         lineColor = (int)parameters.remove(Commands.TOKEN_LINECOLOR, DEFAULT_LINE_COLOR);
@@ -557,7 +584,7 @@ public class MethodsForCommands
                 else if ( (long)keyword == Commands.TOKEN_CAPS )
                     metaStates[ LayoutStates.META_CAPS ] = Trilean.TRUE;
                 else
-                    tokenizer().error("TURNON", R.string.data_meta_bad_parameter );
+                    tokenizer().error("TURNON", ParserMessage.DATA_META_BAD_PARAMETER );
                 }
             }
 
@@ -575,7 +602,7 @@ public class MethodsForCommands
                 else if ( (long)keyword == Commands.TOKEN_CAPS )
                     metaStates[ LayoutStates.META_CAPS ] = Trilean.FALSE;
                 else
-                    tokenizer().error("TURNOFF", R.string.data_meta_bad_parameter );
+                    tokenizer().error("TURNOFF", ParserMessage.DATA_META_BAD_PARAMETER );
                 }
             }
 
@@ -610,11 +637,11 @@ public class MethodsForCommands
             if ( layouts.put(id, layout) != null )
                 {
                 tokenizer().error( Tokenizer.regenerateKeyword( (long)id),
-                        R.string.data_layout_overwritten );
+                        ParserMessage.DATA_LAYOUT_OVERWRITTEN );
                 }
 
             tokenizer().note( Tokenizer.regenerateKeyword( (long)id),
-                    R.string.data_layout_added,
+                    ParserMessage.DATA_LAYOUT_ADDED,
                     layout.toString());
 
             // the first non-wide layout is stored
@@ -636,7 +663,7 @@ public class MethodsForCommands
         catch (ExternalDataException ede)
             {
             tokenizer().error( Tokenizer.regenerateKeyword( (long)id),
-                    R.string.data_layout_error);
+                    ParserMessage.DATA_LAYOUT_ERROR);
             }
         }
 
@@ -645,7 +672,7 @@ public class MethodsForCommands
      * Inserts button parameters into absolute positions
      * @param parameters
      */
-    public void setBlock(ExtendedMap<Long, Object> parameters)
+    public void setBlock(LongObjectMap<Object> parameters)
         {
         // Try to use the last layout, if layout is missing
         Long temp = (Long)parameters.remove( Commands.TOKEN_LAYOUT );
@@ -710,28 +737,29 @@ public class MethodsForCommands
 
                 try
                     {
-                    if (layout.addButton(
+                    // button is cloned only when layout is measured first
+                    if (layout.addButtonTemplate(
                             arrayColumn,
                             arrayRow,
-                            ((Button) action.getValue()).clone()))
+                            (Button) action.getValue()))
                         {
                         if ((boolean)parameters.remove(Commands.TOKEN_OVERWRITE, false))
                             {
-                            tokenizer().note(R.string.data_button_overwritten,
+                            tokenizer().note(ParserMessage.DATA_BUTTON_OVERWRITTEN,
                                     layout.toString());
                             }
                         else
                             {
-                            tokenizer().error(R.string.data_button_overwritten,
+                            tokenizer().error(ParserMessage.DATA_BUTTON_OVERWRITTEN,
                                     layout.toString());
                             }
                         }
-                    tokenizer().note( ((Button)action.getValue()).name, R.string.data_button_added,
+                    tokenizer().note( ((Button)action.getValue()).name, ParserMessage.DATA_BUTTON_ADDED,
                             layout.toString());
                     }
                 catch (ExternalDataException ede)
                     {
-                    tokenizer().error( ((Button)action.getValue()).name, R.string.data_button_error,
+                    tokenizer().error( ((Button)action.getValue()).name, ParserMessage.DATA_BUTTON_ERROR,
                             layout.toString());
                     }
 
@@ -760,7 +788,7 @@ public class MethodsForCommands
 
                 if ( button == null )
                     {
-                    tokenizer().error( "EXTEND", R.string.data_button_not_exist );
+                    tokenizer().error( "EXTEND", ParserMessage.DATA_BUTTON_NOT_EXIST );
                     }
                 else
                     {
@@ -791,7 +819,7 @@ public class MethodsForCommands
                                 if ( buttonList != null )
                                     button = buttonList;
                                 else
-                                    tokenizer().error("EXTEND", R.string.data_button_extended_invalid_list);
+                                    tokenizer().error("EXTEND", ParserMessage.DATA_BUTTON_EXTENDED_INVALID_LIST);
                                 }
                             // button should be written back
                             try
@@ -826,14 +854,14 @@ public class MethodsForCommands
 
                         if (error)
                             {
-                            tokenizer().error("EXTEND", R.string.data_button_extended_invalid);
+                            tokenizer().error("EXTEND", ParserMessage.DATA_BUTTON_EXTENDED_INVALID);
                             }
                         }
 
                     if ( buttonExtension.color != null )
                         {
                         button.setColor( buttonExtension.color );
-                        tokenizer().note("EXTEND", R.string.data_button_color_changed);
+                        tokenizer().note("EXTEND", ParserMessage.DATA_BUTTON_COLOR_CHANGED);
                         }
 
                     if ( buttonExtension.titleList != null )
@@ -847,7 +875,7 @@ public class MethodsForCommands
                             }
 
                         button.setTitles(titles);
-                        tokenizer().note( "EXTEND", R.string.data_button_titles_extended);
+                        tokenizer().note( "EXTEND", ParserMessage.DATA_BUTTON_TITLES_EXTENDED);
                         }
 
                     if ( button instanceof ButtonMainTouch )
@@ -855,12 +883,12 @@ public class MethodsForCommands
                         if ( buttonExtension.onStay )
                             {
                             ((ButtonMainTouch) button).setOnStay();
-                            tokenizer().note("EXTEND", R.string.data_button_extended_onstay);
+                            tokenizer().note("EXTEND", ParserMessage.DATA_BUTTON_EXTENDED_ONSTAY);
                             }
                         else if ( buttonExtension.onCircle )
                             {
                             ((ButtonMainTouch) button).setOnCircle();
-                            tokenizer().note("EXTEND", R.string.data_button_extended_oncircle);
+                            tokenizer().note("EXTEND", ParserMessage.DATA_BUTTON_EXTENDED_ONCIRCLE);
                             }
                         }
                     }
@@ -982,7 +1010,7 @@ public class MethodsForCommands
      * @param defaultKey default key (if KEY is missing) or NO_DEFAULT_KEY
      * @return Key packet or null
      */
-    public PacketKey packetKey( ExtendedMap<Long, Object> parameters, int defaultKey )
+    public PacketKey packetKey( LongObjectMap<Object> parameters, int defaultKey )
         {
         PacketKey packet = null;
         int temp;
@@ -995,7 +1023,7 @@ public class MethodsForCommands
             }
         else if ( defaultKey != NO_DEFAULT_KEY ) // both TEXT and default -> override default
             {
-            tokenizer().error("PACKET", R.string.data_send_packet_key_override);
+            tokenizer().error("PACKET", ParserMessage.DATA_SEND_PACKET_KEY_OVERRIDE);
             }
 
         if ( temp != NO_DEFAULT_KEY )
@@ -1019,12 +1047,12 @@ public class MethodsForCommands
      * @param defaultText default text (if TEXT is missing) or null
      * @return Text packet or null
      */
-    public PacketText packetText(ExtendedMap<Long, Object> parameters, String defaultText )
+    public PacketText packetText(LongObjectMap<Object> parameters, String defaultText )
         {
         return packetText( parameters, defaultText, true );
         }
 
-    public PacketTextSimple packetTextSimple(ExtendedMap<Long, Object> parameters, String defaultText )
+    public PacketTextSimple packetTextSimple(LongObjectMap<Object> parameters, String defaultText )
         {
         return (PacketTextSimple)packetText( parameters, defaultText, false );
         }
@@ -1032,7 +1060,7 @@ public class MethodsForCommands
     // Some methods allows only PacketTextSimple, and not all derivated types
     // but TEXT should be checked first, then the derived parameters, and default last.
     // That is why we need the allTexts flag
-    private PacketText packetText(ExtendedMap<Long, Object> parameters, String defaultText, boolean allTexts )
+    private PacketText packetText(LongObjectMap<Object> parameters, String defaultText, boolean allTexts )
         {
         // PacketText is the base class, which can be TextSimple, TextTime, TextVaria, (TextField is not implemented)
         PacketText packet = null;
@@ -1059,7 +1087,7 @@ public class MethodsForCommands
                 int number = (int)parameters.remove(Commands.TOKEN_INDEX, -1);
                 if ( number == -1 )
                     {
-                    tokenizer().error(Tokenizer.regenerateKeyword((long)temp), R.string.data_varia_no_no );
+                    tokenizer().error(Tokenizer.regenerateKeyword((long)temp), ParserMessage.DATA_VARIA_NO_NO );
                     // -1 as index always returns ""
                     }
                 packet = new PacketTextVaria( softBoardData, (long)temp, number );
@@ -1084,7 +1112,7 @@ public class MethodsForCommands
             }
         else if ( defaultText != null ) // both TEXT and default -> override default
             {
-            tokenizer().note("PACKET", R.string.data_send_packet_text_override);
+            tokenizer().note("PACKET", ParserMessage.DATA_SEND_PACKET_TEXT_OVERRIDE);
             }
 
         long autoFlag;
@@ -1101,7 +1129,7 @@ public class MethodsForCommands
         else if ( autoFlag == Commands.TOKEN_OFF )
             ; // default remains
         else if ( autoFlag != -1L )
-            tokenizer().error("PACKET", R.string.data_autocaps_bad_parameter );
+            tokenizer().error("PACKET", ParserMessage.DATA_AUTOCAPS_BAD_PARAMETER );
 
         packet.setAutoCaps( autoCaps );
 
@@ -1113,7 +1141,7 @@ public class MethodsForCommands
         else if ( autoFlag == Commands.TOKEN_AROUND )
             autoSpace = PacketTextSimple.AUTO_SPACE_BEFORE | PacketTextSimple.AUTO_SPACE_AFTER;
         else if ( autoFlag != -1L )
-            tokenizer().error("PACKET", R.string.data_autospace_bad_parameter );
+            tokenizer().error("PACKET", ParserMessage.DATA_AUTOSPACE_BAD_PARAMETER );
 
         autoFlag = (long)parameters.remove(Commands.TOKEN_ERASESPACE, -1L);
         if ( autoFlag == Commands.TOKEN_BEFORE )
@@ -1123,7 +1151,7 @@ public class MethodsForCommands
         else if ( autoFlag == Commands.TOKEN_AROUND )
             autoSpace |= PacketTextSimple.ERASE_SPACES_BEFORE | PacketTextSimple.ERASE_SPACES_AFTER;
         else if ( autoFlag != -1L )
-            tokenizer().error("PACKET", R.string.data_erasespaces_bad_parameter );
+            tokenizer().error("PACKET", ParserMessage.DATA_ERASESPACES_BAD_PARAMETER );
 
         packet.setAutoSpace( autoSpace );
 
@@ -1141,7 +1169,7 @@ public class MethodsForCommands
      * @param parameters Function packet parameters (DO)
      * @return Function packet or null
      */
-    public Packet packetFunction( ExtendedMap<Long, Object> parameters )
+    public Packet packetFunction( LongObjectMap<Object> parameters )
         {
         Object temp;
 
@@ -1155,7 +1183,7 @@ public class MethodsForCommands
                 return new PacketFunction(softBoardData, Commands.TOKEN_CURSOR);
             if ( (Long)temp == Commands.TOKEN_AUTOFUNC )
                 return new PacketFunction(softBoardData, Commands.TOKEN_AUTOFUNC);
-            tokenizer().error("TOGGLE", R.string.data_toggle_bad_parameter);
+            tokenizer().error("TOGGLE", ParserMessage.DATA_TOGGLE_BAD_PARAMETER);
             return null;
             }
         if ( parameters.remove(Commands.TOKEN_SELECTALL) != null )
@@ -1183,7 +1211,7 @@ public class MethodsForCommands
 
 
     // Because of program button, packetRun should finish evaluation
-    public PacketRun packetRun( ExtendedMap<Long, Object> parameters )
+    public PacketRun packetRun( LongObjectMap<Object> parameters )
         {
         String string;
         if ((string = (String) parameters.remove(Commands.TOKEN_RUN)) != null)
@@ -1198,7 +1226,7 @@ public class MethodsForCommands
      * Creates packetMove from parameters.
      * @return Move packet or null
      */
-    public PacketMove packetMove( ExtendedMap<Long, Object> parameters, PacketKey packetKey )
+    public PacketMove packetMove( LongObjectMap<Object> parameters, PacketKey packetKey )
         {
         PacketMove packet = null;
 
@@ -1251,7 +1279,7 @@ public class MethodsForCommands
         else if (temp == Commands.TOKEN_RECENT)
             ; // default remains
         else if (temp != -1L)
-            tokenizer().error("PACKET", R.string.data_cursor_bad_parameter);
+            tokenizer().error("PACKET", ParserMessage.DATA_CURSOR_BAD_PARAMETER);
 
         temp = (long) parameters.remove(Commands.TOKEN_SELECT, -1L);
         if (temp == Commands.TOKEN_ALWAYS)
@@ -1261,7 +1289,7 @@ public class MethodsForCommands
         else if (temp == Commands.TOKEN_IFSHIFT)
             ; // default remains
         else if (temp != -1L)
-            tokenizer().error("PACKET", R.string.data_select_bad_parameter);
+            tokenizer().error("PACKET", ParserMessage.DATA_SELECT_BAD_PARAMETER);
 
         // Complete packetKey will be NOT null
         // BUT if SEND is missing, it will generate it, and will consume remaining parameters
@@ -1280,7 +1308,7 @@ public class MethodsForCommands
 
 
     // Creates PacketChangeCase from complex parameter
-    public PacketChangeCase packetChangeCase(ExtendedMap<Long, Object> parameters )
+    public PacketChangeCase packetChangeCase(LongObjectMap<Object> parameters )
         {
         return new PacketChangeCase( softBoardData,
                 parameters.remove( Commands.TOKEN_LOWER ) != null,
@@ -1296,7 +1324,7 @@ public class MethodsForCommands
      * @param parameters for text or key or function packet
      * @return the created packet, or null if no TEXT or KEY or DO parameter is given
      */
-    public Packet packet( ExtendedMap<Long, Object> parameters )
+    public Packet packet( LongObjectMap<Object> parameters )
         {
         PacketKey packetKey = packetKey(parameters, NO_DEFAULT_KEY); // can be combined
 
@@ -1326,7 +1354,7 @@ public class MethodsForCommands
                 }
             else
                 {
-                tokenizer().error("COMBINE", R.string.data_packet_combine_missing );
+                tokenizer().error("COMBINE", ParserMessage.DATA_PACKET_COMBINE_MISSING );
                 }
             }
 
@@ -1341,7 +1369,7 @@ public class MethodsForCommands
      * @return the created packet, or null if both parameters and default key is missing
      * returned packet is always valid, if defaultKey is not NO_DEFAULT_KEY
      */
-    public Packet packet( ExtendedMap<Long, Object> parameters, int defaultKey )
+    public Packet packet( LongObjectMap<Object> parameters, int defaultKey )
         {
         Packet packet;
 
@@ -1361,7 +1389,7 @@ public class MethodsForCommands
      * @return the created packet, or null if both parameters and default text is missing
      * returned packet is always valid, if defaultText is not null
      */
-    public Packet packet( ExtendedMap<Long, Object> parameters, String defaultText )
+    public Packet packet( LongObjectMap<Object> parameters, String defaultText )
         {
         Packet packet;
 
@@ -1373,14 +1401,14 @@ public class MethodsForCommands
         return packet;
         }
 
-    public Packet firstPacket( ExtendedMap<Long, Object> parameters )
+    public Packet firstPacket( LongObjectMap<Object> parameters )
         {
         Packet packet = (Packet) parameters.remove(Commands.TOKEN_FIRST);
         return (packet != null) ? packet : packet(parameters);
         }
 
 
-    public TitleDescriptor addTitle( ExtendedMap<Long, Object> parameters )
+    public TitleDescriptor addTitle( LongObjectMap<Object> parameters )
         {
         // !! http://stackoverflow.com/questions/509076/how-do-i-address-unchecked-cast-warnings
         // Maybe better to avoid Unchecked cast warnings
@@ -1397,7 +1425,7 @@ public class MethodsForCommands
         Object temp = parameters.remove(Commands.TOKEN_TEXT);
         if ( temp != null )
             {
-            text = SoftBoardParser.stringFromText( temp );
+            text = CoatParser.stringFromText( temp );
             return new TitleDescriptor(text, xOffset, yOffset, size, bold, italics, color );
             }
 
@@ -1415,14 +1443,14 @@ public class MethodsForCommands
             else if ( show == Commands.TOKEN_AUTOFUNC )
                 type = SoftBoardShow.AUTO_FUNC;
             else if ( show != -1L )
-                tokenizer().error("SHOWTITLE", R.string.data_showtitle_bad_parameter);
+                tokenizer().error("SHOWTITLE", ParserMessage.DATA_SHOWTITLE_BAD_PARAMETER);
             }
 
         return new TitleDescriptor( type, xOffset, yOffset, size, bold, italics, color );
         }
 
 
-    public Button setSwitch( ExtendedMap<Long, Object> parameters )
+    public Button setSwitch( LongObjectMap<Object> parameters )
         {
         Scribe.debug(Debug.DATA, "Switch Button is defined");
         Long boardId = -1L; // 'BACK' is a special token: go back to previous board
@@ -1442,7 +1470,7 @@ public class MethodsForCommands
         // !! Check non-used SWITCH buttons !!
         }
 
-    public Button setMeta( ExtendedMap<Long, Object> parameters )
+    public Button setMeta( LongObjectMap<Object> parameters )
         {
         Scribe.debug(Debug.DATA, "Meta Button is defined");
 
@@ -1466,7 +1494,7 @@ public class MethodsForCommands
             }
         else
             {
-            tokenizer().error("META", R.string.data_meta_unknown_meta_state);
+            tokenizer().error("META", ParserMessage.DATA_META_UNKNOWN_META_STATE);
             return setEmpty( parameters );
             }
 
@@ -1492,14 +1520,14 @@ public class MethodsForCommands
      */
     public boolean abbrevKeySet = false;
 
-    public Button setAutoShortCut( ExtendedMap<Long, Object> parameters )
+    public Button setAutoShortCut( LongObjectMap<Object> parameters )
         {
         Scribe.debug(Debug.DATA, "AutoShortCut Button is defined");
 
         Long id = (Long) parameters.remove( Commands.TOKEN_ID );
         if ( id == null )
             {
-            tokenizer().error("AUTOSHORTCUT", R.string.data_shortcut_missing_id);
+            tokenizer().error("AUTOSHORTCUT", ParserMessage.DATA_SHORTCUT_MISSING_ID);
             return setEmpty( parameters );
             }
 
@@ -1507,14 +1535,14 @@ public class MethodsForCommands
         return completeMainTouchButton( new ButtonAutoShortCut( id ), parameters);
         }
 
-    public Button setFindShortCut( ExtendedMap<Long, Object> parameters )
+    public Button setFindShortCut( LongObjectMap<Object> parameters )
         {
         Scribe.debug(Debug.DATA, "FindShortCut Button is defined");
 
         Long id = (Long) parameters.remove( Commands.TOKEN_ID );
         if ( id == null )
             {
-            tokenizer().error("FINDSHORTCUT", R.string.data_shortcut_missing_id);
+            tokenizer().error("FINDSHORTCUT", ParserMessage.DATA_SHORTCUT_MISSING_ID);
             return setEmpty( parameters );
             }
 
@@ -1523,7 +1551,7 @@ public class MethodsForCommands
         }
 
 
-    public Button setProgram( ExtendedMap<Long, Object> parameters )
+    public Button setProgram( LongObjectMap<Object> parameters )
         {
         Scribe.debug(Debug.DATA, "Program Button is defined");
 
@@ -1532,7 +1560,7 @@ public class MethodsForCommands
                 parameters);
         }
 
-    public Button setMemory( ExtendedMap<Long, Object> parameters )
+    public Button setMemory( LongObjectMap<Object> parameters )
         {
         Scribe.debug(Debug.DATA, "Memory Button is defined");
 
@@ -1542,7 +1570,7 @@ public class MethodsForCommands
                 parameters);
         }
 
-    public Button setSpaceTravel( ExtendedMap<Long, Object> parameters )
+    public Button setSpaceTravel( LongObjectMap<Object> parameters )
         {
         Scribe.debug(Debug.DATA, "Space Travel Button is defined");
 
@@ -1553,7 +1581,7 @@ public class MethodsForCommands
                 parameters);
         }
 
-    public Button setEnter( ExtendedMap<Long, Object> parameters )
+    public Button setEnter( LongObjectMap<Object> parameters )
         {
         Scribe.debug(Debug.DATA, "Enter Button is defined");
 
@@ -1565,7 +1593,7 @@ public class MethodsForCommands
                 parameters);
         }
 
-    public Button setModify( ExtendedMap<Long, Object> parameters )
+    public Button setModify( LongObjectMap<Object> parameters )
         {
         Scribe.debug(Debug.DATA, "Modify Button is defined");
 
@@ -1578,7 +1606,7 @@ public class MethodsForCommands
         }
 
 
-    public Button setList(ExtendedMap<Long, Object> parameters)
+    public Button setList(LongObjectMap<Object> parameters)
         {
         Scribe.debug(Debug.DATA, "List Button is defined");
 
@@ -1610,7 +1638,7 @@ public class MethodsForCommands
         }
 
 
-    public Button setMulti(ExtendedMap<Long, Object> parameters)
+    public Button setMulti(LongObjectMap<Object> parameters)
         {
         Scribe.debug(Debug.DATA, "Multi Button is defined");
 
@@ -1631,7 +1659,7 @@ public class MethodsForCommands
         return completeMainTouchButton(buttonMulti, parameters);
         }
 
-    public Button setAlternate( ExtendedMap<Long, Object> parameters )
+    public Button setAlternate( LongObjectMap<Object> parameters )
         {
         Scribe.debug(Debug.DATA, "Alternate Button is defined");
 
@@ -1643,7 +1671,7 @@ public class MethodsForCommands
         return completeMainTouchButton(new ButtonAlternate(firstPacket, secondPacket), parameters);
         }
 
-    public Button setDouble( ExtendedMap<Long, Object> parameters )
+    public Button setDouble( LongObjectMap<Object> parameters )
         {
         Scribe.debug(Debug.DATA, "Double Button is defined");
 
@@ -1655,7 +1683,7 @@ public class MethodsForCommands
         return completeMainTouchButton(new ButtonDouble(firstPacket, secondPacket), parameters);
         }
 
-    public Button setSingle( ExtendedMap<Long, Object> parameters )
+    public Button setSingle( LongObjectMap<Object> parameters )
         {
         Scribe.debug(Debug.DATA, "Simple Button is defined");
 
@@ -1675,20 +1703,20 @@ public class MethodsForCommands
                 parameters);
         }
 
-    public Button setButton( ExtendedMap<Long, Object> parameters )
+    public Button setButton( LongObjectMap<Object> parameters )
         {
         // Do not consume, just check SECOND package!
         return parameters.containsKey(Commands.TOKEN_SECOND) ?
                 setDouble( parameters ) : setSingle( parameters );
         }
 
-    public Button setEmpty( ExtendedMap<Long, Object> parameters )
+    public Button setEmpty( LongObjectMap<Object> parameters )
         {
-        tokenizer().error("BUTTON", R.string.data_button_function_missing);
+        tokenizer().error("BUTTON", ParserMessage.DATA_BUTTON_FUNCTION_MISSING);
         return completeButton( new Button(), parameters);
         }
 
-    public Button completeMainTouchButton( ButtonMainTouch button, ExtendedMap<Long, Object> parameters )
+    public Button completeMainTouchButton( ButtonMainTouch button, LongObjectMap<Object> parameters )
         {
         if (parameters.remove(Commands.TOKEN_ONCIRCLE) != null)
             {
@@ -1702,7 +1730,7 @@ public class MethodsForCommands
         return completeButton( button, parameters);
         }
 
-    public Button completeButton( Button button, ExtendedMap<Long, Object> parameters )
+    public Button completeButton( Button button, LongObjectMap<Object> parameters )
         {
         button.setColor((int) parameters.remove(Commands.TOKEN_COLOR, DEFAULT_BUTTON_COLOR));
 
@@ -1725,14 +1753,14 @@ public class MethodsForCommands
             {
             // if no titles are added, then addTitle will add one based on default titleSlot
             // if no default exist (impossible situation!) then an empty parameter list is needed
-            ExtendedMap<Long, Object> defaultTitle;
+            LongObjectMap<Object> defaultTitle;
             if (defaults.containsKey(Commands.TOKEN_ADDTITLE))
                 {
                 defaultTitle = defaults.get(Commands.TOKEN_ADDTITLE).getCopy();
                 }
             else
                 {
-                defaultTitle = new ExtendedMap<Long, Object>(0);
+                defaultTitle = new LongObjectMap<Object>(0);
                 }
             titles.add( addTitle(defaultTitle) );
             }
@@ -1752,7 +1780,7 @@ public class MethodsForCommands
         }
 
 
-    public ButtonExtension extendButton( ExtendedMap<Long, Object> parameters )
+    public ButtonExtension extendButton( LongObjectMap<Object> parameters )
         {
         ButtonExtension buttonExtension = new ButtonExtension();
 
@@ -1815,14 +1843,14 @@ public class MethodsForCommands
         }
 
 
-    public void addModify( ExtendedMap<Long, Object> parameters )
+    public void addModify( LongObjectMap<Object> parameters )
         {
         Long id;
 
         id = (Long) parameters.remove( Commands.TOKEN_ID );
         if ( id == null )
             {
-            tokenizer().error("ADDMODIFY", R.string.data_modify_no_id );
+            tokenizer().error("ADDMODIFY", ParserMessage.DATA_MODIFY_NO_ID );
             return;
             }
 
@@ -1869,38 +1897,38 @@ public class MethodsForCommands
         if (counter > 1)
             {
             tokenizer().error( Tokenizer.regenerateKeyword( id ),
-                    R.string.data_modify_one_allowed );
+                    ParserMessage.DATA_MODIFY_ONE_ALLOWED );
             }
 
         // No roll could be added!
         if ( empty )
             {
             tokenizer().error( Tokenizer.regenerateKeyword( id ),
-                    R.string.data_modify_no_rolls );
+                    ParserMessage.DATA_MODIFY_NO_ROLLS );
             return;
             }
 
         if ( softBoardData.modify.get( id ) != null )
             {
             tokenizer().error( Tokenizer.regenerateKeyword( id ),
-                    R.string.data_modify_overwritten );
+                    ParserMessage.DATA_MODIFY_OVERWRITTEN );
             }
 
         softBoardData.modify.put( id, mod );
 
         tokenizer().note( Tokenizer.regenerateKeyword( id ),
-                R.string.data_modify_added );
+                ParserMessage.DATA_MODIFY_ADDED );
         }
 
 
-    public void addShortCut( ExtendedMap<Long, Object> parameters )
+    public void addShortCut( LongObjectMap<Object> parameters )
         {
         Long id;
 
         id = (Long) parameters.remove( Commands.TOKEN_ID );
         if ( id == null )
             {
-            tokenizer().error("ADDSHORTCUT", R.string.data_shortcut_no_id);
+            tokenizer().error("ADDSHORTCUT", ParserMessage.DATA_SHORTCUT_NO_ID);
             return;
             }
 
@@ -1919,7 +1947,7 @@ public class MethodsForCommands
                 ending = (String) iterator.next();
                 if (!iterator.hasNext())
                     {
-                    tokenizer().error(Tokenizer.regenerateKeyword(id), R.string.data_shortcut_bad_entry, ending);
+                    tokenizer().error(Tokenizer.regenerateKeyword(id), ParserMessage.DATA_SHORTCUT_BAD_ENTRY, ending);
                     break;
                     }
                 expanded = (String) iterator.next();
@@ -1932,7 +1960,7 @@ public class MethodsForCommands
         // Check emptiness!
         if ( empty )
             {
-            tokenizer().error(Tokenizer.regenerateKeyword( id ), R.string.data_shortcut_no_entries);
+            tokenizer().error(Tokenizer.regenerateKeyword( id ), ParserMessage.DATA_SHORTCUT_NO_ENTRIES);
             return;
             }
 
@@ -1942,7 +1970,7 @@ public class MethodsForCommands
         if ( softBoardData.codeTextProcessor.addShortCut( id, shortCut ) )
             {
             tokenizer().error( Tokenizer.regenerateKeyword( id ),
-                    R.string.data_shortcut_overwritten);
+                    ParserMessage.DATA_SHORTCUT_OVERWRITTEN);
             }
 
         if (parameters.remove( Commands.TOKEN_START ) != null)
@@ -1950,30 +1978,30 @@ public class MethodsForCommands
             if (softBoardData.codeTextProcessor.startShortCut( id ))
                 {
                 tokenizer().error(Tokenizer.regenerateKeyword(id),
-                        R.string.data_shortcut_more_starts);
+                        ParserMessage.DATA_SHORTCUT_MORE_STARTS);
                 }
             }
 
         tokenizer().note( Tokenizer.regenerateKeyword( id ),
-                R.string.data_shortcut_added);
+                ParserMessage.DATA_SHORTCUT_ADDED);
         }
 
 
-    public void addShortCutSet( ExtendedMap<Long, Object> parameters )
+    public void addShortCutSet( LongObjectMap<Object> parameters )
         {
         Long id;
 
         id = (Long) parameters.remove( Commands.TOKEN_ID );
         if ( id == null )
             {
-            tokenizer().error("ADDSHORTCUTSET", R.string.data_shortcut_no_id);
+            tokenizer().error("ADDSHORTCUTSET", ParserMessage.DATA_SHORTCUT_NO_ID);
             return;
             }
 
         List<Long> shortCutSet = (List<Long>) parameters.remove( Commands.TOKEN_SHORTCUTS);
         if ( shortCutSet == null || shortCutSet.isEmpty())
             {
-            tokenizer().error(Tokenizer.regenerateKeyword( id ), R.string.data_shortcut_no_entries);
+            tokenizer().error(Tokenizer.regenerateKeyword( id ), ParserMessage.DATA_SHORTCUT_NO_ENTRIES);
             return;
             }
 
@@ -1981,7 +2009,7 @@ public class MethodsForCommands
         if ( softBoardData.codeTextProcessor.addShortCut( id, shortCutSet ) )
             {
             tokenizer().error( Tokenizer.regenerateKeyword( id ),
-                    R.string.data_shortcut_overwritten);
+                    ParserMessage.DATA_SHORTCUT_OVERWRITTEN);
             }
 
         if (parameters.remove( Commands.TOKEN_START ) != null)
@@ -1989,23 +2017,23 @@ public class MethodsForCommands
             if (softBoardData.codeTextProcessor.startShortCut( id ))
                 {
                 tokenizer().error(Tokenizer.regenerateKeyword(id),
-                        R.string.data_shortcut_more_starts);
+                        ParserMessage.DATA_SHORTCUT_MORE_STARTS);
                 }
             }
 
         tokenizer().note( Tokenizer.regenerateKeyword( id ),
-                R.string.data_shortcut_added);
+                ParserMessage.DATA_SHORTCUT_ADDED);
         }
 
 
-    public void addVaria(ExtendedMap<Long, Object> parameters )
+    public void addVaria(LongObjectMap<Object> parameters )
         {
         Long id;
 
         id = (Long) parameters.remove( Commands.TOKEN_ID );
         if ( id == null )
             {
-            tokenizer().error("ADDVARIA", R.string.data_varia_no_id );
+            tokenizer().error("ADDVARIA", ParserMessage.DATA_VARIA_NO_ID );
             return; 
             }
 
@@ -2015,7 +2043,7 @@ public class MethodsForCommands
 
         if ( groups == null || groups.isEmpty() )
             {
-            tokenizer().error( Tokenizer.regenerateKeyword(id), R.string.data_varia_no_groups );
+            tokenizer().error( Tokenizer.regenerateKeyword(id), ParserMessage.DATA_VARIA_NO_GROUPS );
             return;
             }
 
@@ -2031,11 +2059,11 @@ public class MethodsForCommands
         if ( softBoardData.codeTextProcessor.addVaria( id, varia ) )
             {
             tokenizer().error( Tokenizer.regenerateKeyword( id ),
-                    R.string.data_varia_overwritten );
+                    ParserMessage.DATA_VARIA_OVERWRITTEN );
             }
 
         tokenizer().note( Tokenizer.regenerateKeyword( id ),
-                R.string.data_shortcut_added);
+                ParserMessage.DATA_SHORTCUT_ADDED);
         }
 
 
@@ -2047,12 +2075,12 @@ public class MethodsForCommands
          * @param parameters
          * @return defined varia group
          */
-    public VariaGroup addVariaGroup(ExtendedMap<Long, Object> parameters )
+    public VariaGroup addVariaGroup(LongObjectMap<Object> parameters )
         {
         String code = (String) parameters.remove( Commands.TOKEN_CODE );
         if ( code == null )
             {
-            tokenizer().error("VARIAGROUP", R.string.data_group_no_code );
+            tokenizer().error("VARIAGROUP", ParserMessage.DATA_GROUP_NO_CODE );
             return null;
             }
 
@@ -2089,7 +2117,7 @@ public class MethodsForCommands
                 if ( num > legendList.size() )
                     {
                     num = -1; // add to the end
-                    tokenizer().error( code , R.string.data_group_index_invalid, text );
+                    tokenizer().error( code , ParserMessage.DATA_GROUP_INDEX_INVALID, text );
                     }
                 if (num >= 0 || num < legendList.size() ) // replace at index
                     {
@@ -2104,7 +2132,7 @@ public class MethodsForCommands
 
         if ( legendList.isEmpty() )
             {
-            tokenizer().error( code , R.string.data_group_index_invalid );
+            tokenizer().error( code , ParserMessage.DATA_GROUP_INDEX_INVALID );
             return null;
             }
 
@@ -2119,12 +2147,12 @@ public class MethodsForCommands
      * @return bundle of NO, TEXT and TITLE. NO is -1, if missing
      * Null is returned, if TEXT is missing!
      */
-    public Bundle addVariaLegend(ExtendedMap<Long, Object> parameters )
+    public Bundle addVariaLegend(LongObjectMap<Object> parameters )
         {
         String text = (String) parameters.remove( Commands.TOKEN_TEXT );
         if ( text == null )
             {
-            tokenizer().error("VARIALEGEND", R.string.data_legend_no_text );
+            tokenizer().error("VARIALEGEND", ParserMessage.DATA_LEGEND_NO_TEXT );
             return null;
             }
 
@@ -2138,7 +2166,7 @@ public class MethodsForCommands
         }
 
 
-    public void setMonitor( ExtendedMap<Long, Object> parameters )
+    public void setMonitor( LongObjectMap<Object> parameters )
         {
         Long layoutId;
 
@@ -2149,7 +2177,7 @@ public class MethodsForCommands
         Layout layout = layouts.get( layoutId );
         if ( layout == null )
             {
-            tokenizer().error( "LAYOUT", R.string.data_no_layout,
+            tokenizer().error( "LAYOUT", ParserMessage.DATA_NO_LAYOUT,
                     Tokenizer.regenerateKeyword( (long)layoutId));
             return;
             }
@@ -0,0 +1,88 @@
+package org.lattilad.bestboard.parser;
+
+import android.content.Context;
+
+import org.lattilad.bestboard.debug.Debug;
+import org.lattilad.bestboard.scribe.Scribe;
+
+import java.util.Locale;
+
+/**
+ * Diagnostics of the program: message texts come from the string resources,
+ * messages are written into the secondary log.
+ * String resources have the same name as the keys (in lowercase).
+ */
+public class ScribeDiagnostics implements Diagnostics
+    {
+    /** Context needed to reach string resources. */
+    private Context context;
+
+    /**
+     * Resource ids of the keys (by ordinal), 0 if not looked up yet.
+     * getIdentifier() is slow, so each id is searched only once.
+     */
+    private static final int[] RESOURCE_IDS = new int[ ParserMessage.values().length ];
+
+    /**
+     * Diagnostics needs context only to reach string resources
+     * @param context context to get resources
+     * @throws NullPointerException if {@code context} is {@code null}.
+     */
+    public ScribeDiagnostics( Context context )
+        {
+        if ( context == null)
+            throw new NullPointerException("Context parameter is null!");
+        this.context = context;
+        }
+
+    /**
+     * Resource id of the message
+     * @param messageKey key of the message
+     * @return resource id, or 0 if resource is missing
+     */
+    public int getResourceId( ParserMessage messageKey )
+        {
+        synchronized ( RESOURCE_IDS )
+            {
+            int id = RESOURCE_IDS[ messageKey.ordinal() ];
+            if ( id == 0 )
+                {
+                id = context.getResources().getIdentifier(
+                        messageKey.name().toLowerCase( Locale.US ), "string", context.getPackageName() );
+                RESOURCE_IDS[ messageKey.ordinal() ] = id;
+                }
+            return id;
+            }
+        }
+
+    @Override
+    public String getMessageText( ParserMessage messageKey )
+        {
+        int id = getResourceId( messageKey );
+        return id != 0 ? context.getString( id ) : messageKey.name();
+        }
+
+    @Override
+    public void error( String message )
+        {
+        Scribe.error_secondary( message );
+        }
+
+    @Override
+    public void note( String message )
+        {
+        Scribe.note_secondary( message );
+        }
+
+    @Override
+    public void debug( String message )
+        {
+        Scribe.debug( Debug.PARSER, message );
+        }
+
+    @Override
+    public void programError( String message )
+        {
+        Scribe.error( message );
+        }
+    }
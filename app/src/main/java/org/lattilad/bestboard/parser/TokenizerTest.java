@@ -53,7 +53,7 @@ public class TokenizerTest extends Activity
 				text.setText("Tokens:\n");
 				try
 					{
-					Tokenizer tokenizer = new Tokenizer( TokenizerTest.this, reader );
+					Tokenizer tokenizer = new Tokenizer( new ScribeDiagnostics( TokenizerTest.this ), reader );
 					int type;
 					
 					while (true)
@@ -127,9 +127,54 @@ public class TokenizerTest extends Activity
 					Scribe.error_secondary("READ ERROR: " + e.toString());
 					}
 
+				// Block scanning should give back the same tokens as scanning by characters
+				String comparison = compareScanners( edit.getText().toString() );
+				text.setText( text.getText() + "\n" + comparison );
+				Scribe.note_secondary( comparison );
+
                 Scribe.setConfigSecondary( scribeConfig );
 				}
 			});
 		}
 
+
+	/**
+	 * Tokenizes the same text by block scanning and by character scanning (previous method),
+	 * and compares the two token streams.
+	 * @param source text to tokenize
+	 * @return result of the comparison
+	 */
+	private String compareScanners( String source )
+		{
+		try
+			{
+			Diagnostics diagnostics = new ScribeDiagnostics( this );
+			Tokenizer blockTokenizer = new Tokenizer( diagnostics, new StringReader( source ), null, true );
+			Tokenizer charTokenizer = new Tokenizer( diagnostics, new StringReader( source ), null, false );
+			int count = 0;
+			int type;
+
+			do	{
+				type = blockTokenizer.nextToken();
+				count++;
+
+				if ( type != charTokenizer.nextToken() ||
+						blockTokenizer.getLineNumber() != charTokenizer.getLineNumber() ||
+						blockTokenizer.getIntegerToken() != charTokenizer.getIntegerToken() ||
+						blockTokenizer.getIntegerDividerToken() != charTokenizer.getIntegerDividerToken() ||
+						!blockTokenizer.getStringToken().equals( charTokenizer.getStringToken() ) )
+					{
+					return "SCANNERS DIFFER at token " + count + " in line " + charTokenizer.getLineNumber() +
+							": [" + blockTokenizer.getStringToken() + "] / [" + charTokenizer.getStringToken() + "]";
+					}
+				} while ( type != Tokenizer.TYPE_EOF );
+
+			return "Block scanner gives identical tokens: " + count;
+			}
+		catch (IOException e)
+			{
+			return "READ ERROR: " + e.toString();
+			}
+		}
+
 	}
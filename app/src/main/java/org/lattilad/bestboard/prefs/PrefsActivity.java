@@ -3,7 +3,6 @@ package org.lattilad.bestboard.prefs;
 import android.app.Activity;
 import android.os.Bundle;
 
-import org.lattilad.bestboard.Ignition;
 import org.lattilad.bestboard.debug.Debug;
 import org.lattilad.bestboard.permission.RequestPermissionDialog;
 import org.lattilad.bestboard.scribe.Scribe;
@@ -103,8 +102,8 @@ public class PrefsActivity extends Activity // https://stackoverflow.com/a/31297
         if ( ready )
             {
             // Permissions are ready. We could start here
-            // This should be called at every starting point
-            Ignition.start(this);
+            // Ignition.start() was called by BestBoardApplication
+            Scribe.debug(Debug.PERMISSION, "Permissions are ready.");
             }
         else
             {
@@ -78,6 +78,9 @@ public class PrefsFragment extends PreferenceFragment
     /** Restores main softboarddata */
     public static final int PREFS_ACTION_TEST_RETURN = 9;
 
+    /** Measures rendering of the active layout in both rendering modes */
+    public static final int PREFS_ACTION_BENCHMARK_RENDERING = 10;
+
 
     /**
      ** INTEGER PREFERENCE KEYS
@@ -95,6 +98,9 @@ public class PrefsFragment extends PreferenceFragment
     /** Limit of the speed measurement */
     public static String DRAWING_SPEDOMETER_LIMIT_INT_KEY = "intspedolimit";
 
+    /** Memory of the layout pictures */
+    public static String DRAWING_PICTURE_CACHE_INT_KEY = "intpicturecache";
+
     /** Length of circular movements */
     public static String TOUCH_LONG_COUNT_INT_KEY = "intlongcount";
 
@@ -110,6 +116,9 @@ public class PrefsFragment extends PreferenceFragment
     /** Time of repeat */
     public static String TOUCH_REPEAT_TIME_INT_KEY = "intrepeattime";
 
+    /** Length of the stroke trail */
+    public static String CURSOR_STROKE_TRAIL_INT_KEY = "intstroketrail";
+
     /** Length of primary vibration */
     public static String CURSOR_VIBRATION_FIRST_INT_KEY = "intvibrationfirst";
 
@@ -174,6 +183,7 @@ public class PrefsFragment extends PreferenceFragment
             checkAndStoreLandscapeOffsetPref(context);
             checkAndStoreOuterRimPref(context);
             checkAndStoreSpedometerLimitPref(context);
+            checkAndStorePictureCachePref(context);
 
             checkAndStoreLongCountPref(context);
             checkAndStorePressCountPref(context);
@@ -181,6 +191,7 @@ public class PrefsFragment extends PreferenceFragment
             checkAndStoreStayTimePref(context);
             checkAndStoreRepeatTimePref(context);
 
+            checkAndStoreStrokeTrailPref(context);
             checkAndStoreVibrationFirstPref(context);
             checkAndStoreVibrationSecondPref(context);
             checkAndStoreVibrationRepeatPref(context);
@@ -260,6 +271,21 @@ public class PrefsFragment extends PreferenceFragment
                 R.integer.drawing_spedometer_limit_max );
         }
 
+    /**
+     * Checks and sets picture cache integer preference
+     * @param context context
+     * @return integer value of the preference
+     */
+    private static int checkAndStorePictureCachePref( Context context )
+        {
+        return _checkAndStoreIntPref( context,
+                R.string.drawing_picture_cache_key,
+                DRAWING_PICTURE_CACHE_INT_KEY,
+                R.string.drawing_picture_cache_default,
+                R.integer.drawing_picture_cache_min,
+                R.integer.drawing_picture_cache_max );
+        }
+
     /**
      * Checks and sets long count integer preference
      * @param context context
@@ -335,6 +361,21 @@ public class PrefsFragment extends PreferenceFragment
                 R.integer.touch_repeat_time_max );
         }
 
+    /**
+     * Checks and sets stroke trail integer preference
+     * @param context context
+     * @return integer value of the preference
+     */
+    private static int checkAndStoreStrokeTrailPref( Context context )
+        {
+        return _checkAndStoreIntPref( context,
+                R.string.cursor_stroke_trail_key,
+                CURSOR_STROKE_TRAIL_INT_KEY,
+                R.string.cursor_stroke_trail_default,
+                R.integer.cursor_stroke_trail_min,
+                R.integer.cursor_stroke_trail_max );
+        }
+
     /**
      * Checks and sets primary vibration integer preference
      * @param context context
@@ -490,6 +531,11 @@ public class PrefsFragment extends PreferenceFragment
                 R.integer.drawing_spedometer_limit_min,
                 R.integer.drawing_spedometer_limit_max );
 
+        _prepareDialogMessage( R.string.drawing_picture_cache_key,
+                R.string.drawing_picture_cache_dialog_message,
+                R.integer.drawing_picture_cache_min,
+                R.integer.drawing_picture_cache_max );
+
         _prepareDialogMessage( R.string.touch_long_count_key,
                 R.string.touch_long_count_dialog_message,
                 R.integer.touch_long_count_min,
@@ -515,6 +561,11 @@ public class PrefsFragment extends PreferenceFragment
                 R.integer.touch_repeat_time_min,
                 R.integer.touch_repeat_time_max );
 
+        _prepareDialogMessage( R.string.cursor_stroke_trail_key,
+                R.string.cursor_stroke_trail_dialog_message,
+                R.integer.cursor_stroke_trail_min,
+                R.integer.cursor_stroke_trail_max );
+
         _prepareDialogMessage( R.string.cursor_vibration_first_key,
                 R.string.cursor_vibration_first_dialog_message,
                 R.integer.cursor_vibration_first_min,
@@ -717,6 +768,38 @@ public class PrefsFragment extends PreferenceFragment
             if ( !allKeys )     performAction(PREFS_ACTION_REFRESH);
             }
 
+        // Drawing / Picture cache
+        if ( key.equals( getString( R.string.drawing_picture_cache_key )) || allKeys )
+            {
+            int pictureCache = checkAndStorePictureCachePref(getActivity());
+            // Cannot be null, if prefs.xml is valid
+            Preference preference = findPreference( getString( R.string.drawing_picture_cache_key ) );
+            preference.setSummary(getString(R.string.drawing_picture_cache_summary) + " " +
+                    Integer.toString(pictureCache));
+            Scribe.note( Debug.PREF, "PREFERENCES: Memory for layout pictures has changed!" + pictureCache);
+            if ( !allKeys )     performAction(PREFS_ACTION_REFRESH);
+            }
+
+        // Drawing / Render mode
+        if ( key.equals( getString( R.string.drawing_render_mode_key )) || allKeys )
+            {
+            // Cannot be null, if prefs.xml is valid
+            Preference preference = findPreference( getString( R.string.drawing_render_mode_key ) );
+            String value = sharedPrefs.getString(getString(R.string.drawing_render_mode_key),
+                    getString(R.string.drawing_render_mode_default));
+            if ( value.startsWith("A") )
+                preference.setSummary( getString(R.string.drawing_render_mode_automatic));
+            else if ( value.startsWith("B") )
+                preference.setSummary(getString(R.string.drawing_render_mode_bitmap));
+            else if ( value.startsWith("L") )
+                preference.setSummary(getString(R.string.drawing_render_mode_display_list));
+            else
+                preference.setSummary(getString(R.string.drawing_render_mode_summary));
+
+            Scribe.note( Debug.PREF, "PREFERENCES: Render mode has changed!" + value);
+            if ( !allKeys )     performAction(PREFS_ACTION_REDRAW);
+            }
+
         // Drawing / Monitor row
         if ( key.equals( getString( R.string.drawing_monitor_row_key )) || allKeys )
             {
@@ -815,6 +898,18 @@ public class PrefsFragment extends PreferenceFragment
             if ( !allKeys )     performAction(PREFS_ACTION_REFRESH);
             }
 
+        // Cursor / Stroke trail
+        if ( key.equals( getString( R.string.cursor_stroke_trail_key )) || allKeys )
+            {
+            int strokeTrail = checkAndStoreStrokeTrailPref(getActivity());
+            // Cannot be null, if prefs.xml is valid
+            Preference preference = findPreference( getString( R.string.cursor_stroke_trail_key ) );
+            preference.setSummary(getString(R.string.cursor_stroke_trail_summary) + " " +
+                    Integer.toString(strokeTrail));
+            Scribe.note( Debug.PREF, "PREFERENCES: Length of stroke trail has changed!" + strokeTrail);
+            if ( !allKeys )     performAction(PREFS_ACTION_REFRESH);
+            }
+
         // Cursor / Vibration allow
         if ( key.equals( getString( R.string.cursor_vibration_allow_key )) || allKeys )
             {
@@ -923,6 +1018,19 @@ public class PrefsFragment extends PreferenceFragment
             if ( !allKeys )     performAction( PREFS_ACTION_REFRESH );
             }
 
+        // Editing / Commit queue - initInput reads it, no refresh is needed
+        if ( key.equals( getString( R.string.editing_commit_queue_key )) || allKeys )
+            {
+            // Cannot be null, if prefs.xml is valid
+            Preference preference = findPreference( getString( R.string.editing_commit_queue_key ) );
+            boolean value = sharedPrefs.getBoolean(getString(R.string.editing_commit_queue_key),
+                    getResources().getBoolean(R.bool.editing_commit_queue_default));
+            preference.setSummary( getString( value ?
+                    R.string.editing_commit_queue_on : R.string.editing_commit_queue_off ));
+
+            Scribe.note( Debug.PREF, "PREFERENCES: Commit queue is set to: " + value );
+            }
+
         // Debug
         if ( key.equals( getString( R.string.debug_key )) || allKeys )
             {
@@ -1155,6 +1263,10 @@ public class PrefsFragment extends PreferenceFragment
                 Scribe.note( Debug.PREF,  "PREFERENCE: server is notified to return from test mode." );
                 break;
 
+            case PREFS_ACTION_BENCHMARK_RENDERING:
+                Scribe.note( Debug.PREF,  "PREFERENCE: server is notified to benchmark rendering modes." );
+                break;
+
             default:
                 Scribe.error( "PREFERENCE: preference action type is invalid!");
             }
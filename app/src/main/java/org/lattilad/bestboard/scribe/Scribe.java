@@ -1604,9 +1604,26 @@ public class Scribe
      */
     public static String locus( int level )
         {
+        // stack trace is collected only if note will appear
+        if ( !isDebugLogged( level ) )
+            return OFF;
+
         return addText( Type.LOCUS, level, "@ " + spaceStamp() );
         }
 
+    /**
+     * Checks whether a {@code DEBUG} note of this level would appear.
+     * Hot paths can skip building their debug texts, if it returns false.
+     * Primary config is used for EVEN, secondary for ODD levels
+     * @param level message level
+     * @return true if debug-log is enabled for this level
+     */
+    public static boolean isDebugLogged( int level )
+        {
+        int conf = level % 2;
+        return isEnabled(conf) && isDebugEnabled(conf) && isLevelEnabled(level);
+        }
+
     // Public methods without limit check
 
     /**
@@ -6,31 +6,18 @@ import org.lattilad.bestboard.debug.Debug;
 import org.lattilad.bestboard.scribe.Scribe;
 import org.lattilad.bestboard.utils.SimpleReader;
 
-import java.util.ArrayList;
-import java.util.List;
-
 /**
  * Class to store text before cursor.
+ * <p>
+ * Text is stored in a circular char buffer of LENGTH_LIMIT size:
+ * the end of the buffer is the position of the cursor, and new strings are
+ * copied after it. If buffer is full, then the oldest characters are overwritten.
+ * Sending text, deleting text and reading backwards need no allocation,
+ * and cost does not depend on the length of the stored text.
  */
 public class TextBeforeCursor implements SimpleReader
     {
-    /**
-     * PartialString stores a String, but its length can be decreased.
-     * (Chars could be deleted from the end of the string)
-     */
-    private class PartialString
-        {
-        int length;
-        String string;
-
-        PartialString( String string )
-            {
-            this.string = string;
-            this.length = string.length();
-            }
-        }
-
-    /** Last element is cleared above this limit */
+    /** Maximal length of the stored text, oldest characters are cleared above this limit */
     public final static int LENGTH_LIMIT = 2048;
 
     /** Connection to synchronize text directly from editor */
@@ -39,20 +26,20 @@ public class TextBeforeCursor implements SimpleReader
     private InputConnection inputConnection = null;
 
 
-    /** ArrayList stores parts of the text before the cursor */
-    private List<PartialString> text = new ArrayList<>();
+    /** Circular buffer stores the text before the cursor */
+    private char[] text = new char[ LENGTH_LIMIT ];
 
-    /** Summarised length of stored text before the cursor (sum of text.length-s */
+    /** Position after the last character (position of the cursor) in the buffer */
+    private int textEnd = 0;
+
+    /** Length of stored text before the cursor (cannot be more than LENGTH_LIMIT) */
     private int textLength = 0;
 
     /** Ready if stored text is synchronized (even if shorter then LENGTH_LIMIT) */
     private boolean textReady = false;
 
-    /** Item counter for PreTextReader */
-    private int textItemCounter = 0;
-
-    /** Character counter for PreTextReader */
-    private int textCharCounter = -1;
+    /** Characters already read by read(), counted backwards from the cursor */
+    private int textCounter = 0;
 
 
     /**
@@ -72,18 +59,31 @@ public class TextBeforeCursor implements SimpleReader
         Scribe.debug( Debug.TEXT,
                 "TEXT: String to add: " + string );
 
-        text.add( new PartialString( string ) );
-        textLength += string.length();
+        append( string );
+
+        if ( Scribe.isDebugLogged( Debug.TEXT ) )
+            Scribe.debug( Debug.TEXT, "TEXT: Stored text after string added: " + toString() );
+        }
+
+
+    /**
+     * Copies string after the end of the stored text.
+     * If string is longer than the buffer, then only its end is stored.
+     */
+    private void append( CharSequence string )
+        {
+        int end = string.length();
+        int start = Math.max( 0, end - LENGTH_LIMIT );
 
-        // while length without the last element is bigger than limit,
-        // then last element could be deleted
-        while ( textLength - text.get( 0 ).length > LENGTH_LIMIT )
+        for ( int n = start; n < end; n++ )
             {
-            textLength -= text.get( 0 ).length;
-            text.remove( 0 );
+            text[textEnd] = string.charAt( n );
+            textEnd++;
+            if ( textEnd == LENGTH_LIMIT )
+                textEnd = 0;
             }
 
-        Scribe.debug( Debug.TEXT, "TEXT: Stored text after string added: " + toString() );
+        textLength = Math.min( LENGTH_LIMIT, textLength + end - start );
         }
 
 
@@ -100,25 +100,16 @@ public class TextBeforeCursor implements SimpleReader
         if ( textLength >= LENGTH_LIMIT && textLength - length < LENGTH_LIMIT )
             textReady = false;
 
-        int counter = text.size();
+        if ( length > textLength )
+            length = textLength;
 
-        while (counter > 0) // actually this cannot be false
-            {
-            counter--;
+        textLength -= length;
+        textEnd -= length;
+        if ( textEnd < 0 )
+            textEnd += LENGTH_LIMIT;
 
-            if ( text.get(counter).length > length)
-                {
-                text.get(counter).length -= length;
-                textLength -= length;
-                break;
-                }
-
-            length -= text.get(counter).length;
-            textLength -= text.get(counter).length;
-            text.remove( counter );
-            }
-
-        Scribe.debug( Debug.TEXT, "TEXT: Stored text after delete: " + toString() );
+        if ( Scribe.isDebugLogged( Debug.TEXT ) )
+            Scribe.debug( Debug.TEXT, "TEXT: Stored text after delete: " + toString() );
         }
 
 
@@ -146,7 +137,7 @@ public class TextBeforeCursor implements SimpleReader
         if ( !connection.isStoreTextEnabled() )
             {
             // same as invalidate
-            text.clear();
+            textEnd = 0;
             textLength = 0;
             textReady = false;
             }
@@ -164,7 +155,7 @@ public class TextBeforeCursor implements SimpleReader
         if ( connection.isStoreTextEnabled() )
             {
             // stored text should be deleted
-            text.clear();
+            textEnd = 0;
             textLength = 0;
             textReady = false;
             }
@@ -176,28 +167,24 @@ public class TextBeforeCursor implements SimpleReader
 
     /**
      * Synchronize text before the cursor.
-     * text structure changes:
-     * there will be only one string with LENGTH_LIMIT length.
-     * (Only text right before the cursor could be read.)
+     * Stored text is replaced by the text (max. LENGTH_LIMIT chars) read right before the cursor.
      * Its length will be shorter, if there are not enough characters.
+     * Reader position (counted from the cursor) remains valid.
      */
     private void synchronize()
         {
-        text.clear();
+        textEnd = 0;
+        textLength = 0;
 
         CharSequence temp = connection.getTextBeforeCursor( inputConnection, LENGTH_LIMIT );
-        if ( temp == null )
+        if ( temp != null )
             {
-            textLength = 0;
-            }
-        else
-            {
-            textLength = temp.length();
-            text.add( new PartialString( temp.toString() ) );
+            append( temp );
             }
         textReady = true;
 
-        Scribe.debug( Debug.TEXT, "TEXT: Stored text before cursor synchronized: " + toString());
+        if ( Scribe.isDebugLogged( Debug.TEXT ) )
+            Scribe.debug( Debug.TEXT, "TEXT: Stored text before cursor synchronized: " + toString());
         }
 
 
@@ -213,8 +200,7 @@ public class TextBeforeCursor implements SimpleReader
     public void rewind()
         {
         // Counter is set AFTER the last character
-        textItemCounter = text.size();
-        textCharCounter = -1;
+        textCounter = 0;
         }
 
 
@@ -227,53 +213,27 @@ public class TextBeforeCursor implements SimpleReader
      */
     public int read()
         {
-        // First step: decrease counter to the previous character
-        while (true) // !! --textCharCounter >= 0
+        if ( textCounter >= textLength )
             {
-            textCharCounter--;
-            if ( textCharCounter >= 0 )
-                {
-                // Counter is on a valid character
-                break;
-                }
-
-            textItemCounter--;
-            if ( textItemCounter >= 0 )
+            // no more stored characters could be found...
+            if ( textLength < LENGTH_LIMIT && !textReady )
                 {
-                textCharCounter = text.get( textItemCounter ).length;
+                // ...synchronization is needed for more characters
+                // textCounter remains valid, because it is counted from the cursor
+                synchronize();
                 }
-            // no more stored partial strings could be found...
-            else
+            if ( textCounter >= textLength )
                 {
-                if ( textLength < LENGTH_LIMIT && !textReady )
-                    {
-                    // ...synchronization is needed for more characters
-
-                    // Now the structure of text will change.
-                    // textLength is equal with the already checked length,
-                    // and this will be the character we are looking for.
-
-                    int checkedLength = textLength; // This char is needed from backwards!
-
-                    synchronize();
-
-                    // Because of the structural change there is one (or zero) items,
-                    // Character counter is set after the needed character in this string.
-                    // Counter decrease will happen in the next cycle.
-                    // Synchronized string could be shorter than needed,
-                    // but it will be checked, and -1 returned during the next cycle
-                    textItemCounter = 0;
-                    textCharCounter = textLength - checkedLength;
-                    }
-                else
-                    {
-                    // ...but whole text was read, or LENGTH_LIMIT was exceeded
-                    return -1;
-                    }
+                // ...but whole text was read, or LENGTH_LIMIT was exceeded
+                return -1;
                 }
             }
 
-        return text.get( textItemCounter ).string.charAt( textCharCounter );
+        textCounter++;
+        int position = textEnd - textCounter;
+        if ( position < 0 )
+            position += LENGTH_LIMIT;
+        return text[position];
         }
 
     /**
@@ -303,13 +263,19 @@ public class TextBeforeCursor implements SimpleReader
     @Override
     public String toString()
         {
-        StringBuilder builder = new StringBuilder();
+        StringBuilder builder = new StringBuilder( textLength + 12 );
         builder.append( '|' );
-        for ( PartialString partialString : text )
+        int start = textEnd - textLength;
+        if ( start < 0 )
             {
-            builder.append( partialString.string.substring( 0, partialString.length ) );
-            builder.append( '|' );
+            builder.append( text, start + LENGTH_LIMIT, -start );
+            builder.append( text, 0, textEnd );
             }
+        else
+            {
+            builder.append( text, start, textLength );
+            }
+        builder.append( '|' );
         builder.append( " (" ).append( textLength ).append( ") " );
 
         return builder.toString();
@@ -2,17 +2,21 @@ package org.lattilad.bestboard.states;
 
 import android.content.res.Configuration;
 import android.content.res.Resources;
+import android.os.Looper;
+import android.os.MessageQueue;
 
 import org.lattilad.bestboard.Layout;
+import org.lattilad.bestboard.LayoutPictureCache;
 import org.lattilad.bestboard.SoftBoardListener;
+import org.lattilad.bestboard.buttons.Button;
+import org.lattilad.bestboard.buttons.ButtonSwitch;
 import org.lattilad.bestboard.debug.Debug;
 import org.lattilad.bestboard.parser.Tokenizer;
 import org.lattilad.bestboard.scribe.Scribe;
+import org.lattilad.bestboard.utils.LongObjectMap;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.Iterator;
-import java.util.Map;
 
 /**
  * Boards consist of two layouts (however the two can be tha same):
@@ -60,6 +64,15 @@ public class BoardTable
         private Layout[] layout = new Layout[2];
         private boolean locked = false;
 
+        /**
+         * Boards reachable by the SWITCH buttons of this board (-1L is BACK)
+         * It is collected at first use (after parsing)
+         */
+        private long[] links = null;
+
+        /** Observed switches from this board to the linked boards (same index as links) */
+        private int[] switchCounts;
+
         BoardEntry(Layout portrait, Layout landscape, boolean locked)
             {
             this.layout[ORIENTATION_PORTRAIT] = portrait;
@@ -76,12 +89,53 @@ public class BoardTable
             {
             return layout[orientation];
             }
+
+        /**
+         * Boards reachable from the buttons of both layouts (links are collected at first call)
+         */
+        long[] getLinks()
+            {
+            if ( links == null )
+                {
+                LongObjectMap<Object> targets = new LongObjectMap<>();
+                for ( Layout orientedLayout : layout )
+                    {
+                    // buttons of the other orientation are not materialized yet
+                    for ( int touchCode = 0; touchCode < orientedLayout.buttons.length; touchCode++ )
+                        {
+                        Button button = orientedLayout.peekButton( touchCode );
+                        if ( button instanceof ButtonSwitch )
+                            targets.put( ((ButtonSwitch) button).getLayoutId(), null );
+                        }
+                    }
+                links = targets.keys();
+                switchCounts = new int[links.length];
+                }
+            return links;
+            }
+
+        /**
+         * Switch from this board to an other board is counted
+         * @param id id of the new board (-1L is BACK)
+         */
+        void countSwitch( long id )
+            {
+            long[] boardLinks = getLinks();
+            for ( int n = 0; n < boardLinks.length; n++ )
+                {
+                if ( boardLinks[n] == id )
+                    {
+                    switchCounts[n]++;
+                    return;
+                    }
+                }
+            }
         }
 
     /**
      * All boards are listed here as board-id/board-entry pairs
      */
-    private Map<Long, BoardEntry> boards = new HashMap<>();
+    private LongObjectMap<BoardEntry> boards = new LongObjectMap<>();
 
     /**
      * Use the same not/wide layout
@@ -366,6 +420,140 @@ public class BoardTable
         }
 
 
+    /******** PICTURES OF THE LAYOUTS ********/
+
+    /**
+     * Memory is low: pictures are released for all layouts, except the displayed one
+     * (Pictures are stored by LayoutPictureCache till they fit in its budget.)
+     */
+    public void releasePictures()
+        {
+        LayoutPictureCache.releaseAll( activeBoard != null ? getActiveLayout() : null );
+        }
+
+
+    /******** PRE-RENDERING OF THE REACHABLE BOARDS ********/
+
+    /**
+     * Layouts of the boards reachable from the active board, in order of priority.
+     * Their pictures are rendered before they are selected.
+     */
+    private ArrayList<Layout> preRenderQueue = new ArrayList<>();
+
+    /**
+     * Pictures are rendered on the main thread (drawing uses the static paints of the buttons),
+     * but only when the main thread is idle, one layout at a time.
+     * Null, if it is not registered.
+     */
+    private MessageQueue.IdleHandler preRenderer = null;
+
+    /**
+     * Layouts reachable from the active board are collected in order of the observed switches.
+     * BACK key reaches the previous board of the stack.
+     * Called after each board change (and by SoftBoardProcessor, when the view is created)
+     */
+    public void schedulePreRendering()
+        {
+        preRenderQueue.clear();
+        if ( activeBoard == null )
+            return;
+
+        long[] links = activeBoard.getLinks();
+        boolean[] queued = new boolean[links.length];
+
+        for ( int round = 0; round < links.length; round++ )
+            {
+            // most frequently used link first
+            int next = -1;
+            for ( int n = 0; n < links.length; n++ )
+                {
+                if ( !queued[n] && ( next < 0 || activeBoard.switchCounts[n] > activeBoard.switchCounts[next] ) )
+                    next = n;
+                }
+            queued[next] = true;
+
+            BoardEntry boardEntry;
+            if ( links[next] == -1L )
+                boardEntry = boardStackEntries.isEmpty() ? null :
+                        boardStackEntries.get( boardStackEntries.size() - 1 ).boardEntry;
+            else
+                boardEntry = boards.get( links[next] );
+
+            if ( boardEntry != null && boardEntry != activeBoard )
+                {
+                Layout layout = boardEntry.getLayout( orientation );
+                if ( !layout.hasPicture() && !preRenderQueue.contains( layout ) )
+                    preRenderQueue.add( layout );
+                }
+            }
+
+        if ( !preRenderQueue.isEmpty() && preRenderer == null )
+            {
+            preRenderer = new MessageQueue.IdleHandler()
+                {
+                @Override
+                public boolean queueIdle()
+                    {
+                    if ( preRenderNext() )
+                        return true;
+                    preRenderer = null;
+                    return false;
+                    }
+                };
+            Looper.myQueue().addIdleHandler( preRenderer );
+            }
+        }
+
+    /**
+     * Pre-rendering is stopped (eg. new coat file was loaded)
+     */
+    public void cancelPreRendering()
+        {
+        preRenderQueue.clear();
+        if ( preRenderer != null )
+            {
+            Looper.myQueue().removeIdleHandler( preRenderer );
+            preRenderer = null;
+            }
+        }
+
+    /**
+     * Renders the picture of the next layout in the queue.
+     * Layout gets the screen data of the active layout. Nothing is rendered,
+     * if picture does not fit in the budget of LayoutPictureCache.
+     * @return true if idle handler is needed further
+     */
+    private boolean preRenderNext()
+        {
+        Layout activeLayout = getActiveLayout();
+
+        // active layout is not measured yet (or measured in the other orientation) - wait
+        if ( activeLayout.screenWidthInPixels < 0 ||
+                (activeLayout.screenWidthInPixels > activeLayout.screenHeightInPixels) !=
+                        (orientation == ORIENTATION_LANDSCAPE) )
+            return !preRenderQueue.isEmpty();
+
+        while ( !preRenderQueue.isEmpty() )
+            {
+            Layout layout = preRenderQueue.remove( 0 );
+            if ( layout.hasPicture() )
+                continue;
+
+            layout.calculateScreenData( activeLayout.screenWidthInPixels, activeLayout.screenHeightInPixels );
+            if ( !LayoutPictureCache.hasRoomFor( layout.estimatePictureBytes() ) )
+                {
+                Scribe.debug( Debug.BOARDTABLE, "No memory to pre-render " + layout.toString() );
+                preRenderQueue.clear();
+                return false;
+                }
+
+            layout.preRenderPicture();
+            return !preRenderQueue.isEmpty();
+            }
+        return false;
+        }
+
+
     /**
      * Check whether this id signs the currently active board.
      * @param id to check
@@ -402,13 +590,17 @@ public class BoardTable
 
     private void selectPreviousBoard()
         {
+        BoardEntry previousBoard = activeBoard;
         if ( popBoard(state == LOCKED) )
             {
             Scribe.debug( Debug.BOARDTABLE, "Returning to board: " +
                     Tokenizer.regenerateKeyword( activeBoardId ));
 
+            previousBoard.countSwitch( -1L );
+
             debugBoardStack();
             softBoardListener.getLayoutView().setLayout(getActiveLayout());
+            schedulePreRendering();
             }
         else
             {
@@ -455,6 +647,7 @@ public class BoardTable
             Scribe.debug(Debug.BOARDTABLE, "New board was selected: " +
                     Tokenizer.regenerateKeyword(id));
 
+            activeBoard.countSwitch( id );
             pushBoard();
 
             activeBoardId = id;
@@ -469,6 +662,7 @@ public class BoardTable
             debugBoardStack();
             // requestLayout is called by setLayout
             softBoardListener.getLayoutView().setLayout( boardEntry.getLayout(orientation));
+            schedulePreRendering();
             }
         // NEW layout is missing - nothing happens
         else
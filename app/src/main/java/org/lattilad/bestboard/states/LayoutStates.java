@@ -3,13 +3,13 @@ package org.lattilad.bestboard.states;
 import android.os.SystemClock;
 import android.view.KeyEvent;
 
-import org.lattilad.bestboard.R;
 import org.lattilad.bestboard.SoftBoardListener;
 import org.lattilad.bestboard.debug.Debug;
 import org.lattilad.bestboard.parser.Commands;
+import org.lattilad.bestboard.parser.ParserMessage;
 import org.lattilad.bestboard.parser.Tokenizer;
 import org.lattilad.bestboard.scribe.Scribe;
-import org.lattilad.bestboard.utils.ExtendedMap;
+import org.lattilad.bestboard.utils.LongObjectMap;
 
 import java.util.Arrays;
 import java.util.List;
@@ -256,7 +256,7 @@ public class LayoutStates
      * @param parameters PacketKey tokens
      * @return binaryHardState
      */
-    public static int generateBinaryHardState( Tokenizer tokenizer, ExtendedMap<Long, Object> parameters )
+    public static int generateBinaryHardState( Tokenizer tokenizer, LongObjectMap<Object> parameters )
         {
         // AACCSS
         int binaryAltState = HardState.FORCE_IGNORED;
@@ -276,7 +276,7 @@ public class LayoutStates
                 else if ( (long)keyword == Commands.TOKEN_ALT )
                     binaryAltState = HardState.FORCE_ON;
                 else
-                    tokenizer.error("TURNON", R.string.data_meta_bad_parameter );
+                    tokenizer.error("TURNON", ParserMessage.DATA_META_BAD_PARAMETER );
                 }
             }
 
@@ -292,7 +292,7 @@ public class LayoutStates
                 else if ( (long)keyword == Commands.TOKEN_ALT )
                     binaryAltState = HardState.FORCE_OFF;
                 else
-                    tokenizer.error("TURNOFF", R.string.data_meta_bad_parameter );
+                    tokenizer.error("TURNOFF", ParserMessage.DATA_META_BAD_PARAMETER );
                 }
             }
 
@@ -22,7 +22,6 @@ import android.widget.ProgressBar;
 import android.widget.RelativeLayout;
 import android.widget.Toast;
 
-import org.lattilad.bestboard.Ignition;
 import org.lattilad.bestboard.R;
 import org.lattilad.bestboard.debug.Debug;
 import org.lattilad.bestboard.scribe.Scribe;
@@ -249,8 +248,7 @@ public class WebViewActivity extends Activity
         {
         Scribe.locus(Debug.WEBVIEW);
 
-        // Ignition is needed at every entry points - ?? Egy köztes activity maybe ??
-        Ignition.start( this );
+        // Ignition.start() was called by BestBoardApplication
 
         super.onCreate(savedInstanceState);
         initContentView();
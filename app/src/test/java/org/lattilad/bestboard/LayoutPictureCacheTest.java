@@ -0,0 +1,168 @@
+package org.lattilad.bestboard;
+
+import android.graphics.Bitmap;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.lattilad.bestboard.scribe.Scribe;
+import org.mockito.Mockito;
+
+import static org.junit.Assert.*;
+
+/**
+ * LRU eviction of LayoutPictureCache, with fake picture holders (no bitmaps are needed).
+ * Pooled bitmaps are mocked, only their size is used.
+ */
+public class LayoutPictureCacheTest
+    {
+    private static final int KB = 1024;
+
+    /** Picture holder with a fixed size, pictures can be released only once */
+    private static class FakeHolder implements LayoutPictureCache.PictureHolder
+        {
+        int bytes;
+        boolean released = false;
+
+        FakeHolder( int bytes )
+            {
+            this.bytes = bytes;
+            }
+
+        @Override
+        public int getPictureBytes()
+            {
+            return released ? 0 : bytes;
+            }
+
+        @Override
+        public void releasePictures()
+            {
+            assertFalse( "Pictures are released twice", released );
+            released = true;
+            LayoutPictureCache.removed( this );
+            }
+        }
+
+    /** Mutable bitmap of the given size */
+    private static Bitmap mockBitmap( int bytes )
+        {
+        Bitmap bitmap = Mockito.mock( Bitmap.class );
+        Mockito.when( bitmap.getRowBytes() ).thenReturn( KB );
+        Mockito.when( bitmap.getHeight() ).thenReturn( bytes / KB );
+        Mockito.when( bitmap.isMutable() ).thenReturn( true );
+        return bitmap;
+        }
+
+    @Before
+    public void setUp()
+        {
+        // Scribe would need android log
+        Scribe.disable();
+        LayoutPictureCache.clear();
+        LayoutPictureCache.setBudget( 1 );
+        }
+
+    @Test
+    public void overBudget_releasesLeastRecentlyUsed()
+        {
+        FakeHolder first = new FakeHolder( 400 * KB );
+        FakeHolder second = new FakeHolder( 400 * KB );
+        FakeHolder third = new FakeHolder( 400 * KB );
+
+        LayoutPictureCache.added( first );
+        LayoutPictureCache.added( second );
+        assertEquals( 2, LayoutPictureCache.getLayoutCount() );
+
+        // budget (1 MB) is exceeded first time here
+        LayoutPictureCache.added( third );
+
+        assertTrue( first.released );
+        assertFalse( second.released );
+        assertFalse( third.released );
+        assertEquals( 2, LayoutPictureCache.getLayoutCount() );
+        }
+
+    @Test
+    public void overBudget_followsAccessOrder()
+        {
+        FakeHolder first = new FakeHolder( 300 * KB );
+        FakeHolder second = new FakeHolder( 300 * KB );
+        FakeHolder third = new FakeHolder( 300 * KB );
+        FakeHolder fourth = new FakeHolder( 300 * KB );
+
+        LayoutPictureCache.added( first );
+        LayoutPictureCache.added( second );
+        LayoutPictureCache.added( third );
+
+        // first becomes the most recently used
+        LayoutPictureCache.hit( first );
+        LayoutPictureCache.added( fourth );
+
+        assertFalse( first.released );
+        assertTrue( second.released );
+        assertFalse( third.released );
+        assertFalse( fourth.released );
+        }
+
+    @Test
+    public void overBudget_keepsLayoutInUse()
+        {
+        FakeHolder small = new FakeHolder( 200 * KB );
+        FakeHolder huge = new FakeHolder( 2000 * KB );
+
+        LayoutPictureCache.added( small );
+        LayoutPictureCache.added( huge );
+
+        assertTrue( small.released );
+        assertFalse( huge.released );
+        assertEquals( 1, LayoutPictureCache.getLayoutCount() );
+        }
+
+    @Test
+    public void smallerBudget_releasesEverythingAboveIt()
+        {
+        FakeHolder first = new FakeHolder( 600 * KB );
+        FakeHolder second = new FakeHolder( 600 * KB );
+
+        LayoutPictureCache.setBudget( 2 );
+        LayoutPictureCache.added( first );
+        LayoutPictureCache.added( second );
+        assertFalse( first.released );
+
+        LayoutPictureCache.setBudget( 1 );
+        assertTrue( first.released );
+        assertFalse( second.released );
+        }
+
+    @Test
+    public void pooledBitmaps_countInBudget()
+        {
+        FakeHolder holder = new FakeHolder( 600 * KB );
+        LayoutPictureCache.added( holder );
+        assertTrue( LayoutPictureCache.hasRoomFor( 300 * KB ) );
+
+        LayoutPictureCache.recycleBitmap( mockBitmap( 300 * KB ) );
+        assertFalse( LayoutPictureCache.hasRoomFor( 300 * KB ) );
+        assertTrue( LayoutPictureCache.hasRoomFor( 100 * KB ) );
+        }
+
+    @Test
+    public void overBudget_dropsPoolBeforePictures()
+        {
+        FakeHolder first = new FakeHolder( 500 * KB );
+        FakeHolder second = new FakeHolder( 300 * KB );
+
+        LayoutPictureCache.added( first );
+        LayoutPictureCache.recycleBitmap( mockBitmap( 200 * KB ) );
+        LayoutPictureCache.recycleBitmap( mockBitmap( 200 * KB ) );
+
+        // pictures fit in the budget, if one pooled bitmap is dropped
+        LayoutPictureCache.added( second );
+
+        assertFalse( first.released );
+        assertFalse( second.released );
+        // the other pooled bitmap remains
+        assertTrue( LayoutPictureCache.hasRoomFor( 20 * KB ) );
+        assertFalse( LayoutPictureCache.hasRoomFor( 100 * KB ) );
+        }
+    }
@@ -0,0 +1,127 @@
+package org.lattilad.bestboard.parser;
+
+import org.junit.Test;
+import org.lattilad.bestboard.utils.LongObjectMap;
+import org.mockito.Mockito;
+import org.mockito.invocation.Invocation;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.security.InvalidKeyException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Handlers of CommandHandlers are checked by calling them on a mock of MethodsForCommands:
+ * each handler should call exactly one method, with the parameter it got,
+ * and should give back the result of that method.
+ * Each parameter-command with method should have its handler, with the type of its parameter-list.
+ */
+public class CommandHandlersTest
+    {
+    /** Mocked methods return mocks (or null), which are stored to compare with the result of the handler */
+    private static class RecordingAnswer implements Answer<Object>
+        {
+        Object returned;
+
+        @Override
+        public Object answer( InvocationOnMock invocation ) throws Throwable
+            {
+            returned = Mockito.RETURNS_MOCKS.answer( invocation );
+            return returned;
+            }
+        }
+
+    @Test
+    public void binding_findsNoErrors()
+        {
+        assertEquals( 0, CommandHandlers.getBindingErrors() );
+        }
+
+    @Test
+    public void commandsWithMethod_haveHandlerOfTheirType() throws InvalidKeyException
+        {
+        for ( long commandCode : Commands.getCommandCodes() )
+            {
+            Commands.Data data = Commands.get( commandCode );
+            CommandHandlers.Handler handler = CommandHandlers.getHandler( commandCode );
+            String command = "[" + Tokenizer.regenerateKeyword( commandCode ) + "]";
+
+            if ( data.hasMethodToCall() )
+                {
+                assertNotNull( command + " has no handler", handler );
+                assertTrue( command + " has handler of other type", handler.accepts( data ) );
+                }
+            else
+                {
+                assertNull( command + " has handler without method", handler );
+                }
+            }
+        }
+
+    @Test
+    public void handlers_callOneMethodWithTheirParameter() throws InvalidKeyException
+        {
+        for ( long commandCode : Commands.getCommandCodes() )
+            {
+            CommandHandlers.Handler handler = CommandHandlers.getHandler( commandCode );
+            if ( handler == null )
+                continue;
+            String command = "[" + Tokenizer.regenerateKeyword( commandCode ) + "] " + handler.getName();
+
+            RecordingAnswer answer = new RecordingAnswer();
+            MethodsForCommands methods = Mockito.mock( MethodsForCommands.class, answer );
+
+            Object parameter;
+            Object result;
+            if ( handler instanceof CommandHandlers.ComplexHandler )
+                {
+                LongObjectMap<Object> parameters = new LongObjectMap<>();
+                parameter = parameters;
+                result = ((CommandHandlers.ComplexHandler) handler).call( methods, parameters );
+                }
+            else if ( handler instanceof CommandHandlers.OneHandler )
+                {
+                parameter = new Object();
+                result = ((CommandHandlers.OneHandler) handler).call( methods, parameter );
+                }
+            else if ( handler instanceof CommandHandlers.ListHandler )
+                {
+                List<Object> list = new ArrayList<>();
+                parameter = list;
+                result = ((CommandHandlers.ListHandler) handler).call( methods, list );
+                }
+            else
+                {
+                parameter = null;
+                result = ((CommandHandlers.NoHandler) handler).call( methods );
+                }
+
+            Collection<Invocation> invocations = Mockito.mockingDetails( methods ).getInvocations();
+            assertEquals( command + " should call one method", 1, invocations.size() );
+            Invocation invocation = invocations.iterator().next();
+
+            // name of the handler is used in the debug messages
+            assertEquals( command + " calls other method", handler.getName(), invocation.getMethod().getName() );
+
+            Object[] arguments = invocation.getArguments();
+            if ( parameter == null )
+                {
+                assertEquals( command + " should not get parameters", 0, arguments.length );
+                }
+            else
+                {
+                assertEquals( command + " should get one parameter", 1, arguments.length );
+                assertSame( command + " changes its parameter", parameter, arguments[0] );
+                }
+
+            if ( invocation.getMethod().getReturnType() == void.class )
+                assertNull( command + " has result without method result", result );
+            else
+                assertSame( command + " drops the result of its method", answer.returned, result );
+            }
+        }
+    }
@@ -0,0 +1,84 @@
+package org.lattilad.bestboard.parser;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.*;
+
+/**
+ * Keys of ParserMessage (parsercore module) are converted to string resources by ScribeDiagnostics.
+ * Each key should have its resource, and each message resource should have its key.
+ */
+public class ParserMessageTest
+    {
+    /** String resources of the tokenizer, the parser and the parser methods */
+    private static final String[] MESSAGE_FILES = {
+            "tokenizer_strings.xml",
+            "parser_strings.xml",
+            "softboarddata_strings.xml" };
+
+    private static final Pattern STRING_NAME = Pattern.compile( "<string\\s+name=\"([^\"]+)\"" );
+
+    /**
+     * Resource directory of the app module.
+     * Unit tests are started in the module directory, but the project directory is accepted, too.
+     */
+    private static File getValuesDirectory()
+        {
+        File directory = new File( "src/main/res/values" );
+        if ( !directory.isDirectory() )
+            directory = new File( "app/src/main/res/values" );
+        assertTrue( "Resource directory is missing: " + directory.getAbsolutePath(), directory.isDirectory() );
+        return directory;
+        }
+
+    private static Set<String> readResourceNames() throws IOException
+        {
+        Set<String> names = new HashSet<>();
+        File directory = getValuesDirectory();
+        for ( String fileName : MESSAGE_FILES )
+            {
+            String text = new String( Files.readAllBytes( new File( directory, fileName ).toPath() ),
+                    Charset.forName( "UTF-8" ) );
+            Matcher matcher = STRING_NAME.matcher( text );
+            while ( matcher.find() )
+                {
+                assertTrue( "Resource is defined twice: " + matcher.group( 1 ), names.add( matcher.group( 1 ) ) );
+                }
+            }
+        return names;
+        }
+
+    @Test
+    public void everyKey_hasResource() throws IOException
+        {
+        Set<String> names = readResourceNames();
+        for ( ParserMessage messageKey : ParserMessage.values() )
+            {
+            assertTrue( "Resource is missing: " + messageKey,
+                    names.contains( messageKey.name().toLowerCase( Locale.US ) ) );
+            }
+        }
+
+    @Test
+    public void everyResource_hasKey() throws IOException
+        {
+        Set<String> keys = new HashSet<>();
+        for ( ParserMessage messageKey : ParserMessage.values() )
+            keys.add( messageKey.name().toLowerCase( Locale.US ) );
+
+        for ( String name : readResourceNames() )
+            {
+            assertTrue( "Key is missing: " + name, keys.contains( name ) );
+            }
+        }
+    }
@@ -0,0 +1,276 @@
+package org.lattilad.bestboard.server;
+
+import android.view.inputmethod.InputConnection;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.lattilad.bestboard.scribe.Scribe;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Circular buffer of TextBeforeCursor is compared with the editor text
+ * and with the previous, partial string based implementation.
+ */
+public class TextBeforeCursorTest
+    {
+    private static final int LIMIT = TextBeforeCursor.LENGTH_LIMIT;
+
+    /** Fake editor: text before the cursor is kept in a StringBuilder */
+    private static class EditorConnection implements Connection
+        {
+        StringBuilder editor = new StringBuilder();
+        boolean storeText = true;
+        int synchronizations = 0;
+
+        @Override
+        public CharSequence getTextAfterCursor( InputConnection ic, int n )
+            {
+            return "";
+            }
+
+        @Override
+        public CharSequence getTextBeforeCursor( InputConnection ic, int n )
+            {
+            synchronizations++;
+            return editor.substring( Math.max( 0, editor.length() - n ) );
+            }
+
+        @Override
+        public boolean isStoreTextEnabled()
+            {
+            return storeText;
+            }
+
+        /** Character of the editor counted backwards from the cursor, or -1 */
+        int charBeforeCursor( int counter )
+            {
+            return counter < editor.length() ? editor.charAt( editor.length() - 1 - counter ) : -1;
+            }
+        }
+
+    private EditorConnection connection;
+
+    @Before
+    public void setUp()
+        {
+        // Scribe would need android log
+        Scribe.disable();
+        connection = new EditorConnection();
+        }
+
+    private static String randomString( Random random, int length )
+        {
+        StringBuilder builder = new StringBuilder( length );
+        for ( int n = 0; n < length; n++ )
+            builder.append( (char)( 'A' + random.nextInt( 26 )));
+        return builder.toString();
+        }
+
+    private void type( String string, TextBeforeCursor text )
+        {
+        connection.editor.append( string );
+        text.sendString( string );
+        }
+
+    private void delete( int length, TextBeforeCursor text )
+        {
+        connection.editor.setLength( connection.editor.length() - length );
+        text.sendDelete( length );
+        }
+
+    /** Reads count characters and checks them with the editor */
+    private void checkRead( TextBeforeCursor text, int count )
+        {
+        text.rewind();
+        for ( int n = 0; n < count; n++ )
+            assertEquals( "Character " + n + " before cursor", connection.charBeforeCursor( n ), text.read() );
+        }
+
+
+    @Test
+    public void sendAndDelete_readsTextBackwards()
+        {
+        TextBeforeCursor text = new TextBeforeCursor( connection );
+        connection.editor.append( "Hello" );
+
+        // first read synchronizes with the editor
+        checkRead( text, 7 );
+        assertEquals( 1, connection.synchronizations );
+
+        type( " world", text );
+        type( "!", text );
+        delete( 3, text );
+        type( "k", text );
+        checkRead( text, 12 );
+        assertTrue( text.compare( null, "Hello work" ) );
+        assertFalse( text.compare( null, "Hello world" ) );
+
+        // text is stored, so no more synchronization is needed
+        assertEquals( 1, connection.synchronizations );
+        }
+
+    @Test
+    public void wrapAround_keepsLastCharacters()
+        {
+        TextBeforeCursor text = new TextBeforeCursor( connection );
+        Random random = new Random( 7L );
+
+        // empty editor
+        checkRead( text, 1 );
+
+        for ( int n = 0; n < 100; n++ )
+            {
+            type( randomString( random, 1 + random.nextInt( 97 )), text );
+            if ( n % 3 == 0 )
+                delete( Math.min( connection.editor.length(), random.nextInt( 20 )), text );
+            }
+        assertTrue( connection.editor.length() > 2 * LIMIT );
+
+        checkRead( text, LIMIT );
+        // characters above the limit are not stored, and cannot be synchronized
+        assertEquals( -1, text.read() );
+        }
+
+    @Test
+    public void longString_keepsOnlyItsEnd()
+        {
+        TextBeforeCursor text = new TextBeforeCursor( connection );
+        checkRead( text, 1 );
+
+        type( randomString( new Random( 11L ), LIMIT + 500 ), text );
+        checkRead( text, LIMIT );
+        assertEquals( -1, text.read() );
+        }
+
+    @Test
+    public void deleteBelowLimit_synchronizesAgain()
+        {
+        TextBeforeCursor text = new TextBeforeCursor( connection );
+        connection.editor.append( randomString( new Random( 13L ), 3 * LIMIT ));
+
+        checkRead( text, LIMIT );
+        assertEquals( -1, text.read() );
+        assertEquals( 1, connection.synchronizations );
+
+        // buffer was full, after delete more characters can be read from the editor
+        delete( 100, text );
+        checkRead( text, LIMIT );
+        assertEquals( 2, connection.synchronizations );
+
+        // delete inside a not full buffer keeps it valid
+        delete( 100, text );
+        text.invalidate();
+        connection.editor.setLength( LIMIT / 2 );
+        checkRead( text, LIMIT / 2 + 1 );
+        delete( 10, text );
+        checkRead( text, LIMIT / 2 - 9 );
+        assertEquals( 3, connection.synchronizations );
+        }
+
+    @Test
+    public void storeTextDisabled_synchronizesAfterEachReset()
+        {
+        connection.storeText = false;
+        TextBeforeCursor text = new TextBeforeCursor( connection );
+        connection.editor.append( "abc" );
+
+        text.reset();
+        assertEquals( 'c', text.read() );
+        connection.editor.append( "de" );
+        text.sendString( "de" );
+
+        text.reset();
+        assertEquals( 'e', text.read() );
+        assertEquals( 'd', text.read() );
+        assertEquals( 2, connection.synchronizations );
+        }
+
+    /**
+     * Random typing, deleting, invalidating and reading.
+     * Both implementations should read the same characters (within LENGTH_LIMIT),
+     * and these should be the characters of the editor.
+     */
+    @Test
+    public void randomEditing_readsSameAsPartialStrings()
+        {
+        for ( int run = 0; run < 100; run++ )
+            {
+            Random random = new Random( run );
+            connection = new EditorConnection();
+            StringBuilder editor = connection.editor;
+            editor.append( randomString( random, random.nextInt( 5000 )));
+
+            PartialStringTextBeforeCursor previous = new PartialStringTextBeforeCursor( connection );
+            TextBeforeCursor text = new TextBeforeCursor( connection );
+
+            for ( int step = 0; step < 1000; step++ )
+                {
+                String where = "Run " + run + " step " + step;
+                int operation = random.nextInt( 10 );
+
+                if ( operation < 4 )
+                    {
+                    // longer strings are needed for wrapping and for the limit
+                    String string = randomString( random,
+                            random.nextInt( 20 ) == 0 ? random.nextInt( 3000 ) : 1 + random.nextInt( 6 ));
+                    editor.append( string );
+                    previous.sendString( string );
+                    text.sendString( string );
+                    }
+                else if ( operation < 6 )
+                    {
+                    int length = Math.min( editor.length(),
+                            random.nextInt( 20 ) == 0 ? random.nextInt( 3000 ) : 1 + random.nextInt( 4 ));
+                    editor.setLength( editor.length() - length );
+                    previous.sendDelete( length );
+                    text.sendDelete( length );
+                    }
+                else if ( operation == 6 )
+                    {
+                    previous.invalidate();
+                    text.invalidate();
+                    }
+                else
+                    {
+                    if ( random.nextBoolean() )
+                        {
+                        previous.reset();
+                        text.reset();
+                        }
+                    else
+                        {
+                        previous.rewind();
+                        text.rewind();
+                        }
+
+                    int count = random.nextInt( 10 ) == 0 ? LIMIT + 100 : random.nextInt( 50 );
+                    for ( int n = 0; n < count; n++ )
+                        {
+                        int expected = previous.read();
+                        int actual = text.read();
+                        if ( n < LIMIT )
+                            {
+                            assertEquals( where + " character " + n, expected, actual );
+                            assertEquals( where + " character " + n, connection.charBeforeCursor( n ), actual );
+                            }
+                        else
+                            {
+                            assertEquals( where + " above limit", -1, actual );
+                            }
+                        if ( expected == -1 && actual == -1 )
+                            break;
+                        }
+                    }
+
+                if ( random.nextInt( 50 ) == 0 )
+                    {
+                    String end = editor.substring( Math.max( 0, editor.length() - random.nextInt( 5 )));
+                    assertEquals( where + " compare", previous.compare( null, end ), text.compare( null, end ));
+                    }
+                }
+            }
+        }
+    }
@@ -0,0 +1,74 @@
+package org.lattilad.bestboard.parser;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+/**
+ * Generates large coat files for the benchmarks.
+ * Main coat file INCLUDE-s the next file, which INCLUDE-s the next one etc.,
+ * so the INCLUDE chain is as deep as the number of files.
+ * Each file adds one layout, and fills it with buttons.
+ */
+public class CoatGenerator
+    {
+    /** Name of the main coat file, included files are named gen1.txt, gen2.txt... */
+    public static final String MAIN_FILE = "gen0.txt";
+
+    /** Buttons in one row of the generated layouts */
+    private static final int COLUMNS = 10;
+
+    /**
+     * Writes the coat files into directory
+     * @param directory coat directory
+     * @param files number of files (depth of INCLUDE chain)
+     * @param buttons number of buttons in each file
+     * @return main coat file
+     * @throws IOException if files cannot be written
+     */
+    public static File generate( File directory, int files, int buttons ) throws IOException
+        {
+        for ( int n = 0; n < files; n++ )
+            {
+            StringBuilder builder = new StringBuilder();
+            builder.append( "coat (1000)\n" );
+            builder.append( "; generated coat file " ).append( n ).append( '\n' );
+            if ( n + 1 < files )
+                builder.append( "include \"gen" ).append( n + 1 ).append( ".txt\"\n" );
+
+            builder.append( "let (gencolor" ).append( n ).append( " 0c" )
+                    .append( Integer.toHexString( 0x100000 + n * 0x10101 ) ).append( ")\n" );
+            builder.append( "addlayout (id genlayout" ).append( n )
+                    .append( " columns " ).append( COLUMNS )
+                    .append( " rows " ).append( (buttons + COLUMNS - 1) / COLUMNS )
+                    .append( " asboard color 0c808080)\n" );
+
+            builder.append( "block (layout genlayout" ).append( n ).append( " row 1 column 1\n" );
+            for ( int b = 0; b < buttons; b++ )
+                {
+                if ( b > 0 && b % COLUMNS == 0 )
+                    builder.append( "\tcrr\n" );
+                if ( b % 3 == 0 )
+                    builder.append( "\tbutton (text \"word" ).append( b ).append( "\" color gencolor" ).append( n );
+                else
+                    builder.append( "\tbutton (text '" ).append( (char)('a' + b % 26) ).append( "' color gencolor" ).append( n );
+                builder.append( " addtitle (size 750))\n" );
+                }
+            builder.append( ")\n" );
+
+            Writer writer = new OutputStreamWriter(
+                    new FileOutputStream( new File( directory, "gen" + n + ".txt" ) ), "UTF-8" );
+            try
+                {
+                writer.write( builder.toString() );
+                }
+            finally
+                {
+                writer.close();
+                }
+            }
+        return new File( directory, MAIN_FILE );
+        }
+    }
@@ -0,0 +1,252 @@
+package org.lattilad.bestboard.parser;
+
+import org.lattilad.bestboard.utils.LongObjectMap;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing phases of the coat files, measured separately:
+ * <ul>
+ * <li>tokenize: all coat files are tokenized from text</li>
+ * <li>replay: recorded tokens of all coat files are replayed</li>
+ * <li>parse: full parsing (with parallel tokenizing of the INCLUDE-d files)</li>
+ * <li>parseSnapshot: full parsing, tokens are replayed from the snapshot</li>
+ * </ul>
+ * Methods of the parameter-commands do nothing, only parsing itself is measured.
+ * Allocation rate is reported by the gc profiler (set in build.gradle, or -prof gc).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CoatParserBenchmark
+    {
+    /** Generated coat files are used instead of an asset file */
+    private static final String GENERATED = "generated";
+
+    /** Generated INCLUDE chain: number of files and buttons in each file */
+    private static final int GENERATED_FILES = 40;
+    private static final int GENERATED_BUTTONS = 100;
+
+    /** Snapshot is valid only for the same program */
+    private static final long PROGRAM_STAMP = 1L;
+
+    /** Asset coat file (from app/src/main/assets), or generated files */
+    @Param({"fallback.txt", GENERATED})
+    public String coat;
+
+    /** Messages are dropped, only their texts are created */
+    private static final Diagnostics SILENT_DIAGNOSTICS = new Diagnostics()
+        {
+        @Override
+        public String getMessageText( ParserMessage messageKey )
+            {
+            return messageKey.name();
+            }
+
+        @Override
+        public void error( String message )
+            {
+            }
+
+        @Override
+        public void note( String message )
+            {
+            }
+
+        @Override
+        public void debug( String message )
+            {
+            }
+
+        @Override
+        public void programError( String message )
+            {
+            }
+        };
+
+    /**
+     * Methods of the parameter-commands do nothing.
+     * COMPLEX methods take all their parameters, and give back a result (as adding methods do).
+     */
+    private static final CoatParser.CommandMethods NO_METHODS = new CoatParser.CommandMethods()
+        {
+        @Override
+        public Object callComplex( long commandCode, LongObjectMap<Object> parameters )
+            {
+            parameters.clear();
+            return Boolean.TRUE;
+            }
+
+        @Override
+        public Object callOne( long commandCode, Object parameter )
+            {
+            return null;
+            }
+
+        @Override
+        public Object callList( long commandCode, List<Object> parameter )
+            {
+            return null;
+            }
+
+        @Override
+        public Object callNo( long commandCode )
+            {
+            return null;
+            }
+        };
+
+    private File coatDirectory;
+    private File mainFile;
+    private File snapshotFile;
+    private List<File> coatFiles = new ArrayList<>();
+    private List<TokenStream> tokenStreams = new ArrayList<>();
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception
+        {
+        coatDirectory = File.createTempFile( "coat", "" );
+        if ( !coatDirectory.delete() || !coatDirectory.mkdir() )
+            throw new IOException( "Coat directory cannot be created: " + coatDirectory );
+
+        if ( GENERATED.equals( coat ) )
+            {
+            mainFile = CoatGenerator.generate( coatDirectory, GENERATED_FILES, GENERATED_BUTTONS );
+            }
+        else
+            {
+            String assets = System.getProperty( "coat.assets", "../app/src/main/assets" );
+            mainFile = new File( coatDirectory, coat );
+            copyFile( new File( assets, coat ), mainFile );
+            }
+
+        File[] files = coatDirectory.listFiles();
+        for ( File file : files )
+            {
+            coatFiles.add( file );
+            TokenStream stream = new TokenStream();
+            tokenize( file, stream );
+            tokenStreams.add( stream );
+            }
+
+        // first parsing saves the snapshot
+        snapshotFile = new File( coatDirectory, "coat.snapshot" );
+        CoatParser coatParser = new CoatParser( SILENT_DIAGNOSTICS, coatDirectory, snapshotFile, PROGRAM_STAMP );
+        coatParser.parse( mainFile, NO_METHODS );
+        coatParser.finishSnapshot();
+        if ( coatParser.getMethodCalls() == 0 || !snapshotFile.exists() )
+            throw new IllegalStateException( "Coat files cannot be parsed: " + mainFile );
+        }
+
+    @TearDown(Level.Trial)
+    public void tearDown()
+        {
+        for ( File file : coatDirectory.listFiles() )
+            file.delete();
+        coatDirectory.delete();
+        }
+
+    private static void copyFile( File source, File destination ) throws IOException
+        {
+        InputStream in = new FileInputStream( source );
+        try
+            {
+            OutputStream out = new FileOutputStream( destination );
+            try
+                {
+                byte[] buffer = new byte[8192];
+                int length;
+                while ( (length = in.read( buffer )) > 0 )
+                    out.write( buffer, 0, length );
+                }
+            finally
+                {
+                out.close();
+                }
+            }
+        finally
+            {
+            in.close();
+            }
+        }
+
+    /**
+     * All tokens of a coat file
+     * @param recordStream tokens are recorded here. Can be null.
+     * @return number of tokens
+     */
+    private static int tokenize( File file, TokenStream recordStream ) throws IOException
+        {
+        Reader reader = new InputStreamReader( new FileInputStream( file ), "UTF-8" );
+        try
+            {
+            Tokenizer tokenizer = new Tokenizer( SILENT_DIAGNOSTICS, reader, recordStream );
+            int count = 0;
+            while ( tokenizer.nextToken() != Tokenizer.TYPE_EOF )
+                count++;
+            return count;
+            }
+        finally
+            {
+            reader.close();
+            }
+        }
+
+    @Benchmark
+    public int tokenize() throws IOException
+        {
+        int count = 0;
+        for ( File file : coatFiles )
+            count += tokenize( file, null );
+        return count;
+        }
+
+    @Benchmark
+    public int replay() throws IOException
+        {
+        int count = 0;
+        for ( TokenStream stream : tokenStreams )
+            {
+            Tokenizer tokenizer = new Tokenizer( SILENT_DIAGNOSTICS, stream );
+            while ( tokenizer.nextToken() != Tokenizer.TYPE_EOF )
+                count++;
+            }
+        return count;
+        }
+
+    @Benchmark
+    public int parse() throws Exception
+        {
+        CoatParser coatParser = new CoatParser( SILENT_DIAGNOSTICS, coatDirectory, null, PROGRAM_STAMP );
+        coatParser.parse( mainFile, NO_METHODS );
+        return coatParser.getMethodCalls();
+        }
+
+    @Benchmark
+    public int parseSnapshot() throws Exception
+        {
+        CoatParser coatParser = new CoatParser( SILENT_DIAGNOSTICS, coatDirectory, snapshotFile, PROGRAM_STAMP );
+        coatParser.parse( mainFile, NO_METHODS );
+        return coatParser.getMethodCalls();
+        }
+    }
@@ -0,0 +1,179 @@
+package org.lattilad.bestboard.parser;
+
+import org.lattilad.bestboard.utils.LongObjectMap;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parameter maps of the parser with boxed keys (HashMap) and with primitive keys (LongObjectMap).
+ * <p>
+ * Each bracketed block of the coat files gets its own map (as in the parser):
+ * keywords of the block are put into the map, and then removed one by one
+ * (as the methods of the parameter-commands take their parameters).
+ * Allocation rate (gc profiler) shows the boxed keys and entry objects of HashMap.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ParameterMapBenchmark
+    {
+    /** Asset coat file (from app/src/main/assets), or generated files */
+    @Param({"fallback.txt", "generated"})
+    public String coat;
+
+    /** Keywords of the blocks */
+    private long[][] blocks;
+
+    /** Value of the parameters - not used */
+    private static final Object VALUE = Boolean.TRUE;
+
+    /** Messages are not needed */
+    private static final Diagnostics SILENT_DIAGNOSTICS = new Diagnostics()
+        {
+        @Override
+        public String getMessageText( ParserMessage messageKey )
+            {
+            return messageKey.name();
+            }
+
+        @Override
+        public void error( String message )
+            {
+            }
+
+        @Override
+        public void note( String message )
+            {
+            }
+
+        @Override
+        public void debug( String message )
+            {
+            }
+
+        @Override
+        public void programError( String message )
+            {
+            }
+        };
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException
+        {
+        File directory = File.createTempFile( "coat", "" );
+        if ( !directory.delete() || !directory.mkdir() )
+            throw new IOException( "Coat directory cannot be created: " + directory );
+
+        List<File> files = new ArrayList<>();
+        if ( "generated".equals( coat ) )
+            {
+            CoatGenerator.generate( directory, 40, 100 );
+            for ( File file : directory.listFiles() )
+                files.add( file );
+            }
+        else
+            {
+            files.add( new File( System.getProperty( "coat.assets", "../app/src/main/assets" ), coat ) );
+            }
+
+        List<long[]> collected = new ArrayList<>();
+        for ( File file : files )
+            collectBlocks( file, collected );
+        blocks = collected.toArray( new long[collected.size()][] );
+
+        for ( File file : directory.listFiles() )
+            file.delete();
+        directory.delete();
+        }
+
+    /**
+     * Keywords directly inside each bracketed block of the file
+     */
+    private static void collectBlocks( File file, List<long[]> collected ) throws IOException
+        {
+        Reader reader = new InputStreamReader( new FileInputStream( file ), "UTF-8" );
+        try
+            {
+            Tokenizer tokenizer = new Tokenizer( SILENT_DIAGNOSTICS, reader );
+            List<List<Long>> levels = new ArrayList<>();
+            int type;
+            while ( (type = tokenizer.nextToken()) != Tokenizer.TYPE_EOF )
+                {
+                if ( type == Tokenizer.TYPE_START )
+                    {
+                    levels.add( new ArrayList<Long>() );
+                    }
+                else if ( type == Tokenizer.TYPE_END && !levels.isEmpty() )
+                    {
+                    List<Long> keywords = levels.remove( levels.size() - 1 );
+                    long[] block = new long[ keywords.size() ];
+                    for ( int n = 0; n < block.length; n++ )
+                        block[n] = keywords.get( n );
+                    collected.add( block );
+                    }
+                else if ( type == Tokenizer.TYPE_KEYWORD && !levels.isEmpty() )
+                    {
+                    levels.get( levels.size() - 1 ).add( tokenizer.getIntegerToken() );
+                    }
+                }
+            }
+        finally
+            {
+            reader.close();
+            }
+        }
+
+    @Benchmark
+    public int hashMap()
+        {
+        int count = 0;
+        for ( long[] block : blocks )
+            {
+            Map<Long, Object> parameters = new HashMap<>();
+            for ( long code : block )
+                parameters.put( code, VALUE );
+            for ( long code : block )
+                {
+                if ( parameters.remove( code ) != null )
+                    count++;
+                }
+            }
+        return count;
+        }
+
+    @Benchmark
+    public int longObjectMap()
+        {
+        int count = 0;
+        for ( long[] block : blocks )
+            {
+            LongObjectMap<Object> parameters = new LongObjectMap<>();
+            for ( long code : block )
+                parameters.put( code, VALUE );
+            for ( long code : block )
+                {
+                if ( parameters.remove( code ) != null )
+                    count++;
+                }
+            }
+        return count;
+        }
+    }
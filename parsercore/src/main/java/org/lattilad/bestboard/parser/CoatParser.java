@@ -0,0 +1,1589 @@
+package org.lattilad.bestboard.parser;
+
+import org.lattilad.bestboard.utils.ArrayUtils;
+import org.lattilad.bestboard.utils.Bit;
+import org.lattilad.bestboard.utils.ExtendedList;
+import org.lattilad.bestboard.utils.ExternalDataException;
+import org.lattilad.bestboard.utils.KeyValuePair;
+import org.lattilad.bestboard.utils.LongObjectMap;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.security.DigestInputStream;
+import java.security.InvalidKeyException;
+import java.security.MessageDigest;
+import java.util.List;
+
+
+/**
+ * Command-stream parser of the coat files.
+ * <p>
+ * Tokens of the main coat file and its INCLUDE-d files are evaluated
+ * by the parameter-commands of the Commands class. Labels and defaults are resolved here,
+ * and the methods of the parameter-commands are called through CommandMethods.
+ * Parser does not depend on android classes: inside the program SoftBoardParser runs it
+ * on a background thread with MethodsForCommands, on a plain JVM (eg. in benchmarks)
+ * any other CommandMethods can be used.
+ * <p>
+ * Without snapshot coat files are tokenized parallel by IncludePrefetcher,
+ * tokens of the unchanged files are replayed from the snapshot of the previous parsing.
+ * All messages are sent to Diagnostics.
+ */
+public class CoatParser
+    {
+    /**
+     * Methods of the parameter-commands.
+     * Different types of methods are called - according to parameter type
+     * (Check parseComplexParameter, third part!)
+     * Only commands with methodToCall (Commands.Data.hasMethodToCall()) are called.
+     */
+    public interface CommandMethods
+        {
+        /**
+         * Method of COMPLEX parameter-commands.
+         * As 'get' removes the entries from parameters, it should be empty after the call
+         * @param commandCode token code of the parameter-command
+         * @param parameters evaluated parameters of the command
+         * @return result of the method (can be null)
+         */
+        Object callComplex( long commandCode, LongObjectMap<Object> parameters );
+
+        /**
+         * Method of ONE parameter-commands
+         * @param commandCode token code of the parameter-command
+         * @param parameter evaluated parameter of the command
+         * @return result of the method (can be null)
+         */
+        Object callOne( long commandCode, Object parameter );
+
+        /**
+         * Method of LIST parameter-commands
+         * @param commandCode token code of the parameter-command
+         * @param parameter evaluated parameters of the command
+         * @return result of the method (can be null)
+         */
+        Object callList( long commandCode, List<Object> parameter );
+
+        /**
+         * Method of FLAG and NO parameter-commands
+         * @param commandCode token code of the parameter-command
+         * @return result of the method (can be null)
+         */
+        Object callNo( long commandCode );
+        }
+
+
+    /**
+     * Cannot validate coat file (because COAT is NOT the first token)
+     * (It has only the default constructor without parameters.
+     *  The needed serialVersionUID was generated by Android Studio)
+     */
+    public static class InvalidCoatFileException extends Exception
+        {
+        private static final long serialVersionUID = 1165412659034734800L;
+        }
+
+
+    /**
+     ** PRIVATE VARIABLES
+     **/
+
+    // messages of all tokenizers are sent here
+    private Diagnostics diagnostics;
+
+    // FILE parameters (and INCLUDE-d coat files) are searched here
+    private File coatDirectory;
+
+    // snapshot file - null if snapshot is not used
+    private File snapshotFile;
+
+    // snapshot is valid only for the same program
+    private long programStamp;
+
+    // main coat file - parsing starts here
+    private File mainFile;
+
+    // parseDescriptorFile creates tokenizer - temporary and can change because of INCLUDE
+    private Tokenizer tokenizer;
+
+    public Tokenizer getTokenizer()
+        {
+        return tokenizer;
+        }
+
+    // parser creates labels - temporary
+    private Labels labels;
+
+    // parser creates default values for complex parameters - temporary
+    private LongObjectMap<LongObjectMap<Object>> defaults;
+
+    public LongObjectMap<LongObjectMap<Object>> getDefaults()
+        {
+        return defaults;
+        }
+
+    // (Static) Commands class is needed, too
+
+    // methods of the parameter-commands
+    private CommandMethods commandMethods;
+
+    // default alfa set by ALPHA - tokenizers of the included files get it, too
+    private int defaultAlfa = 0xFF;
+
+    // number of errors are collected here
+    private int errorSummary = 0;
+
+    // previously compiled snapshot of the coat files - null if it cannot be used
+    private CoatSnapshot loadedSnapshot;
+
+    // snapshot of the current parsing - will be saved if loaded snapshot cannot be used
+    private CoatSnapshot parsedSnapshot;
+
+    // included coat files are tokenized on background threads - null if snapshot is used
+    private IncludePrefetcher prefetcher;
+
+    // number of commands dispatched to commandMethods (for timing)
+    private int methodCalls = 0;
+
+
+    /**
+     * Parser is prepared, labels and defaults are created.
+     * @param diagnostics receiver of the messages
+     * @param coatDirectory directory of the coat files
+     * @param snapshotFile compiled snapshot of the coat files, or null if snapshot is not used
+     * @param programStamp identifies the installed program (eg. its update time)
+     */
+    public CoatParser( Diagnostics diagnostics, File coatDirectory, File snapshotFile, long programStamp )
+        {
+        this.diagnostics = diagnostics;
+        this.coatDirectory = coatDirectory;
+        this.snapshotFile = snapshotFile;
+        this.programStamp = programStamp;
+
+        labels = Commands.createLabels();
+        defaults = new LongObjectMap<>();
+        }
+
+
+    /**
+     * Parsing of a main coat file.
+     * Methods of the parameter-commands are called during parsing.
+     * @param mainFile main coat file
+     * @param commandMethods methods of the parameter-commands
+     * @throws FileNotFoundException coat file missing
+     * @throws IOException coat file reading fails
+     * @throws InvalidCoatFileException coat file is not valid (COAT should be the first token!)
+     * @throws ExternalDataException
+     */
+    public void parse( File mainFile, CommandMethods commandMethods )
+            throws IOException, InvalidCoatFileException, ExternalDataException
+        {
+        this.mainFile = mainFile;
+        this.commandMethods = commandMethods;
+
+        // Compiled snapshot is used, if none of the coat files were changed
+        loadedSnapshot = ( snapshotFile != null ) ?
+                CoatSnapshot.load( diagnostics, snapshotFile, programStamp ) : null;
+        parsedSnapshot = new CoatSnapshot();
+
+        // Without snapshot coat files are tokenized parallel
+        if ( loadedSnapshot == null )
+            {
+            prefetcher = new IncludePrefetcher( diagnostics, coatDirectory );
+            prefetcher.prefetch( mainFile );
+            }
+
+        // Parse main file
+        try
+            {
+            parseDescriptorFile( mainFile );
+            }
+        finally
+            {
+            if ( prefetcher != null )
+                {
+                prefetcher.shutdown();
+                prefetcher = null;
+                }
+            }
+        }
+
+
+    /**
+     * Snapshot of a successful parsing is stored for the next start.
+     * Should be called after parse(), if parsed data was accepted.
+     */
+    public void finishSnapshot()
+        {
+        if ( loadedSnapshot != null && loadedSnapshot.isFullyUsed() )
+            {
+            note( ParserMessage.PARSER_SNAPSHOT_USED, String.valueOf( parsedSnapshot.size() ));
+            }
+        else if ( snapshotFile != null )
+            {
+            parsedSnapshot.save( diagnostics, snapshotFile, programStamp );
+            }
+
+        loadedSnapshot = null;
+        parsedSnapshot = null;
+        }
+
+
+    /**
+     * Number of coat files replayed from the snapshot (for timing)
+     * @return number of unchanged files, or -1 if no snapshot was loaded
+     */
+    public int getUnchangedFileCount()
+        {
+        return loadedSnapshot != null ? loadedSnapshot.validSize() : -1;
+        }
+
+    /**
+     * Number of errors (from the tokenizers and from the parser)
+     */
+    public int getErrorCount()
+        {
+        return errorSummary;
+        }
+
+    /**
+     * Number of methods called (for timing)
+     */
+    public int getMethodCalls()
+        {
+        return methodCalls;
+        }
+
+
+    /**
+     * Sets default alfa of the current tokenizer and of the tokenizers of the included files.
+     * @param alfaShort default alfa - range 00 - FF
+     * @return default alfa as it was set
+     */
+    public int setDefaultAlfa( int alfaShort )
+        {
+        defaultAlfa = tokenizer.setDefaultAlfa( alfaShort );
+        return defaultAlfa;
+        }
+
+
+    /** error withot tokenizer */
+    public void error( ParserMessage messageKey, String value )
+        {
+        errorSummary++;
+        diagnostics.error( diagnostics.getMessageText( messageKey ) + " " + value );
+        }
+
+
+    /** note without tokenizer */
+    public void note( ParserMessage messageKey, String value )
+        {
+        diagnostics.note( diagnostics.getMessageText( messageKey ) + " " + value );
+        }
+
+
+    /**
+     * Tokenizer stream is created from descriptor file.
+     * Parser methods work on this tokenizer.
+     * @param descriptorFile descriptor (coat) file
+     * @throws FileNotFoundException descriptor (coat) file missing
+     * @throws IOException  descriptor (coat) file reading fails
+     * @throws InvalidCoatFileException descriptor file is not valid (COAT should be the first token!)
+     */
+    private void parseDescriptorFile(File descriptorFile) throws IOException, InvalidCoatFileException, ExternalDataException
+        {
+        diagnostics.note( diagnostics.getMessageText( ParserMessage.PARSER_COAT_FILE ) + mainFile.getName() );
+
+        Reader reader = null;
+        Tokenizer tokenizerBackup = tokenizer;
+
+        try
+            {
+            // Compiled tokens are used, if coat file was not changed
+            TokenStream stream = ( loadedSnapshot != null ) ? loadedSnapshot.nextStream( descriptorFile ) : null;
+            MessageDigest digest = null;
+            IncludePrefetcher.Prefetched prefetched;
+
+            if ( stream != null )
+                {
+                // "external" tokenizer is needed for MethodsForCommands
+                tokenizer = new Tokenizer( diagnostics, stream );
+                // recorded colors get the default alfa during replay
+                tokenizer.setDefaultAlfa( defaultAlfa );
+                parsedSnapshot.add( descriptorFile, loadedSnapshot.lastHash(), stream );
+                }
+            else if ( (prefetched = getPrefetched( descriptorFile )) != null )
+                {
+                // Tokens are ready from the background threads
+                stream = prefetched.getStream();
+                tokenizer = new Tokenizer( diagnostics, stream );
+                tokenizer.setDefaultAlfa( defaultAlfa );
+                parsedSnapshot.add( descriptorFile, prefetched.getHash(), stream );
+                }
+            else
+                {
+                // Hash is calculated during reading
+                digest = CoatSnapshot.createDigest();
+                stream = new TokenStream();
+                // Tokenizer reads large blocks, so no BufferedReader is needed
+                reader = new InputStreamReader(
+                        new DigestInputStream( new FileInputStream( descriptorFile ), digest ), "UTF-8" );
+                // "external" tokenizer is needed for MethodsForCommands
+                tokenizer = new Tokenizer( diagnostics, reader, stream );
+                // included coat files should use softboard's default alfa
+                tokenizer.setDefaultAlfa( defaultAlfa );
+                }
+
+            int snapshotPosition = parsedSnapshot.size();
+
+            parseSoftBoard();
+
+            if ( digest != null )
+                {
+                // Whole file is needed for the hash - parsing can stop before EOF
+                char[] buffer = new char[1024];
+                while ( reader.read( buffer ) >= 0 );
+                parsedSnapshot.add( snapshotPosition, descriptorFile, digest.digest(), stream );
+                }
+
+            // Both error types (from the tokenizer and from the parser) shoud be counted
+            errorSummary += tokenizer.getErrorCount();
+
+            // tokenizer remains if Expection occurs, but no further tokens are needed then
+            tokenizer = tokenizerBackup;
+            }
+
+        // IOException, InvalidCoatFileException are not cached,
+        // these are thrown back to the caller of parse()!
+
+        finally
+            {
+            if (reader != null)
+                {
+                try
+                    {
+                    reader.close();
+                    }
+                catch (IOException ioe)
+                    {
+                    diagnostics.programError( "ERROR IN CLOSE (Descriptor file processing) " + ioe.toString() );
+                    }
+                }
+            }
+        }
+
+
+    /**
+     * Prefetched tokens of a coat file, if they can be used
+     * @param descriptorFile coat file needed by the parser
+     * @return prefetched tokens, or null if file should be tokenized now
+     */
+    private IncludePrefetcher.Prefetched getPrefetched( File descriptorFile )
+        {
+        if ( prefetcher == null )
+            return null;
+
+        IncludePrefetcher.Prefetched prefetched = prefetcher.get( descriptorFile );
+        if ( prefetched == null )
+            {
+            diagnostics.debug( "Prefetched tokens cannot be used: " + descriptorFile.getName() );
+            }
+        return prefetched;
+        }
+
+
+    /**
+     * Creates a new Labels class, then starts parsing
+     * of the parameter list of the virtual ADDSOFTBOARD command.
+     * @throws IOException descriptor (coat) file reading fails
+     * @throws InvalidCoatFileException descriptor file is not valid (COAT should be the first token!)
+     */
+    private void parseSoftBoard()
+            throws IOException, InvalidCoatFileException, ExternalDataException
+        {
+        Object temp;
+        // COAT 2 - MUST BE the first parameter-command!
+        // It is NOT part of the Commands class, it will be checked "manually"
+        if ( tokenizer.nextToken() != Tokenizer.TYPE_KEYWORD ||
+                tokenizer.getIntegerToken() != Commands.TOKEN_COAT ||
+                (temp = parseOneParameter( Commands.PARAMETER_LONG)) == null ||
+                (long)temp > Commands.COAT_VERSION )
+            {
+            tokenizer.error( ParserMessage.PARSER_COAT_FILE_INVALID, String.valueOf(Commands.COAT_VERSION) );
+            throw new InvalidCoatFileException();
+            }
+        else
+            {
+            tokenizer.note(ParserMessage.PARSER_COAT_FILE_OK, temp.toString());
+            }
+
+        try
+            {
+            tokenizer.note( ParserMessage.PARSER_FILE_PARSING_STARTED );
+            parseComplexParameter( Commands.ADDSOFTBOARD, Commands.get(Commands.ADDSOFTBOARD), false );
+            if ( tokenizer.getTokenType() == Tokenizer.TYPE_EOF )
+                tokenizer.note( ParserMessage.PARSER_FILE_PARSING_FINISHED );
+            else
+                tokenizer.error( ParserMessage.PARSER_FILE_PARSING_INTERRUPTED );
+            }
+        catch (InvalidKeyException e)
+            {
+            tokenizer.error( ParserMessage.PARSER_ADDSOFTBOARD_DATA_MISSING );
+            }
+
+        }
+
+
+    /**
+     * Parses a complex parameter-command list, without parentheses.
+     * Each parameter-command in the list is evaluated,
+     * and the method of each parameter-command is called
+     * with the appropriate parameter list.
+     * Returns the return-values of each parameter-command
+     * identified by the token-code of its command.
+     * @param parsedCommandCode parameters of this command are evaluated
+     * @param parsedCommandData data for command, which contains allowed parameters
+     * @param useDefaults default parameters can be given, if this is not label/default evaluation
+     * Usually code determines allowed parameters (through the data class),
+     * but this is not obligatory. Code is used only if a complex label is given.
+     * @return return-values of the parameters in the list
+     * @throws IOException (coat) file reading fails
+     */
+    private LongObjectMap<Object> parseComplexParameter( long parsedCommandCode,
+                                                             Commands.Data parsedCommandData,
+                                                             boolean useDefaults )
+            throws IOException, ExternalDataException, InvalidCoatFileException
+        {
+        diagnostics.debug( "Parsing of parameters of [" + Tokenizer.regenerateKeyword(parsedCommandCode) + "] complex command has started.");
+
+        int tokenType;
+        
+        // Parameter-command's (inside cycle) code and data
+        long commandCode;
+        String commandString; // Just for debugging
+        Commands.Data commandData;
+
+        // allowedParameterCommands signs, that this parameter is
+        // multiple (-1), single (+1), not allowed (0)
+        int commandMultiple;
+
+        // Complex parameter-list forwarded to the method
+        LongObjectMap<Object> forwardParameters = null;
+
+        // Result from the method - or the value of the one-parameter 
+        Object result;
+        Object previousResult;
+
+        // Parameter list (results of the called methods of the parameter-commands) will be returned to the caller
+        // Every cycle can give a new item to returnParameters
+        LongObjectMap<Object> returnParameters;
+
+        // Before the cycles DEFAULT VALUES populates returnParameters
+        if ( useDefaults && defaults.containsKey( parsedCommandCode ) )
+            {
+            returnParameters = defaults.get(parsedCommandCode).getCopy();
+            diagnostics.debug( "Default values (label) for [" + Tokenizer.regenerateKeyword(parsedCommandCode) +
+                    "] are found: [" + returnParameters + "]");
+            }
+        else
+            {
+            returnParameters = new LongObjectMap<>();
+            }
+
+        // iterate the parameter-commands of the caller
+        while (true)
+            {
+            // FIRST: token should be an allowed parameter-command keyword
+            tokenType = tokenizer.nextToken();
+
+            // Checking valid parameter-commands
+            if ( tokenType == Tokenizer.TYPE_KEYWORD )
+                {
+                commandCode = tokenizer.getIntegerToken();
+                commandString = tokenizer.getStringToken();
+                // tokenizer.note( commandString, ParserMessage.PARSER_CODE, Long.toHexString(commandCode) );
+
+                diagnostics.debug( " * Parsing of parameter [" + commandString + "] for [" +
+                        Tokenizer.regenerateKeyword( parsedCommandCode ) + "] has started.");
+
+                // Valid keyword, but not allowed parameter-command - this can be a LABEL
+                if ( ( commandMultiple = ArrayUtils.containsWithoutSignedBit(parsedCommandData.getAllowedParameters(), commandCode)) == 0 )
+                    {
+                    try
+                        {
+                        labels.select( commandCode );
+
+                        if ( parsedCommandData.isLabelTypeAllowed( labels.getTypeOfSelected() ))
+                            {
+
+// !!!! THIS SHOULD BE REVIWED !!!! WHAT ABOUT EXTENDED COPY ???? //
+// returnParameters.addCopy ( labels.getValueOfSelected - which is a complex list )
+
+                            // label key is given as commandCode, while type is the parsed commandCode !! forwardParameters is used only as a tromporary storage here
+                            forwardParameters = (LongObjectMap<Object>) labels.getValueOfSelected(); // .get( commandCode, parsedCommandCode );
+
+                            diagnostics.debug( "[" + commandString + "] is identified as a label. Value: [" +
+                                    forwardParameters + "]");
+
+                            // All elements are copied into returnedParameters
+                            // each entry should be checked if multiple or not
+                            for (long key : forwardParameters.keys())
+                                {
+                                if (key > 0L) // SINGLE
+                                    {
+                                    returnParameters.put(key, forwardParameters.get(key));
+                                    }
+                                else // MULTIPLE
+                                    {
+                                    ExtendedList<KeyValuePair> list =
+                                            (ExtendedList<KeyValuePair>) returnParameters.get(key);
+
+                                    if (list == null)
+                                        {
+                                        list = new ExtendedList<KeyValuePair>();
+                                        returnParameters.put(key, list);
+                                        }
+                                    list.addAll((ExtendedList<KeyValuePair>) (forwardParameters.get(key)));
+                                    }
+                                }
+                            }
+                        else // This label is not allowed here
+                            {
+                            tokenizer.error(commandString, ParserMessage.PARSER_PARAMETER_INVALID,
+                                    Tokenizer.regenerateKeyword( commandCode ));
+                            // parameter-block (if any) will be skipped as unexpected block
+                            }
+                        }
+                    catch (InvalidKeyException e)
+                        {
+                        tokenizer.error(commandString, ParserMessage.PARSER_PARAMETER_INVALID,
+                                Tokenizer.regenerateKeyword( commandCode ));
+                        // parameter-block (if any) will be skipped as unexpected block
+                        }
+
+                    // this token (label) was consumed, cycle to the next token
+                    continue;
+                    }
+
+                // An allowed parameter-command is ready here, step to second
+                }
+
+            // Parsing of complex parameter finishes here
+            else if ( tokenType == Tokenizer.TYPE_END || tokenType == Tokenizer.TYPE_EOF )
+                {
+                break;
+                }
+
+            // Unexpected block should be skipped
+            else if ( tokenType == Tokenizer.TYPE_START )
+                {
+                tokenizer.error( ParserMessage.PARSER_BLOCK_SKIPPED );
+                tokenizer.pushBackLastToken();
+                tokenizer.skipBlock();
+                continue;
+                }
+
+            // Character, Fraction, Integer, String, (Eol) are not allowed!
+            else
+                {
+                tokenizer.error( ParserMessage.PARSER_COMMAND_MISSING, tokenizer.getStringToken());
+                continue;
+                }
+
+
+            // SECOND: we should evaluate the parameter-list of the checked parameter-command
+            // Data of the parameter-command is needed
+            try
+                {
+                commandData = Commands.get( commandCode );
+                }
+            catch (InvalidKeyException e)
+                {
+                tokenizer.error( commandString, ParserMessage.PARSER_DATA_MISSING);
+                // parameter-block (if any) will be skipped as unexpected block
+                continue;
+                }
+
+            // Type can be:
+            // Complex parameter:
+            //      Parameters for method: forwardParameters (LongObjectMap)
+            //      Returned value: result of the method (if any) - or nothing
+            // One parameter
+            //      Parameters for method: result (Object)
+            //      Returned value: result of the method (if any) - or itself (result)
+            // Label parameter
+            //      No further method is called
+            // Flag parameter - doesn't have any parameter, but still will be stored
+            // among returnParameters with a fake (long command-code itself) Object
+            //      Parameters for method: none ()
+            //      Returned value: result of the method (if any) - or the fake Object
+            // No parameter
+            //      Parameters for method: none ()
+            //      Returned value: result of the method (if any) or nothing
+
+            // Result is cleared here, because it can contain the parameter itself (one-parameter)
+            // Or the result of the method (if any), or should be null
+            result = null;
+
+            // Parameter-command has COMPLEX parameters
+            if ( Bit.setSignedBitOff(commandData.getParameterType()) >= Tokenizer.TOKEN_CODE_SHIFT )
+                {
+                diagnostics.debug( "[" + commandString + "] is identified as COMPLEX parameter. " );
+                // surrounding parentheses are checked here
+                if (tokenizer.nextToken() != Tokenizer.TYPE_START)
+                    {
+                    tokenizer.error(commandString, ParserMessage.PARSER_LIST_MISSING);
+                    tokenizer.pushBackLastToken();
+                    continue;
+                    }
+
+                // tokenizer.note( commandString, ParserMessage.PARSER_COMPLEX_STARTED);
+                forwardParameters = parseComplexParameter(commandCode, commandData, true );
+
+                // forward results of previous parameter-commands with the same code to method
+                // forwarded value can be null
+                // !! multiple parameters should be used !!
+                // forwardParameters.put(commandCode, returnParameters.get(commandCode));
+
+                // END and EOF can be returned, but evaluation can be performed normally
+                if (tokenizer.nextToken() != Tokenizer.TYPE_END)
+                    {
+                    tokenizer.error(commandString, ParserMessage.PARSER_BRACKET_MISSING);
+                    }
+                // tokenizer.note( commandString, ParserMessage.PARSER_COMPLEX_FINISHED, forwardParameters.toString() );
+
+                diagnostics.debug( "Result of COMPLEX parameter [" + commandString + "]: " + forwardParameters );
+                // parameters for method are in forwardParameters, result is cleared
+                }
+
+            // Parameter-command has ONE parameter
+            else if ( Bit.setSignedBitOff(commandData.getParameterType()) <= Commands.PARAMETER_KEYWORD )
+                {
+                result = parseOneParameter( commandData.getParameterType());
+                // tokenizer.note( commandString, ParserMessage.PARSER_ONE_FINISHED, result.toString() );
+
+                diagnostics.debug( "[" + commandString + "] is identified as ONE parameter. Result: " + result );
+
+                if ( result ==null )
+                    {
+                    // There was an error, log was already sent, but this parameter cannot be consumed
+                    continue;
+                    }
+
+                // parameters for method are in result
+                }
+
+            // Parameter-command has LIST parameter
+            else if ( Bit.setSignedBitOff(commandData.getParameterType()) <= (Commands.PARAMETER_KEYWORD | Commands.PARAMETER_MOD_LIST) )
+                {
+                result = parseListParameter( commandData.getParameterType() );
+                // tokenizer.note( commandString, R.string.parser_list_finished, result.toString() );
+
+                diagnostics.debug( "[" + commandString + "] is identified as LIST parameter. Result: " + result );
+
+                if ( result ==null )
+                    {
+                    // List is completely missing, log was already sent,
+                    // but this parameter cannot be consumed
+                    continue;
+                    }
+
+                // parameters for method are in result
+                }
+
+            // Parameter-command has DEFAULT parameter
+            else if ( commandData.getParameterType() == Commands.PARAMETER_DEFAULT )
+                {
+                diagnostics.debug( "[" + commandString + "] creates default complex parameters." );
+
+                parseDefaultParameter();
+                continue;
+
+                // no method to call; no result to return
+                }
+
+            // Parameter-command has LABEL parameter
+            else if ( commandData.getParameterType() == Commands.PARAMETER_LABEL )
+                {
+                diagnostics.debug( "[" + commandString + "] creates label.");
+
+                parseLabelParameter(true); // Label change is not detected any more, parameter is not used!!
+                continue;
+
+                // no method to call; no result to return
+                }
+
+            // Parameter-command has CHANGE_LABEL parameter
+            else if ( commandData.getParameterType() == Commands.PARAMETER_CHANGE_LABEL )
+                {
+                diagnostics.debug( "[" + commandString + "] creates label." );
+
+                parseLabelParameter(false);
+                continue;
+
+                // no method to call; no result to return
+                }
+
+            // Parameter-command has COAT parameter
+            else if ( commandData.getParameterType() == Commands.PARAMETER_COAT )
+                {
+                diagnostics.debug( "[" + commandString + "] includes an other coat file." );
+                // A complete new coat file is loaded - then parsing returns to the previous coat file
+                parseCoatParameter();
+                continue;
+
+                // no method to call; no result to return
+                }
+
+            // Parameter-command has FLAG (true) parameter
+            else if ( commandData.getParameterType() == Commands.PARAMETER_FLAG )
+                {
+                diagnostics.debug( "[" + commandString + "] is identified as FLAG." );
+
+                // fake Object is needed to be stored among returnParameters
+                result = Boolean.TRUE;
+                }
+
+            // Parameter-command has FLAG (false) parameter
+            else if ( commandData.getParameterType() == Commands.PARAMETER_FLAG_FALSE )
+                {
+                diagnostics.debug( "[" + commandString + "] is identified as FALSE FLAG." );
+
+                // fake Object is needed to be stored among returnParameters
+                result = Boolean.FALSE;
+                }
+
+            // Parameter-command is a special STOP message
+            else if ( commandData.getParameterType() == Commands.MESSAGE_STOP )
+                {
+                diagnostics.debug( "[" + commandString + "] is identified as STOP MESSAGE. This block is skipped." );
+
+                // force to finish this block
+                tokenizer.stopBlock();
+                break;
+                }
+
+            // Parameter-command has NO parameters
+            // else
+            // No parameters for method, result remains null
+
+            // THIRD: method is called with the appropriate parameters
+            // Returned value (if any) is put into returnParameters
+            if ( commandData.hasMethodToCall() )
+                {
+                // tokenizer.note( commandString, ParserMessage.PARSER_METHOD_CALLED );
+
+                diagnostics.debug( "[" + commandString + "] is calling its method." );
+
+                try
+                    {
+                    // Different types of methods should be called - according to parameter type
+
+                    // Parameter-command has COMPLEX parameters - forwardParameters
+                    if ( commandData.isComplexType() )
+                        {
+                        result = commandMethods.callComplex( commandCode, forwardParameters );
+                        // As 'get' removes the entries from forwardparameters, it should be empty after the call
+
+                        if ( forwardParameters.size() > 0 )
+                            {
+                            StringBuilder builder = new StringBuilder();
+                            for (long key : forwardParameters.keys())
+                                {
+                                builder.append( Tokenizer.regenerateKeyword( key ));
+                                builder.append(" ");
+                                }
+
+                            tokenizer.error( commandString, ParserMessage.PARSER_PARAMETER_REMAINS , builder.toString());
+                            }
+                        }
+                    // Parameter-command has ONE parameter - result
+                    else if ( commandData.isOneType() )
+                        result = commandMethods.callOne( commandCode, result );
+                    // Parameter-command has LIST parameter - result
+                    else if ( commandData.isListType() )
+                        result = commandMethods.callList( commandCode, (List<Object>)result );
+                    // Parameter-command has NO or FLAG parameters - no parameters
+                    else
+                        result = commandMethods.callNo( commandCode );
+                    methodCalls++;
+                    // Label-parameters cannot arrive here
+
+                    // if ( result != null )
+                        // tokenizer.note( commandString, ParserMessage.PARSER_RESULT, result.toString() );
+                    // else
+                        // tokenizer.note( commandString, ParserMessage.PARSER_METHOD_NO_RESULT );
+
+                    diagnostics.debug( "[" + commandString + "] results: " + result);
+                    }
+                catch (RuntimeException re)
+                    {
+                    tokenizer.error( commandString, ParserMessage.PARSER_METHOD_EXCEPTION, re.toString() );
+                    // if result was ready (one-parameter) it will be still part of the returnedParameters
+                    // but this is NOT the result of the method!
+                    }
+                }
+            else
+                {
+                // tokenizer.note( commandString, ParserMessage.PARSER_NO_METHOD_CALLED );
+                diagnostics.debug( "[" + commandString + "] has no method." );
+                }
+
+            // if result is not null, it will part of the returnParameters as groupCode-result pair
+            if (result != null)
+                {
+                long groupCode = commandData.getGroupCode();
+
+                // commandMultiple cannot be 0 (already checked. -1: multiple, +1: single
+                if ( commandMultiple > 0 )
+                    {
+                    // if there was a previous result - it is overwritten
+                    previousResult = returnParameters.put( groupCode, result );
+                    if ( previousResult == null )
+                        {
+                        diagnostics.debug( "[" + commandString + "] (" + commandCode +
+                                ") has single result: " + result + " under group code: " + groupCode );
+                        }
+                    else
+                        {
+                        diagnostics.debug( "[" + commandString + "] (" + commandCode +
+                                ") overwrites previous result (" + previousResult + ") with single result: " + result +
+                                " under group code: " + groupCode );
+                        tokenizer.note( commandString, ParserMessage.PARSER_PREVIOUS_OVERWRITTEN);
+                        }
+                    }
+                else // MULTIPLE
+                    {
+                    groupCode = Bit.setSignedBitOn( groupCode );
+                    ExtendedList<KeyValuePair> list;
+
+                    list = (ExtendedList<KeyValuePair>)returnParameters.get( groupCode );
+                    if ( list == null )
+                        {
+                        list = new ExtendedList<KeyValuePair>();
+                        returnParameters.put( groupCode, list);
+                        }
+
+                    list.add( new KeyValuePair( commandCode, result) );
+                    diagnostics.debug( "[" + commandString + "] (" + commandCode +
+                            ") has multiple result: " + list +
+                            " under group code: " + groupCode );
+                    }
+                }
+
+            } // end of cycle
+
+        // Cycle finished with STOP or EOF - but we must not consume the terminating STOP token
+        tokenizer.pushBackLastToken();
+
+        diagnostics.debug( "[" + Tokenizer.regenerateKeyword(parsedCommandCode) + "] complex command is resulted: " + returnParameters );
+
+        return returnParameters;
+
+        //Char End Eof Eol Fract Int Keyword String Start
+        }
+
+
+    /**
+     * Parses one-parameter type parameters. Parameter can be inside parentheses.
+     * Currently BOOLEAN (Boolean), CHAR(Long), COLOR(Integer), LONG(Long),
+     * FILE(String), STRING(String) and KEYWORD(Long) can be parsed.
+     * The method will find LABELS as well.
+     * The precision of numeric values will be checked.
+     * CHAR precision numeric values can be returned as string.
+     * @param parameterType as defined in the Commands class
+     * @return the value of the parameter, or null if parameter is invalid
+     * @throws IOException (coat) file reading fails
+     */
+    private Object parseOneParameter( long parameterType) throws IOException
+        {
+        String forParameter = tokenizer.getStringToken();
+
+        Object result; // null == error
+        boolean bracket = false;
+
+        // 1st - optional - token is OPENING BRACKET
+        if ( tokenizer.nextToken() == Tokenizer.TYPE_START )
+            {
+            bracket = true;
+            }
+        else
+            {
+            tokenizer.pushBackLastToken();
+            }
+
+        // 2nd token is PARAMETER - null and error message, if invalid
+        result = parseParameter( parameterType, true, forParameter );
+
+        // 3rd token CLOSING BRACKET (If bracket was opened, it should also be closed)
+        if ( bracket )
+            {
+            if ( tokenizer.nextToken() != Tokenizer.TYPE_END )
+                {
+                tokenizer.error( forParameter, ParserMessage.PARSER_BRACKET_MISSING );
+                tokenizer.pushBackLastToken();
+                // There are several ways to resolve this mistake.
+                // Result (if ready) is returned, invalid token is pushed back for further analysis
+                }
+            }
+
+        // tokenizer.note( forParameter, ParserMessage.PARSER_RESULT, result.toString() );
+        // Returning result
+        return result;
+        }
+
+
+    /**
+     * Parses list of one-parameter type parameters.
+     * List elements should have the same type.
+     * Each parameter of the list is get by parseOneParameter().
+     * @param parameterType as defined in the Commands class
+     * (can be one-parameter or list-parameter type)
+     * @return list of the parameter values as an array-list, or null if list is completely missing
+     * @throws IOException (coat) file reading fails
+     */
+    private List<Object> parseListParameter( long parameterType) throws IOException
+        {
+        String forParameter = tokenizer.getStringToken();
+
+        List<Object> result = new ExtendedList<Object>();
+        Object element;
+
+        // 1st token is obligatory OPENING-BRACKET
+        if ( tokenizer.nextToken() != Tokenizer.TYPE_START )
+            {
+            tokenizer.error( forParameter, ParserMessage.PARSER_VALUE_LIST_MISSING);
+            tokenizer.pushBackLastToken();
+            return null;
+            }
+
+        // 5. bit of parameter type should be turned 0
+        parameterType &= (~Commands.PARAMETER_MOD_LIST);
+
+        // Next tokens: one-parameter type tokens, terminated by TYPE_END
+        while ( true )
+            {
+            element = parseParameter( parameterType, false, forParameter );
+
+            // only valid elements are added
+            if ( element != null )
+                {
+                result.add( element );
+                }
+
+            // token evaluation should be continued, if returned value is not valid
+
+            // Termination should be evaluated first, not to send error message
+            else if ( tokenizer.getTokenType() == Tokenizer.TYPE_END )
+                {
+                break;
+                }
+            // element is invalid because of EOF
+            else if ( tokenizer.getTokenType() == Tokenizer.TYPE_EOF )
+                {
+                tokenizer.error( forParameter, ParserMessage.PARSER_BRACKET_MISSING );
+                break;
+                }
+            }
+
+        return result;
+        }
+
+
+    /**
+     * Parses the next token according to one-parameter type parameters.
+     * Currently BOOLEAN (Boolean), CHAR(Long), COLOR(Integer), LONG(Long),
+     * FILE(String), STRING(String) and KEYWORD(Long) can be parsed.
+     * The method will find LABELS as well.
+     * The precision of numeric values will be checked.
+     * CHAR precision numeric values can be returned as string.
+     * If parameter is invalid then null is returned after an error message.
+     * TYPE_END token is not consumed and no error message is sent!
+     * @param parameterType as defined in the Commands class - IT SHOULD BE A REAL ONE-PARAMETER!
+     * @param obligatory if parameter is obligatory (TYPE_END sends error message)
+     * @param forParameter textual name of parameter-command (just for debugging)
+     * @return the value of the parameter, or null if parameter is invalid
+     * @throws IOException (coat) file reading fails
+     */
+    private Object parseParameter( long parameterType, boolean obligatory, String forParameter ) throws IOException
+        {
+        Object result = null; // null == error
+
+        int tokenType = tokenizer.nextToken();
+        try
+            {
+            // 2nd token is PARAMETER token
+            if ( tokenType == Tokenizer.TYPE_INTEGER )
+                {
+                // BOOLEAN CHAR COLOR INT LONG
+                if ( parameterType <= Commands.PARAMETER_LONG )
+                    {
+                    // Parameter: NUMERIC, Token: NUMERIC, Return: LONG
+                    result = tokenizer.getIntegerToken();
+                    }
+                else if ( parameterType == Commands.PARAMETER_TEXT)
+                    {
+                    // Parameter: TEXT, Token: INTEGER, Return: CHARACTER (from char)
+                    result = tokenizer.getIntegerToken();
+                    // result will be checked as character
+                    parameterType = Commands.PARAMETER_CHAR;
+                    }
+                else // file, string and keyword parameter types
+                    tokenizer.error( forParameter, ParserMessage.PARSER_INVALID_NUMERIC );
+                }
+
+            else if ( tokenType == Tokenizer.TYPE_CHARACTER )
+                {
+                // BOOLEAN CHAR COLOR INT LONG
+                if ( parameterType <= Commands.PARAMETER_LONG )
+                    {
+                    // Parameter: NUMERIC, Token: CHARACTER, Return: LONG
+                    result = tokenizer.getIntegerToken();
+                    }
+                else if ( parameterType == Commands.PARAMETER_TEXT)
+                    {
+                    // Parameter: TEXT, Token: CHARACTER, Return: CHARACTER (from char)
+                    result = tokenizer.getIntegerToken();
+                    // result will be checked as character
+                    parameterType = Commands.PARAMETER_CHAR;
+                    }
+                else // file, string, keyword parameter types
+                    tokenizer.error( forParameter, ParserMessage.PARSER_INVALID_CHARACTER );
+                }
+
+            else if ( tokenType == Tokenizer.TYPE_STRING )
+                {
+                // STRING FILE
+                if ( parameterType > Commands.PARAMETER_LONG && parameterType <= Commands.PARAMETER_STRING )
+                    {
+                    // Parameter: STRING, Token: STRING, Return: STRING
+                    result = tokenizer.getStringToken();
+                    }
+                else if ( parameterType == Commands.PARAMETER_TEXT)
+                    {
+                    // Parameter: TEXT, Token: STRING, Return: STRING (from string)
+                    result = tokenizer.getStringToken();
+                    // result will be checked as string
+                    parameterType = Commands.PARAMETER_STRING;
+                    }
+                else  // numeric (BOOLEAN CHAR COLOR INT LONG), keyword parameter types
+                    tokenizer.error( forParameter, ParserMessage.PARSER_INVALID_STRING );
+                }
+
+            else if ( tokenType == Tokenizer.TYPE_KEYWORD )
+                {
+                long key = tokenizer.getIntegerToken();
+
+                if ( parameterType == Commands.PARAMETER_KEYWORD )
+                    {
+                    // Parameter: KEYWORD, Token: KEYWORD, Return: LONG (code from keyword)
+                    result = key;
+                    }
+
+                // 2nd token is LABEL token
+                else
+                    {
+                    // CHAR COLOR INT LONG
+                    if ( parameterType <= Commands.PARAMETER_LONG )
+                        {
+                        // RETURN VALID LONG INTEGER (LABEL)
+                        result = labels.getLongValue( key );
+                        }
+                    // FILE STRING
+                    else if ( parameterType <= Commands.PARAMETER_STRING )
+                        {
+                        // RETURN VALID STRING (LABEL)
+                        result = labels.getStringValue(key);
+                        }
+                    else if ( parameterType == Commands.PARAMETER_TEXT)
+                        {
+                        labels.select( key );
+                        if ( labels.isNumericSelected() )
+                            {
+                            // Parameter: TEXT, Token: KEYWORD (numeric type), Return: CHARACTER (from long/char)
+                            result = (Long)labels.getValueOfSelected();
+                            parameterType = Commands.PARAMETER_CHAR;
+                            }
+                        else if ( labels.isStringSelected() )
+                            {
+                            // Parameter: TEXT, Token: KEYWORD (string type), Return: STRING (from string)
+                            result = (String) labels.getValueOfSelected();
+                            parameterType = Commands.PARAMETER_STRING;
+                            }
+                        // Complex labels are not allowed here
+                        }
+                    else
+                        tokenizer.error( forParameter, ParserMessage.PARSER_INVALID_KEYWORD );
+                    }
+                }
+            // Obligatory: 2nd token is MISSING, 3rd token is pushed back (it should not be consumed)
+            // Non-obligatory: token is valid, and will be evaluated later
+            else if ( tokenType == Tokenizer.TYPE_END )
+                {
+                if ( obligatory )
+                    {
+                    tokenizer.error( forParameter, ParserMessage.PARSER_VALUE_MISSING );
+                    // token is not consumed!
+                    tokenizer.pushBackLastToken();
+                    }
+                // if non-obligatory - further evaluation will be performed
+                }
+            // 2nd token is MISSING, descriptor file is terminated
+            else if ( tokenType == Tokenizer.TYPE_EOF )
+                {
+                tokenizer.error( forParameter, ParserMessage.PARSER_TERMINATED );
+                }
+            // 2nd token is invalid
+            else // TOKEN_FRACTION, TOKEN_START
+                {
+                tokenizer.error( forParameter, ParserMessage.PARSER_VALUE_INVALID );
+                }
+            }
+        catch (InvalidKeyException ike)
+            {
+            tokenizer.error( forParameter, ParserMessage.PARSER_NO_LABEL, tokenizer.getStringToken());
+            }
+
+        if ( result != null )
+            {
+            // Precision check for BOOLEAN parameter
+            if ( parameterType == Commands.PARAMETER_BOOLEAN )
+                {
+                result = (long) result == 0 ? Boolean.FALSE : Boolean.TRUE;
+                }
+
+            // Precision check for CHAR parameter
+            else if ( parameterType == Commands.PARAMETER_CHAR )
+                {
+                if ( (long) result < Character.MIN_VALUE || (long) result > Character.MAX_VALUE )
+                    {
+                    tokenizer.error( forParameter, ParserMessage.PARSER_INVALID_CHAR_VALUE, Long.toHexString( (long) result ) );
+                    // result = (long) result & (long) Character.MAX_VALUE;
+                    }
+                long temp = (long) result;
+                result = (char) temp;
+                }
+
+            // Precision check for COLOR parameter
+            else if ( parameterType == Commands.PARAMETER_COLOR )
+                {
+                if ( (long) result < 0L || (long) result > 0xFFFFFFFFL )
+                    {
+                    tokenizer.error( forParameter, ParserMessage.PARSER_INVALID_COLOR_VALUE, Long.toHexString( (long) result ) );
+                    // result = (long) result & 0xFFFFFFFFL;
+                    }
+                long temp = (long) result;
+                result = (int) temp;
+                }
+
+            // Precision check for INT parameter
+            else if ( parameterType == Commands.PARAMETER_INT )
+                {
+                if ( (long) result < Integer.MIN_VALUE || (long) result > Integer.MAX_VALUE )
+                    {
+                    tokenizer.error( forParameter, ParserMessage.PARSER_INVALID_INT_VALUE, String.valueOf( (long) result ) );
+                    // result = (long) result & ??;
+                    }
+                long temp = (long) result;
+                result = (int) temp;
+                }
+
+            // Precision check for FILE parameter
+            else if ( parameterType == Commands.PARAMETER_FILE )
+                {
+                File file = new File( coatDirectory, (String) result );
+
+                if ( !file.exists() || !file.isFile() )
+                    {
+                    tokenizer.error( forParameter, ParserMessage.PARSER_NO_FILE, (String) result );
+                    result = null;
+                    }
+                else
+                    {
+                    result = file;
+                    }
+                }
+            }
+
+        // tokenizer.note( forParameter, ParserMessage.PARSER_RESULT, result.toString() );
+
+        // Error handling - error log was already sent; result is null
+        // Returning result
+        return result;
+        }
+
+
+    /**
+     * Parses parameters after INCLUDE coat command.
+     * @throws IOException (coat) file reading fails
+     */
+    private void parseCoatParameter( )
+            throws IOException, ExternalDataException, InvalidCoatFileException
+        {
+        // parse one parameter file name
+        File coatFile;
+
+        if ((coatFile = (File)parseOneParameter( Commands.PARAMETER_FILE )) != null )
+            {
+            // Current parsing stops here temporary
+            parseDescriptorFile( coatFile );
+            // And returns after finishing the incuded one
+            }
+        }
+
+
+    /**
+     * Parses parameters after LET command.
+     * Parameters are special labelkey-labelvalue pairs, where labelkey is a keyword,
+     * and labelvalue is one of TYPE_STRING, TYPE_CHARACTER, TYPE_INTEGER token.
+     * These parameters are specially handled, because their type is not known previously,
+     * and keywords (labels) are not accepted!
+     * @param denyOverwrite if true then overwrite causes error
+     * @throws IOException (coat) file reading fails
+     */
+    private void parseLabelParameter( boolean denyOverwrite )
+            throws IOException, ExternalDataException, InvalidCoatFileException
+        {
+        // key part
+        long key = 0L;
+        String keyString = null; // just for logging
+
+        // type part
+        long type = 0L;
+
+        // value part
+        Object value = null;
+        String valueString = null; // just for logging
+
+        boolean error = false; // ?? is it really needed ?? or can be replaced by value == null
+
+        // 1st token is obligatory OPENING-BRACKET
+        int tokenType = tokenizer.nextToken();
+        if ( tokenType != Tokenizer.TYPE_START )
+            {
+            tokenizer.error( ParserMessage.PARSER_LABEL_KEY_MISSING);
+            tokenizer.pushBackLastToken();
+            return;
+            }
+
+        // 2nd token is KEYWORD
+        tokenType = tokenizer.nextToken();
+        if ( tokenType == Tokenizer.TYPE_KEYWORD )
+            {
+            // correct label key
+            key = tokenizer.getIntegerToken();
+            keyString = tokenizer.getStringToken();
+            }
+        // 2nd and 3rd tokens are MISSING, closing-bracket is consumed
+        else if ( tokenType == Tokenizer.TYPE_END )
+            {
+            tokenizer.error( ParserMessage.PARSER_LABEL_KEY_MISSING );
+            return;
+            }
+        else if( tokenType == Tokenizer.TYPE_EOF )
+            {
+            tokenizer.error( ParserMessage.PARSER_TERMINATED );
+            return;
+            }
+        // 2nd token is invalid
+        else
+            {
+            tokenizer.error( ParserMessage.PARSER_LABEL_KEY_INVALID, tokenizer.getStringToken());
+            error = true;
+            }
+
+        //3rd token is VALUE
+        tokenType = tokenizer.nextToken();
+
+        // Value is string
+        if ( tokenType == Tokenizer.TYPE_STRING )
+            {
+            type = Commands.PARAMETER_STRING;
+            value = tokenizer.getStringToken();
+            valueString = (String)value;
+            }
+        // Value is long (character or integer)
+        else if ( tokenType == Tokenizer.TYPE_CHARACTER || tokenType == Tokenizer.TYPE_INTEGER )
+            {
+            type = Commands.PARAMETER_LONG;
+            value = (Long) tokenizer.getIntegerToken();
+            valueString = tokenizer.getStringToken();
+            }
+        // Value is complex
+        else if ( tokenType == Tokenizer.TYPE_KEYWORD )
+            {
+            // key - already given
+            // type - token of command, commandCode
+            // value - parameters of command, evaluated by parseComplexParameter
+
+            type = tokenizer.getIntegerToken();
+            String typeString = tokenizer.getStringToken();
+
+            try
+                {
+                Commands.Data data = Commands.get( type );
+                if ( data.isAllowedAsLabel() )
+                    {
+                    value = parseComplexValue(type, typeString);
+                    if (value == null)
+                        {
+                        // !! Error was already signed !!
+                        tokenizer.error(keyString, ParserMessage.PARSER_LABEL_COMPLEX_INVALID);
+                        error = true;
+                        }
+                    else
+                        {
+                        valueString = typeString + ":" + value;
+                        }
+                    }
+                else
+                    {
+                    tokenizer.error( typeString, ParserMessage.PARSER_LABEL_COMPLEX_NOT_ALLOWED );
+                    // next block should be skipped
+                    tokenizer.skipBlock();
+                    error = true;
+                    }
+                }
+            catch (InvalidKeyException e)
+                {
+                tokenizer.error( typeString, ParserMessage.PARSER_DATA_MISSING);
+                // next block should be skipped
+                tokenizer.skipBlock();
+                error = true;
+                }
+            }
+        // 3rd token is MISSING, closing-bracket is consumed
+        else if ( tokenType == Tokenizer.TYPE_END )
+            {
+            tokenizer.error( keyString, ParserMessage.PARSER_LABEL_VALUE_MISSING );
+            return;
+            }
+        else if ( tokenType == Tokenizer.TYPE_EOF )
+            {
+            tokenizer.error( keyString, ParserMessage.PARSER_TERMINATED );
+            return;
+            }
+        // 3nd token is invalid
+        else
+            {
+            tokenizer.error( keyString, ParserMessage.PARSER_LABEL_VALUE_INVALID, tokenizer.getStringToken());
+            error = true;
+            }
+
+        // 4th token is obligatory CLOSING BRACKET
+        tokenType = tokenizer.nextToken();
+        if ( tokenType != Tokenizer.TYPE_END )
+            {
+            tokenizer.error( ParserMessage.PARSER_BRACKET_MISSING);
+            tokenizer.pushBackLastToken();
+            // There are several ways to resolve this mistake.
+            // Result (if ready) is returned, invalid token is pushed back for further analysis
+            }
+
+        // error was already logged
+        if (error)
+            return;
+
+        // We have a correct label key-type-value pair
+        error = labels.add(key, type, value);
+        tokenizer.note( keyString, ParserMessage.PARSER_LABEL_ADDED, valueString );
+
+        diagnostics.debug( "Label is " + (error ? "changed:" : " added: ") +
+                keyString + "[" + Long.toHexString(key) + "], " + valueString);
+
+        // This label key was previously set!
+        if ( error && denyOverwrite )
+            {
+            tokenizer.error( keyString, ParserMessage.PARSER_LABEL_OVERWRITTEN );
+            }
+        }
+
+
+    /**
+     * Parses parameters after DEFAULT command.
+     * Very similar to LET command, only one parameter allowed, brackets are obligatory.
+     * Parameter is a complex parameter-command, allowed in ALLOWED_AS_LABEL[]
+     * @throws IOException (coat) file reading fails
+     */
+    private void parseDefaultParameter()
+            throws IOException, ExternalDataException, InvalidCoatFileException
+        {
+        // type part
+        long type = 0L;
+        String typeString = null;
+
+        // value part
+        LongObjectMap<Object> value = null; // value == null means error
+        String valueString = null; // just for logging
+
+        boolean bracket = false;
+
+        // 1st - optional - token is OPENING BRACKET
+        if ( tokenizer.nextToken() == Tokenizer.TYPE_START )
+            {
+            bracket = true;
+            }
+        else
+            {
+            tokenizer.pushBackLastToken();
+            }
+
+        //2rd token is VALUE
+        int tokenType = tokenizer.nextToken();
+
+        // Value is complex
+        if ( tokenType == Tokenizer.TYPE_KEYWORD )
+            {
+            // type - token of command, commandCode
+            // value - parameters of command, evaluated by parseComplexParameter
+
+            type = tokenizer.getIntegerToken();
+            typeString = tokenizer.getStringToken();
+
+            try
+                {
+                Commands.Data data = Commands.get( type );
+                if ( data.isAllowedAsDefault() )
+                    {
+                    value = parseComplexValue(type, typeString);
+                    if (value == null)
+                        {
+                        // !! Error was already signed !!
+                        tokenizer.error(typeString, ParserMessage.PARSER_DEFAULT_VALUE_INVALID);
+                        }
+                    else
+                        {
+                        valueString = typeString + ":" + value;
+                        }
+                    }
+                else
+                    {
+                    tokenizer.error(typeString, ParserMessage.PARSER_DEFAULT_COMPLEX_NOT_ALLOWED);
+                    // next block should be skipped
+                    tokenizer.skipBlock();
+                    }
+                }
+            catch (InvalidKeyException e)
+                {
+                tokenizer.error(typeString, ParserMessage.PARSER_DATA_MISSING);
+                // next block should be skipped
+                tokenizer.skipBlock();
+                }
+            }
+        // 2nd token is MISSING
+        else if ( tokenType == Tokenizer.TYPE_END )
+            {
+            tokenizer.error( ParserMessage.PARSER_DEFAULT_TYPE_MISSING);
+            // token is not consumed!
+            tokenizer.pushBackLastToken();
+            return;
+            }
+        else if ( tokenType == Tokenizer.TYPE_EOF )
+            {
+            tokenizer.error( ParserMessage.PARSER_TERMINATED );
+            return;
+            }
+        // 2nd token is invalid
+        else
+            {
+            tokenizer.error( ParserMessage.PARSER_DEFAULT_TYPE_INVALID, tokenizer.getStringToken());
+            }
+
+        // 3rd token CLOSING BRACKET (If bracket was opened, it should also be closed)
+        if ( bracket )
+            {
+            if ( tokenizer.nextToken() != Tokenizer.TYPE_END )
+                {
+                tokenizer.error( ParserMessage.PARSER_BRACKET_MISSING );
+                tokenizer.pushBackLastToken();
+                // There are several ways to resolve this mistake.
+                // Result (if ready) is returned, invalid token is pushed back for further analysis
+                }
+            }
+
+        // error was already logged
+        if ( value == null )
+            return;
+
+        // defaults can be overwritten without notice
+        value = defaults.put( type, value );
+
+        tokenizer.note(typeString, ParserMessage.PARSER_DEFAULT_ADDED);
+
+        // !! tokenizer.note should be used - or not?? !!
+        diagnostics.debug( "Default is" + (value == null ? " added: " : "changed: ") + valueString);
+        }
+
+
+    /**
+     * Parses the parameters of the complex value inside the LET command.
+     * Pattern: START (obligatory) - complex parameter - END (obligatory)
+     * @param commandCode
+     * @param commandString just for debug
+     * @return complex evaluated by parseComplexParameter() (can be empty,
+     * OR null if complex is not valid
+     * @throws IOException
+     */
+    private LongObjectMap<Object> parseComplexValue(long commandCode, String commandString)
+            throws IOException, ExternalDataException, InvalidCoatFileException
+        {
+        LongObjectMap<Object> result = null;
+        Commands.Data commandData;
+
+        // get command's data
+        try
+            {
+            commandData = Commands.get( commandCode );
+            }
+        catch (InvalidKeyException e)
+            {
+            // This cannot happen, because command is part of the allowed commands
+            tokenizer.error( commandString, ParserMessage.PARSER_DATA_MISSING);
+            // parameter-block (if any) will be skipped as unexpected block
+            return null;
+            }
+
+        // surrounding parentheses are checked here
+        if (tokenizer.nextToken() != Tokenizer.TYPE_START)
+            {
+            tokenizer.error( commandString, ParserMessage.PARSER_LIST_MISSING );
+            tokenizer.pushBackLastToken();
+            return null;
+            }
+
+        else
+            {
+            // tokenizer.note( commandString, ParserMessage.PARSER_COMPLEX_STARTED);
+            result = parseComplexParameter( commandCode, commandData, false );
+
+            // END and EOF can be returned, but evaluation can be performed normally
+            if ( tokenizer.nextToken() != Tokenizer.TYPE_END )
+                {
+                tokenizer.error( commandString, ParserMessage.PARSER_BRACKET_MISSING );
+                }
+            }
+
+        return result;
+        }
+
+
+    /**
+     * Helper method to create String from PARAMETER_TEXT
+     * @param text String or Character object - CANNOT CALLED WITH OTHER TYPES!
+     * @return String equivalent
+     * !! This method is only used for PARAMETER_TEXT,
+     * but toString() could be used to make it more general.
+     */
+    public static String stringFromText( Object text )
+        {
+        if (text instanceof Character )
+            return String.valueOf( (char)text );
+        else // if ( temp instanceof String )
+            return (String)text;
+        }
+
+    }
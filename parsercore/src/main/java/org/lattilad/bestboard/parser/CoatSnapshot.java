@@ -0,0 +1,390 @@
+package org.lattilad.bestboard.parser;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compiled snapshot of a coat file set.
+ * <p>
+ * Snapshot contains the token streams of the main coat file and all the INCLUDE-d coat files,
+ * in the order as parser called them. Each entry is identified by the path and the
+ * content hash (SHA-1) of the coat file. Snapshot is valid only for the same
+ * Commands.COAT_VERSION and the same installation of the program (program stamp),
+ * because recorded messages contain the ordinals of ParserMessage.
+ * <p>
+ * SoftBoardData cannot be stored, because it contains a lot of system
+ * dependent classes (bitmaps, typefaces, listeners), so command methods are still called,
+ * but reading and tokenizing of the coat files can be skipped.
+ * <p>
+ * Entries of the loaded snapshot are checked one by one: only the tokens of unchanged
+ * coat files are used. So after editing one coat file only that file is tokenized again.
+ * Parser can ask for the files in any order (eg. INCLUDE-s can be changed).
+ * Tokens of the snapshot do not depend on the other files: labels are resolved by the parser,
+ * and default alfa is added to the colors during replay.
+ */
+public class CoatSnapshot
+    {
+    /** Beginning of snapshot files */
+    private static final int MAGIC = 0x434F4154; // COAT
+
+    /** Format of the snapshot file, should be changed if TokenStream format changes */
+    private static final int FORMAT_VERSION = 3;
+
+    /** Snapshot files are stored in this directory with this extension */
+    private static final String SNAPSHOT_EXTENSION = ".snapshot";
+
+    /** Buffer size for reading coat files during hash calculation */
+    private static final int HASH_BUFFER_SIZE = 16384;
+
+    /** Longest hash accepted from the snapshot file (SHA-1 needs 20 bytes) */
+    private static final int MAX_HASH_LENGTH = 64;
+
+
+    /** One coat file: absolute path, content hash and tokens */
+    private static class Entry
+        {
+        private String path;
+        private byte[] hash;
+        private TokenStream stream;
+
+        /** Entry was given back to the parser */
+        private boolean used = false;
+
+        private Entry( String path, byte[] hash, TokenStream stream )
+            {
+            this.path = path;
+            this.hash = hash;
+            this.stream = stream;
+            }
+        }
+
+    /** Entries in parsing order */
+    private List<Entry> entries = new ArrayList<>();
+
+    /** Entries of unchanged coat files by path (only in loaded snapshots) */
+    private Map<String, Entry> validEntries = new HashMap<>();
+
+    /** Entry given back by the previous nextStream() call */
+    private Entry lastEntry = null;
+
+    /** Parser needed a coat file, which is not among the valid entries */
+    private boolean missed = false;
+
+
+    /**
+     * Name of the snapshot file of the given main coat file
+     * @param cacheDirectory directory of the snapshot files
+     * @param descriptorFile main coat file
+     * @return snapshot file
+     */
+    public static File getSnapshotFile( File cacheDirectory, File descriptorFile )
+        {
+        return new File( cacheDirectory, "coat_" +
+                Integer.toHexString( descriptorFile.getAbsolutePath().hashCode() ) + SNAPSHOT_EXTENSION );
+        }
+
+
+    /**
+     * Creates digest for content hashes
+     */
+    public static MessageDigest createDigest()
+        {
+        try
+            {
+            return MessageDigest.getInstance("SHA-1");
+            }
+        catch (NoSuchAlgorithmException e)
+            {
+            // SHA-1 is available on all platforms
+            throw new IllegalStateException( e );
+            }
+        }
+
+    /**
+     * Content hash of a file
+     * @param file file to check
+     * @return hash of the file
+     * @throws IOException if file cannot be read
+     */
+    public static byte[] hashOf( File file ) throws IOException
+        {
+        MessageDigest digest = createDigest();
+        byte[] buffer = new byte[HASH_BUFFER_SIZE];
+        int length;
+
+        InputStream in = new FileInputStream( file );
+        try
+            {
+            while ( (length = in.read( buffer )) >= 0 )
+                {
+                digest.update( buffer, 0, length );
+                }
+            }
+        finally
+            {
+            in.close();
+            }
+
+        return digest.digest();
+        }
+
+
+    /**
+     * Adds a new entry. Entries should be added in parsing order.
+     * @param file coat file
+     * @param hash content hash of the coat file
+     * @param stream tokens of the coat file
+     */
+    public void add( File file, byte[] hash, TokenStream stream )
+        {
+        entries.add( new Entry( file.getAbsolutePath(), hash, stream ) );
+        }
+
+    /**
+     * Inserts a new entry. Hash of a tokenized file is ready only after parsing,
+     * when entries of the INCLUDE-d files were already added.
+     * @param index position of the entry (number of entries before parsing this file)
+     * @param file coat file
+     * @param hash content hash of the coat file
+     * @param stream tokens of the coat file
+     */
+    public void add( int index, File file, byte[] hash, TokenStream stream )
+        {
+        entries.add( index, new Entry( file.getAbsolutePath(), hash, stream ) );
+        }
+
+    /**
+     * Number of entries
+     */
+    public int size()
+        {
+        return entries.size();
+        }
+
+    /**
+     * Returns the token stream of the given file, if the file was not changed.
+     * @param file coat file needed by the parser
+     * @return token stream of the file, or null if it should be tokenized again
+     */
+    public TokenStream nextStream( File file )
+        {
+        lastEntry = validEntries.get( file.getAbsolutePath() );
+        if ( lastEntry == null )
+            {
+            missed = true;
+            return null;
+            }
+
+        lastEntry.used = true;
+        return lastEntry.stream;
+        }
+
+    /**
+     * Hash of the entry returned by the previous nextStream() call
+     */
+    public byte[] lastHash()
+        {
+        return lastEntry.hash;
+        }
+
+    /**
+     * True, if all entries were replayed, and no other files were needed
+     * (Snapshot need not be saved again.)
+     */
+    public boolean isFullyUsed()
+        {
+        if ( missed || validEntries.size() != entries.size() )
+            return false;
+
+        for ( Entry entry : entries )
+            {
+            if ( !entry.used )
+                return false;
+            }
+        return true;
+        }
+
+    /**
+     * Number of unchanged coat files
+     */
+    public int validSize()
+        {
+        return validEntries.size();
+        }
+
+
+    /**
+     * Loads a snapshot, and checks which coat files are unchanged.
+     * Snapshot is deleted, if it cannot be read (or it is broken),
+     * so parser tokenizes the coat files again, and saves a new snapshot.
+     * @param diagnostics receiver of the debug and error messages
+     * @param snapshotFile snapshot file
+     * @param programStamp identifies the installed program (eg. its update time)
+     * @return snapshot ready to replay, or null if snapshot is missing or not valid
+     */
+    public static CoatSnapshot load( Diagnostics diagnostics, File snapshotFile, long programStamp )
+        {
+        if ( !snapshotFile.exists() )
+            {
+            diagnostics.debug( "No coat snapshot: " + snapshotFile.getName() );
+            return null;
+            }
+
+        CoatSnapshot snapshot = new CoatSnapshot();
+        long maxBytes = snapshotFile.length();
+        DataInputStream in = null;
+        try
+            {
+            in = new DataInputStream( new BufferedInputStream( new FileInputStream( snapshotFile ), HASH_BUFFER_SIZE ) );
+
+            if ( in.readInt() != MAGIC ||
+                    in.readInt() != FORMAT_VERSION ||
+                    in.readLong() != Commands.COAT_VERSION ||
+                    in.readLong() != programStamp )
+                {
+                diagnostics.debug( "Coat snapshot version is obsolete." );
+                return null;
+                }
+
+            int count = in.readInt();
+            for ( int n = 0; n < count; n++ )
+                {
+                String path = in.readUTF();
+                int hashLength = in.readInt();
+                if ( hashLength < 0 || hashLength > MAX_HASH_LENGTH )
+                    throw new IOException("Hash length is not valid: " + hashLength);
+                byte[] hash = new byte[hashLength];
+                in.readFully( hash );
+
+                Entry entry = new Entry( path, hash, TokenStream.read( in, maxBytes ) );
+                snapshot.entries.add( entry );
+
+                File file = new File( path );
+                if ( !file.isFile() || !Arrays.equals( hash, hashOf( file ) ) )
+                    {
+                    diagnostics.debug( "Coat file has changed: " + path );
+                    }
+                else
+                    {
+                    snapshot.validEntries.put( path, entry );
+                    }
+                }
+            }
+        catch ( IOException ioe )
+            {
+            diagnostics.programError( "Coat snapshot cannot be read: " + ioe.toString() );
+            snapshot = null;
+            }
+        catch ( RuntimeException re )
+            {
+            diagnostics.programError( "Coat snapshot is not valid: " + re.toString() );
+            snapshot = null;
+            }
+        finally
+            {
+            if ( in != null )
+                {
+                try
+                    {
+                    in.close();
+                    }
+                catch (IOException ioe)
+                    {
+                    diagnostics.programError( "ERROR IN CLOSE (Coat snapshot) " + ioe.toString() );
+                    }
+                }
+            }
+
+        if ( snapshot == null )
+            {
+            if ( !snapshotFile.delete() )
+                diagnostics.programError( "Coat snapshot cannot be deleted: " + snapshotFile.getName() );
+            return null;
+            }
+
+        if ( snapshot.validSize() == 0 )
+            {
+            diagnostics.debug( "All coat files have changed." );
+            return null;
+            }
+
+        return snapshot;
+        }
+
+    /**
+     * Saves snapshot. Snapshot file is written under a temporary name first,
+     * so a broken write cannot leave a not valid snapshot behind.
+     * @param diagnostics receiver of the debug and error messages
+     * @param snapshotFile snapshot file
+     * @param programStamp identifies the installed program (eg. its update time)
+     */
+    public void save( Diagnostics diagnostics, File snapshotFile, long programStamp )
+        {
+        File tempFile = new File( snapshotFile.getPath() + ".tmp" );
+        DataOutputStream out = null;
+        try
+            {
+            out = new DataOutputStream( new BufferedOutputStream( new FileOutputStream( tempFile ), HASH_BUFFER_SIZE ) );
+
+            out.writeInt( MAGIC );
+            out.writeInt( FORMAT_VERSION );
+            out.writeLong( Commands.COAT_VERSION );
+            out.writeLong( programStamp );
+
+            out.writeInt( entries.size() );
+            for ( Entry entry : entries )
+                {
+                out.writeUTF( entry.path );
+                out.writeInt( entry.hash.length );
+                out.write( entry.hash );
+                entry.stream.write( out );
+                }
+
+            out.close();
+            out = null;
+
+            if ( !tempFile.renameTo( snapshotFile ) )
+                {
+                snapshotFile.delete();
+                if ( !tempFile.renameTo( snapshotFile ) )
+                    throw new IOException("Cannot rename " + tempFile.getName() );
+                }
+
+            diagnostics.debug( "Coat snapshot saved: " + snapshotFile.getName() );
+            }
+        catch ( IOException ioe )
+            {
+            diagnostics.programError( "Coat snapshot cannot be written: " + ioe.toString() );
+            tempFile.delete();
+            }
+        finally
+            {
+            if ( out != null )
+                {
+                try
+                    {
+                    out.close();
+                    }
+                catch (IOException ioe)
+                    {
+                    diagnostics.programError( "ERROR IN CLOSE (Coat snapshot) " + ioe.toString() );
+                    }
+                tempFile.delete();
+                }
+            }
+        }
+    }
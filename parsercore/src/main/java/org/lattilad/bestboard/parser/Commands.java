@@ -1,26 +1,20 @@
 package org.lattilad.bestboard.parser;
 
-import org.lattilad.bestboard.debug.Debug;
-import org.lattilad.bestboard.scribe.Scribe;
 import org.lattilad.bestboard.utils.ArrayUtils;
-import org.lattilad.bestboard.utils.ExtendedMap;
+import org.lattilad.bestboard.utils.LongObjectMap;
 
-import java.lang.reflect.Method;
 import java.security.InvalidKeyException;
-import java.util.Collections;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
 
 
 /**
  * COAT language contains so called parameter-commands.
  * This class stores the data needed for parsing these parameter-commands.
- * Only SoftBoardParser uses this class.
+ * Only CoatParser uses this class. Methods of the parameter-commands are not known here,
+ * CoatParser calls them through CoatParser.CommandMethods.
  */
 public class Commands
     {
-    // Coat version is checked independently at SoftBoardParser.parseSoftBoard()
+    // Coat version is checked independently at CoatParser.parseSoftBoard()
     public final static long COAT_VERSION = 1000L;
     public static final long TOKEN_COAT = 0xac842L;
 
@@ -366,10 +360,17 @@ public class Commands
     public final static long NO_PARAMETERS = 0xFFL;
 
     /**
-     * Parameter-commands are stored in an unmodifiable hash-HashMap (LIST)
+     * Number of multiple definitions.
+     * Counted during createDataMap(), so it should be declared (without initializer) before LIST.
+     */
+    private static int definitionErrors;
+
+    /**
+     * Parameter-commands are stored in a private LongObjectMap (LIST)
      * as long token-code key (the command itself) and as Data value (command's data) pairs.
+     * Map is not modified after createDataMap(), and it is reached only through get().
      */
-    private static Map<Long, Data> LIST = createDataMap();
+    private static LongObjectMap<Data> LIST = createDataMap();
 
 
     private static Data add( long tokenCode, long[] params )
@@ -377,8 +378,8 @@ public class Commands
         Data data = new Data(tokenCode, params );
         if ( LIST.put( tokenCode, data) != null )
             {
-            Scribe.error("Please, check COMMANDS! " + tokenCode +
-                    " [" + Tokenizer.regenerateKeyword(tokenCode) + "] has multiple definitions!");
+            // Multiple definitions are reported by getDefinitionErrors()
+            definitionErrors++;
             }
         return data;
         }
@@ -401,13 +402,12 @@ public class Commands
      *
      * Initialization is changed to a more convenient way:
      * Several "add" methods populate the LIST map (temporarily),
-     * than an unmodifiable map is returned.
+     * than the map is returned.
+     * Token codes are stored as primitive keys, so get() does not box the code.
      */
-    public static Map<Long, Data> createDataMap()
+    public static LongObjectMap<Data> createDataMap()
         {
-        Scribe.locus( Debug.COMMANDS );
-
-        LIST = new HashMap<>();
+        LIST = new LongObjectMap<>( 512 );
 
         // KEY: Code (long) of Parameter-command
         // VALUE (new DATA object)
@@ -457,34 +457,34 @@ public class Commands
 
         add(TOKEN_INCLUDE, new long[]{PARAMETER_COAT});
 
-        add(TOKEN_NAME, PARAMETER_STRING).method("setName");
-        add(TOKEN_VERSION, PARAMETER_INT).method("setVersion");
-        add(TOKEN_AUTHOR, PARAMETER_STRING).method("setAuthor");
-        add(TOKEN_ADDTAGS, (PARAMETER_STRING | PARAMETER_MOD_LIST)).method("addTags");
-        add(TOKEN_DESCRIPTION, PARAMETER_STRING).method("setDescription");
-        add(TOKEN_DOCFILE, PARAMETER_FILE).method("setDocFile");
-        add(TOKEN_DOCURI, PARAMETER_STRING).method("setDocUri");
+        add(TOKEN_NAME, PARAMETER_STRING).method();
+        add(TOKEN_VERSION, PARAMETER_INT).method();
+        add(TOKEN_AUTHOR, PARAMETER_STRING).method();
+        add(TOKEN_ADDTAGS, (PARAMETER_STRING | PARAMETER_MOD_LIST)).method();
+        add(TOKEN_DESCRIPTION, PARAMETER_STRING).method();
+        add(TOKEN_DOCFILE, PARAMETER_FILE).method();
+        add(TOKEN_DOCURI, PARAMETER_STRING).method();
 
         add(TOKEN_LOCALE, new long[]{
-                TOKEN_LANGUAGE, TOKEN_COUNTRY, TOKEN_VARIANT}).method("setLocale");
+                TOKEN_LANGUAGE, TOKEN_COUNTRY, TOKEN_VARIANT}).method();
         add(TOKEN_LANGUAGE, PARAMETER_STRING);
         add(TOKEN_COUNTRY, PARAMETER_STRING);
         add(TOKEN_VARIANT, PARAMETER_STRING);
         
-        add(TOKEN_ALPHA, PARAMETER_INT).method("setDefaultAlfa");
+        add(TOKEN_ALPHA, PARAMETER_INT).method();
 
-        add(TOKEN_ACTIVECOLOR, PARAMETER_COLOR).method("setMetaColor");
-        add(TOKEN_LOCKCOLOR, PARAMETER_COLOR).method("setLockColor");
-        add(TOKEN_AUTOCOLOR, PARAMETER_COLOR).method("setAutoColor");
-        add(TOKEN_TOUCHCOLOR, PARAMETER_COLOR).method("setTouchColor");
-        add(TOKEN_STROKECOLOR, PARAMETER_COLOR).method("setStrokeColor");
-        add(TOKEN_FONT, PARAMETER_FILE).method("setTypeface");
+        add(TOKEN_ACTIVECOLOR, PARAMETER_COLOR).method();
+        add(TOKEN_LOCKCOLOR, PARAMETER_COLOR).method();
+        add(TOKEN_AUTOCOLOR, PARAMETER_COLOR).method();
+        add(TOKEN_TOUCHCOLOR, PARAMETER_COLOR).method();
+        add(TOKEN_STROKECOLOR, PARAMETER_COLOR).method();
+        add(TOKEN_FONT, PARAMETER_FILE).method();
 
         add(TOKEN_SHOWTITLES, new long[]{
                 TOKEN_ENTERTEXT, TOKEN_GOTEXT, TOKEN_SEARCHTEXT, TOKEN_SENDTEXT, TOKEN_NEXTTEXT,
                 TOKEN_DONETEXT, TOKEN_PREVTEXT, TOKEN_NONETEXT, TOKEN_UNKNOWNTEXT,
                 TOKEN_AUTOFUNCON, TOKEN_AUTOFUNCOFF })
-                .method("setShowTitles").allowAsLabel().allowAsDefault();
+                .method().allowAsLabel().allowAsDefault();
 
         add(TOKEN_ENTERTEXT, PARAMETER_TEXT);
         add(TOKEN_GOTEXT, PARAMETER_TEXT);
@@ -503,7 +503,7 @@ public class Commands
                 TOKEN_LAYOUT,
                 TOKEN_PORTRAIT, TOKEN_LANDSCAPE,
                 TOKEN_LOCK, TOKEN_START})
-                .method("addBoard").allowAsLabel().allowAsDefault();
+                .method().allowAsLabel().allowAsDefault();
 
         add(TOKEN_ID, PARAMETER_KEYWORD);
         add(TOKEN_LAYOUT, PARAMETER_KEYWORD);
@@ -520,7 +520,7 @@ public class Commands
                 TOKEN_TURNON, TOKEN_TURNOFF,
                 TOKEN_ASBOARD,
                 TOKEN_LOCK, TOKEN_START})
-                .method("addLayout").allowAsLabel().allowAsDefault();
+                .method().allowAsLabel().allowAsDefault();
 
         // add(TOKEN_ID, PARAMETER_KEYWORD);
         add(TOKEN_HEXAGONAL, NO_PARAMETERS); // Useless parametercommand - just for clearer readability
@@ -578,7 +578,7 @@ public class Commands
                 TOKEN_LAYOUT,
                 TOKEN_COLUMN,
                 TOKEN_ROW })
-                .method("setBlock").allowAsLabel().allowAsDefault();
+                .method().allowAsLabel().allowAsDefault();
 
         // add(TOKEN_LAYOUT, PARAMETER_KEYWORD);
         add(TOKEN_COLUMN, PARAMETER_INT);
@@ -621,15 +621,15 @@ public class Commands
 
         add(TOKEN_PACKET, packetArray)
                 .allowAsLabel().allowAsDefault()
-                .method("packet");
+                .method();
 
         add(TOKEN_FIRST, packetArray)
                 .allowAsLabel().allowAsDefault().labels(new long[]{TOKEN_PACKET})
-                .method("packet");
+                .method();
 
         add(TOKEN_SECOND, packetArray)
                 .allowAsLabel().allowAsDefault().labels(new long[]{TOKEN_PACKET})
-                .method("packet");
+                .method();
 
         add(TOKEN_TEXT, PARAMETER_TEXT);
         add(TOKEN_FIELD, PARAMETER_TEXT);
@@ -655,7 +655,7 @@ public class Commands
         // it has got three own flag parameters:
         add(TOKEN_CHANGECASE, new long[]{
                 TOKEN_LOWER, TOKEN_UPPER, TOKEN_SENTENCE })
-                .method("packetChangeCase").allowAsLabel().allowAsDefault();
+                .method().allowAsLabel().allowAsDefault();
         // The result (as CHANGECASE parameter - PacketChangeCase java type)
         // will be part of the whole packet list (PACKET, FIRST, SECOND, BUTTON...)
 
@@ -700,13 +700,13 @@ public class Commands
                 TOKEN_FIRST,
                 TOKEN_SECOND,
                 TOKEN_REPEAT, TOKEN_TWIN, TOKEN_CAPITAL }))
-                .method("setButton").group(TOKEN_BUTTON).allowAsLabel().allowAsDefault()
+                .method().group(TOKEN_BUTTON).allowAsLabel().allowAsDefault()
                 .labels(new long[]{TOKEN_PACKET, TOKEN_FIRST, TOKEN_SECOND});
 
         add(TOKEN_SINGLE, ArrayUtils.concat(packetArray, buttonArray, new long[]{
                 TOKEN_FIRST,
                 TOKEN_REPEAT, TOKEN_TWIN, TOKEN_CAPITAL }))
-                .method("setSingle").group(TOKEN_BUTTON).allowAsLabel().allowAsDefault()
+                .method().group(TOKEN_BUTTON).allowAsLabel().allowAsDefault()
                 .labels(new long[]{TOKEN_BUTTON, TOKEN_PACKET, TOKEN_FIRST, TOKEN_SECOND});
 
         add(TOKEN_REPEAT, PARAMETER_FLAG);
@@ -716,18 +716,18 @@ public class Commands
         add(TOKEN_DOUBLE, ArrayUtils.concat(packetArray, buttonArray, new long[]{
                 TOKEN_FIRST,
                 TOKEN_SECOND }))
-                .method("setDouble").group(TOKEN_BUTTON).allowAsLabel().allowAsDefault()
+                .method().group(TOKEN_BUTTON).allowAsLabel().allowAsDefault()
                 .labels(new long[]{TOKEN_BUTTON, TOKEN_PACKET, TOKEN_FIRST, TOKEN_SECOND});
 
         add(TOKEN_ALTERNATE, ArrayUtils.concat(packetArray, buttonArray, new long[]{
                 TOKEN_FIRST,
                 TOKEN_SECOND }))
-                .method("setAlternate").group(TOKEN_BUTTON).allowAsLabel().allowAsDefault()
+                .method().group(TOKEN_BUTTON).allowAsLabel().allowAsDefault()
                 .labels(new long[]{TOKEN_BUTTON, TOKEN_PACKET, TOKEN_FIRST, TOKEN_SECOND});
 
         add(TOKEN_MULTI, ArrayUtils.concat(buttonArray, new long[]{
                 TOKEN_ADD | PARAMETER_MOD_MULTIPLE }))
-                .method("setMulti").group(TOKEN_BUTTON).allowAsLabel().allowAsDefault()
+                .method().group(TOKEN_BUTTON).allowAsLabel().allowAsDefault()
                 .labels(new long[]{TOKEN_BUTTON});
 
         add(TOKEN_ADD, new long[]{
@@ -742,7 +742,7 @@ public class Commands
                 // If only Text-packet is allowed here, then rem next rows!!
                 /* TOKEN_KEY,
                 TOKEN_FORCECAPS, TOKEN_FORCESHIFT, TOKEN_FORCECTRL, TOKEN_FORCEALT,
-                TOKEN_DO */}).method("packet").allowAsLabel().allowAsDefault()
+                TOKEN_DO */}).method().allowAsLabel().allowAsDefault()
                 .labels(new long[]{TOKEN_PACKET});
 
         add(TOKEN_LIST, ArrayUtils.concat(buttonArray, new long[]{
@@ -754,7 +754,7 @@ public class Commands
                 TOKEN_AUTOSPACE,
                 TOKEN_ADDTEXT | PARAMETER_MOD_MULTIPLE,
                 TOKEN_SECOND}))
-                .method("setList").group(TOKEN_BUTTON).allowAsLabel().allowAsDefault()
+                .method().group(TOKEN_BUTTON).allowAsLabel().allowAsDefault()
                 .labels(new long[]{TOKEN_BUTTON, TOKEN_PACKET, TOKEN_SECOND });
 
         add(TOKEN_ADDTEXT, PARAMETER_TEXT);
@@ -768,7 +768,7 @@ public class Commands
                 // TOKEN_ONSTAY,
                 // TOKEN_ONCIRCLE,
                 TOKEN_OVERWRITE})
-                .method("setModify").group(TOKEN_BUTTON).allowAsLabel().allowAsDefault().labels(new long[]{TOKEN_BUTTON});
+                .method().group(TOKEN_BUTTON).allowAsLabel().allowAsDefault().labels(new long[]{TOKEN_BUTTON});
 
         add(TOKEN_ROLL, PARAMETER_KEYWORD);
         add(TOKEN_REVERSE, PARAMETER_FLAG);
@@ -783,14 +783,14 @@ public class Commands
                 TOKEN_KEY,
                 TOKEN_TURNON, TOKEN_TURNOFF,
                 TOKEN_REPEAT }))
-                .method("setEnter").group(TOKEN_BUTTON).allowAsLabel().allowAsDefault()
+                .method().group(TOKEN_BUTTON).allowAsLabel().allowAsDefault()
                 .labels(new long[]{TOKEN_BUTTON, TOKEN_PACKET});
 
         // add(TOKEN_REPEAT, PARAMETER_FLAG);
 
         add(TOKEN_SPACETRAVEL, ArrayUtils.concat(packetArray, buttonArray, new long[]{
                 TOKEN_SECOND }))
-                .method("setSpaceTravel").group(TOKEN_BUTTON).allowAsLabel().allowAsDefault()
+                .method().group(TOKEN_BUTTON).allowAsLabel().allowAsDefault()
                 .labels(new long[]{TOKEN_BUTTON, TOKEN_PACKET});
 
         add(TOKEN_MEMORY, ArrayUtils.concat(buttonArray, new long[]{
@@ -799,23 +799,23 @@ public class Commands
                 TOKEN_STRINGCAPS,
                 TOKEN_ERASESPACE,
                 TOKEN_AUTOSPACE}))
-                .method("setMemory").group(TOKEN_BUTTON).allowAsLabel().allowAsDefault()
+                .method().group(TOKEN_BUTTON).allowAsLabel().allowAsDefault()
                 .labels(new long[]{TOKEN_BUTTON, TOKEN_PACKET});
 
         add(TOKEN_PROGRAM, ArrayUtils.concat(buttonArray, new long[]{
                 TOKEN_RUN }))
-                .method("setProgram").group(TOKEN_BUTTON).allowAsLabel().allowAsDefault()
+                .method().group(TOKEN_BUTTON).allowAsLabel().allowAsDefault()
                 .labels(new long[]{TOKEN_BUTTON, TOKEN_PACKET});
 
         add(TOKEN_AUTOSHORTCUT, ArrayUtils.concat(buttonArray, new long[]{
                 TOKEN_ID }))
-                .method("setAutoShortCut").group(TOKEN_BUTTON).allowAsLabel().allowAsDefault()
+                .method().group(TOKEN_BUTTON).allowAsLabel().allowAsDefault()
                 .labels(new long[]{TOKEN_BUTTON});
         // add(TOKEN_ID, PARAMETER_KEYWORD);
 
         add(TOKEN_FINDSHORTCUT, ArrayUtils.concat(buttonArray, new long[]{
                 TOKEN_ID }))
-                .method("setFindShortCut").group(TOKEN_BUTTON).allowAsLabel().allowAsDefault()
+                .method().group(TOKEN_BUTTON).allowAsLabel().allowAsDefault()
                 .labels(new long[]{TOKEN_BUTTON});
         // add(TOKEN_ID, PARAMETER_KEYWORD);
 
@@ -829,7 +829,7 @@ public class Commands
                 TOKEN_ADDTITLE | PARAMETER_MOD_MULTIPLE,
                 TOKEN_COLOR,
                 TOKEN_OVERWRITE})
-                .method("setMeta").group(TOKEN_BUTTON).allowAsLabel().allowAsDefault().labels(new long[]{TOKEN_BUTTON});
+                .method().group(TOKEN_BUTTON).allowAsLabel().allowAsDefault().labels(new long[]{TOKEN_BUTTON});
 
         add(TOKEN_CAPS, PARAMETER_FLAG);
         add(TOKEN_SHIFT, PARAMETER_FLAG);
@@ -845,7 +845,7 @@ public class Commands
                 TOKEN_ADDTITLE | PARAMETER_MOD_MULTIPLE,
                         TOKEN_COLOR,
                 TOKEN_OVERWRITE})
-                .method("setSwitch").group(TOKEN_BUTTON).allowAsLabel().allowAsDefault().labels(new long[]{TOKEN_BUTTON});
+                .method().group(TOKEN_BUTTON).allowAsLabel().allowAsDefault().labels(new long[]{TOKEN_BUTTON});
 
         add(TOKEN_BOARD, PARAMETER_KEYWORD);
         add(TOKEN_BACK, PARAMETER_FLAG);
@@ -858,7 +858,7 @@ public class Commands
                 TOKEN_XOFFSET, TOKEN_YOFFSET, TOKEN_SIZE,
                 TOKEN_BOLD, TOKEN_NONBOLD, TOKEN_ITALICS, TOKEN_NONITALICS,
                 TOKEN_COLOR })
-                .method("addTitle").allowAsLabel().allowAsDefault();
+                .method().allowAsLabel().allowAsDefault();
         // add(TOKEN_TEXT, PARAMETER_TEXT);
         add(TOKEN_SHOW, PARAMETER_KEYWORD);
         add(TOKEN_GETFIRST, PARAMETER_FLAG);
@@ -891,7 +891,7 @@ public class Commands
                 TOKEN_ADDTEXT | PARAMETER_MOD_MULTIPLE,
                 TOKEN_ONSTAY,
                 TOKEN_ONCIRCLE })
-                .method("extendButton").group(TOKEN_BUTTON).allowAsLabel().allowAsDefault();
+                .method().group(TOKEN_BUTTON).allowAsLabel().allowAsDefault();
 
         add(TOKEN_TODOUBLE, PARAMETER_FLAG );
         add(TOKEN_TOALTERNATE, PARAMETER_FLAG );
@@ -900,22 +900,22 @@ public class Commands
 
         add(TOKEN_ADDMODIFY, new long[]{
                 TOKEN_ID, TOKEN_ADDROLL, TOKEN_ROLLS,
-                TOKEN_IGNORESPACE }).method("addModify" );
+                TOKEN_IGNORESPACE }).method();
         // TOKEN_ID is already defined
         // !! addRollHelper functionality should be avoided !!
         // "Multiple" type parameters are needed
-        add(TOKEN_ADDROLL, (PARAMETER_STRING | PARAMETER_MOD_LIST)).method("addRollHelper");
+        add(TOKEN_ADDROLL, (PARAMETER_STRING | PARAMETER_MOD_LIST)).method();
         add(TOKEN_ROLLS, (PARAMETER_STRING | PARAMETER_MOD_LIST));
         add(TOKEN_IGNORESPACE, PARAMETER_FLAG);
 
         add(TOKEN_ADDSHORTCUT, new long[]{
-                TOKEN_ID, TOKEN_PAIRS, TOKEN_START }).method("addShortCut");
+                TOKEN_ID, TOKEN_PAIRS, TOKEN_START }).method();
         // TOKEN_ID is already defined
         add(TOKEN_PAIRS, (PARAMETER_STRING | PARAMETER_MOD_LIST));
         // add(TOKEN_START, PARAMETER_FLAG);
 
         add(TOKEN_SHORTCUTSET, new long[]{
-                TOKEN_ID, TOKEN_SHORTCUTS, TOKEN_START }).method("addShortCutSet");
+                TOKEN_ID, TOKEN_SHORTCUTS, TOKEN_START }).method();
         // TOKEN_ID is already defined
         add(TOKEN_SHORTCUTS, (PARAMETER_KEYWORD | PARAMETER_MOD_LIST));
         // add(TOKEN_START, PARAMETER_FLAG);
@@ -923,17 +923,17 @@ public class Commands
         add(TOKEN_ADDVARIA, new long[]{
                 TOKEN_ID,
                 TOKEN_ADDGROUP | PARAMETER_MOD_MULTIPLE,
-                TOKEN_KEEPCODE }).method("addVaria");
+                TOKEN_KEEPCODE }).method();
         add(TOKEN_KEEPCODE, PARAMETER_FLAG );
         
         add(TOKEN_ADDGROUP, new long[]{
                 TOKEN_CODE,
                 TOKEN_LEGENDS,
-                TOKEN_LEGEND | PARAMETER_MOD_MULTIPLE }).method("addVariaGroup");
+                TOKEN_LEGEND | PARAMETER_MOD_MULTIPLE }).method();
         add(TOKEN_CODE, PARAMETER_TEXT );
         add(TOKEN_LEGENDS, (PARAMETER_STRING | PARAMETER_MOD_LIST));
         add(TOKEN_LEGEND, new long[]{
-                TOKEN_INDEX, TOKEN_TEXT, TOKEN_TITLE }).method("addVariaLegend");
+                TOKEN_INDEX, TOKEN_TEXT, TOKEN_TITLE }).method();
         // TOKEN_INDEX is already defined
         // TOKEN_TEXT is already defined
         add(TOKEN_TITLE, PARAMETER_TEXT );
@@ -944,7 +944,7 @@ public class Commands
                 TOKEN_SIZE,
                 TOKEN_BOLD, TOKEN_NONBOLD, TOKEN_ITALICS, TOKEN_NONITALICS,
                 TOKEN_COLOR })
-                .method("setMonitor").allowAsLabel().allowAsDefault();
+                .method().allowAsLabel().allowAsDefault();
         // add(TOKEN_LAYOUT, PARAMETER_KEYWORD);
         // add(TOKEN_SIZE, PARAMETER_INT );
         // add(TOKEN_BOLD, TOKEN_BOLD, PARAMETER_FLAG );
@@ -955,9 +955,9 @@ public class Commands
 
         add(TOKEN_STOP, MESSAGE_STOP );
 
-//        add(TOKEN_, new long[]{ }.method("" );
+//        add(TOKEN_, new long[]{ }.method();
 
-        return Collections.unmodifiableMap( LIST );
+        return LIST;
         }
 
     public static Data get( long commandCode ) throws InvalidKeyException
@@ -968,6 +968,24 @@ public class Commands
         throw new InvalidKeyException("Key doesn't exist!");
         }
 
+    /**
+     * Token codes of all parameter-commands
+     * @return token codes (in no particular order)
+     */
+    public static long[] getCommandCodes()
+        {
+        return LIST.keys();
+        }
+
+    /**
+     * Result of createDataMap()
+     * @return number of parameter-commands with multiple definitions
+     */
+    public static int getDefinitionErrors()
+        {
+        return definitionErrors;
+        }
+
 
     /**
      ** Tokens of the predefined labels
@@ -1247,7 +1265,7 @@ public class Commands
 
     /**
      * Creates a new Labels class, which can be filled with default values.
-     * Called by SoftBoardParser.parseSoftBoard()
+     * Called by CoatParser, before parsing starts
      * @return the new Labels class
      */
     public static Labels createLabels()
@@ -1534,8 +1552,8 @@ public class Commands
      * special parameters as negative values.
      * Array cannot be null or empty; at least one item is needed!
      * NO_PARAMETERS value means: no parameter needed
-     * Method method - method of SoftBoardData, which should be called
-     * (method can be null: no method is called)
+     * boolean methodToCall - CoatParser calls the method of this parameter-command
+     * (through CoatParser.CommandMethods, with the parameters of its type)
      */
     public static class Data
         {
@@ -1544,7 +1562,7 @@ public class Commands
 
         private long groupCode;
         private long params[];
-        private Method method = null;
+        private boolean methodToCall = false;
         private boolean allowedAsLabel = false;
         private boolean allowedAsDefault = false;
 
@@ -1561,39 +1579,43 @@ public class Commands
             return this;
             }
 
-        private Data method( String methodName )
+        /**
+         * Method of this parameter-command should be called.
+         * Different types of methods are called - according to parameter type
+         * Check CoatParser.parseComplexParameter, third part!
+         */
+        private Data method()
             {
-            // Different types of methods should be called - according to parameter type
-            // Check SoftBoardParser.parseComplexParameter, third part!
-            // ?? Some kind of is...Type() or getMainType() methods could be helpful ??
-
-            try
-                {
-                // Parameter-command has COMPLEX parameters - forwardParameters
-                if (getParameterType() >= Tokenizer.TOKEN_CODE_SHIFT || getParameterType() < 0x0L )
-                    method = MethodsForCommands.class.getDeclaredMethod(methodName, ExtendedMap.class);
-                // Parameter-command has ONE parameter - result
-                else if (getParameterType() <= Commands.PARAMETER_KEYWORD)
-                    method = MethodsForCommands.class.getDeclaredMethod(methodName, Object.class);
-                // Parameter-command has LIST parameter - result
-                else if (getParameterType() <= (Commands.PARAMETER_KEYWORD | Commands.PARAMETER_MOD_LIST))
-                    method = MethodsForCommands.class.getDeclaredMethod(methodName, List.class);
-                // Parameter command is a FLAG etc. or NO parameters
-                else if (getParameterType() <= Commands.SYSTEM_PARAMETERS || getParameterType() == NO_PARAMETERS )
-                    method = MethodsForCommands.class.getDeclaredMethod(methodName);
-                // Parameter-command is a "system" parameter
-                else
-                    method = null;
-                }
-            catch (NoSuchMethodException e)
-                {
-                method = null;
-                Scribe.error("Method " + methodName + " is missing in MethodsForCommands!");
-                }
-
+            this.methodToCall = true;
             return this;
             }
 
+        /** Parameter-command has COMPLEX parameters */
+        public boolean isComplexType()
+            {
+            return getParameterType() >= Tokenizer.TOKEN_CODE_SHIFT || getParameterType() < 0x0L;
+            }
+
+        /** Parameter-command has ONE parameter */
+        public boolean isOneType()
+            {
+            return !isComplexType() && getParameterType() <= Commands.PARAMETER_KEYWORD;
+            }
+
+        /** Parameter-command has LIST parameter */
+        public boolean isListType()
+            {
+            return !isComplexType() && !isOneType() &&
+                    getParameterType() <= (Commands.PARAMETER_KEYWORD | Commands.PARAMETER_MOD_LIST);
+            }
+
+        /** Parameter-command is a FLAG etc. or has NO parameters - "system" parameters are excluded */
+        public boolean isFlagType()
+            {
+            return !isComplexType() && !isListType() && !isOneType() &&
+                    ( getParameterType() <= Commands.SYSTEM_PARAMETERS || getParameterType() == NO_PARAMETERS );
+            }
+
         private Data allowAsLabel()
             {
             allowedAsLabel = true;
@@ -1635,22 +1657,12 @@ public class Commands
             }
 
         /**
-         * If this command will call a method in SoftBoardData class after getting parameter-list
+         * If this command will call a method after getting parameter-list
          * @return true if method is supplied
          */
         public boolean hasMethodToCall()
             {
-            return method != null;
-            }
-
-        /**
-         * Get the method to call in SoftBoardData class.
-         * Parameters are forwarded as a Map to the method.
-         * @return the method to call
-         */
-        public Method getMethod()
-            {
-            return method;
+            return methodToCall;
             }
 
         /**
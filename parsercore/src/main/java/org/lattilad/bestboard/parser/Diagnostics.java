@@ -0,0 +1,45 @@
+package org.lattilad.bestboard.parser;
+
+/**
+ * Receiver of the parsing messages.
+ * <p>
+ * Tokenizer, CoatParser (and parser methods working through the tokenizer) send their
+ * messages here, so the parser does not depend on android classes.
+ * Messages are given as ParserMessage keys, implementation should convert them to text.
+ * <p>
+ * Inside the program ScribeDiagnostics is used: it writes the messages into the secondary log.
+ * On a plain JVM (eg. when measuring the parser) any other implementation can be used.
+ */
+public interface Diagnostics
+    {
+    /**
+     * Text of the message
+     * @param messageKey key of the message
+     * @return text of the message
+     */
+    String getMessageText( ParserMessage messageKey );
+
+    /**
+     * Error message, already completed with source, value and line number
+     * @param message text of the message
+     */
+    void error( String message );
+
+    /**
+     * Note message, already completed with source, value and line number
+     * @param message text of the message
+     */
+    void note( String message );
+
+    /**
+     * Debug message of the parser (not part of the coat messages)
+     * @param message text of the message
+     */
+    void debug( String message );
+
+    /**
+     * Error of the program, not of the coat files (eg. snapshot cannot be written)
+     * @param message text of the message
+     */
+    void programError( String message );
+    }
@@ -0,0 +1,232 @@
+package org.lattilad.bestboard.parser;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Tokenizes coat files on background threads, before the parser needs them.
+ * <p>
+ * Main coat file is tokenized first. Each INCLUDE "file" found among its tokens
+ * is started on the worker threads immediately, so reading and tokenizing of
+ * the included files overlap with each other and with the parsing itself.
+ * (File names given by labels cannot be recognized here, these files are
+ * tokenized by the parser as before.)
+ * <p>
+ * Tokens and tokenizer messages are recorded into TokenStreams. Parser replays them
+ * in its own order, so tokens, messages and line numbers remain the same.
+ * Messages are not sent during prefetching. Colors get the actual default alfa during replay.
+ */
+public class IncludePrefetcher
+    {
+    /** Maximal number of worker threads */
+    private static final int MAX_THREADS = 3;
+
+    /** Messages are recorded by the streams, here they are simply dropped */
+    private static final Diagnostics SILENT = new Diagnostics()
+        {
+        @Override
+        public String getMessageText( ParserMessage messageKey )
+            {
+            return "";
+            }
+
+        @Override
+        public void error( String message )
+            {
+            }
+
+        @Override
+        public void note( String message )
+            {
+            }
+
+        @Override
+        public void debug( String message )
+            {
+            }
+
+        @Override
+        public void programError( String message )
+            {
+            }
+        };
+
+
+    /** Result of prefetching: tokens and content hash of one coat file */
+    public static class Prefetched
+        {
+        private TokenStream stream;
+        private byte[] hash;
+
+        private Prefetched( TokenStream stream, byte[] hash )
+            {
+            this.stream = stream;
+            this.hash = hash;
+            }
+
+        /** Recorded tokens of the coat file */
+        public TokenStream getStream()
+            {
+            return stream;
+            }
+
+        /** Content hash (for CoatSnapshot) */
+        public byte[] getHash()
+            {
+            return hash;
+            }
+        }
+
+
+    /** Worker threads */
+    private ExecutorService executor;
+
+    /** Debug messages of prefetching (tokenizer messages are recorded, not sent) */
+    private Diagnostics diagnostics;
+
+    /** Included files are searched in this directory */
+    private File directory;
+
+    /** Started files by absolute path */
+    private Map<String, Future<Prefetched>> futures = new HashMap<>();
+
+
+    /**
+     * Creates worker threads
+     * @param diagnostics receiver of the debug messages
+     * @param directory directory of the included coat files
+     */
+    public IncludePrefetcher( Diagnostics diagnostics, File directory )
+        {
+        this.diagnostics = diagnostics;
+        this.directory = directory;
+
+        int threads = Runtime.getRuntime().availableProcessors() - 1;
+        if ( threads < 1 )
+            threads = 1;
+        else if ( threads > MAX_THREADS )
+            threads = MAX_THREADS;
+        executor = Executors.newFixedThreadPool( threads );
+        }
+
+    /**
+     * Starts tokenizing of a coat file (if it was not started yet)
+     * @param file coat file
+     */
+    public synchronized void prefetch( final File file )
+        {
+        String path = file.getAbsolutePath();
+        if ( futures.containsKey( path ) || !file.isFile() || executor.isShutdown() )
+            return;
+
+        diagnostics.debug( "Prefetching coat file: " + path );
+        futures.put( path, executor.submit( new Callable<Prefetched>()
+            {
+            @Override
+            public Prefetched call() throws IOException
+                {
+                return tokenize( file );
+                }
+            }));
+        }
+
+    /**
+     * Gives back the tokens of a coat file. Waits if tokenizing is not ready yet.
+     * @param file coat file needed by the parser
+     * @return prefetched tokens, or null if file was not prefetched, or prefetching failed
+     */
+    public Prefetched get( File file )
+        {
+        Future<Prefetched> future;
+        synchronized ( this )
+            {
+            future = futures.get( file.getAbsolutePath() );
+            }
+        if ( future == null )
+            return null;
+
+        try
+            {
+            return future.get();
+            }
+        catch ( ExecutionException ee )
+            {
+            // parser will read the file once more, and report the error
+            diagnostics.debug( "Prefetching failed: " + ee.getCause() );
+            }
+        catch ( InterruptedException ie )
+            {
+            Thread.currentThread().interrupt();
+            }
+        return null;
+        }
+
+    /**
+     * Stops worker threads. Unfinished prefetching is dropped.
+     */
+    public void shutdown()
+        {
+        executor.shutdownNow();
+        }
+
+
+    /**
+     * Tokenizes the whole coat file on a worker thread, and starts its included files.
+     * @param file coat file
+     * @return recorded tokens, or null if prefetching was cancelled
+     * @throws IOException if file cannot be read
+     */
+    private Prefetched tokenize( File file ) throws IOException
+        {
+        MessageDigest digest = CoatSnapshot.createDigest();
+        TokenStream stream = new TokenStream();
+
+        Reader reader = new InputStreamReader(
+                new DigestInputStream( new FileInputStream( file ), digest ), "UTF-8" );
+        try
+            {
+            Tokenizer tokenizer = new Tokenizer( SILENT, reader, stream );
+
+            // INCLUDE ( "file" ) or INCLUDE "file" - START is skipped
+            boolean include = false;
+            int type;
+            while ( (type = tokenizer.nextToken()) != Tokenizer.TYPE_EOF )
+                {
+                if ( Thread.currentThread().isInterrupted() )
+                    return null;
+
+                if ( type == Tokenizer.TYPE_KEYWORD )
+                    {
+                    include = tokenizer.getIntegerToken() == Commands.TOKEN_INCLUDE;
+                    }
+                else if ( type == Tokenizer.TYPE_STRING && include )
+                    {
+                    prefetch( new File( directory, tokenizer.getStringToken() ) );
+                    include = false;
+                    }
+                else if ( type != Tokenizer.TYPE_START )
+                    {
+                    include = false;
+                    }
+                }
+
+            return new Prefetched( stream, digest.digest() );
+            }
+        finally
+            {
+            reader.close();
+            }
+        }
+    }
@@ -1,8 +1,8 @@
 package org.lattilad.bestboard.parser;
 
+import org.lattilad.bestboard.utils.LongObjectMap;
+
 import java.security.InvalidKeyException;
-import java.util.HashMap;
-import java.util.Map;
 
 
 /**
@@ -16,7 +16,7 @@ import java.util.Map;
  * <p>
  * Some complex parameters can be identified by labels, too.
  * The type of these parameters matches to their TOKEN defined by Commands class.
- * Allowed tokens are determined by SoftBoardParser.parseLabels() method.
+ * Allowed tokens are determined by CoatParser.parseLabelParameter() method.
  * <p>
  * Constants can be defined either directly or by labels,
  * but precision check should be performed after both.
@@ -35,7 +35,7 @@ import java.util.Map;
  * ((The difference between Commands and Labels class:
  * Commands - static data for interpreting language.
  * Labels - dynamic data, expanding during parse.
- * All SoftBoardParser instance can use the same Commands class,
+ * All CoatParser instance can use the same Commands class,
  * while each instance should have its own Labels class.
  * This class is not thread-safe! Can be used only from one thread!))
  */
@@ -54,8 +54,8 @@ public class Labels
             }
         }
 
-    // Long token-code (as Key) and data (type and value) pairs are stored in this private HashMap
-    private Map<Long, Data> data = new HashMap<>();
+    // long token-code (as Key) and data (type and value) pairs are stored in this private LongObjectMap
+    private LongObjectMap<Data> data = new LongObjectMap<>( 512 );
 
 
     /**
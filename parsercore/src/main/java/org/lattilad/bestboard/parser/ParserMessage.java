@@ -0,0 +1,188 @@
+package org.lattilad.bestboard.parser;
+
+/**
+ * Keys of the parsing messages.
+ * <p>
+ * Tokenizer, parser and the methods of the parameter-commands send their messages
+ * to Diagnostics with these keys, so the parser does not depend on android resources.
+ * Each key has a string resource with the same (lowercase) name
+ * in tokenizer_strings.xml, parser_strings.xml or softboarddata_strings.xml.
+ * The program gets the texts from there (ScribeDiagnostics), on a plain JVM
+ * the name of the key can be used.
+ * <p>
+ * TokenStream records the ordinals of the keys, so CoatSnapshot format
+ * should be changed if keys are inserted or removed.
+ */
+public enum ParserMessage
+    {
+    // Messages of the Tokenizer (tokenizer_strings.xml)
+    NOTE_BOM_CHARACTER,
+    ERROR_ESCAPE_UNKNOWN,
+    ERROR_ESCAPE_MALFORMED,
+    ERROR_CHARACTER_INVALID,
+    ERROR_INTEGER_EXCEEDS,
+    ERROR_INTEGER_MALFORMED_NO_NUMERIC,
+    ERROR_INTEGER_MALFORMED_ENDING,
+    ERROR_HEXADECIMAL_EXCEEDS,
+    ERROR_HEXADECIMAL_MALFORMED_NO_NUMERIC,
+    ERROR_HEXADECIMAL_MALFORMED_ENDING,
+    ERROR_COLOR_MALFORMED_NO_NUMERIC,
+    ERROR_COLOR_MALFORMED_RETURNING_OPAQUE,
+    ERROR_COLOR_MISSING_RETURNING_OPAQUE,
+    ERROR_COLOR_MALFORMED_ENDING,
+    ERROR_FRACTION_EXCEEDS,
+    ERROR_FRACTION_MALFORMED_NO_NUMERIC,
+    ERROR_FRACTION_MALFORMED_ENDING,
+    ERROR_KEYWORD_EXCEEDS,
+    ERROR_KEYWORD_MALFORMED_ENDING,
+    ERROR_STRING_NOT_TERMINATED,
+    ERROR_CHARACTER_EMPTY,
+    ERROR_CHARACTER_MISSING,
+    ERROR_CHARACTER_NOT_TERMINATED,
+    ERROR_TOKEN_UNKNOWN,
+    NOTE_UNCLOSED_REM,
+
+    // Messages of the parser (parser_strings.xml)
+    PARSER_STARTING,
+    PARSER_NO_COAT_FILE,
+    PARSER_COAT_FILE,
+    PARSER_COAT_FILE_INVALID,
+    PARSER_COAT_FILE_OK,
+    PARSER_FILE_PARSING_STARTED,
+    PARSER_FILE_PARSING_FINISHED,
+    PARSER_FILE_PARSING_INTERRUPTED,
+    PARSER_SNAPSHOT_USED,
+    PARSER_ADDSOFTBOARD_DATA_MISSING,
+    PARSER_BRACKET_MISSING,
+    PARSER_RESULT,
+    PARSER_CODE,
+    PARSER_PARAMETER_INVALID,
+    PARSER_BLOCK_SKIPPED,
+    PARSER_COMMAND_MISSING,
+    PARSER_DATA_MISSING,
+    PARSER_LIST_MISSING,
+    PARSER_COMPLEX_STARTED,
+    PARSER_COMPLEX_FINISHED,
+    PARSER_ONE_FINISHED,
+    PARSER_METHOD_CALLED,
+    PARSER_METHOD_NO_RESULT,
+    PARSER_METHOD_EXCEPTION,
+    PARSER_NO_METHOD_CALLED,
+    PARSER_PARAMETER_REMAINS,
+    PARSER_INVALID_NUMERIC,
+    PARSER_INVALID_CHARACTER,
+    PARSER_INVALID_STRING,
+    PARSER_INVALID_KEYWORD,
+    PARSER_VALUE_MISSING,
+    PARSER_VALUE_INVALID,
+    PARSER_NO_LABEL,
+    PARSER_INVALID_CHAR_VALUE,
+    PARSER_INVALID_COLOR_VALUE,
+    PARSER_INVALID_INT_VALUE,
+    PARSER_NO_FILE,
+    PARSER_VALUE_LIST_MISSING,
+    PARSER_TERMINATED,
+    PARSER_LABEL_KEY_MISSING,
+    PARSER_LABEL_KEY_INVALID,
+    PARSER_LABEL_VALUE_MISSING,
+    PARSER_LABEL_VALUE_INVALID,
+    PARSER_LABEL_COMPLEX_NOT_ALLOWED,
+    PARSER_LABEL_COMPLEX_ONE_ALLOWED,
+    PARSER_LABEL_COMPLEX_INVALID,
+    PARSER_LABEL_ADDED,
+    PARSER_LABEL_OVERWRITTEN,
+    PARSER_DEFAULT_TYPE_MISSING,
+    PARSER_DEFAULT_VALUE_INVALID,
+    PARSER_DEFAULT_TYPE_INVALID,
+    PARSER_DEFAULT_COMPLEX_NOT_ALLOWED,
+    PARSER_DEFAULT_ADDED,
+    PARSER_PREVIOUS_OVERWRITTEN,
+
+    // Messages of the command methods (softboarddata_strings.xml)
+    DATA_NAME,
+    DATA_VERSION,
+    DATA_AUTHOR,
+    DATA_TAGS,
+    DATA_DESCRIPTION,
+    DATA_DOCFILE,
+    DATA_DOCURI,
+    DATA_LOCALE,
+    DATA_DEFAULT_BOARDCOLOR,
+    DATA_DEFAULT_BUTTONCOLOR,
+    DATA_DEFAULTALFA,
+    DATA_METACOLOR,
+    DATA_LOCKCOLOR,
+    DATA_AUTOCOLOR,
+    DATA_TOUCHCOLOR,
+    DATA_STROKECOLOR,
+    DATA_TYPEFACE,
+    DATA_TYPEFACE_MISSING,
+    DATA_ENTERTITLE,
+    DATA_GOTITLE,
+    DATA_SEARCHTITLE,
+    DATA_SENDTITLE,
+    DATA_NEXTTITLE,
+    DATA_DONETITLE,
+    DATA_PREVTITLE,
+    DATA_NONETITLE,
+    DATA_UNKNOWNTITLE,
+    DATA_LAYOUT_NO_ID,
+    DATA_COLUMNS_MISSING,
+    DATA_ROWS_MISSING,
+    DATA_LAYOUT_ADDED,
+    DATA_LAYOUT_OVERWRITTEN,
+    DATA_ALIGN_BAD_PARAMETER,
+    DATA_LAYOUT_ERROR,
+    DATA_NO_LAYOUT,
+    DATA_SEND_PACKET_TEXT_OVERRIDE,
+    DATA_SEND_PACKET_KEY_OVERRIDE,
+    DATA_SEND_MISSING,
+    DATA_CURSOR_BAD_PARAMETER,
+    DATA_SELECT_BAD_PARAMETER,
+    DATA_AUTOCAPS_BAD_PARAMETER,
+    DATA_AUTOSPACE_BAD_PARAMETER,
+    DATA_ERASESPACES_BAD_PARAMETER,
+    DATA_TOGGLE_BAD_PARAMETER,
+    DATA_META_BAD_PARAMETER,
+    DATA_SHOWTITLE_BAD_PARAMETER,
+    DATA_META_UNKNOWN_META_STATE,
+    DATA_SHORTCUT_MISSING_ID,
+    DATA_BUTTON_FUNCTION_MISSING,
+    DATA_BUTTON_OVERWRITTEN,
+    DATA_BUTTON_ADDED,
+    DATA_BUTTON_ERROR,
+    DATA_BUTTON_NOT_EXIST,
+    DATA_BUTTON_COLOR_CHANGED,
+    DATA_BUTTON_TITLES_EXTENDED,
+    DATA_BUTTON_EXTENDED_INVALID,
+    DATA_BUTTON_EXTENDED_INVALID_LIST,
+    DATA_BUTTON_EXTENDED_ONSTAY,
+    DATA_BUTTON_EXTENDED_ONCIRCLE,
+    DATA_PACKET_COMBINE_MISSING,
+    DATA_BOARD_NO_ID,
+    DATA_BOARD_ID_OVERWRITTEN,
+    DATA_BOARD_ID_SET,
+    DATA_BOARD_LANDSCAPE_MISSING,
+    DATA_BOARD_PORTRAIT_MISSING,
+    DATA_MODIFY_NO_ID,
+    DATA_MODIFY_ONE_ALLOWED,
+    DATA_MODIFY_NO_ROLLS,
+    DATA_MODIFY_OVERWRITTEN,
+    DATA_MODIFY_ADDED,
+    DATA_SHORTCUT_NO_ID,
+    DATA_SHORTCUT_NO_ENTRIES,
+    DATA_SHORTCUT_BAD_ENTRY,
+    DATA_SHORTCUT_OVERWRITTEN,
+    DATA_SHORTCUT_MORE_STARTS,
+    DATA_SHORTCUT_ADDED,
+    DATA_LEGEND_NO_TEXT,
+    DATA_GROUP_NO_CODE,
+    DATA_GROUP_INDEX_INVALID,
+    DATA_GROUP_LEGENDS_MISSING,
+    DATA_VARIA_NO_ID,
+    DATA_VARIA_NO_NO,
+    DATA_VARIA_NO_GROUPS,
+    DATA_VARIA_OVERWRITTEN,
+    DATA_VARIA_ADDED,
+    DATA_PRIMARY_BOARD_MISSING
+    }
@@ -0,0 +1,306 @@
+package org.lattilad.bestboard.parser;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Compiled (already tokenized) form of one coat file.
+ * <p>
+ * Tokenizer records every token returned by nextToken() into this stream,
+ * together with the log messages generated during the tokenization.
+ * Later a Tokenizer can replay the stream instead of reading the file again.
+ * Parser cannot detect the difference: token types, token parameters,
+ * line numbers and tokenizer messages are all given back in the same order.
+ * Colors completed with the default alfa are marked, and they get the default alfa
+ * of the replaying tokenizer - so the stream does not depend on previous ALPHA commands.
+ * <p>
+ * Data is stored in primitive arrays, only strings need separate objects.
+ * Empty strings are stored as null.
+ */
+public class TokenStream
+    {
+    /** Starting capacity - a middle sized coat file contains several thousand tokens */
+    private static final int INITIAL_CAPACITY = 1024;
+
+    /** Bytes of one token in the file, if its string is null (type, integer, divider, flags, string, line) */
+    private static final int MIN_TOKEN_BYTES = 1 + 8 + 8 + 1 + 1 + 4 + 4;
+
+    /** Bytes of one message in the file, if its strings are null (token, error, source, message key, value, line) */
+    private static final int MIN_MESSAGE_BYTES = 4 + 1 + 4 + 4 + 4 + 4;
+
+    /** Message keys by ordinal (values() would create a new array for each message) */
+    private static final ParserMessage[] MESSAGE_KEYS = ParserMessage.values();
+
+    /** Number of recorded tokens */
+    private int size = 0;
+
+    /** Token parameters - as they are stored inside Tokenizer */
+    private int[] types = new int[INITIAL_CAPACITY];
+    private long[] integers = new long[INITIAL_CAPACITY];
+    private long[] dividers = new long[INITIAL_CAPACITY];
+    private boolean[] minusSigns = new boolean[INITIAL_CAPACITY];
+    private boolean[] defaultAlfas = new boolean[INITIAL_CAPACITY];
+    private String[] strings = new String[INITIAL_CAPACITY];
+    private int[] lines = new int[INITIAL_CAPACITY];
+
+    /** Number of recorded tokenizer messages */
+    private int messageSize = 0;
+
+    /** Message parameters. Message belongs to the token, which was tokenized during the message */
+    private int[] messageTokens = new int[0];
+    private boolean[] messageErrors = new boolean[0];
+    private String[] messageSources = new String[0];
+    private ParserMessage[] messageKeys = new ParserMessage[0];
+    private String[] messageValues = new String[0];
+    private int[] messageLines = new int[0];
+
+    /** Position of replay */
+    private int position = 0;
+
+
+    /** Number of recorded tokens */
+    public int size()
+        {
+        return size;
+        }
+
+    /** Replay will start from the first token */
+    public void rewind()
+        {
+        position = 0;
+        }
+
+    /** True, if all tokens were replayed */
+    public boolean isExhausted()
+        {
+        return position >= size;
+        }
+
+
+    /**
+     * Records one token. Called by Tokenizer.
+     * String can be null: keywords are stored only with their code.
+     */
+    void addToken( int type, long integer, long divider, boolean minusSign, boolean defaultAlfa,
+                   String string, int line )
+        {
+        if ( size == types.length )
+            {
+            int capacity = size * 2;
+            types = Arrays.copyOf( types, capacity );
+            integers = Arrays.copyOf( integers, capacity );
+            dividers = Arrays.copyOf( dividers, capacity );
+            minusSigns = Arrays.copyOf( minusSigns, capacity );
+            defaultAlfas = Arrays.copyOf( defaultAlfas, capacity );
+            strings = Arrays.copyOf( strings, capacity );
+            lines = Arrays.copyOf( lines, capacity );
+            }
+
+        types[size] = type;
+        integers[size] = integer;
+        dividers[size] = divider;
+        minusSigns[size] = minusSign;
+        defaultAlfas[size] = defaultAlfa;
+        strings[size] = ( string == null || string.length() == 0 ) ? null : string;
+        lines[size] = line;
+        size++;
+        }
+
+    /**
+     * Records one tokenizer message. Message belongs to the next (still not recorded) token.
+     * Called by Tokenizer.
+     */
+    void addMessage( boolean error, String source, ParserMessage messageKey, String value, int line )
+        {
+        if ( messageSize == messageTokens.length )
+            {
+            int capacity = messageSize * 2 + 4;
+            messageTokens = Arrays.copyOf( messageTokens, capacity );
+            messageErrors = Arrays.copyOf( messageErrors, capacity );
+            messageSources = Arrays.copyOf( messageSources, capacity );
+            messageKeys = Arrays.copyOf( messageKeys, capacity );
+            messageValues = Arrays.copyOf( messageValues, capacity );
+            messageLines = Arrays.copyOf( messageLines, capacity );
+            }
+
+        messageTokens[messageSize] = size;
+        messageErrors[messageSize] = error;
+        messageSources[messageSize] = source;
+        messageKeys[messageSize] = messageKey;
+        messageValues[messageSize] = value;
+        messageLines[messageSize] = line;
+        messageSize++;
+        }
+
+
+    /** First message which was not replayed yet */
+    private int messagePosition = 0;
+
+    /**
+     * Replays the messages and the next token into the tokenizer.
+     * If stream is exhausted, then EOF is returned (as Tokenizer does at the end of the file)
+     * @param tokenizer tokenizer to receive the token
+     * @return type of the token
+     */
+    int replay( Tokenizer tokenizer )
+        {
+        if ( position == 0 )
+            messagePosition = 0;
+
+        while ( messagePosition < messageSize && messageTokens[messagePosition] <= position )
+            {
+            tokenizer.replayMessage(
+                    messageErrors[messagePosition],
+                    messageSources[messagePosition],
+                    messageKeys[messagePosition],
+                    messageValues[messagePosition],
+                    messageLines[messagePosition] );
+            messagePosition++;
+            }
+
+        if ( position >= size )
+            {
+            return Tokenizer.TYPE_EOF;
+            }
+
+        tokenizer.replayToken(
+                types[position],
+                integers[position],
+                dividers[position],
+                minusSigns[position],
+                defaultAlfas[position],
+                strings[position],
+                lines[position] );
+
+        return types[position++];
+        }
+
+
+    /**
+     * Writes the stream into a (snapshot) file
+     * @param out output stream
+     * @throws IOException if writing fails
+     */
+    public void write( DataOutputStream out ) throws IOException
+        {
+        out.writeInt( size );
+        for ( int n = 0; n < size; n++ )
+            {
+            out.writeByte( types[n] );
+            out.writeLong( integers[n] );
+            out.writeLong( dividers[n] );
+            out.writeBoolean( minusSigns[n] );
+            out.writeBoolean( defaultAlfas[n] );
+            writeString( out, strings[n] );
+            out.writeInt( lines[n] );
+            }
+
+        out.writeInt( messageSize );
+        for ( int n = 0; n < messageSize; n++ )
+            {
+            out.writeInt( messageTokens[n] );
+            out.writeBoolean( messageErrors[n] );
+            writeString( out, messageSources[n] );
+            out.writeInt( messageKeys[n].ordinal() );
+            writeString( out, messageValues[n] );
+            out.writeInt( messageLines[n] );
+            }
+        }
+
+    /**
+     * Reads a stream from a (snapshot) file.
+     * Counts and lengths are checked before allocation: a broken file cannot need more data
+     * than its size.
+     * @param in input stream
+     * @param maxBytes size of the file
+     * @return the stream, ready to replay
+     * @throws IOException if reading fails, or data is not valid
+     */
+    public static TokenStream read( DataInputStream in, long maxBytes ) throws IOException
+        {
+        TokenStream stream = new TokenStream();
+
+        int count = in.readInt();
+        if ( count < 0 || count > maxBytes / MIN_TOKEN_BYTES )
+            throw new IOException("Token stream is not valid! Tokens: " + count);
+        for ( int n = 0; n < count; n++ )
+            {
+            int type = in.readByte();
+            long integer = in.readLong();
+            long divider = in.readLong();
+            boolean minusSign = in.readBoolean();
+            boolean defaultAlfa = in.readBoolean();
+            String string = readString( in, maxBytes );
+            stream.addToken( type, integer, divider, minusSign, defaultAlfa,
+                    string == null ? "" : string, in.readInt() );
+            }
+
+        count = in.readInt();
+        if ( count < 0 || count > maxBytes / MIN_MESSAGE_BYTES )
+            throw new IOException("Token stream is not valid! Messages: " + count);
+        for ( int n = 0; n < count; n++ )
+            {
+            int token = in.readInt();
+            boolean error = in.readBoolean();
+            String source = readString( in, maxBytes );
+            ParserMessage messageKey = readMessageKey( in );
+            String value = readString( in, maxBytes );
+            stream.addMessage( error, source, messageKey, value, in.readInt() );
+            stream.messageTokens[n] = token;
+            }
+
+        return stream;
+        }
+
+    /**
+     * Helper method to read message keys, written as ordinals
+     * @throws IOException if reading fails, or key is not valid
+     */
+    private static ParserMessage readMessageKey( DataInputStream in ) throws IOException
+        {
+        int ordinal = in.readInt();
+        if ( ordinal < 0 || ordinal >= MESSAGE_KEYS.length )
+            throw new IOException("Token stream is not valid! Message key: " + ordinal);
+        return MESSAGE_KEYS[ordinal];
+        }
+
+    /**
+     * Helper method to write nullable strings without any length limit
+     * (writeUTF cannot be used above 64k)
+     */
+    private static void writeString( DataOutputStream out, String string ) throws IOException
+        {
+        if ( string == null )
+            {
+            out.writeInt( -1 );
+            }
+        else
+            {
+            out.writeInt( string.length() );
+            out.writeChars( string );
+            }
+        }
+
+    /**
+     * Helper method to read nullable strings, written by writeString()
+     * @param maxBytes size of the file, string cannot be longer
+     * @throws IOException if reading fails, or length is not valid
+     */
+    private static String readString( DataInputStream in, long maxBytes ) throws IOException
+        {
+        int length = in.readInt();
+        if ( length == -1 )
+            return null;
+        if ( length < 0 || length > maxBytes / 2 )
+            throw new IOException("Token stream is not valid! String length: " + length);
+
+        char[] chars = new char[length];
+        for ( int n = 0; n < length; n++ )
+            {
+            chars[n] = in.readChar();
+            }
+        return new String( chars );
+        }
+    }
@@ -1,12 +1,11 @@
 package org.lattilad.bestboard.parser;
 
-import android.content.Context;
 
-import org.lattilad.bestboard.R;
-import org.lattilad.bestboard.scribe.Scribe;
+import org.lattilad.bestboard.utils.LongObjectMap;
 
 import java.io.IOException;
 import java.io.Reader;
+import java.util.Arrays;
 import java.util.Locale;
 
 
@@ -127,34 +126,136 @@ public class Tokenizer
      ** CONSTRUCTOR - SETTING UP READER SOURCE
      **/
 
-    /** Reader stream source. Only read() method is used. */
+    /** Reader stream source. Only read() methods are used. */
     private Reader reader;
 
-    /** Context needed to reach string resources. */
-    private Context context;
+    /** Messages are sent here. Android dependent parts (resources, logs) are inside diagnostics. */
+    private Diagnostics diagnostics;
 
     /**
      * Constructs a new {@code ReaderTokenizer} with {@code reader} as source reader.
-     * @param context context to get resources
+     * @param diagnostics receiver of the messages
      * @param reader reader source
      * @throws java.io.IOException
      * @throws NullPointerException if {@code reader} is {@code null}.
      */
-    public Tokenizer(Context context, Reader reader) throws IOException
+    public Tokenizer(Diagnostics diagnostics, Reader reader) throws IOException
+        {
+        this( diagnostics, reader, null );
+        }
+
+    /**
+     * Constructs a new {@code ReaderTokenizer} with {@code reader} as source reader.
+     * All tokens (and tokenizer messages) are recorded into {@code recordStream}.
+     * @param diagnostics receiver of the messages
+     * @param reader reader source
+     * @param recordStream tokens are recorded here. Can be null.
+     * @throws java.io.IOException
+     * @throws NullPointerException if {@code reader} is {@code null}.
+     */
+    public Tokenizer(Diagnostics diagnostics, Reader reader, TokenStream recordStream) throws IOException
+        {
+        this( diagnostics, reader, recordStream, true );
+        }
+
+    /**
+     * Constructs a new {@code ReaderTokenizer} with {@code reader} as source reader.
+     * Reader can be read in large blocks (default), or character by character
+     * (previous method, TokenizerTest compares the two methods).
+     * @param diagnostics receiver of the messages
+     * @param reader reader source
+     * @param recordStream tokens are recorded here. Can be null.
+     * @param blockScanning true: reader is read in blocks, false: reader is read by characters
+     * @throws java.io.IOException
+     * @throws NullPointerException if {@code reader} is {@code null}.
+     */
+    Tokenizer(Diagnostics diagnostics, Reader reader, TokenStream recordStream, boolean blockScanning) throws IOException
         {
         if ( reader == null)
             throw new NullPointerException("Reader parameter is null!");
         this.reader = reader;
 
-        if ( context == null)
-            throw new NullPointerException("Context parameter is null!");
-        this.context = context;
+        if ( blockScanning )
+            buffer = new char[BUFFER_SIZE];
+
+        if ( diagnostics == null)
+            throw new NullPointerException("Diagnostics parameter is null!");
+        this.diagnostics = diagnostics;
+
+        this.recordStream = recordStream;
 
         // Check for BOM
+        scanning = true;
         if ( read() == 0xFEFF )
-            note( R.string.note_bom_character );
+            note( ParserMessage.NOTE_BOM_CHARACTER );
         else
             pushBackLastRead();
+        scanning = false;
+        }
+
+    /**
+     * Constructs a new {@code ReaderTokenizer} which replays an already tokenized stream.
+     * Reader is not used at all, tokens and tokenizer messages are given back from the stream.
+     * @param diagnostics receiver of the messages
+     * @param replayStream previously recorded tokens
+     * @throws NullPointerException if {@code replayStream} is {@code null}.
+     */
+    public Tokenizer(Diagnostics diagnostics, TokenStream replayStream)
+        {
+        if ( replayStream == null)
+            throw new NullPointerException("Stream parameter is null!");
+        this.replayStream = replayStream;
+        replayStream.rewind();
+
+        if ( diagnostics == null)
+            throw new NullPointerException("Diagnostics parameter is null!");
+        this.diagnostics = diagnostics;
+        }
+
+
+    /**
+     ** RECORDING AND REPLAYING TOKENS
+     **/
+
+    /** Returned tokens are recorded here (if not null) */
+    private TokenStream recordStream = null;
+
+    /** Tokens are given back from this stream instead of reading them (if not null) */
+    private TokenStream replayStream = null;
+
+    /** True while reader stream is tokenized. Only messages generated in this phase are recorded. */
+    private boolean scanning = false;
+
+    /**
+     * Sets token parameters from a replayed stream. Called by TokenStream.
+     * Colors with default alfa get the current default alfa (as tokenizing would do now)
+     */
+    void replayToken( int type, long integer, long divider, boolean minusSign, boolean defaultAlfaToken,
+                      String string, int line )
+        {
+        tokenType = type;
+        tokenInteger = defaultAlfaToken ? defaultAlfa + ( integer & 0xFFFFFFL ) : integer;
+        tokenDivider = divider;
+        tokenMinusSign = minusSign;
+        tokenDefaultAlfa = defaultAlfaToken;
+        keywordLength = 0;
+        keywordFromCode = ( type == TYPE_KEYWORD && string == null );
+        tokenStringBuilder.setLength( 0 );
+        if ( string != null )
+            tokenStringBuilder.append( string );
+        lineNumber = line;
+        }
+
+    /**
+     * Resends a recorded tokenizer message. Called by TokenStream.
+     */
+    void replayMessage( boolean error, String source, ParserMessage messageKey, String value, int line )
+        {
+        lineNumber = line;
+        if ( error )
+            error( source, messageKey, value );
+        else
+            note( source, messageKey, value );
         }
 
 
@@ -191,6 +292,28 @@ public class Tokenizer
      */
     private StringBuilder tokenStringBuilder = new StringBuilder();
 
+    /**
+     * Characters of TYPE_KEYWORD tokens are collected here instead of tokenStringBuilder.
+     * Parser mostly needs only the token code, string is created only if getStringToken() is called.
+     */
+    private char[] keywordChars = new char[MAX_KEYWORD_CHARACTERS];
+
+    /** Length of the keyword inside keywordChars. 0 means: string value is in tokenStringBuilder */
+    private int keywordLength = 0;
+
+    /**
+     * Replayed keyword without string: string should be regenerated from the token code.
+     * (Keywords are recorded only with their code, if code contains all their characters.)
+     */
+    private boolean keywordFromCode = false;
+
+    /**
+     * Strings of the already returned keywords, stored by token code.
+     * The same keywords are repeated many times, but their strings are created only once.
+     * (Only complete keywords are stored, which are not longer than MAX_KEYWORD_CHARACTERS.)
+     */
+    private LongObjectMap<String> keywordStrings = new LongObjectMap<>();
+
     /**
      * Integer value of the token
      * TYPE_INTEGER - absolute (always positive) value, tokenMinusSign marks negative values
@@ -211,6 +334,12 @@ public class Tokenizer
     /** True if the numeric value (tokenInteger or tokenDouble) is negative. */
     private boolean tokenMinusSign;
 
+    /**
+     * True if default alfa was added to the color value (tokenInteger).
+     * Recorded tokens should get the actual default alfa during replay.
+     */
+    private boolean tokenDefaultAlfa;
+
     /**
      * No more digits can be processed for numbers (also parts of fractions).
      * Result is unpredictable above it, log message will be sent.
@@ -253,9 +382,32 @@ public class Tokenizer
      */
     public String getStringToken()
         {
+        if ( keywordLength > 0 || keywordFromCode )
+            return getKeywordString();
         return tokenStringBuilder.toString();
         }
 
+    /**
+     * String of the keyword. Strings of the complete keywords are created only once,
+     * and they are given back from keywordStrings.
+     * Keyword is not complete during scanning, and longer keywords cannot be regenerated
+     * from their codes, these strings are always created from the characters.
+     */
+    private String getKeywordString()
+        {
+        if ( scanning || keywordLength > MAX_KEYWORD_CHARACTERS )
+            return new String( keywordChars, 0, keywordLength );
+
+        String keyword = keywordStrings.get( tokenInteger );
+        if ( keyword == null )
+            {
+            keyword = keywordFromCode ?
+                    regenerateKeyword( tokenInteger ) : new String( keywordChars, 0, keywordLength );
+            keywordStrings.put( tokenInteger, keyword );
+            }
+        return keyword;
+        }
+
     /**
      * Get integer representation of current token
      * @return integer value as:
@@ -474,6 +626,27 @@ public class Tokenizer
      ** READER STREAM READING FUNCTIONS
      **/
 
+    /** Size of the blocks read from reader stream */
+    private static final int BUFFER_SIZE = 8192;
+
+    /**
+     * Characters of the reader stream are read into this buffer by blocks.
+     * If buffer is null, then reader is read character by character.
+     */
+    private char[] buffer = null;
+
+    /** Position of the next character inside buffer */
+    private int bufferPosition = 0;
+
+    /** Number of valid characters inside buffer */
+    private int bufferLength = 0;
+
+    /** Position of the last character inside buffer (needed by pushBackLastRead()) */
+    private int lastReadPosition = 0;
+
+    /** Reader stream was finished, no more reads are needed */
+    private boolean endOfStream = false;
+
     /** Temporary storage for last read */
     private int lastRead = 0;
 
@@ -488,6 +661,32 @@ public class Tokenizer
      */
     private int read() throws IOException
         {
+        if ( buffer != null )
+            {
+            lastReadPosition = bufferPosition;
+
+            if ( bufferPosition < bufferLength )
+                return lastRead = buffer[bufferPosition++];
+
+            if ( !endOfStream )
+                {
+                int length;
+                // Reader can return 0 characters, then it should be read again
+                while ( (length = reader.read( buffer, 0, BUFFER_SIZE )) == 0 );
+
+                if ( length > 0 )
+                    {
+                    bufferLength = length;
+                    bufferPosition = 0;
+                    lastReadPosition = 0;
+                    return lastRead = buffer[bufferPosition++];
+                    }
+                endOfStream = true;
+                }
+
+            return lastRead = EOF;
+            }
+
         if ( rewindLastRead )
             rewindLastRead = false;
         else
@@ -500,7 +699,11 @@ public class Tokenizer
      */
     private void pushBackLastRead()
         {
-        rewindLastRead = true;
+        // EOF is not stored, next read() will give EOF anyway
+        if ( buffer != null )
+            bufferPosition = lastReadPosition;
+        else
+            rewindLastRead = true;
         }
 
     /**
@@ -554,7 +757,7 @@ public class Tokenizer
                     }
                 }
             // EOF is NOT an error
-            note( R.string.note_unclosed_rem );
+            note( ParserMessage.NOTE_UNCLOSED_REM );
             }
         // ; skip till EOL
         else
@@ -703,108 +906,114 @@ public class Tokenizer
 
     /**
      * Convenience method: error message for secondary log.
-     * @param messageResource message resource id
+     * @param messageKey key of the message
      */
-    public void error( int messageResource )
+    public void error( ParserMessage messageKey )
         {
-        error( null, messageResource, null );
+        error( null, messageKey, null );
         }
 
     /**
      * Convenience method: error message for secondary log.
      * @param source source of bad data - if needed. Can be null.
-     * @param messageResource message resource id
+     * @param messageKey key of the message
      */
-    public void error( String source, int messageResource )
+    public void error( String source, ParserMessage messageKey )
         {
-        error( source, messageResource, null );
+        error( source, messageKey, null );
         }
 
     /**
      * Convenience method: error message for secondary log.
-     * @param messageResource message resource id
+     * @param messageKey key of the message
      * @param value value of the bad data - if needed. Can be null.
      */
-    public void error( int messageResource, String value )
+    public void error( ParserMessage messageKey, String value )
         {
-        error( null, messageResource, value );
+        error( null, messageKey, value );
         }
 
     /**
      * Error message for secondary log.
      * @param source source of the bad data - if needed. Can be null.
-     * @param messageResource message resource id
+     * @param messageKey key of the message
      * @param value value of the bad data - if needed. Can be null.
      */
-    public void error( String source, int messageResource, String value )
+    public void error( String source, ParserMessage messageKey, String value )
         {
         errorCount++;
 
+        if ( scanning && recordStream != null )
+            recordStream.addMessage( true, source, messageKey, value, getLineNumber() );
+
         StringBuilder sb = new StringBuilder();
         if ( source != null )
             {
             sb.append("[").append(source).append("] ");
             }
-        sb.append( context.getString( messageResource ));
+        sb.append( diagnostics.getMessageText( messageKey ));
         if ( value != null )
             {
             sb.append(" ").append(value);
             }
         sb.append( " (line: " ).append( getLineNumber()).append(") ");
 
-        Scribe.error_secondary( sb.toString() );
+        diagnostics.error( sb.toString() );
         }
 
     /**
      * Convenience method: note message for secondary log.
-     * @param messageResource message resource id
+     * @param messageKey key of the message
      */
-    public void note( int messageResource )
+    public void note( ParserMessage messageKey )
         {
-        note( null, messageResource, null );
+        note( null, messageKey, null );
         }
 
     /**
      * Convenience method: note message for secondary log.
      * @param source source of data - if needed. Can be null.
-     * @param messageResource message resource id
+     * @param messageKey key of the message
      */
-    public void note( String source, int messageResource )
+    public void note( String source, ParserMessage messageKey )
         {
-        note( source, messageResource, null );
+        note( source, messageKey, null );
         }
 
     /**
      * Convenience method: note message for secondary log.
-     * @param messageResource message resource id
+     * @param messageKey key of the message
      * @param value value of data - if needed. Can be null.
      */
-    public void note( int messageResource, String value )
+    public void note( ParserMessage messageKey, String value )
         {
-        note( null, messageResource, value );
+        note( null, messageKey, value );
         }
 
     /**
      * Note message for secondary log.
      * @param source source of data - if needed. Can be null.
-     * @param messageResource message resource id
+     * @param messageKey key of the message
      * @param value value of data - if needed. Can be null.
      */
-    public void note( String source, int messageResource, String value )
+    public void note( String source, ParserMessage messageKey, String value )
         {
+        if ( scanning && recordStream != null )
+            recordStream.addMessage( false, source, messageKey, value, getLineNumber() );
+
         StringBuilder sb = new StringBuilder();
         if ( source != null )
             {
             sb.append("[").append(source).append("] ");
             }
-        sb.append( context.getString( messageResource ));
+        sb.append( diagnostics.getMessageText( messageKey ));
         if ( value != null )
             {
             sb.append(" ").append(value);
             }
         sb.append( " (line: " ).append( getLineNumber()).append(") ");
 
-        Scribe.note_secondary(sb.toString());
+        diagnostics.note( sb.toString() );
         }
 
 
@@ -852,14 +1061,14 @@ public class Tokenizer
                 if ( len==1 )
                     {
                     // This is not a malformed hexadecimal value, rather an unknown escape sequence. Returned as normal (non-escaped) character.
-                    error( getCharacterDescription(ch), R.string.error_escape_unknown );
+                    error( getCharacterDescription(ch), ParserMessage.ERROR_ESCAPE_UNKNOWN );
                     return ch;
                     }
                 else
                     {
                     // This is not a four-digit hexadecimal code.
                     // Try to return shorter code.
-                    error( getCharacterDescription( value ), R.string.error_escape_malformed );
+                    error( getCharacterDescription( value ), ParserMessage.ERROR_ESCAPE_MALFORMED );
                     pushBackLastRead();
                     break;
                     }
@@ -961,7 +1170,7 @@ public class Tokenizer
     private boolean ignoreEOL = true;
 
     /**
-     * This is the central part of the class: tokenize the next token from reader.
+     * Gives back the next token: from the replayed stream, or tokenized from reader.
      * Token type is returned, token parameters can be read by getStringToken(), getIntegerToken, getDoubleToken().
      * Reading errors generate exception, but format mistakes will be only logged.
      * @return token type
@@ -976,12 +1185,45 @@ public class Tokenizer
             return tokenType;
             }
 
+        // Compiled tokens are ready
+        if ( replayStream != null )
+            {
+            return replayStream.replay( this );
+            }
+
+        scanning = true;
+        scanToken();
+        scanning = false;
+
+        if ( recordStream != null )
+            {
+            // Keywords are regenerated from their code (if code contains all their characters)
+            recordStream.addToken( tokenType, tokenInteger, tokenDivider, tokenMinusSign, tokenDefaultAlfa,
+                    tokenType == TYPE_KEYWORD && keywordLength <= MAX_KEYWORD_CHARACTERS ?
+                            null : getStringToken(), lineNumber );
+            }
+
+        return tokenType;
+        }
+
+    /**
+     * This is the central part of the class: tokenize the next token from reader.
+     * Token type is returned, token parameters can be read by getStringToken(), getIntegerToken, getDoubleToken().
+     * Reading errors generate exception, but format mistakes will be only logged.
+     * @return token type
+     * @throws java.io.IOException
+     */
+    private int scanToken() throws IOException
+        {
         // Clear token parameters
         tokenType = TYPE_UNKNOWN;
+        keywordLength = 0;
+        keywordFromCode = false;
         tokenStringBuilder.setLength( 0 );
         tokenInteger = 0;
         tokenDivider = 1;
         tokenMinusSign = false;
+        tokenDefaultAlfa = false;
 
         // number of characters in character constants (if not 1 an error will be generated)
         // number of integer digits in numerical types (if exceeds MAX_DIGITS an error will be generated)
@@ -1121,7 +1363,7 @@ public class Tokenizer
                 // All other characters are not allowed! The whole token will be skipped
                 else
                     {
-                    error( getCharacterDescription(ch), R.string.error_character_invalid );
+                    error( getCharacterDescription(ch), ParserMessage.ERROR_CHARACTER_INVALID );
                     findNextWhiteSpace();
                     continue;
                     }
@@ -1142,7 +1384,7 @@ public class Tokenizer
                         {
                         tokenStringBuilder.append( (char)ch );
                         if ( tokenLength == MAX_DECIMAL_DIGITS )
-                            error( getStringToken(), R.string.error_integer_exceeds );
+                            error( getStringToken(), ParserMessage.ERROR_INTEGER_EXCEEDS );
                         tokenInteger *= 10L;
                         tokenInteger += valueOf( ch );
                         tokenLength++;
@@ -1176,10 +1418,10 @@ public class Tokenizer
                         {
                         // Can be MARK_PLUS, _MINUS, _FRACTION - but without any valid digits
                         if ( tokenLength < 1)
-                            error( getStringToken(), R.string.error_integer_malformed_no_numeric );
+                            error( getStringToken(), ParserMessage.ERROR_INTEGER_MALFORMED_NO_NUMERIC );
                         if ( !isValidWhiteSpace(ch) )
                             {
-                            error( getStringToken(), R.string.error_integer_malformed_ending );
+                            error( getStringToken(), ParserMessage.ERROR_INTEGER_MALFORMED_ENDING );
                             findNextWhiteSpace();
                             }
                         else
@@ -1201,7 +1443,7 @@ public class Tokenizer
                         {
                         tokenStringBuilder.append( (char)ch );
                         if ( tokenLength == MAX_HEXADECIMAL_DIGITS )
-                            error( getStringToken(), R.string.error_hexadecimal_exceeds );
+                            error( getStringToken(), ParserMessage.ERROR_HEXADECIMAL_EXCEEDS );
                         tokenInteger *= 0x10L;
                         tokenInteger += valueOf(ch);
                         tokenLength++;
@@ -1210,10 +1452,10 @@ public class Tokenizer
                         {
                         // Can be 0x without any valid digits
                         if ( tokenLength < 1)
-                            error( getStringToken(), R.string.error_hexadecimal_malformed_no_numeric );
+                            error( getStringToken(), ParserMessage.ERROR_HEXADECIMAL_MALFORMED_NO_NUMERIC );
                         if ( !isValidWhiteSpace(ch) )
                             {
-                            error( getStringToken(), R.string.error_hexadecimal_malformed_ending );
+                            error( getStringToken(), ParserMessage.ERROR_HEXADECIMAL_MALFORMED_ENDING );
                             findNextWhiteSpace();
                             }
                         else
@@ -1256,10 +1498,11 @@ public class Tokenizer
                         {
                         // Can be 0x without any valid digits
                         if ( tokenLength < 1)
-                            error( getStringToken(), R.string.error_color_malformed_no_numeric );
+                            error( getStringToken(), ParserMessage.ERROR_COLOR_MALFORMED_NO_NUMERIC );
                         // One digit grayscale
                         else if ( tokenLength == 1 ) // 0xh
                             {
+                            tokenDefaultAlfa = true;
                             tokenInteger = defaultAlfa +
                                     tokenIntegerDoubledDigits * 0x10000L +
                                     tokenIntegerDoubledDigits * 0x100L +
@@ -1268,6 +1511,7 @@ public class Tokenizer
                         // Two digits grayscale
                         else if ( tokenLength == 2 ) // 0xhh
                             {
+                            tokenDefaultAlfa = true;
                             tokenInteger = defaultAlfa +
                                     tokenInteger * 0x10000L +
                                     tokenInteger * 0x100L +
@@ -1276,6 +1520,7 @@ public class Tokenizer
                         // Red-Green-Blue each has one digit
                         else if ( tokenLength == 3 ) // 0xrgb
                             {
+                            tokenDefaultAlfa = true;
                             tokenInteger = defaultAlfa + tokenIntegerDoubledDigits;
                             }
                         // Alpha-Red-Green-Blue each has one digit
@@ -1286,6 +1531,7 @@ public class Tokenizer
                         // Red-Green-Blue each has two digits
                         else if ( tokenLength == 6 ) // 0xrrggbb
                             {
+                            tokenDefaultAlfa = true;
                             tokenInteger = defaultAlfa + tokenInteger;
                             }
                         // Alpha-Red-Green-Blue each has two digits - full color value
@@ -1296,12 +1542,12 @@ public class Tokenizer
                         else
                             {
                             tokenInteger = 0xFFFFFFFFL;
-                            error( getStringToken(), R.string.error_color_malformed_returning_opaque );
+                            error( getStringToken(), ParserMessage.ERROR_COLOR_MALFORMED_RETURNING_OPAQUE );
                             }
 
                         if ( !isValidWhiteSpace(ch) )
                             {
-                            error( getStringToken(), R.string.error_color_malformed_ending );
+                            error( getStringToken(), ParserMessage.ERROR_COLOR_MALFORMED_ENDING );
                             findNextWhiteSpace();
                             }
                         else
@@ -1332,11 +1578,11 @@ public class Tokenizer
                         if ( tokenInteger < 0L )
                             {
                             tokenInteger = 0xFFFFFFFFL;
-                            error( getStringToken(), R.string.error_color_missing_returning_opaque );
+                            error( getStringToken(), ParserMessage.ERROR_COLOR_MISSING_RETURNING_OPAQUE );
                             }
                         if ( !isValidWhiteSpace(ch) )
                             {
-                            error( getStringToken(), R.string.error_color_malformed_ending );
+                            error( getStringToken(), ParserMessage.ERROR_COLOR_MALFORMED_ENDING );
                             findNextWhiteSpace();
                             }
                         else
@@ -1359,7 +1605,7 @@ public class Tokenizer
                         {
                         tokenStringBuilder.append( (char)ch );
                         if ( tokenLength == MAX_DECIMAL_DIGITS )
-                            error( getStringToken(), R.string.error_fraction_exceeds );
+                            error( getStringToken(), ParserMessage.ERROR_FRACTION_EXCEEDS );
                         tokenInteger *= 10;
                         tokenInteger += valueOf( ch );
                         tokenDivider*= 10;
@@ -1369,10 +1615,10 @@ public class Tokenizer
                         {
                         // Can be MARK_PLUS, _MINUS, _FRACTION - but without any valid digits
                         if ( tokenLength < 1)
-                            error( getStringToken(), R.string.error_fraction_malformed_no_numeric );
+                            error( getStringToken(), ParserMessage.ERROR_FRACTION_MALFORMED_NO_NUMERIC );
                         if ( !isValidWhiteSpace(ch) )
                             {
-                            error( getStringToken(), R.string.error_fraction_malformed_ending );
+                            error( getStringToken(), ParserMessage.ERROR_FRACTION_MALFORMED_ENDING );
                             findNextWhiteSpace();
                             }
                         else
@@ -1393,9 +1639,11 @@ public class Tokenizer
                         tokenInteger*=TOKEN_CODE_RADIX;
                         tokenInteger+= valueOf(ch);
                         ch = toLowerCaseAsciiLetter(ch);
-                        tokenStringBuilder.append( (char)ch );
+                        if ( keywordLength == keywordChars.length )
+                            keywordChars = Arrays.copyOf( keywordChars, keywordLength * 2 );
+                        keywordChars[keywordLength++] = (char)ch;
                         if ( tokenLength == MAX_KEYWORD_CHARACTERS )
-                            error( getStringToken(), R.string.error_keyword_exceeds );
+                            error( getStringToken(), ParserMessage.ERROR_KEYWORD_EXCEEDS );
                         tokenLength++;
                         }
                     else
@@ -1408,7 +1656,7 @@ public class Tokenizer
                             }
                         else
                             {
-                            error( getStringToken(), R.string.error_keyword_malformed_ending );
+                            error( getStringToken(), ParserMessage.ERROR_KEYWORD_MALFORMED_ENDING );
                             findNextWhiteSpace();
                             }
                         // keyword's token-integer is shifted
@@ -1439,7 +1687,7 @@ public class Tokenizer
                                     findNextEndRem();
                                 else if ( ch > ' ' || ch == EOF )
                                     {
-                                    error( getStringToken(), R.string.error_string_not_terminated );
+                                    error( getStringToken(), ParserMessage.ERROR_STRING_NOT_TERMINATED );
                                     pushBackLastRead();
                                     return tokenType;
                                     }
@@ -1454,7 +1702,7 @@ public class Tokenizer
                         }
                     else if ( ch == EOF )
                         {
-                        error(getStringToken(), R.string.error_string_not_terminated);
+                        error(getStringToken(), ParserMessage.ERROR_STRING_NOT_TERMINATED);
                         return tokenType;
                         }
                     else if ( ch == EOL )
@@ -1484,12 +1732,12 @@ public class Tokenizer
                         {
                         if ( ch == MARK_CHARACTER )
                             {
-                            error( R.string.error_character_empty );
+                            error( ParserMessage.ERROR_CHARACTER_EMPTY );
                             return tokenType;
                             }
                         else if ( ch == EOL || ch == EOF )
                             {
-                            error( R.string.error_character_missing );
+                            error( ParserMessage.ERROR_CHARACTER_MISSING );
                             pushBackLastRead();
                             return tokenType;
                             }
@@ -1510,7 +1758,7 @@ public class Tokenizer
                             }
                         else
                             {
-                            error( getCharacterDescription(ch), R.string.error_character_not_terminated );
+                            error( getCharacterDescription(ch), ParserMessage.ERROR_CHARACTER_NOT_TERMINATED );
                             pushBackLastRead(); // It can be even a new line!
                             findNextWhiteSpace();
                             return tokenType;
@@ -1520,7 +1768,7 @@ public class Tokenizer
 
                 default:
                     // Impossible branch entry
-                    error( Integer.toString(tokenType), R.string.error_token_unknown );
+                    error( Integer.toString(tokenType), ParserMessage.ERROR_TOKEN_UNKNOWN );
                     return tokenType;
                 }
             }
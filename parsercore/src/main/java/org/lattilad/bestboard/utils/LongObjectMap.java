@@ -0,0 +1,356 @@
+package org.lattilad.bestboard.utils;
+
+import org.lattilad.bestboard.parser.Tokenizer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Map with primitive long keys (token codes).
+ * <p>
+ * Keys and values are stored in two parallel arrays (open addressing, linear probing),
+ * so neither keys are boxed, nor entry objects are created for the items.
+ * Removed items are not marked, following items of the same chain are shifted back instead.
+ * <p>
+ * Null values are allowed, but get() cannot distinguish them from missing keys
+ * - containsKey() can.
+ * <p>
+ * getCopy() works as the getCopy() of ExtendedList: values implementing ExtendedCopy
+ * are copied, all other values are shared. Arrays are copied in one step, and not rebuilt.
+ * <p>
+ * This class is not thread-safe!
+ */
+public class LongObjectMap<V> implements ExtendedCopy
+    {
+    /** Smallest size of the arrays (should be power of 2) */
+    private static final int MINIMAL_CAPACITY = 8;
+
+    /** Keys of the items */
+    private long[] keys;
+
+    /** Values of the items */
+    private Object[] values;
+
+    /** Slot contains an item */
+    private boolean[] used;
+
+    /** Number of items */
+    private int size = 0;
+
+    /** Arrays are enlarged above this size (3/4 of the capacity) */
+    private int threshold;
+
+
+    /**
+     * Creates an empty map
+     */
+    public LongObjectMap()
+        {
+        this( MINIMAL_CAPACITY );
+        }
+
+    /**
+     * Creates an empty map for the given number of items
+     * @param expectedSize number of items can be stored without enlarging the arrays
+     */
+    public LongObjectMap( int expectedSize )
+        {
+        int capacity = MINIMAL_CAPACITY;
+        while ( capacity * 3 / 4 < expectedSize )
+            capacity <<= 1;
+        allocate( capacity );
+        }
+
+    private void allocate( int capacity )
+        {
+        keys = new long[capacity];
+        values = new Object[capacity];
+        used = new boolean[capacity];
+        threshold = capacity * 3 / 4;
+        }
+
+
+    /**
+     * Start slot of the key. Token codes differ mostly in the upper bits,
+     * so bits are mixed before masking.
+     */
+    private int slotOf( long key )
+        {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int)(hash ^ (hash >>> 32)) & (keys.length - 1);
+        }
+
+    /**
+     * Slot of the key, or -1 if key cannot be found
+     */
+    private int find( long key )
+        {
+        int mask = keys.length - 1;
+        int slot = slotOf( key );
+        while ( used[slot] )
+            {
+            if ( keys[slot] == key )
+                return slot;
+            slot = (slot + 1) & mask;
+            }
+        return -1;
+        }
+
+    /**
+     * Value of the slot. Values are stored in an Object array,
+     * but only put() can store them, so each of them is V.
+     */
+    @SuppressWarnings("unchecked")
+    private V valueAt( int slot )
+        {
+        return (V)values[slot];
+        }
+
+
+    /**
+     * Number of items
+     */
+    public int size()
+        {
+        return size;
+        }
+
+    /**
+     * True, if map has no items
+     */
+    public boolean isEmpty()
+        {
+        return size == 0;
+        }
+
+    /**
+     * True, if key is stored (even with null value)
+     */
+    public boolean containsKey( long key )
+        {
+        return find( key ) >= 0;
+        }
+
+    /**
+     * Value associated with key
+     * @param key key to look up
+     * @return value, or null if key cannot be found
+     */
+    public V get( long key )
+        {
+        int slot = find( key );
+        return slot >= 0 ? valueAt( slot ) : null;
+        }
+
+    /**
+     * Stores value for the key
+     * @param key key
+     * @param value value (can be null)
+     * @return previous value of the key, or null if key was not stored
+     */
+    public V put( long key, V value )
+        {
+        int mask = keys.length - 1;
+        int slot = slotOf( key );
+        while ( used[slot] )
+            {
+            if ( keys[slot] == key )
+                {
+                V previous = valueAt( slot );
+                values[slot] = value;
+                return previous;
+                }
+            slot = (slot + 1) & mask;
+            }
+
+        keys[slot] = key;
+        values[slot] = value;
+        used[slot] = true;
+        if ( ++size > threshold )
+            rehash( keys.length << 1 );
+        return null;
+        }
+
+    /**
+     * Removes key
+     * @param key key to remove
+     * @return value of the removed key, or null if key was not stored
+     */
+    public V remove( long key )
+        {
+        int slot = find( key );
+        if ( slot < 0 )
+            return null;
+
+        V value = valueAt( slot );
+        size--;
+
+        // following items of the chain are shifted back into the free slot
+        int mask = keys.length - 1;
+        int free = slot;
+        int next = (slot + 1) & mask;
+        while ( used[next] )
+            {
+            int home = slotOf( keys[next] );
+            // item can be moved only if its home slot is not between free and next (cyclically)
+            if ( ((next - home) & mask) >= ((next - free) & mask) )
+                {
+                keys[free] = keys[next];
+                values[free] = values[next];
+                free = next;
+                }
+            next = (next + 1) & mask;
+            }
+        used[free] = false;
+        values[free] = null;
+
+        return value;
+        }
+
+    /**
+     * Remove method extended by default object to be returned when
+     * value is null or key is not found.
+     * @param key key to remove
+     * @param defaultValue default value to return if key is not found
+     * @return value that was associated with key
+     */
+    public V remove( long key, V defaultValue )
+        {
+        V value = remove( key );
+        return ( value != null ) ? value : defaultValue;
+        }
+
+    /**
+     * Removes all items
+     */
+    public void clear()
+        {
+        Arrays.fill( values, null );
+        Arrays.fill( used, false );
+        size = 0;
+        }
+
+    private void rehash( int capacity )
+        {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        boolean[] oldUsed = used;
+
+        allocate( capacity );
+
+        int mask = capacity - 1;
+        for ( int n = 0; n < oldKeys.length; n++ )
+            {
+            if ( oldUsed[n] )
+                {
+                int slot = slotOf( oldKeys[n] );
+                while ( used[slot] )
+                    slot = (slot + 1) & mask;
+                keys[slot] = oldKeys[n];
+                values[slot] = oldValues[n];
+                used[slot] = true;
+                }
+            }
+        }
+
+
+    /**
+     * Keys of the items (in no particular order)
+     * @return new array of keys
+     */
+    public long[] keys()
+        {
+        long[] result = new long[size];
+        int index = 0;
+        for ( int n = 0; n < keys.length; n++ )
+            {
+            if ( used[n] )
+                result[index++] = keys[n];
+            }
+        return result;
+        }
+
+    /**
+     * Values of the items (in no particular order, in the same order as keys())
+     * @return new list of values
+     */
+    public List<V> values()
+        {
+        List<V> result = new ArrayList<>( size );
+        for ( int n = 0; n < keys.length; n++ )
+            {
+            if ( used[n] )
+                result.add( valueAt( n ) );
+            }
+        return result;
+        }
+
+
+    @Override
+    public LongObjectMap<V> getCopy()
+        {
+        LongObjectMap<V> mapCopy = new LongObjectMap<>( 0 );
+
+        mapCopy.keys = keys.clone();
+        mapCopy.values = values.clone();
+        mapCopy.used = used.clone();
+        mapCopy.size = size;
+        mapCopy.threshold = threshold;
+
+        for ( int n = 0; n < values.length; n++ )
+            {
+            if ( values[n] instanceof ExtendedCopy )
+                mapCopy.values[n] = ((ExtendedCopy)values[n]).getCopy();
+            }
+
+        return mapCopy;
+        }
+
+
+    @Override
+    public String toString()
+        {
+        if (isEmpty())
+            {
+            return "{}";
+            }
+
+        StringBuilder buffer = new StringBuilder( size * 28 );
+        buffer.append('{');
+        for ( int n = 0; n < keys.length; n++ )
+            {
+            if ( !used[n] )
+                continue;
+
+            if ( buffer.length() > 1 )
+                {
+                buffer.append(", ");
+                }
+
+            buffer.append(keys[n]);
+            buffer.append('[');
+            buffer.append(Tokenizer.regenerateKeyword(keys[n]));
+            buffer.append(']');
+            buffer.append('=');
+
+            Object value = values[n];
+            if (value != this)
+                {
+                buffer.append(value);
+                if ( value != null && value instanceof Long )
+                    {
+                    buffer.append('[');
+                    buffer.append(Tokenizer.regenerateKeyword((long) value));
+                    buffer.append(']');
+                    }
+                }
+            else
+                {
+                buffer.append("(this Map)");
+                }
+            }
+        buffer.append('}');
+        return buffer.toString();
+        }
+    }
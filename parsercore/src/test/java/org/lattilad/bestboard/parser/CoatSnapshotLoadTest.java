@@ -0,0 +1,213 @@
+package org.lattilad.bestboard.parser;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import static org.junit.Assert.*;
+
+/**
+ * Broken snapshot files should not crash the parser:
+ * load() returns null, and deletes the snapshot, so the coat files are parsed again.
+ */
+public class CoatSnapshotLoadTest
+    {
+    private static final long PROGRAM_STAMP = 12345L;
+
+    /** Header: magic, format version, coat version, program stamp and number of entries */
+    private static final int HEADER_BYTES = 4 + 4 + 8 + 8 + 4;
+
+    /** Bytes of the first token before its string length: type, integer, divider, flags */
+    private static final int TOKEN_BYTES_BEFORE_STRING = 1 + 8 + 8 + 1 + 1;
+
+    /** Bytes of the first token: string length, "string" as chars and line come after the flags */
+    private static final int TOKEN_BYTES = TOKEN_BYTES_BEFORE_STRING + 4 + 2 * 6 + 4;
+
+    /** Bytes of the message before its key: token, error, source (null) */
+    private static final int MESSAGE_BYTES_BEFORE_KEY = 4 + 1 + 4;
+
+    private File directory;
+    private File coatFile;
+    private File snapshotFile;
+
+    /** Position of the hash length of the first entry */
+    private int hashLengthPosition;
+
+    /** Messages of the snapshot are not checked */
+    private static final Diagnostics SILENT_DIAGNOSTICS = new Diagnostics()
+        {
+        @Override
+        public String getMessageText( ParserMessage messageKey )
+            {
+            return messageKey.name();
+            }
+
+        @Override
+        public void error( String message )
+            {
+            }
+
+        @Override
+        public void note( String message )
+            {
+            }
+
+        @Override
+        public void debug( String message )
+            {
+            }
+
+        @Override
+        public void programError( String message )
+            {
+            }
+        };
+
+    @Before
+    public void setUp() throws IOException
+        {
+        directory = File.createTempFile( "snapshot", "test" );
+        assertTrue( directory.delete() );
+        assertTrue( directory.mkdir() );
+
+        coatFile = new File( directory, "main.txt" );
+        FileOutputStream out = new FileOutputStream( coatFile );
+        try
+            {
+            out.write( "coat (1000)\n".getBytes( "UTF-8" ) );
+            }
+        finally
+            {
+            out.close();
+            }
+
+        TokenStream stream = new TokenStream();
+        stream.addToken( Tokenizer.TYPE_STRING, 0L, 1L, false, false, "string", 1 );
+        stream.addMessage( false, null, ParserMessage.PARSER_COAT_FILE_OK, "message", 1 );
+
+        CoatSnapshot snapshot = new CoatSnapshot();
+        snapshot.add( coatFile, CoatSnapshot.hashOf( coatFile ), stream );
+        snapshotFile = new File( directory, "coat.snapshot" );
+        snapshot.save( SILENT_DIAGNOSTICS, snapshotFile, PROGRAM_STAMP );
+        assertTrue( snapshotFile.exists() );
+
+        // path is written by writeUTF: length (2 bytes) and the ascii characters
+        hashLengthPosition = HEADER_BYTES + 2 + coatFile.getAbsolutePath().length();
+        }
+
+    @After
+    public void tearDown()
+        {
+        snapshotFile.delete();
+        coatFile.delete();
+        directory.delete();
+        }
+
+    private void writeInt( long position, int value ) throws IOException
+        {
+        RandomAccessFile file = new RandomAccessFile( snapshotFile, "rw" );
+        try
+            {
+            file.seek( position );
+            file.writeInt( value );
+            }
+        finally
+            {
+            file.close();
+            }
+        }
+
+    /** Position of the first int after the hash of the first entry */
+    private long tokenCountPosition() throws IOException
+        {
+        RandomAccessFile file = new RandomAccessFile( snapshotFile, "r" );
+        try
+            {
+            file.seek( hashLengthPosition );
+            return hashLengthPosition + 4 + file.readInt();
+            }
+        finally
+            {
+            file.close();
+            }
+        }
+
+    private void assertDropped()
+        {
+        assertNull( CoatSnapshot.load( SILENT_DIAGNOSTICS, snapshotFile, PROGRAM_STAMP ) );
+        assertFalse( "Broken snapshot is not deleted", snapshotFile.exists() );
+        }
+
+
+    @Test
+    public void validSnapshot_isLoaded()
+        {
+        CoatSnapshot snapshot = CoatSnapshot.load( SILENT_DIAGNOSTICS, snapshotFile, PROGRAM_STAMP );
+        assertNotNull( snapshot );
+        assertEquals( 1, snapshot.validSize() );
+        assertEquals( 1, snapshot.nextStream( coatFile ).size() );
+        }
+
+    @Test
+    public void negativeHashLength_dropsSnapshot() throws IOException
+        {
+        writeInt( hashLengthPosition, -7 );
+        assertDropped();
+        }
+
+    @Test
+    public void hugeHashLength_dropsSnapshot() throws IOException
+        {
+        writeInt( hashLengthPosition, Integer.MAX_VALUE );
+        assertDropped();
+        }
+
+    @Test
+    public void hugeTokenCount_dropsSnapshot() throws IOException
+        {
+        writeInt( tokenCountPosition(), Integer.MAX_VALUE );
+        assertDropped();
+        }
+
+    @Test
+    public void hugeStringLength_dropsSnapshot() throws IOException
+        {
+        writeInt( tokenCountPosition() + 4 + TOKEN_BYTES_BEFORE_STRING, Integer.MAX_VALUE );
+        assertDropped();
+        }
+
+    @Test
+    public void negativeStringLength_dropsSnapshot() throws IOException
+        {
+        writeInt( tokenCountPosition() + 4 + TOKEN_BYTES_BEFORE_STRING, -2 );
+        assertDropped();
+        }
+
+    @Test
+    public void unknownMessageKey_dropsSnapshot() throws IOException
+        {
+        writeInt( tokenCountPosition() + 4 + TOKEN_BYTES + 4 + MESSAGE_BYTES_BEFORE_KEY,
+                ParserMessage.values().length );
+        assertDropped();
+        }
+
+    @Test
+    public void truncatedSnapshot_dropsSnapshot() throws IOException
+        {
+        RandomAccessFile file = new RandomAccessFile( snapshotFile, "rw" );
+        try
+            {
+            file.setLength( file.length() - 10 );
+            }
+        finally
+            {
+            file.close();
+            }
+        assertDropped();
+        }
+    }
@@ -0,0 +1,133 @@
+package org.lattilad.bestboard.parser;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Replayed tokens should be the same as the tokenized ones.
+ * Keywords are recorded without strings, their strings are regenerated from the token codes.
+ */
+public class TokenStreamTest
+    {
+    private static final String SOURCE =
+            "coat (1000)\n" +
+            "addlayout (id MainLayout columns 13 rows 6 asboard color 0c808080)\n" +
+            "let (first_label \"text\" second_2 'c' fraction 1.25 negative -12)\n" +
+            "button (text 'a' color 0c123456) button (text 'b' color 0c123456)\n" +
+            "verylongkeywordname 1\n" +
+            "malformed!keyword 2\n";
+
+    /** Messages are not checked, only counted */
+    private static class CountingDiagnostics implements Diagnostics
+        {
+        int errors = 0;
+        int notes = 0;
+
+        @Override
+        public String getMessageText( ParserMessage messageKey )
+            {
+            return messageKey.name();
+            }
+
+        @Override
+        public void error( String message )
+            {
+            errors++;
+            }
+
+        @Override
+        public void note( String message )
+            {
+            notes++;
+            }
+
+        @Override
+        public void debug( String message )
+            {
+            }
+
+        @Override
+        public void programError( String message )
+            {
+            }
+        }
+
+    /** Parameters of one token */
+    private static class Token
+        {
+        int type;
+        String string;
+        long integer;
+        int line;
+
+        Token( Tokenizer tokenizer )
+            {
+            type = tokenizer.getTokenType();
+            string = tokenizer.getStringToken();
+            integer = tokenizer.getIntegerToken();
+            line = tokenizer.getLineNumber();
+            }
+        }
+
+    private static List<Token> readTokens( Tokenizer tokenizer ) throws IOException
+        {
+        List<Token> tokens = new ArrayList<>();
+        while ( tokenizer.nextToken() != Tokenizer.TYPE_EOF )
+            tokens.add( new Token( tokenizer ) );
+        return tokens;
+        }
+
+    @Test
+    public void replayedTokens_matchTokenizedTokens() throws IOException
+        {
+        CountingDiagnostics tokenizedDiagnostics = new CountingDiagnostics();
+        TokenStream stream = new TokenStream();
+        List<Token> tokenized = readTokens(
+                new Tokenizer( tokenizedDiagnostics, new StringReader( SOURCE ), stream ) );
+
+        CountingDiagnostics replayedDiagnostics = new CountingDiagnostics();
+        List<Token> replayed = readTokens( new Tokenizer( replayedDiagnostics, stream ) );
+
+        assertEquals( tokenized.size(), replayed.size() );
+        for ( int n = 0; n < tokenized.size(); n++ )
+            {
+            Token expected = tokenized.get( n );
+            Token actual = replayed.get( n );
+            assertEquals( "Type of token " + n, expected.type, actual.type );
+            assertEquals( "String of token " + n, expected.string, actual.string );
+            assertEquals( "Integer of token " + n, expected.integer, actual.integer );
+            assertEquals( "Line of token " + n, expected.line, actual.line );
+            }
+
+        // long and malformed keywords are reported again
+        assertTrue( tokenizedDiagnostics.errors >= 2 );
+        assertEquals( tokenizedDiagnostics.errors, replayedDiagnostics.errors );
+        assertEquals( tokenizedDiagnostics.notes, replayedDiagnostics.notes );
+        }
+
+    @Test
+    public void keywordStrings_areCreatedOnce() throws IOException
+        {
+        Tokenizer tokenizer = new Tokenizer( new CountingDiagnostics(),
+                new StringReader( "color Button COLOR color_2" ) );
+
+        tokenizer.nextToken();
+        String first = tokenizer.getStringToken();
+        assertSame( first, tokenizer.getStringToken() );
+
+        tokenizer.nextToken();
+        assertEquals( "button", tokenizer.getStringToken() );
+
+        tokenizer.nextToken();
+        assertSame( first, tokenizer.getStringToken() );
+
+        tokenizer.nextToken();
+        assertEquals( "color_2", tokenizer.getStringToken() );
+        }
+    }
@@ -0,0 +1,199 @@
+package org.lattilad.bestboard.utils;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * LongObjectMap is compared with HashMap: both maps should contain the same items
+ * after the same operations.
+ */
+public class LongObjectMapTest
+    {
+    /** Token codes are large numbers, they differ in all bits */
+    private static final long CODE_MULTIPLIER = 0x10001L * 40L * 40L;
+
+    /** Copied values should be different objects, but with the same text */
+    private static class CopiedValue implements ExtendedCopy
+        {
+        String text;
+
+        CopiedValue( String text )
+            {
+            this.text = text;
+            }
+
+        @Override
+        public CopiedValue getCopy()
+            {
+            return new CopiedValue( text );
+            }
+        }
+
+    private static void assertSameItems( Map<Long, Object> expected, LongObjectMap<Object> map )
+        {
+        assertEquals( expected.size(), map.size() );
+        assertEquals( expected.isEmpty(), map.isEmpty() );
+        for ( Map.Entry<Long, Object> entry : expected.entrySet() )
+            {
+            assertTrue( "Key is missing: " + entry.getKey(), map.containsKey( entry.getKey() ) );
+            assertSame( entry.getValue(), map.get( entry.getKey() ) );
+            }
+
+        long[] keys = map.keys();
+        assertEquals( expected.size(), keys.length );
+        for ( int n = 0; n < keys.length; n++ )
+            {
+            assertTrue( "Key is not expected: " + keys[n], expected.containsKey( keys[n] ) );
+            // values() comes in the same order as keys()
+            assertSame( expected.get( keys[n] ), map.values().get( n ) );
+            }
+        }
+
+    @Test
+    public void randomOperations_matchHashMap()
+        {
+        Random random = new Random( 8L );
+        Map<Long, Object> expected = new HashMap<>();
+        LongObjectMap<Object> map = new LongObjectMap<>();
+
+        for ( int round = 0; round < 20000; round++ )
+            {
+            // small key range: lots of overwrites and removals of existing keys
+            long key = random.nextInt( 200 ) * CODE_MULTIPLIER;
+            int operation = random.nextInt( 10 );
+
+            if ( operation < 5 )
+                {
+                Object value = random.nextInt( 20 ) == 0 ? null : "value" + round;
+                assertSame( expected.put( key, value ), map.put( key, value ) );
+                }
+            else if ( operation < 9 )
+                {
+                assertSame( expected.remove( key ), map.remove( key ) );
+                }
+            else
+                {
+                assertEquals( expected.containsKey( key ), map.containsKey( key ) );
+                assertSame( expected.get( key ), map.get( key ) );
+                }
+
+            if ( round % 500 == 0 )
+                assertSameItems( expected, map );
+            }
+        assertSameItems( expected, map );
+
+        map.clear();
+        expected.clear();
+        assertSameItems( expected, map );
+        }
+
+    @Test
+    public void remove_shiftsBackFollowingItems()
+        {
+        // 12 items in the 16 slots of the default map (just at threshold) - all 12-item sets
+        // of 14 keys are checked, so items of the same chain are removed from all positions
+        for ( int set = 0; set < (1 << 14); set++ )
+            {
+            if ( Integer.bitCount( set ) != 12 )
+                continue;
+
+            LongObjectMap<Object> full = new LongObjectMap<>();
+            Map<Long, Object> expectedFull = new HashMap<>();
+            for ( long n = 0; n < 14; n++ )
+                {
+                if ( (set & (1 << n)) != 0 )
+                    {
+                    full.put( n * CODE_MULTIPLIER, "value" + n );
+                    expectedFull.put( n * CODE_MULTIPLIER, full.get( n * CODE_MULTIPLIER ) );
+                    }
+                }
+
+            // each item is removed from its own copy, all other items should remain reachable
+            for ( long removed : full.keys() )
+                {
+                LongObjectMap<Object> map = full.getCopy();
+                Map<Long, Object> expected = new HashMap<>( expectedFull );
+
+                assertSame( expected.remove( removed ), map.remove( removed ) );
+                assertFalse( map.containsKey( removed ) );
+                assertNull( map.remove( removed ) );
+                assertSameItems( expected, map );
+
+                // removed slot can be used again
+                map.put( removed, "again" );
+                expected.put( removed, map.get( removed ) );
+                assertSameItems( expected, map );
+                }
+            }
+        }
+
+    @Test
+    public void growingMap_keepsItems()
+        {
+        Map<Long, Object> expected = new HashMap<>();
+        LongObjectMap<Object> map = new LongObjectMap<>();
+
+        for ( int n = 0; n < 5000; n++ )
+            {
+            long key = n * CODE_MULTIPLIER - n;
+            Object value = "value" + n;
+            expected.put( key, value );
+            map.put( key, value );
+            }
+        assertSameItems( expected, map );
+
+        // removing every second item after the resizes
+        for ( int n = 0; n < 5000; n += 2 )
+            {
+            long key = n * CODE_MULTIPLIER - n;
+            assertSame( expected.remove( key ), map.remove( key ) );
+            }
+        assertSameItems( expected, map );
+        }
+
+    @Test
+    public void expectedSize_isStoredWithoutLoss()
+        {
+        LongObjectMap<Object> map = new LongObjectMap<>( 100 );
+        Map<Long, Object> expected = new HashMap<>();
+        for ( long n = 0; n < 100; n++ )
+            {
+            map.put( n, "value" + n );
+            expected.put( n, map.get( n ) );
+            }
+        assertSameItems( expected, map );
+        }
+
+    @Test
+    public void getCopy_copiesExtendedCopyValues()
+        {
+        LongObjectMap<Object> map = new LongObjectMap<>();
+        CopiedValue copied = new CopiedValue( "copied" );
+        String shared = "shared";
+        map.put( 1L * CODE_MULTIPLIER, copied );
+        map.put( 2L * CODE_MULTIPLIER, shared );
+        map.put( 3L * CODE_MULTIPLIER, null );
+
+        LongObjectMap<Object> copy = map.getCopy();
+        assertEquals( 3, copy.size() );
+        assertTrue( copy.containsKey( 3L * CODE_MULTIPLIER ) );
+        assertSame( shared, copy.get( 2L * CODE_MULTIPLIER ) );
+
+        Object copiedValue = copy.get( 1L * CODE_MULTIPLIER );
+        assertNotSame( copied, copiedValue );
+        assertEquals( "copied", ((CopiedValue) copiedValue).text );
+
+        // maps are independent after copying
+        copy.remove( 2L * CODE_MULTIPLIER );
+        copy.put( 4L * CODE_MULTIPLIER, "new" );
+        assertEquals( 3, map.size() );
+        assertSame( shared, map.get( 2L * CODE_MULTIPLIER ) );
+        assertFalse( map.containsKey( 4L * CODE_MULTIPLIER ) );
+        assertSame( copied, map.get( 1L * CODE_MULTIPLIER ) );
+        }
+    }